@@ -0,0 +1,195 @@
+package io.github.manoelcampos.dtogen.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates the source files of a synthetic corpus of {@link io.github.manoelcampos.dtogen.DTO} annotated model classes,
+ * according to a given {@link CorpusShape}.
+ * The same corpus is always generated for the same shape.
+ *
+ * <p>Each package has a chain of abstract superclasses (Base1, Base2 extends Base1, ...)
+ * extended by the model classes, which are named Entity0, Entity1 and so on.
+ * Model classes have private fields with getters and setters, while model records have just components.
+ * Some fields have JavaDocs and validation-like annotations, so that all the processor phases are exercised.</p>
+ * @author Manoel Campos
+ */
+public final class CorpusGenerator {
+    private static final String ROOT_PACKAGE = "corpus";
+    private static final String[] SCALAR_TYPES = {
+            "String", "int", "long", "double", "boolean", "Integer", "Long",
+            "java.math.BigDecimal", "java.time.LocalDate", "java.time.LocalDateTime"
+    };
+
+    private static final int FIELDS_PER_SUPERCLASS = 3;
+
+    private final CorpusShape shape;
+    private final Random random;
+
+    /**
+     * Creates a CorpusGenerator.
+     * @param shape the shape of the corpus to generate
+     */
+    public CorpusGenerator(final CorpusShape shape) {
+        this.shape = shape;
+        this.random = new Random(shape.seed());
+    }
+
+    /**
+     * Generates the corpus source files inside a given dir.
+     * @param dir the dir to write the source files into (in sub-dirs for each package)
+     * @return the list of generated source files
+     * @throws IOException when a file cannot be written
+     */
+    public List<Path> generate(final Path dir) throws IOException {
+        final var files = new ArrayList<Path>();
+        final int packages = (shape.entities() + shape.entitiesPerPackage() - 1) / shape.entitiesPerPackage();
+        for (int pkg = 0; pkg < packages; pkg++) {
+            final var packageDir = Files.createDirectories(dir.resolve(ROOT_PACKAGE).resolve(packageName(pkg)));
+            for (int depth = 1; depth <= shape.inheritanceDepth(); depth++)
+                files.add(write(packageDir, "Base" + depth, superclassCode(pkg, depth)));
+        }
+
+        for (int entity = 0; entity < shape.entities(); entity++) {
+            final int pkg = entity / shape.entitiesPerPackage();
+            final var packageDir = dir.resolve(ROOT_PACKAGE).resolve(packageName(pkg));
+            files.add(write(packageDir, entityName(entity), entityCode(entity)));
+        }
+
+        return files;
+    }
+
+    private static Path write(final Path packageDir, final String className, final String code) throws IOException {
+        return Files.writeString(packageDir.resolve(className + ".java"), code);
+    }
+
+    private static String packageName(final int pkg) {
+        return "p" + pkg;
+    }
+
+    private static String entityName(final int entity) {
+        return "Entity" + entity;
+    }
+
+    private String qualifiedEntityName(final int entity) {
+        return ROOT_PACKAGE + "." + packageName(entity / shape.entitiesPerPackage()) + "." + entityName(entity);
+    }
+
+    private static String fullPackageName(final int pkg) {
+        return ROOT_PACKAGE + "." + packageName(pkg);
+    }
+
+    /**
+     * {@return the code of an abstract superclass in a chain of superclasses}
+     * The first one declares the id field.
+     * @param pkg the index of the package of the superclass
+     * @param depth the position of the superclass in the chain (starting from 1)
+     */
+    private String superclassCode(final int pkg, final int depth) {
+        final var fields = new ArrayList<Field>();
+        if (depth == 1)
+            fields.add(new Field("long", "id", "", ""));
+
+        for (int i = 0; i < FIELDS_PER_SUPERCLASS; i++)
+            fields.add(scalarField("base" + depth + "Field" + i));
+
+        final var extendsClause = depth == 1 ? "" : " extends Base" + (depth - 1);
+        final var code = new StringBuilder("package ").append(fullPackageName(pkg)).append(";\n\n")
+                .append("public abstract class Base").append(depth).append(extendsClause).append(" {\n");
+        appendClassBody(code, fields);
+        return code.append("}\n").toString();
+    }
+
+    private String entityCode(final int entity) {
+        final boolean record = random.nextDouble() < shape.recordRatio();
+        final int fieldCount = shape.minFields() + random.nextInt(shape.maxFields() - shape.minFields() + 1);
+        final var fields = new ArrayList<Field>();
+        if (record || shape.inheritanceDepth() == 0)
+            fields.add(new Field("long", "id", "", ""));
+
+        for (int i = 0; i < fieldCount; i++)
+            fields.add(entityField(entity, i));
+
+        final var code = new StringBuilder("package ").append(fullPackageName(entity / shape.entitiesPerPackage())).append(";\n\n")
+                .append("import io.github.manoelcampos.dtogen.DTO;\n\n")
+                .append("/** A synthetic model class. */\n")
+                .append("@DTO\n");
+
+        if (record) {
+            code.append("public record ").append(entityName(entity)).append("(\n");
+            for (int i = 0; i < fields.size(); i++) {
+                final var field = fields.get(i);
+                code.append("    ").append(field.annotations()).append(field.type()).append(' ').append(field.name())
+                    .append(i < fields.size() - 1 ? ",\n" : "\n");
+            }
+
+            return code.append(") {\n}\n").toString();
+        }
+
+        final var extendsClause = shape.inheritanceDepth() == 0 ? "" : " extends Base" + shape.inheritanceDepth();
+        code.append("public class ").append(entityName(entity)).append(extendsClause).append(" {\n");
+        appendClassBody(code, fields);
+        return code.append("}\n").toString();
+    }
+
+    /**
+     * {@return a field for a model class, which may be a scalar value,
+     * a reference to another model class annotated with {@link io.github.manoelcampos.dtogen.DTO.MapToId}
+     * or a List of model classes from the same package}
+     */
+    private Field entityField(final int entity, final int index) {
+        final double kind = random.nextDouble();
+        if (kind < shape.mapToIdRatio()) {
+            final int target = random.nextInt(shape.entities());
+            return new Field(qualifiedEntityName(target), "ref" + index, "@DTO.MapToId ", "");
+        }
+
+        if (kind < shape.mapToIdRatio() + shape.listRatio()) {
+            // List items are taken from the same package, since the generated code references their DTOs by the simple name
+            final int first = entity / shape.entitiesPerPackage() * shape.entitiesPerPackage();
+            final int last = Math.min(first + shape.entitiesPerPackage(), shape.entities());
+            final int target = first + random.nextInt(last - first);
+            return new Field("java.util.List<" + entityName(target) + ">", "items" + index, "", "");
+        }
+
+        return scalarField("field" + index);
+    }
+
+    private Field scalarField(final String name) {
+        final var type = SCALAR_TYPES[random.nextInt(SCALAR_TYPES.length)];
+        final var annotations = type.equals("String") && random.nextBoolean() ? "@Deprecated " : "";
+        final var javaDoc = random.nextInt(3) == 0 ? "The " + name + " value, which is a synthetic " + type + "." : "";
+        return new Field(type, name, annotations, javaDoc);
+    }
+
+    private static void appendClassBody(final StringBuilder code, final List<Field> fields) {
+        for (final var field : fields) {
+            if (!field.javaDoc().isEmpty())
+                code.append("    /** ").append(field.javaDoc()).append(" */\n");
+            code.append("    ").append(field.annotations()).append("private ").append(field.type()).append(' ').append(field.name()).append(";\n");
+        }
+
+        for (final var field : fields) {
+            final var capitalized = Character.toUpperCase(field.name().charAt(0)) + field.name().substring(1);
+            final var getterPrefix = field.type().equals("boolean") ? "is" : "get";
+            code.append('\n')
+                .append("    public ").append(field.type()).append(' ').append(getterPrefix).append(capitalized)
+                .append("() { return ").append(field.name()).append("; }\n")
+                .append("    public void set").append(capitalized).append('(').append(field.type()).append(" value) { this.")
+                .append(field.name()).append(" = value; }\n");
+        }
+    }
+
+    /**
+     * A field to be declared in a class.
+     * @param type the field type
+     * @param name the field name
+     * @param annotations the annotations to declare before the field (ending with a space if not empty)
+     * @param javaDoc the JavaDoc comment of the field (empty if none)
+     */
+    private record Field(String type, String name, String annotations, String javaDoc) {}
+}
@@ -0,0 +1,102 @@
+package io.github.manoelcampos.dtogen.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The shape of a synthetic corpus of model classes generated by the {@link CorpusGenerator}.
+ *
+ * @param entities number of {@link io.github.manoelcampos.dtogen.DTO} annotated model classes
+ * @param minFields minimum number of fields declared in each model class
+ * @param maxFields maximum number of fields declared in each model class
+ * @param inheritanceDepth number of superclasses each model class extends (in a chain),
+ *                         each one declaring some fields (0 for no superclass)
+ * @param mapToIdRatio the ratio (from 0 to 1) of fields referencing another model class with {@link io.github.manoelcampos.dtogen.DTO.MapToId}
+ * @param listRatio the ratio (from 0 to 1) of fields which are a List of another {@link io.github.manoelcampos.dtogen.DTO} annotated model class
+ * @param recordRatio the ratio (from 0 to 1) of model classes which are records instead of classes
+ *                    (records don't extend the superclasses)
+ * @param entitiesPerPackage number of model classes placed in each package
+ * @param seed the seed for the random number generator, so that the same corpus is generated for the same shape
+ * @author Manoel Campos
+ */
+public record CorpusShape(
+        int entities, int minFields, int maxFields, int inheritanceDepth,
+        double mapToIdRatio, double listRatio, double recordRatio,
+        int entitiesPerPackage, long seed)
+{
+    /**
+     * The default shape, used for the values not given in the command line.
+     */
+    public static final CorpusShape DEFAULT = new CorpusShape(1000, 5, 30, 2, 0.1, 0.05, 0.2, 500, 42);
+
+    private static final Set<String> KEYS = Set.of(
+            "entities", "minFields", "maxFields", "inheritanceDepth",
+            "mapToIdRatio", "listRatio", "recordRatio", "entitiesPerPackage", "seed");
+
+    public CorpusShape {
+        if (entities < 1)
+            throw new IllegalArgumentException("entities must be at least 1");
+        if (minFields < 0 || maxFields < minFields)
+            throw new IllegalArgumentException("minFields must be between 0 and maxFields");
+        if (inheritanceDepth < 0)
+            throw new IllegalArgumentException("inheritanceDepth must not be negative");
+        if (entitiesPerPackage < 1)
+            throw new IllegalArgumentException("entitiesPerPackage must be at least 1");
+        checkRatio("mapToIdRatio", mapToIdRatio);
+        checkRatio("listRatio", listRatio);
+        checkRatio("recordRatio", recordRatio);
+        if (mapToIdRatio + listRatio > 1)
+            throw new IllegalArgumentException("mapToIdRatio + listRatio must not be greater than 1");
+    }
+
+    private static void checkRatio(final String name, final double ratio) {
+        if (ratio < 0 || ratio > 1)
+            throw new IllegalArgumentException(name + " must be between 0 and 1");
+    }
+
+    /**
+     * Creates a CorpusShape from key=value arguments (such as {@code entities=5000 maxFields=100}),
+     * using the {@link #DEFAULT} values for the missing ones.
+     * @param options a map where each key is the name of a CorpusShape component and the value is the component value
+     * @return the new CorpusShape
+     */
+    public static CorpusShape of(final Map<String, String> options) {
+        final var values = new HashMap<>(options);
+        values.keySet().retainAll(KEYS);
+        return new CorpusShape(
+                intValue(values, "entities", DEFAULT.entities),
+                intValue(values, "minFields", DEFAULT.minFields),
+                intValue(values, "maxFields", DEFAULT.maxFields),
+                intValue(values, "inheritanceDepth", DEFAULT.inheritanceDepth),
+                doubleValue(values, "mapToIdRatio", DEFAULT.mapToIdRatio),
+                doubleValue(values, "listRatio", DEFAULT.listRatio),
+                doubleValue(values, "recordRatio", DEFAULT.recordRatio),
+                intValue(values, "entitiesPerPackage", DEFAULT.entitiesPerPackage),
+                Long.parseLong(values.getOrDefault("seed", String.valueOf(DEFAULT.seed))));
+    }
+
+    /**
+     * {@return true if the given key is the name of a CorpusShape component}
+     * @param key the key to check
+     */
+    static boolean isShapeKey(final String key) {
+        return KEYS.contains(key);
+    }
+
+    private static int intValue(final Map<String, String> values, final String key, final int defaultValue) {
+        return Integer.parseInt(values.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    private static double doubleValue(final Map<String, String> values, final String key, final double defaultValue) {
+        return Double.parseDouble(values.getOrDefault(key, String.valueOf(defaultValue)));
+    }
+
+    @Override
+    public String toString() {
+        return ("%d entities (%d-%d fields, inheritance depth %d, %.0f%% @MapToId fields, %.0f%% List<@DTO> fields, " +
+                "%.0f%% records, %d entities per package, seed %d)")
+                .formatted(entities, minFields, maxFields, inheritanceDepth,
+                           mapToIdRatio * 100, listRatio * 100, recordRatio * 100, entitiesPerPackage, seed);
+    }
+}
@@ -0,0 +1,268 @@
+package io.github.manoelcampos.dtogen.benchmark;
+
+import io.github.manoelcampos.dtogen.DTOProcessor;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Measures the {@link DTOProcessor} throughput by compiling a synthetic corpus of model classes
+ * (generated by the {@link CorpusGenerator}) with an in-process javac.
+ *
+ * <p>Each iteration compiles the corpus twice with {@code -proc:only}: without any processor (the baseline,
+ * which just parses and enters the sources) and with the DTOProcessor attached.
+ * The processor time, and the time per phase, are taken from the {@code -Adtogen.stats} report,
+ * while the allocated bytes attributed to the processor are the difference between both compilations.</p>
+ *
+ * <p>Arguments are given as key=value pairs, which can be any {@link CorpusShape} component, such as
+ * {@code entities=5000 maxFields=100 inheritanceDepth=5}, and also:</p>
+ * <ul>
+ *     <li>{@code iterations}: number of measured iterations (default 5);</li>
+ *     <li>{@code warmup}: number of warmup iterations, which aren't measured (default 2);</li>
+ *     <li>any other key is given to the processor as a {@code -Adtogen.key=value} option, such as {@code parallel=true}.</li>
+ * </ul>
+ * @author Manoel Campos
+ */
+public final class ProcessorBenchmark {
+    private static final String STATS_REPORT_FILE = "META-INF/dtogen/stats.json";
+    private static final Pattern TOTAL_MILLIS = Pattern.compile("\"totalMillis\": ([0-9.]+)");
+    private static final Pattern PHASE_MILLIS = Pattern.compile("\"phaseMillis\": \\{([^}]*)}");
+    private static final Pattern PHASE_ENTRY = Pattern.compile("\"(\\w+)\": ([0-9.]+)");
+
+    private final CorpusShape shape;
+    private final int iterations;
+    private final int warmup;
+
+    /**
+     * The DTOGen options given to the processor (besides the stats option).
+     */
+    private final List<String> processorOptions;
+
+    private final Path workDir;
+    private final List<Path> sources;
+
+    private ProcessorBenchmark(final Map<String, String> args) throws IOException {
+        this.shape = CorpusShape.of(args);
+        this.iterations = Integer.parseInt(args.getOrDefault("iterations", "5"));
+        this.warmup = Integer.parseInt(args.getOrDefault("warmup", "2"));
+
+        final var options = new ArrayList<String>();
+        options.add("-Adtogen.cache=false");
+        args.forEach((key, value) -> {
+            if (!CorpusShape.isShapeKey(key) && !key.equals("iterations") && !key.equals("warmup"))
+                options.add("-Adtogen.%s=%s".formatted(key, value));
+        });
+        this.processorOptions = List.copyOf(options);
+
+        this.workDir = Files.createTempDirectory("dtogen-benchmark");
+        this.sources = new CorpusGenerator(shape).generate(workDir.resolve("src"));
+    }
+
+    public static void main(final String[] args) throws IOException {
+        new ProcessorBenchmark(parseArgs(args)).run();
+    }
+
+    private static Map<String, String> parseArgs(final String[] args) {
+        final var map = new LinkedHashMap<String, String>();
+        for (final String arg : args) {
+            final int equals = arg.indexOf('=');
+            if (equals <= 0)
+                throw new IllegalArgumentException("Arguments must be given as key=value: " + arg);
+            map.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+
+        return map;
+    }
+
+    private void run() throws IOException {
+        System.out.printf("DTOGen processor benchmark%nCorpus: %s%nSource files: %d (%s)%nProcessor options: %s%n%n",
+                          shape, sources.size(), formatBytes(sourcesSize()), processorOptions);
+
+        for (int i = 1; i <= warmup; i++) {
+            final var result = iteration();
+            System.out.printf("Warmup %d: %s%n", i, result);
+        }
+
+        final var results = new ArrayList<IterationResult>();
+        for (int i = 1; i <= iterations; i++) {
+            final var result = iteration();
+            results.add(result);
+            System.out.printf("Iteration %d: %s%n", i, result);
+        }
+
+        printSummary(results);
+        deleteRecursively(workDir);
+    }
+
+    private long sourcesSize() throws IOException {
+        long size = 0;
+        for (final Path source : sources)
+            size += Files.size(source);
+        return size;
+    }
+
+    private IterationResult iteration() throws IOException {
+        final var baseline = compile(false);
+        final var withProcessor = compile(true);
+        final String report = Files.readString(withProcessor.classOutput().resolve(STATS_REPORT_FILE));
+        final var result = new IterationResult(
+                withProcessor.nanos() / 1_000_000.0,
+                parseDouble(TOTAL_MILLIS, report),
+                parsePhases(report),
+                Math.max(0, withProcessor.allocatedBytes() - baseline.allocatedBytes()),
+                shape.entities());
+
+        deleteRecursively(baseline.classOutput().getParent());
+        deleteRecursively(withProcessor.classOutput().getParent());
+        return result;
+    }
+
+    /**
+     * Compiles the corpus with an in-process javac, just running the annotation processors (if any).
+     * @param attachProcessor true to attach the DTOProcessor, false to compile without any processor
+     * @return the compilation measurements
+     */
+    private Compilation compile(final boolean attachProcessor) throws IOException {
+        final var compiler = Objects.requireNonNull(ToolProvider.getSystemJavaCompiler(), "A JDK is required to run the benchmark");
+        final var outputDir = Files.createTempDirectory(workDir, "out");
+        final var classOutput = Files.createDirectories(outputDir.resolve("classes"));
+        final var sourceOutput = Files.createDirectories(outputDir.resolve("generated-sources"));
+
+        final var options = new ArrayList<>(List.of(
+                "-proc:only", "-implicit:none", "-d", classOutput.toString(), "-s", sourceOutput.toString(),
+                "-cp", System.getProperty("java.class.path")));
+        if (attachProcessor) {
+            options.addAll(processorOptions);
+            options.add("-Adtogen.stats=true");
+        }
+
+        final var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (var fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            final var compilationUnits = fileManager.getJavaFileObjectsFromPaths(sources);
+            final var task = compiler.getTask(null, fileManager, diagnostics, options, null, compilationUnits);
+            task.setProcessors(attachProcessor ? List.of(new DTOProcessor()) : List.of());
+
+            final long allocatedBefore = allocatedBytes();
+            final long start = System.nanoTime();
+            final boolean success = task.call();
+            final long nanos = System.nanoTime() - start;
+            final long allocated = allocatedBytes() - allocatedBefore;
+            if (!success)
+                throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+
+            return new Compilation(classOutput, nanos, allocated);
+        }
+    }
+
+    /**
+     * {@return the bytes allocated so far by all live threads}
+     * It includes the fork-join pool threads used to render DTOs in parallel (when enabled).
+     */
+    private static long allocatedBytes() {
+        final var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return Arrays.stream(threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds()))
+                     .filter(bytes -> bytes > 0)
+                     .sum();
+    }
+
+    private static double parseDouble(final Pattern pattern, final String report) {
+        final var matcher = pattern.matcher(report);
+        if (!matcher.find())
+            throw new IllegalStateException("Invalid stats report: " + pattern.pattern() + " not found");
+        return Double.parseDouble(matcher.group(1));
+    }
+
+    /**
+     * {@return a map where each key is the name of a processor phase and the value the time spent on it (in ms)}
+     * The first phaseMillis entry in the report contains the totals for all model classes.
+     * @param report the stats report written by the processor
+     */
+    private static Map<String, Double> parsePhases(final String report) {
+        final var phasesMatcher = PHASE_MILLIS.matcher(report);
+        if (!phasesMatcher.find())
+            throw new IllegalStateException("Invalid stats report: phaseMillis not found");
+
+        final var phases = new LinkedHashMap<String, Double>();
+        final var entryMatcher = PHASE_ENTRY.matcher(phasesMatcher.group(1));
+        while (entryMatcher.find())
+            phases.put(entryMatcher.group(1), Double.parseDouble(entryMatcher.group(2)));
+
+        return phases;
+    }
+
+    private void printSummary(final List<IterationResult> results) {
+        if (results.isEmpty())
+            return;
+
+        final double processorMillis = average(results, IterationResult::processorMillis);
+        System.out.printf("%nAverage of %d iteration(s):%n", results.size());
+        System.out.printf("  javac with processor: %.1f ms%n", average(results, IterationResult::javacMillis));
+        System.out.printf("  processor:            %.1f ms (%.1f entities/s)%n", processorMillis, shape.entities() * 1000 / processorMillis);
+        System.out.printf("  allocated per entity: %s%n", formatBytes((long) average(results, IterationResult::allocatedBytesPerEntity)));
+        System.out.println("  time per phase:");
+        results.getFirst().phaseMillis().keySet().forEach(phase -> {
+            final double millis = average(results, result -> result.phaseMillis().getOrDefault(phase, 0.0));
+            System.out.printf("    %-18s %10.1f ms (%4.1f%%)%n", phase, millis, millis * 100 / processorMillis);
+        });
+    }
+
+    private static double average(final List<IterationResult> results, final java.util.function.ToDoubleFunction<IterationResult> metric) {
+        return results.stream().mapToDouble(metric).average().orElse(0);
+    }
+
+    private static String formatBytes(final long bytes) {
+        if (bytes < 1024)
+            return bytes + " B";
+        if (bytes < 1024 * 1024)
+            return "%.1f KB".formatted(bytes / 1024.0);
+        return "%.1f MB".formatted(bytes / (1024.0 * 1024));
+    }
+
+    private static void deleteRecursively(final Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (final Path path : paths.sorted(Comparator.reverseOrder()).toList())
+                Files.delete(path);
+        }
+    }
+
+    /**
+     * The measurements of a single compilation.
+     * @param classOutput the dir where the compiler wrote its output
+     * @param nanos the wall time of the compilation
+     * @param allocatedBytes the bytes allocated during the compilation
+     */
+    private record Compilation(Path classOutput, long nanos, long allocatedBytes) {}
+
+    /**
+     * The measurements of a benchmark iteration.
+     * @param javacMillis the wall time to compile the corpus with the processor attached
+     * @param processorMillis the wall time spent inside the processor
+     * @param phaseMillis the time spent on each processor phase
+     * @param processorAllocatedBytes the bytes allocated by the processor
+     * @param entities the number of model classes processed
+     */
+    private record IterationResult(
+            double javacMillis, double processorMillis, Map<String, Double> phaseMillis,
+            long processorAllocatedBytes, int entities)
+    {
+        double allocatedBytesPerEntity() {
+            return processorAllocatedBytes / (double) entities;
+        }
+
+        @Override
+        public String toString() {
+            return "javac %.1f ms, processor %.1f ms, %.1f entities/s, %s allocated per entity".formatted(
+                    javacMillis, processorMillis, entities * 1000 / processorMillis,
+                    formatBytes((long) allocatedBytesPerEntity()));
+        }
+    }
+}
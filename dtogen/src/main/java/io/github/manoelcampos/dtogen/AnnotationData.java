@@ -7,6 +7,7 @@ import javax.lang.model.util.ElementFilter;
 import java.lang.annotation.Annotation;
 import java.util.List;
 import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 import static java.util.stream.Collectors.joining;
 
@@ -24,9 +25,21 @@ public record AnnotationData(String name, String values) {
      * @return
      */
     public static String getFieldAnnotationsStr(final List<AnnotationData> sourceFieldAnnotations) {
+        return getFieldAnnotationsStr(sourceFieldAnnotations, TypeUtil::getSimpleClassName);
+    }
+
+    /**
+     * Gets the string representation of the annotations of a field.
+     *
+     * @param sourceFieldAnnotations the annotations of the field
+     * @param nameResolver a function that receives the fully qualified name of an annotation
+     *                     and returns the name to be used in the generated code
+     * @return the string representation of the annotations
+     */
+    public static String getFieldAnnotationsStr(final List<AnnotationData> sourceFieldAnnotations, final UnaryOperator<String> nameResolver) {
         return sourceFieldAnnotations
                 .stream()
-                .map(AnnotationData::toString)
+                .map(annotation -> annotation.toString(nameResolver.apply(annotation.name())))
                 .collect(joining(" "));
     }
 
@@ -137,6 +150,14 @@ public record AnnotationData(String name, String values) {
 
     @Override
     public String toString() {
-        return String.format("@%s(%s)", getSimpleName(), values);
+        return toString(getSimpleName());
+    }
+
+    /**
+     * {@return the string representation of the annotation, using a given name for it}
+     * @param annotationName the name to be used for the annotation (such as its simple or fully qualified name)
+     */
+    public String toString(final String annotationName) {
+        return "@" + annotationName + "(" + values + ")";
     }
 }
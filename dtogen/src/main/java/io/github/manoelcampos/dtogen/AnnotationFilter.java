@@ -0,0 +1,189 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Decides which annotations from model fields are excluded from the generated DTO record fields.
+ * By default, DTOGen, JPA, Hibernate and Lombok annotations are excluded,
+ * since they just have effect on the model classes (such as mapping them to database tables).
+ * Other annotations can be excluded by the {@link DTOProcessor#ANNOTATIONS_EXCLUDE_OPTION}
+ * and excluded annotations can be kept by the {@link DTOProcessor#ANNOTATIONS_INCLUDE_OPTION}.
+ *
+ * <p>Each option is a comma-separated list of patterns, which can be:</p>
+ * <ul>
+ *     <li>a package prefix, such as {@code org.hibernate.annotations.*} (or {@code org.hibernate.annotations.}),
+ *     matching all annotations inside that package and its sub-packages;</li>
+ *     <li>a fully qualified name, such as {@code jakarta.persistence.Column};</li>
+ *     <li>a simple name, such as {@code JsonIgnore}, matching annotations with that name in any package;</li>
+ *     <li>a wildcard, such as {@code com.company.*.Internal*} or {@code JsonIgnore*},
+ *     where * matches any sequence of chars (patterns without dots are matched against the simple name).</li>
+ * </ul>
+ *
+ * <p>The patterns are compiled just once into hash sets (and a single regex for wildcards, if any),
+ * so that checking an annotation doesn't require going through all the patterns.
+ * A single instance is shared by all {@link RecordGenerator}s.</p>
+ * @author Manoel Campos
+ */
+final class AnnotationFilter {
+    /**
+     * The annotations excluded by default.
+     */
+    static final List<String> DEFAULT_EXCLUDED_ANNOTATIONS = List.of(
+            DTOProcessor.class.getPackageName() + ".*",
+            "jakarta.persistence.Id", "jakarta.persistence.GeneratedValue", "jakarta.persistence.Enumerated",
+            "jakarta.persistence.OneToMany", "jakarta.persistence.ManyToOne",
+            "jakarta.persistence.OneToOne", "jakarta.persistence.ManyToMany",
+            "jakarta.persistence.JoinColumn", "jakarta.persistence.Transient", "jakarta.persistence.JoinTable",
+            "jakarta.persistence.Column", "jakarta.persistence.Lob",
+            "org.hibernate.annotations.*",
+            "javax.annotation.meta.When", "lombok.*", "JsonIgnore*"
+    );
+
+    private final NamePatterns excluded;
+    private final NamePatterns included;
+
+    /**
+     * A map where each key is an annotation name and the value indicates if it's excluded,
+     * since the same annotations are usually found in many fields.
+     */
+    private final Map<String, Boolean> decisions = new HashMap<>();
+
+    /**
+     * Creates an AnnotationFilter.
+     * @param excludedPatterns patterns of annotations to be excluded, besides the {@link #DEFAULT_EXCLUDED_ANNOTATIONS}
+     * @param includedPatterns patterns of annotations to be included even if they match an excluded pattern
+     */
+    AnnotationFilter(final Collection<String> excludedPatterns, final Collection<String> includedPatterns) {
+        final var allExcludedPatterns = new ArrayList<>(DEFAULT_EXCLUDED_ANNOTATIONS);
+        allExcludedPatterns.addAll(excludedPatterns);
+        this.excluded = new NamePatterns(allExcludedPatterns);
+        this.included = new NamePatterns(includedPatterns);
+    }
+
+    /**
+     * Creates an AnnotationFilter from the processor options.
+     * @param options the options given to the processor
+     * @return the new AnnotationFilter
+     */
+    static AnnotationFilter newInstance(final Map<String, String> options) {
+        return new AnnotationFilter(
+                parsePatterns(options.get(DTOProcessor.ANNOTATIONS_EXCLUDE_OPTION)),
+                parsePatterns(options.get(DTOProcessor.ANNOTATIONS_INCLUDE_OPTION)));
+    }
+
+    /**
+     * {@return the list of patterns inside a comma-separated option value}
+     * @param optionValue the option value (null if the option was not given)
+     */
+    static List<String> parsePatterns(@Nullable final String optionValue) {
+        if (optionValue == null)
+            return List.of();
+
+        return Arrays.stream(optionValue.split(","))
+                     .map(String::strip)
+                     .filter(pattern -> !pattern.isEmpty())
+                     .toList();
+    }
+
+    /**
+     * Checks if an annotation is to be excluded from the DTO fields.
+     * Since the results are stored, this must be called only from the annotation processor thread.
+     * @param annotationName the fully qualified name of the annotation
+     * @return true if the annotation is to be excluded, false otherwise
+     */
+    boolean isExcluded(final String annotationName) {
+        return decisions.computeIfAbsent(annotationName, name -> excluded.matches(name) && !included.matches(name));
+    }
+
+    /**
+     * A set of name patterns compiled for fast matching.
+     */
+    private static final class NamePatterns {
+        private final Set<String> qualifiedNames = new HashSet<>();
+        private final Set<String> simpleNames = new HashSet<>();
+
+        /**
+         * Package prefixes (including the trailing dot).
+         */
+        private final Set<String> packagePrefixes = new HashSet<>();
+
+        /**
+         * A regex matching any of the wildcard patterns that have a package,
+         * or null if there is no such a pattern.
+         */
+        @Nullable
+        private final Pattern qualifiedWildcards;
+
+        /**
+         * A regex matching any of the wildcard patterns that have no package (which are matched against the simple names),
+         * or null if there is no such a pattern.
+         */
+        @Nullable
+        private final Pattern simpleWildcards;
+
+        NamePatterns(final Collection<String> patterns) {
+            final var qualifiedWildcardList = new ArrayList<String>();
+            final var simpleWildcardList = new ArrayList<String>();
+            for (final String pattern : patterns) {
+                if (pattern.endsWith(".*") && pattern.indexOf('*') == pattern.length() - 1)
+                    packagePrefixes.add(pattern.substring(0, pattern.length() - 1));
+                else if (pattern.endsWith("."))
+                    packagePrefixes.add(pattern);
+                else if (pattern.contains("*"))
+                    (pattern.contains(".") ? qualifiedWildcardList : simpleWildcardList).add(pattern);
+                else if (pattern.contains("."))
+                    qualifiedNames.add(pattern);
+                else simpleNames.add(pattern);
+            }
+
+            this.qualifiedWildcards = compileWildcards(qualifiedWildcardList);
+            this.simpleWildcards = compileWildcards(simpleWildcardList);
+        }
+
+        /**
+         * {@return a single regex matching any of the given wildcard patterns, or null if there is no pattern}
+         * @param wildcards the wildcard patterns, where * matches any sequence of chars
+         */
+        @Nullable
+        private static Pattern compileWildcards(final List<String> wildcards) {
+            if (wildcards.isEmpty())
+                return null;
+
+            final String regex = wildcards.stream()
+                                          .map(wildcard -> Pattern.quote(wildcard).replace("*", "\\E.*\\Q"))
+                                          .collect(joining("|"));
+            return Pattern.compile(regex);
+        }
+
+        boolean matches(final String qualifiedName) {
+            final var simpleName = TypeUtil.getSimpleClassName(qualifiedName);
+            return qualifiedNames.contains(qualifiedName) ||
+                   simpleNames.contains(simpleName) ||
+                   matchesPackagePrefix(qualifiedName) ||
+                   (qualifiedWildcards != null && qualifiedWildcards.matcher(qualifiedName).matches()) ||
+                   (simpleWildcards != null && simpleWildcards.matcher(simpleName).matches());
+        }
+
+        /**
+         * Checks if a name starts with any of the package prefixes,
+         * looking up just the prefixes ending at each dot in the name.
+         */
+        private boolean matchesPackagePrefix(final String qualifiedName) {
+            if (packagePrefixes.isEmpty())
+                return false;
+
+            for (int dot = qualifiedName.indexOf('.'); dot >= 0; dot = qualifiedName.indexOf('.', dot + 1)) {
+                if (packagePrefixes.contains(qualifiedName.substring(0, dot + 1)))
+                    return true;
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.runtime.Mappings;
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Generates a class list with the DTO records and the model classes they map, enabled by the {@link DTOProcessor#CLASSLIST_OPTION}.
+ * The list is written to {@link #FILE} inside the class output dir, in the format accepted by
+ * {@code java -Xshare:dump -XX:SharedClassListFile=classlist -XX:SharedArchiveFile=app.jsa},
+ * so that such classes can be included into an Application Class Data Sharing (AppCDS) archive without a training run.
+ * Loading the classes from that archive avoids parsing and verifying them when the application starts.
+ *
+ * <p>The list includes the {@link DTORecord} interface, the {@link MappingContext} and {@link Mappings} classes, each DTO record (and its nested records),
+ * each model class (and its superclasses), the classes of {@link DTO.MapToId} fields,
+ * the shared mapping classes and the DTO registry. Since the DTO records generated in a round
+ * are compiled in the next ones, the names of their nested records are found when the list is written,
+ * in the last processing round. Anonymous classes aren't included, since they aren't known before the classes are compiled.</p>
+ *
+ * <p>Since the list is generated from all model classes, they are its originating elements
+ * and the processor is handled by Gradle as aggregating when the list is enabled
+ * (see {@link DTOProcessor#getSupportedOptions()}), so that an incremental build doesn't write a list
+ * with just the recompiled model classes.</p>
+ * @author Manoel Campos
+ */
+final class ClassListGenerator {
+    /**
+     * The path of the class list file inside the class output dir.
+     */
+    static final String FILE = "META-INF/dtogen/classlist";
+
+    private final DTOProcessor processor;
+
+    /**
+     * The binary names (using / as package separator) of the classes to be included into the list.
+     * The set is sorted to generate the same list regardless of the order the model classes are processed.
+     */
+    private final Set<String> classNames = new TreeSet<>();
+
+    /**
+     * The fully qualified names of the classes generated by the processor,
+     * whose binary names (including nested classes) are found just when the list is written.
+     */
+    private final Set<String> generatedClassNames = new LinkedHashSet<>();
+
+    /**
+     * The model classes added to the list, which are the originating elements of the list file.
+     */
+    private final List<TypeElement> modelTypeElements = new ArrayList<>();
+
+    private ClassListGenerator(final DTOProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * Creates a ClassListGenerator according to the processor options.
+     * @param processor the running processor
+     * @return the new ClassListGenerator or null if the class list is disabled
+     * @see DTOProcessor#CLASSLIST_OPTION
+     */
+    @Nullable
+    static ClassListGenerator newInstance(final DTOProcessor processor) {
+        final var enabled = Boolean.parseBoolean(processor.processingEnv().getOptions().get(DTOProcessor.CLASSLIST_OPTION));
+        return enabled ? new ClassListGenerator(processor) : null;
+    }
+
+    /**
+     * Adds a model class, its DTO record and the classes referenced by the DTO record mapping code to the list.
+     * @param modelTypeElement the model class to add
+     */
+    void add(final TypeElement modelTypeElement) {
+        modelTypeElements.add(modelTypeElement);
+        for (var type = modelTypeElement; type != null && !isJdkClass(type); type = superclass(type))
+            classNames.add(binaryName(type));
+
+        processor.typeUtil().getClassFields(modelTypeElement)
+                 .filter(field -> AnnotationData.contains(field, DTO.MapToId.class))
+                 .map(field -> processor.typeUtil().getTypeElement(field))
+                 .filter(type -> type != null && !isJdkClass(type))
+                 .forEach(type -> classNames.add(binaryName(type)));
+
+        final var packageName = TypeUtil.getPackageName(modelTypeElement);
+        final var recordName = RecordGenerator.getRecordName(modelTypeElement);
+        addGenerated(packageName.isBlank() ? recordName : packageName + "." + recordName);
+
+        final var sharedSuperclass = SharedMappingGenerator.sharedSuperclass(processor, modelTypeElement);
+        if (sharedSuperclass != null)
+            addGenerated(SharedMappingGenerator.qualifiedName(sharedSuperclass));
+    }
+
+    /**
+     * Adds a class generated by the processor to the list.
+     * @param qualifiedName the fully qualified name of the generated class
+     */
+    void addGenerated(final String qualifiedName) {
+        generatedClassNames.add(qualifiedName);
+    }
+
+    /**
+     * {@return true if there are classes to be included into the list}
+     */
+    boolean pending() {
+        return !generatedClassNames.isEmpty();
+    }
+
+    /**
+     * Writes the class list file, with one class per line.
+     */
+    void write() {
+        classNames.add(binaryName(DTORecord.class.getName()));
+        classNames.add(binaryName(MappingContext.class.getName()));
+        classNames.add(binaryName(Mappings.class.getName()));
+
+        generatedClassNames.forEach(this::addGeneratedClass);
+        final var messager = processor.processingEnv().getMessager();
+        try {
+            final var file = processor.processingEnv().getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", FILE, modelTypeElements.toArray(TypeElement[]::new));
+            try (var writer = file.openWriter()) {
+                writer.write("# Classes generated and mapped by DTOGen, to be used with -XX:SharedClassListFile\n");
+                for (final String className : classNames)
+                    writer.write(className + "\n");
+            }
+        } catch (final IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "DTOGen class list couldn't be written: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds a generated class and its nested classes to the list.
+     * If the generated class wasn't compiled (such as due to compilation errors), just its name is added.
+     * @param qualifiedName the fully qualified name of the generated class
+     */
+    private void addGeneratedClass(final String qualifiedName) {
+        final var typeElement = processor.processingEnv().getElementUtils().getTypeElement(qualifiedName);
+        if (typeElement == null)
+            classNames.add(binaryName(qualifiedName));
+        else addWithNestedClasses(typeElement);
+    }
+
+    private void addWithNestedClasses(final TypeElement typeElement) {
+        classNames.add(binaryName(typeElement));
+        typeElement.getEnclosedElements()
+                   .stream()
+                   .filter(element -> element.getKind().isClass() || element.getKind().isInterface())
+                   .forEach(element -> addWithNestedClasses((TypeElement) element));
+    }
+
+    @Nullable
+    private static TypeElement superclass(final TypeElement typeElement) {
+        return typeElement.getSuperclass() instanceof DeclaredType declaredType ? (TypeElement) declaredType.asElement() : null;
+    }
+
+    private static boolean isJdkClass(final TypeElement typeElement) {
+        final var name = typeElement.getQualifiedName().toString();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.");
+    }
+
+    /**
+     * {@return the binary name of a class in the format used by class lists (using / as package separator)}
+     */
+    private String binaryName(final TypeElement typeElement) {
+        return processor.processingEnv().getElementUtils().getBinaryName(typeElement).toString().replace('.', '/');
+    }
+
+    private static String binaryName(final String topLevelClassName) {
+        return topLevelClassName.replace('.', '/');
+    }
+}
@@ -0,0 +1,207 @@
+package io.github.manoelcampos.dtogen;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Objects;
+
+/**
+ * Writes Java code straight into an {@link Appendable} (such as a {@link StringBuilder} or a {@link java.io.Writer}),
+ * keeping track of the indentation level and of the items in comma-separated lists.
+ * Since no format string is used, any text (such as JavaDoc comments containing %)
+ * is written as is, without being interpreted as format placeholders.
+ *
+ * <p>Lines are always terminated by {@code \n} (instead of the OS line separator),
+ * so that the generated code is byte-identical regardless of the OS (enabling remote build cache hits).</p>
+ * @author Manoel Campos
+ */
+public final class CodeWriter {
+    /**
+     * The line separator used to terminate the written lines.
+     */
+    public static final String LN = "\n";
+
+    private static final String INDENT = "    ";
+
+    private final Appendable out;
+
+    /**
+     * Where a copy of the code is written to, or null if no copy is required.
+     */
+    @Nullable
+    private final Appendable copy;
+
+    /**
+     * The current indentation level, indicating how many {@link #INDENT} are written at the beginning of each line.
+     */
+    private int indentLevel;
+
+    /**
+     * Indicates if the next item of a list being written is the first one,
+     * so that no separator is written before it.
+     * @see #listItem(CharSequence)
+     */
+    private boolean firstListItem = true;
+
+    private String listSeparator = ", ";
+
+    /**
+     * The number of chars written so far.
+     */
+    private long length;
+
+    /**
+     * Creates a CodeWriter.
+     * @param out where the code will be written to
+     */
+    public CodeWriter(final Appendable out) {
+        this(out, null);
+    }
+
+    /**
+     * Creates a CodeWriter that writes the code into two places at once,
+     * such as a Java file and a cache file, without building a String with the whole code first.
+     * @param out where the code will be written to
+     * @param copy where a copy of the code will be written to (or null if no copy is required)
+     */
+    public CodeWriter(final Appendable out, @Nullable final Appendable copy) {
+        this.out = Objects.requireNonNull(out);
+        this.copy = copy;
+    }
+
+    /**
+     * Increases the indentation level for the next lines.
+     * @return this CodeWriter
+     */
+    public CodeWriter indent() {
+        indentLevel++;
+        return this;
+    }
+
+    /**
+     * Decreases the indentation level for the next lines.
+     * @return this CodeWriter
+     */
+    public CodeWriter unindent() {
+        if (indentLevel > 0)
+            indentLevel--;
+        return this;
+    }
+
+    /**
+     * Writes a line with the current indentation, built from the given parts.
+     * @param parts the parts of the line to be written (just concatenated, without any separator)
+     * @return this CodeWriter
+     */
+    public CodeWriter line(final CharSequence... parts) {
+        writeIndentation();
+        append(parts);
+        return newLine();
+    }
+
+    /**
+     * Writes an empty line (just the line separator).
+     * @return this CodeWriter
+     */
+    public CodeWriter newLine() {
+        return append(LN);
+    }
+
+    /**
+     * Writes the indentation for the current level, to start a line whose content will be {@link #append(CharSequence...) appended}.
+     * @return this CodeWriter
+     */
+    public CodeWriter writeIndentation() {
+        for (int i = 0; i < indentLevel; i++)
+            append(INDENT);
+        return this;
+    }
+
+    /**
+     * Writes some text as is (without indentation or line separator).
+     * @param parts the parts of the text to be written
+     * @return this CodeWriter
+     */
+    public CodeWriter append(final CharSequence... parts) {
+        try {
+            for (final CharSequence part : parts) {
+                out.append(part);
+                if (copy != null)
+                    copy.append(part);
+                length += part.length();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return this;
+    }
+
+    /**
+     * Starts writing a list of items separated by a given separator.
+     * @param separator the separator to be written between the list items
+     * @return this CodeWriter
+     * @see #listItem(CharSequence)
+     */
+    public CodeWriter beginList(final String separator) {
+        this.listSeparator = Objects.requireNonNull(separator);
+        this.firstListItem = true;
+        return this;
+    }
+
+    /**
+     * Writes an item of a list started by {@link #beginList(String)},
+     * preceded by the list separator if it's not the first item.
+     * @param item the item to write
+     * @return this CodeWriter
+     */
+    public CodeWriter listItem(final CharSequence item) {
+        if (!firstListItem)
+            append(listSeparator);
+
+        firstListItem = false;
+        return append(item);
+    }
+
+    /**
+     * Writes a list of items separated by a given separator.
+     * @param separator the separator to be written between the list items
+     * @param items the items to write
+     * @return this CodeWriter
+     */
+    public CodeWriter list(final String separator, final Iterable<? extends CharSequence> items) {
+        beginList(separator);
+        items.forEach(this::listItem);
+        return this;
+    }
+
+    /**
+     * {@return the number of chars written so far}
+     */
+    public long length() {
+        return length;
+    }
+
+    /**
+     * Writes a JavaDoc line (starting with " * ") containing a given text.
+     * The text is escaped, so that a "*&#47;" inside it doesn't close the JavaDoc comment.
+     * @param text the text to write into the JavaDoc line
+     * @return this CodeWriter
+     */
+    public CodeWriter javaDocLine(final CharSequence... text) {
+        writeIndentation();
+        append(" * ");
+        for (final CharSequence part : text)
+            append(escapeJavaDoc(part));
+        return newLine();
+    }
+
+    /**
+     * {@return a text that can be safely included inside a JavaDoc comment}
+     * It replaces the "*&#47;" sequence, which would close the comment.
+     * @param text the text to escape
+     */
+    static String escapeJavaDoc(final CharSequence text) {
+        return text.toString().replace("*/", "*&#47;");
+    }
+}
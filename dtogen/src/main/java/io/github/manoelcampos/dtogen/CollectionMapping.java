@@ -0,0 +1,232 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.runtime.Mappings;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import static io.github.manoelcampos.dtogen.AnnotationData.hasAnnotation;
+
+/**
+ * The mapping of a model field whose type is a collection, map, array or {@link java.util.Optional}
+ * of {@link DTO} annotated classes (the items), into the respective DTO record field (whose items are DTO records) and back.
+ * Consider a model field declared as {@code Set<Item> items}:
+ * the DTO record field is declared as {@code Set<ItemDTO> items} and each item is mapped by a call such as
+ * {@code mapSet(model.getItems(), ItemDTO::of)}.
+ *
+ * <p>The items are mapped by loops into collections created with the size of the source collection,
+ * instead of a stream pipeline. Null collections and null items are kept null.
+ * The called methods are the ones from the {@link Mappings} class, which is shared by all DTO records.</p>
+ *
+ * @param kind the kind of field type, or null if it's a generic type whose items can't be mapped
+ * @param typeName the fully qualified name of the field type (or the component type for arrays)
+ * @param itemModels the {@link DTO} annotated classes of the type arguments (or the array component),
+ *                   where type arguments that aren't such classes are null (and are mapped as is)
+ * @author Manoel Campos
+ */
+record CollectionMapping(@Nullable Kind kind, String typeName, List<TypeElement> itemModels) {
+    /**
+     * The kinds of methods mapping {@link DTO} annotated items, most of them for a kind of field type.
+     */
+    enum Kind {
+        LIST("mapList", "java.util.List", "java.util.Collection"),
+
+        /**
+         * Maps a collection into a list using multiple threads, used by the DTO record bulk methods (not by fields).
+         * @see RecordDescriptor.BulkMethods
+         */
+        PARALLEL_LIST("mapListParallel"),
+
+        /**
+         * Creates a read-only list view mapping the items when accessed,
+         * used by List and Collection fields in the {@link DTO.CollectionMode#VIEW} modes.
+         * @see #toDtoView(String, String, boolean, UnaryOperator)
+         */
+        LIST_VIEW("viewList"),
+
+        /**
+         * Lazily maps the items of a stream, used by the DTO record stream methods (not by fields).
+         * @see RecordDescriptor.StreamMethods
+         */
+        STREAM("mapStream"),
+
+        /**
+         * Lazily maps the items of a spliterator (keeping its size and split characteristics),
+         * used by the DTO record stream methods (not by fields).
+         * @see RecordDescriptor.StreamMethods
+         */
+        SPLITERATOR("mapSpliterator"),
+
+        /**
+         * Collects the mapped items of a stream into a presized list, used by the DTO record stream methods (not by fields).
+         * @see RecordDescriptor.StreamMethods
+         */
+        COLLECTOR("mappingCollector"),
+
+        SET("mapSet", "java.util.Set"),
+        MAP("mapMap", "java.util.Map"),
+        ARRAY("mapArray"),
+        OPTIONAL("mapOptional", "java.util.Optional");
+
+        /**
+         * The name of the {@link Mappings} method mapping the items.
+         */
+        private final String methodName;
+
+        /**
+         * The fully qualified names of the field types of this kind.
+         */
+        private final Set<String> typeNames;
+
+        Kind(final String methodName, final String... typeNames) {
+            this.methodName = methodName;
+            this.typeNames = Set.of(typeNames);
+        }
+
+        /**
+         * {@return the name of the {@link Mappings} method mapping the items}
+         */
+        String methodName() {
+            return methodName;
+        }
+
+        @Nullable
+        private static Kind of(final String typeName) {
+            for (final Kind kind : values()) {
+                if (kind.typeNames.contains(typeName))
+                    return kind;
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * Creates a CollectionMapping for the type of a model field.
+     * @param fieldType the type of the model field
+     * @return the new CollectionMapping, or null if the field type has no {@link DTO} annotated items
+     *         (such as a {@code List<String>} or a non-generic type)
+     */
+    @Nullable
+    static CollectionMapping of(final TypeMirror fieldType) {
+        if (fieldType instanceof ArrayType arrayType) {
+            final var itemModel = dtoModel(arrayType.getComponentType());
+            return itemModel == null ? null : new CollectionMapping(Kind.ARRAY, itemModel.getQualifiedName().toString(), List.of(itemModel));
+        }
+
+        if (!(fieldType instanceof DeclaredType declaredType))
+            return null;
+
+        // Uses an ArrayList since there may be null items
+        final var itemModels = new ArrayList<TypeElement>();
+        declaredType.getTypeArguments().forEach(typeArg -> itemModels.add(dtoModel(typeArg)));
+        if (itemModels.stream().allMatch(Objects::isNull))
+            return null;
+
+        final var typeName = ((TypeElement) declaredType.asElement()).getQualifiedName().toString();
+        return new CollectionMapping(Kind.of(typeName), typeName, itemModels);
+    }
+
+    /**
+     * {@return the class of a type argument or array component if it's annotated with {@link DTO}, or null otherwise}
+     */
+    @Nullable
+    private static TypeElement dtoModel(final TypeMirror type) {
+        return type instanceof DeclaredType declaredType && declaredType.asElement() instanceof TypeElement typeElement && hasAnnotation(typeElement, DTO.class) ?
+                typeElement : null;
+    }
+
+    /**
+     * {@return true if the items of the field type can be mapped, false if it's an unsupported generic type}
+     */
+    boolean supported() {
+        return kind != null;
+    }
+
+    /**
+     * {@return the code to map the items of a model field into the DTO record items}
+     * @param method the code to reference the method mapping the items
+     * @param source the code to get the model field value
+     * @param typeNames a function to register each type used by the code to be imported,
+     *                  returning the name to reference it in the code
+     */
+    String toDto(final String method, final String source, final UnaryOperator<String> typeNames) {
+        return call(method, source, true, typeNames);
+    }
+
+    /**
+     * {@return the code to create a read-only list view mapping the items of a model List or Collection field when accessed}
+     * @param method the code to reference the method creating the view
+     * @param source the code to get the model field value
+     * @param memoize true to store the mapped items into the view, so that each one is mapped just once
+     * @param typeNames a function to register each type used by the code to be imported,
+     *                  returning the name to reference it in the code
+     * @see DTO.CollectionMode
+     */
+    String toDtoView(final String method, final String source, final boolean memoize, final UnaryOperator<String> typeNames) {
+        // The view maps the items after the DTO record is created, so it can't use the mapping context
+        return "%s(%s, %s, %s)".formatted(method, source, mapper(itemModels.getFirst(), true, false, typeNames), memoize);
+    }
+
+    /**
+     * {@return the code to map the items of a DTO record field into the model items}
+     * @param method the code to reference the method mapping the items
+     * @param source the code to get the DTO record field value
+     * @param typeNames a function to register each type used by the code to be imported,
+     *                  returning the name to reference it in the code
+     */
+    String toModel(final String method, final String source, final UnaryOperator<String> typeNames) {
+        return call(method, source, false, typeNames);
+    }
+
+    private String call(final String method, final String source, final boolean toDto, final UnaryOperator<String> typeNames) {
+        final var args = new StringBuilder(method).append('(').append(source);
+        if (kind == Kind.ARRAY) {
+            final var itemModel = itemModels.getFirst();
+            final var itemType = toDto ? RecordGenerator.getRecordQualifiedName(itemModel) : itemModel.getQualifiedName().toString();
+            args.append(", ").append(typeNames.apply(itemType)).append("[]::new");
+        }
+
+        for (final TypeElement itemModel : itemModels)
+            args.append(", ").append(mapper(itemModel, toDto, true, typeNames));
+
+        return args.append(')').toString();
+    }
+
+    /**
+     * {@return the code of the function mapping an item}
+     * @param itemModel the class of the item (null if the item isn't mapped)
+     * @param contextual true to map the item inside the {@link MappingContext} in the scope of the generated code
+     *                   (which is passed to the {@code of()} and {@code toModel()} methods), false to map it without a context
+     */
+    private static String mapper(
+            @Nullable final TypeElement itemModel, final boolean toDto, final boolean contextual, final UnaryOperator<String> typeNames)
+    {
+        if (itemModel == null)
+            return typeNames.apply("java.util.function.Function") + ".identity()";
+
+        final var recordName = typeNames.apply(RecordGenerator.getRecordQualifiedName(itemModel));
+        if (!contextual)
+            return recordName + (toDto ? "::of" : "::toModel");
+
+        return toDto ? "item -> " + recordName + ".of(item, mappingContext)" : "item -> item.toModel(mappingContext)";
+    }
+
+    /**
+     * {@return the error message for a field whose type is an unsupported generic type with DTO annotated items}
+     * @param fieldName the name of the model field
+     */
+    String unsupportedMessage(final String fieldName) {
+        return ("The %s field type (%s) has @%s annotated type arguments, which can't be mapped to their DTO records. " +
+                "Declare it as a List, Collection, Set, Map, Optional or array.")
+                .formatted(fieldName, typeName, DTO.class.getSimpleName());
+    }
+}
@@ -12,6 +12,48 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface DTO {
+    /**
+     * How the List and Collection fields whose items are {@link DTO} annotated classes are mapped to the DTO record.
+     * It can be changed for a single field by the {@link MapCollection} annotation.
+     */
+    CollectionMode collections() default CollectionMode.COPY;
+
+    /**
+     * Indicates how a List or Collection field whose items are {@link DTO} annotated classes is mapped to the DTO record,
+     * overriding the {@link DTO#collections()} mode of the model class.
+     */
+    @Target(ElementType.FIELD)
+    @Retention(RetentionPolicy.RUNTIME)
+    @interface MapCollection {
+        CollectionMode value();
+    }
+
+    /**
+     * The modes to map the List and Collection fields whose items are {@link DTO} annotated classes.
+     * Other collection types (such as sets, maps and arrays) are always copied.
+     */
+    enum CollectionMode {
+        /**
+         * The items are mapped into a new list when the DTO record is created.
+         */
+        COPY,
+
+        /**
+         * The DTO record holds a read-only list view of the model items, mapping an item whenever it's accessed.
+         * This way, creating the DTO record takes the same time regardless of the number of items,
+         * which is faster when just some of them are read (such as the first page).
+         * The model list must not be changed while the DTO record is used.
+         */
+        VIEW,
+
+        /**
+         * Like {@link #VIEW}, but each item is mapped just once (when first accessed) and stored into the view.
+         * The view can be read by multiple threads: if they access an item for the first time at once,
+         * it may be mapped by each of them, but all of them get the same stored object.
+         */
+        MEMOIZED_VIEW
+    }
+
     /**
      * Indicates that the annotated field must be excluded from the generated DTO.
      */
@@ -1,17 +1,28 @@
 package io.github.manoelcampos.dtogen;
 
 import com.google.auto.service.AutoService;
+import com.sun.source.util.Trees;
+import io.github.manoelcampos.dtogen.ProcessorStats.Phase;
+import io.github.manoelcampos.dtogen.runtime.Mappings;
+import io.github.manoelcampos.dtogen.util.MethodSize;
 import io.github.manoelcampos.dtogen.util.TypeUtil;
 
+import javax.annotation.Nullable;
 import javax.annotation.processing.*;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.Types;
 import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import static java.util.stream.Collectors.partitioningBy;
 
@@ -22,13 +33,246 @@ import static java.util.stream.Collectors.partitioningBy;
  */
 @SupportedAnnotationTypes("io.github.manoelcampos.dtogen.DTO")
 @SupportedSourceVersion(SourceVersion.RELEASE_21)
+@SupportedOptions({
+        DTOProcessor.CACHE_OPTION, DTOProcessor.CACHE_DIR_OPTION, DTOProcessor.PARALLEL_OPTION,
+        DTOProcessor.ANNOTATIONS_EXCLUDE_OPTION, DTOProcessor.ANNOTATIONS_INCLUDE_OPTION, DTOProcessor.STATS_OPTION,
+        DTOProcessor.REGISTRY_OPTION, DTOProcessor.SPLIT_THRESHOLD_OPTION, DTOProcessor.CLASSLIST_OPTION,
+        DTOProcessor.NATIVE_IMAGE_OPTION, DTOProcessor.BULK_PARALLEL_THRESHOLD_OPTION
+})
 @AutoService(Processor.class)
 public class DTOProcessor extends AbstractProcessor {
+    /**
+     * The prefix of all the options accepted by the processor.
+     */
+    static final String OPTIONS_PREFIX = "dtogen.";
+
+    /**
+     * An option to enable/disable the {@link GenerationCache} (enabled by default),
+     * given to the compiler as {@code -Adtogen.cache=false}.
+     */
+    static final String CACHE_OPTION = OPTIONS_PREFIX + "cache";
+
+    /**
+     * An option to define the dir where the {@link GenerationCache} files are stored,
+     * given to the compiler as {@code -Adtogen.cache.dir=path}.
+     */
+    static final String CACHE_DIR_OPTION = CACHE_OPTION + ".dir";
+
+    /**
+     * An option to enable rendering the DTO records in parallel (disabled by default),
+     * given to the compiler as {@code -Adtogen.parallel=true}.
+     * Just the layout of the code captured into each {@link RecordDescriptor} is done in parallel,
+     * since the mapping code is built by the {@link RecordGenerator} from the compiler elements in the processor thread.
+     * That's why it's disabled by default: the time saved is usually small, and the code of each DTO record
+     * has to be built into a String before being written.
+     * The generated code is the same either way.
+     */
+    static final String PARALLEL_OPTION = OPTIONS_PREFIX + "parallel";
+
+    /**
+     * An option with a comma-separated list of annotations to be excluded from the DTO record fields
+     * (besides the ones excluded by default), given to the compiler as
+     * {@code -Adtogen.annotations.exclude=com.company.persistence.*,JsonView}.
+     * @see AnnotationFilter
+     */
+    static final String ANNOTATIONS_EXCLUDE_OPTION = OPTIONS_PREFIX + "annotations.exclude";
+
+    /**
+     * An option with a comma-separated list of annotations to be copied to the DTO record fields,
+     * even if they are excluded by default or by the {@link #ANNOTATIONS_EXCLUDE_OPTION},
+     * given to the compiler as {@code -Adtogen.annotations.include=jakarta.persistence.Column}.
+     * @see AnnotationFilter
+     */
+    static final String ANNOTATIONS_INCLUDE_OPTION = OPTIONS_PREFIX + "annotations.include";
+
+    /**
+     * An option to enable collecting performance statistics (disabled by default),
+     * given to the compiler as {@code -Adtogen.stats=true}.
+     * The statistics are written as JSON to {@link ProcessorStats#REPORT_FILE} inside the class output dir
+     * and a summary is shown as a compiler note.
+     * @see ProcessorStats
+     */
+    static final String STATS_OPTION = OPTIONS_PREFIX + "stats";
+
+    /**
+     * An option to generate a registry class mapping each model class to its DTO record (disabled by default),
+     * given to the compiler as {@code -Adtogen.registry=true} (to generate a {@code DTORegistry} class
+     * in the common package of all model classes) or {@code -Adtogen.registry=com.company.MyRegistry}.
+     * The class name must be given if the model classes don't share a package.
+     * @see RegistryGenerator
+     */
+    static final String REGISTRY_OPTION = OPTIONS_PREFIX + "registry";
+
+    /**
+     * An option to define the estimated bytecode size (in bytes) above which the generated methods are split,
+     * given to the compiler as {@code -Adtogen.split.threshold=4000}.
+     * The default is the {@link MethodSize#HUGE_METHOD_LIMIT}, above which methods are not JIT-compiled.
+     * @see #splitThreshold()
+     */
+    static final String SPLIT_THRESHOLD_OPTION = OPTIONS_PREFIX + "split.threshold";
+
+    /**
+     * An option to generate a class list with the DTO records and model classes (disabled by default),
+     * given to the compiler as {@code -Adtogen.classlist=true}.
+     * The list is written to {@link ClassListGenerator#FILE} inside the class output dir,
+     * to create an AppCDS archive including such classes.
+     * @see ClassListGenerator
+     */
+    static final String CLASSLIST_OPTION = OPTIONS_PREFIX + "classlist";
+
+    /**
+     * An option to generate the GraalVM native image reflection configuration for the DTO records (disabled by default),
+     * given to the compiler as {@code -Adtogen.native.image=true} (to write the configuration files inside
+     * {@code META-INF/native-image/dtogen}) or {@code -Adtogen.native.image=com.company/app}
+     * (to write them inside {@code META-INF/native-image/com.company/app}).
+     * @see NativeImageConfigGenerator
+     */
+    static final String NATIVE_IMAGE_OPTION = OPTIONS_PREFIX + "native.image";
+
+    /**
+     * An option to define the minimum number of objects for the DTO record {@code fromModelsParallel()} and {@code toModelsParallel()}
+     * bulk methods to map them in parallel, given to the compiler as {@code -Adtogen.bulk.parallel.threshold=50000}.
+     * The default is {@link #DEFAULT_BULK_PARALLEL_THRESHOLD}.
+     * @see #bulkParallelThreshold()
+     */
+    static final String BULK_PARALLEL_THRESHOLD_OPTION = OPTIONS_PREFIX + "bulk.parallel.threshold";
+
+    /**
+     * The option a Gradle dynamic incremental annotation processor declares to be handled as an isolating one,
+     * which generates each file from a single model class.
+     * @see #getSupportedOptions()
+     */
+    static final String GRADLE_ISOLATING_OPTION = "org.gradle.annotation.processing.isolating";
+
+    /**
+     * The option a Gradle dynamic incremental annotation processor declares to be handled as an aggregating one,
+     * which generates some files from all model classes.
+     * Gradle then processes all model classes again whenever any of them changes.
+     * @see #getSupportedOptions()
+     */
+    static final String GRADLE_AGGREGATING_OPTION = "org.gradle.annotation.processing.aggregating";
+
+    /**
+     * The default minimum number of objects for the DTO record parallel bulk methods to map them in parallel.
+     * Mapping a single object takes just some nanoseconds, so fewer objects don't pay off the cost of splitting the work among threads.
+     * @see #BULK_PARALLEL_THRESHOLD_OPTION
+     */
+    static final int DEFAULT_BULK_PARALLEL_THRESHOLD = 10_000;
+
+    /**
+     * The maximum number of DTO records rendered before they are written to files.
+     * The model classes are processed in batches of this size, so that the memory used
+     * by the rendered source codes (and descriptors) doesn't grow with the number of model classes,
+     * while a batch still has enough DTO records to be rendered in parallel.
+     * @see #writeDtoRecords(List)
+     */
+    static final int RENDERING_BATCH_SIZE = 64;
+
+    /**
+     * The fully qualified name of a class existing just in the optional dtogen-runtime artifact.
+     * If that class is on the classpath of the application being compiled, the runtime is used.
+     * The {@link Mappings} class can't be checked instead, since it's also inside the DTOGen jar,
+     * which may be on the classpath too.
+     * @see #runtimeAvailable()
+     */
+    static final String RUNTIME_CLASS = "io.github.manoelcampos.dtogen.runtime.DTOGenRuntime";
+
     private Types types;
     private final TypeUtil typeUtil;
 
     private JavaFileWriter javaFileWriter;
 
+    /**
+     * Indicates if the {@link DTORecord} interface was already created.
+     */
+    private boolean dtoInterfaceCreated;
+
+    /**
+     * Number of errors reported by the processor.
+     */
+    private int errorCount;
+
+    /**
+     * The notes and warnings reported while generating the DTO record for the current model class,
+     * which are stored into the {@link GenerationCache} to be reported again when the DTO record is taken from it.
+     */
+    private final List<GenerationCache.Message> modelMessages = new ArrayList<>();
+
+    private GenerationCache generationCache;
+
+    /**
+     * Indicates if the DTO records are rendered in parallel.
+     * @see #PARALLEL_OPTION
+     */
+    private boolean parallelRendering;
+
+    /**
+     * Extracts JavaDoc comments from model classes using the running compiler.
+     * It keeps the comments for each class already processed in the current round.
+     */
+    private JavaDocExtractor javaDocExtractor;
+
+    /**
+     * Decides which annotations from the model fields are excluded from the DTO record fields,
+     * shared by all {@link RecordGenerator}s.
+     */
+    private AnnotationFilter annotationFilter;
+
+    private ProcessorStats stats;
+
+    /**
+     * Generates the registry of DTO records, or null if it's disabled.
+     * @see #REGISTRY_OPTION
+     */
+    @Nullable
+    private RegistryGenerator registryGenerator;
+
+    /**
+     * @see #SPLIT_THRESHOLD_OPTION
+     */
+    private int splitThreshold;
+
+    /**
+     * @see #BULK_PARALLEL_THRESHOLD_OPTION
+     */
+    private int bulkParallelThreshold;
+
+    private SharedMappingGenerator sharedMappingGenerator;
+
+    /**
+     * Generates the class list for AppCDS archives, or null if it's disabled.
+     * @see #CLASSLIST_OPTION
+     */
+    @Nullable
+    private ClassListGenerator classListGenerator;
+
+    /**
+     * Generates the GraalVM native image configuration, or null if it's disabled.
+     * @see #NATIVE_IMAGE_OPTION
+     */
+    @Nullable
+    private NativeImageConfigGenerator nativeImageConfigGenerator;
+
+    /**
+     * @see #runtimeAvailable()
+     */
+    private boolean runtimeAvailable;
+
+    /**
+     * The fully qualified names of the top-level classes compiled from the source files of the current compilation
+     * (the root elements of all rounds so far).
+     * @see #isSourceType(TypeElement)
+     */
+    private final Set<String> sourceTypeNames = new HashSet<>();
+
+    /**
+     * Enables finding out if a class was parsed from a source file (such as one found in the source path),
+     * when the compiler is javac. It's null for other compilers.
+     * @see #isSourceType(TypeElement)
+     */
+    @Nullable
+    private Trees trees;
+
     /** Default constructor called during the application compilation process,
      * to further execute the processor. */
     public DTOProcessor() {
@@ -48,12 +292,109 @@ public class DTOProcessor extends AbstractProcessor {
     public synchronized void init(final ProcessingEnvironment processingEnv) {
         super.init(processingEnv);
         this.types = processingEnv.getTypeUtils();
+        this.javaDocExtractor = new JavaDocExtractor(processingEnv);
+        this.javaFileWriter = new JavaFileWriter(this);
+        this.generationCache = GenerationCache.newInstance(this);
+        this.annotationFilter = AnnotationFilter.newInstance(processingEnv.getOptions());
+        this.registryGenerator = RegistryGenerator.newInstance(this);
+        this.sharedMappingGenerator = new SharedMappingGenerator(this);
+        this.classListGenerator = ClassListGenerator.newInstance(this);
+        this.nativeImageConfigGenerator = NativeImageConfigGenerator.newInstance(this);
+        this.stats = new ProcessorStats(Boolean.parseBoolean(processingEnv.getOptions().get(STATS_OPTION)));
+        this.parallelRendering = Boolean.parseBoolean(processingEnv.getOptions().getOrDefault(PARALLEL_OPTION, "false"));
+        this.splitThreshold = parseThreshold(SPLIT_THRESHOLD_OPTION, MethodSize.HUGE_METHOD_LIMIT);
+        this.bulkParallelThreshold = parseThreshold(BULK_PARALLEL_THRESHOLD_OPTION, DEFAULT_BULK_PARALLEL_THRESHOLD);
+        this.runtimeAvailable = processingEnv.getElementUtils().getTypeElement(RUNTIME_CLASS) != null;
+        this.trees = getTrees(processingEnv);
+    }
+
+    /**
+     * {@return the Trees for the compiler running the processing environment or null if the compiler is not javac}
+     * @param processingEnv the processing environment to get the Trees from
+     */
+    @Nullable
+    private static Trees getTrees(final ProcessingEnvironment processingEnv) {
+        try {
+            return Trees.instance(processingEnv);
+        } catch (final IllegalArgumentException | NoClassDefFoundError e) {
+            return null;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * It also includes the option telling Gradle the kind of incremental annotation processing the processor supports
+     * (since it's registered as a dynamic one inside {@code META-INF/gradle/incremental.annotation.processors}).
+     * When the dtogen-runtime is on the classpath, each DTO is generated from its model class alone,
+     * so the processor is isolating.
+     * But when the {@link DTORecord}, {@link MappingContext} and {@link Mappings} classes are written into the application
+     * (since the runtime isn't available) or a file generated from all model classes is enabled
+     * (the {@link #REGISTRY_OPTION}, {@link #CLASSLIST_OPTION} or {@link #STATS_OPTION}),
+     * the processor is aggregating, so that an incremental build processes all model classes again
+     * instead of writing that file with just the recompiled ones.
+     */
+    @Override
+    public Set<String> getSupportedOptions() {
+        final var options = new HashSet<>(Set.of(DTOProcessor.class.getAnnotation(SupportedOptions.class).value()));
+        options.add(aggregating() ? GRADLE_AGGREGATING_OPTION : GRADLE_ISOLATING_OPTION);
+        return options;
+    }
+
+    /**
+     * {@return true if some file is generated from all model classes, instead of a single one}
+     * That includes the {@link DTORecord}, {@link MappingContext} and {@link Mappings} classes
+     * written into the application when the dtogen-runtime isn't available,
+     * since an isolating processor must give a single originating element for each generated file.
+     * It's checked after the processor is initialized.
+     */
+    private boolean aggregating() {
+        return !runtimeAvailable || registryGenerator != null || classListGenerator != null || stats != null && stats.enabled();
+    }
+
+    /**
+     * {@return the positive integer value of a threshold option, or a default value if the option isn't given or is invalid}
+     * @param option the name of the option
+     * @param defaultValue the value to return if the option isn't given or is invalid
+     */
+    private int parseThreshold(final String option, final int defaultValue) {
+        final var value = processingEnv.getOptions().get(option);
+        if (value == null || value.isBlank())
+            return defaultValue;
+
+        try {
+            final int threshold = Integer.parseInt(value.strip());
+            if (threshold > 0)
+                return threshold;
+        } catch (final NumberFormatException e) {
+            // An invalid value is reported below
+        }
+
+        final var msg = "Invalid value for %s: %s. Using the default value %d.".formatted(option, value, defaultValue);
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, msg);
+        return defaultValue;
     }
 
     @Override
     public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
-        createDtoInterface();
+        final long roundStart = stats.start();
+        javaDocExtractor.clear();
+        typeUtil.clear();
+        roundEnv.getRootElements().forEach(element -> {
+            if (element instanceof TypeElement typeElement)
+                sourceTypeNames.add(typeElement.getQualifiedName().toString());
+        });
+        // The DTO records generated in the previous round are compiled in this one
+        if (nativeImageConfigGenerator != null)
+            nativeImageConfigGenerator.writeCompiled();
         annotations.forEach(annotation -> processAnnotation(roundEnv, annotation));
+        writeRegistry(annotations, roundEnv);
+        stats.stopRound(roundStart);
+        if (roundEnv.processingOver()) {
+            showCacheStatistics();
+            writeStats();
+            writeClassList();
+        }
+
         return true;
     }
 
@@ -69,12 +410,172 @@ public class DTOProcessor extends AbstractProcessor {
         //Gets only classes which are annotated with @DTO
         final var classElements = annotatedElementsMap.get(true);
 
-        classElements.stream().map(this::newRecordGenerator).forEach(RecordGenerator::write);
+        createDtoInterface(classElements);
+        writeDtoRecords(classElements);
 
         //Gets only non-classes which are annotated with @DTO
         showInvalidAnnotationLocation(annotation, annotatedElementsMap.get(false));
     }
 
+    /**
+     * Generates the DTO records for {@link DTO} annotated classes and writes them to files,
+     * in batches of {@link #RENDERING_BATCH_SIZE} model classes.
+     * @param classElements the model/entity classes to generate DTO records for
+     * @see #writeDtoRecordsBatch(List)
+     */
+    private void writeDtoRecords(final List<Element> classElements) {
+        for (int start = 0; start < classElements.size(); start += RENDERING_BATCH_SIZE) {
+            final int end = Math.min(start + RENDERING_BATCH_SIZE, classElements.size());
+            writeDtoRecordsBatch(classElements.subList(start, end));
+        }
+    }
+
+    /**
+     * Generates the DTO records for a batch of {@link DTO} annotated classes and writes them to files.
+     * The compiler elements aren't thread-safe, so they are accessed just in the processor thread
+     * to capture a {@link RecordDescriptor} for each model class (including building the mapping code, which takes most of the time).
+     * Then, the DTO records are rendered in the processor thread straight into the files (and the {@link GenerationCache} ones),
+     * in the same order of the model classes, without building a String with the whole code first.
+     * Only when the {@link #PARALLEL_OPTION} is enabled, the code of the DTO records is rendered in parallel into Strings,
+     * which are then written in the processor thread.
+     * If a model class didn't change since the last build, the DTO record code is taken from the {@link GenerationCache}.
+     * @param classElements the model/entity classes to generate DTO records for
+     */
+    private void writeDtoRecordsBatch(final List<Element> classElements) {
+        final var pendingRecords = classElements.stream().map(el -> newPendingRecord((TypeElement) el)).toList();
+        final var descriptors = parallelRendering ?
+                                    pendingRecords.stream().map(PendingRecord::descriptor).filter(Objects::nonNull).toList() :
+                                    List.<RecordDescriptor>of();
+        final long renderingStart = stats.start();
+        final var renderedCodeIterator = RecordDescriptor.renderAll(descriptors, parallelRendering).iterator();
+        stats.stop(Phase.RENDERING, renderingStart);
+
+        for (final var pendingRecord : pendingRecords) {
+            final var modelTypeElement = pendingRecord.modelTypeElement();
+            final var packageName = TypeUtil.getPackageName(modelTypeElement);
+            final var recordName = RecordGenerator.getRecordName(modelTypeElement);
+            final var descriptor = pendingRecord.descriptor();
+            final long writingStart = stats.start();
+            final long sourceChars;
+            if (descriptor == null) {
+                sourceChars = javaFileWriter.write(packageName, recordName, pendingRecord.cachedCode(), modelTypeElement);
+            } else {
+                @Nullable final String recordCode = parallelRendering ? renderedCodeIterator.next() : null;
+                final Consumer<CodeWriter> codeRenderer = recordCode == null ? descriptor::render : code -> code.append(recordCode);
+                final GenerationCache.SourceWriter sourceWriter =
+                        copy -> javaFileWriter.write(packageName, recordName, codeRenderer, copy, modelTypeElement);
+                sourceChars = pendingRecord.cacheable() ?
+                                generationCache.write(modelTypeElement, pendingRecord.messages(), sourceWriter) :
+                                sourceWriter.write(null);
+            }
+
+            // Written even if the DTO record was taken from the cache, since it calls the shared mapping class
+            sharedMappingGenerator.write(modelTypeElement, javaFileWriter);
+            stats.stop(modelTypeElement, Phase.WRITING, writingStart);
+            if (registryGenerator != null)
+                registryGenerator.add(modelTypeElement);
+            if (classListGenerator != null)
+                classListGenerator.add(modelTypeElement);
+            if (nativeImageConfigGenerator != null)
+                nativeImageConfigGenerator.add(modelTypeElement);
+            stats.source(modelTypeElement, sourceChars, descriptor == null);
+        }
+    }
+
+    /**
+     * Gets the DTO record code for a model class from the {@link GenerationCache}
+     * or captures a {@link RecordDescriptor} to generate it, when it's missing or outdated in the cache.
+     * @param modelTypeElement the model/entity class to generate a DTO record for
+     * @return the DTO record pending to be written
+     */
+    private PendingRecord newPendingRecord(final TypeElement modelTypeElement) {
+        final long cacheLookupStart = stats.start();
+        final var cachedCode = generationCache.get(modelTypeElement);
+        stats.stop(modelTypeElement, Phase.CACHE_LOOKUP, cacheLookupStart);
+        if (cachedCode.isPresent())
+            return new PendingRecord(modelTypeElement, cachedCode.get(), null, false, List.of());
+
+        final int previousErrors = errorCount;
+        modelMessages.clear();
+        final var descriptor = newRecordGenerator(modelTypeElement).describe();
+        // A DTO generated with errors isn't cached, otherwise the errors wouldn't be reported in the next build
+        return new PendingRecord(modelTypeElement, null, descriptor, errorCount == previousErrors, List.copyOf(modelMessages));
+    }
+
+    /**
+     * A DTO record pending to be written.
+     * @param modelTypeElement the model class the DTO record is generated for
+     * @param cachedCode the DTO record code taken from the {@link GenerationCache} (or null if it must be rendered)
+     * @param descriptor the descriptor to render the DTO record code (or null if it was taken from the cache)
+     * @param cacheable indicates if the rendered DTO record code can be stored into the cache
+     * @param messages the notes and warnings reported while generating the DTO record, to be stored into the cache
+     */
+    private record PendingRecord(TypeElement modelTypeElement, @Nullable String cachedCode,
+                                 @Nullable RecordDescriptor descriptor, boolean cacheable, List<GenerationCache.Message> messages) {}
+
+    /**
+     * Shows how many DTO records were taken from the {@link GenerationCache} and how many had to be generated.
+     */
+    private void showCacheStatistics() {
+        showCacheStatistics("generation cache", generationCache.hits(), generationCache.misses());
+        showCacheStatistics("class layout cache", typeUtil.layoutCacheHits(), typeUtil.layoutCacheMisses());
+    }
+
+    private void showCacheStatistics(final String cacheName, final int hits, final int misses) {
+        final int total = hits + misses;
+        if (total == 0)
+            return;
+
+        final var msg = "DTOGen %s: %d hit(s), %d miss(es), %.1f%% hit rate".formatted(cacheName, hits, misses, hits * 100.0 / total);
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, msg);
+    }
+
+    /**
+     * Writes the DTO registry (if enabled) once there are no more {@link DTO} annotated classes to process.
+     * Since the DTO records generated in a round are processed in the next one,
+     * that usually happens in the second round, instead of the last one (where generated sources aren't processed).
+     * @param annotations the annotations found in the current round
+     * @param roundEnv the current round environment
+     * @see #REGISTRY_OPTION
+     */
+    private void writeRegistry(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+        if (registryGenerator != null && registryGenerator.pending() && (annotations.isEmpty() || roundEnv.processingOver())) {
+            if (registryGenerator.write(javaFileWriter) && classListGenerator != null)
+                classListGenerator.addGenerated(registryGenerator.qualifiedName());
+        }
+    }
+
+    /**
+     * Writes the class list (if enabled) in the last processing round,
+     * when the DTO records generated in the previous rounds were already compiled.
+     * @see #CLASSLIST_OPTION
+     */
+    private void writeClassList() {
+        if (classListGenerator != null && classListGenerator.pending())
+            classListGenerator.write();
+    }
+
+    /**
+     * Writes the statistics collected when the {@link #STATS_OPTION} is enabled
+     * into a JSON file inside the class output dir and shows a summary as a compiler note.
+     */
+    private void writeStats() {
+        if (!stats.enabled())
+            return;
+
+        final var messager = processingEnv.getMessager();
+        try {
+            final var reportFile = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ProcessorStats.REPORT_FILE);
+            try (var writer = reportFile.openWriter()) {
+                writer.write(stats.toJson());
+            }
+
+            messager.printMessage(Diagnostic.Kind.NOTE, stats.summary() + ". Report: " + reportFile.toUri());
+        } catch (final IOException e) {
+            messager.printMessage(Diagnostic.Kind.WARNING, "DTOGen stats couldn't be written: " + e.getMessage());
+        }
+    }
+
     /**
      * {@return a new object to generate a DTO record}
      * @param classElement the model/entity class to generate a DTO record for
@@ -97,24 +598,88 @@ public class DTOProcessor extends AbstractProcessor {
     }
 
     void error(final Element element, final String msg){
+        errorCount++;
         processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, msg, element);
     }
 
+    void warning(final Element element, final String msg){
+        modelMessages.add(new GenerationCache.Message(Diagnostic.Kind.WARNING, msg));
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, msg, element);
+    }
+
+    /**
+     * {@return true if the optional dtogen-runtime artifact is on the classpath of the application being compiled}
+     * In such a case, the {@link DTORecord} interface and the {@link MappingContext} and {@link Mappings} classes aren't generated,
+     * since the runtime includes them.
+     * @see #RUNTIME_CLASS
+     */
+    public boolean runtimeAvailable() {
+        return runtimeAvailable;
+    }
+
+    /**
+     * {@return true if a top-level class is compiled from a source file of the current compilation
+     * (including the ones found in the source path), or false if it comes from the classpath (such as from a dependency jar)}
+     * Only code for classes in the current compilation can be generated into their packages,
+     * otherwise the same classes would be generated into every module using them (splitting their packages).
+     * @param typeElement the top-level class to check
+     */
+    boolean isSourceType(final TypeElement typeElement) {
+        return sourceTypeNames.contains(typeElement.getQualifiedName().toString()) || trees != null && trees.getPath(typeElement) != null;
+    }
+
+    void note(final Element element, final String msg){
+        modelMessages.add(new GenerationCache.Message(Diagnostic.Kind.NOTE, msg));
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, msg, element);
+    }
+
+    /**
+     * {@return the number of errors reported by the processor so far}
+     */
+    int errorCount() {
+        return errorCount;
+    }
+
     /**
      * Gets the {@link DTORecord} source code from the interface copied to the
      * DTOGen jar resources dir and writes it to the generated-source dir inside
      * the application using DTOGen.
      * Check the interface documentation for more details.
+     * The {@link MappingContext} and {@link Mappings} classes used by the DTO records are written the same way,
+     * so that the mapping helpers are written just once, instead of being repeated in every DTO record.
+     *
+     * <p>Each file is written just once per compilation, unless the dtogen-runtime (which includes it) is on the classpath.
+     * It's written even if a previous build already compiled it (such as when an incremental build recompiles
+     * just some model classes), since that class may come from an older DTOGen version,
+     * which doesn't have the members the current DTO records use.</p>
+     *
+     * @param classElements the {@link DTO} annotated classes to be set as the elements the files are generated from.
+     *                      Build tools performing incremental annotation processing (such as Gradle)
+     *                      require each generated file to have its originating elements.
+     *                      Since these files are used by all DTO records, they are generated from all model classes.
      */
-    private void createDtoInterface() {
-        if(this.javaFileWriter != null)
+    private void createDtoInterface(final List<? extends Element> classElements) {
+        if(dtoInterfaceCreated || runtimeAvailable || classElements.isEmpty())
             return;
 
-        this.javaFileWriter = new JavaFileWriter(this);
-        final var pkg = DTORecord.class.getPackage().getName();
-        final var dtoRecordName = DTORecord.class.getSimpleName();
-        final var dtoInterfaceCode = JavaFileReader.readFromResources(dtoRecordName + ".java", pkg);
-        javaFileWriter.write(pkg, dtoRecordName, dtoInterfaceCode);
+        dtoInterfaceCreated = true;
+        final var originatingElements = classElements.toArray(Element[]::new);
+        copySourceFromResources(DTORecord.class, originatingElements);
+        copySourceFromResources(MappingContext.class, originatingElements);
+        copySourceFromResources(Mappings.class, originatingElements);
+    }
+
+    /**
+     * Writes the source code of a DTOGen class, copied to the DTOGen jar resources dir,
+     * to the generated-source dir inside the application using DTOGen.
+     * @param sourceClass the class to write its source code
+     * @param originatingElements the {@link DTO} annotated classes to be set as the elements the class is generated from
+     */
+    private void copySourceFromResources(final Class<?> sourceClass, final Element... originatingElements) {
+        final var pkg = sourceClass.getPackage().getName();
+        final var className = sourceClass.getSimpleName();
+        final var code = JavaFileReader.readFromResources(sourceClass);
+        javaFileWriter.write(pkg, className, code, originatingElements);
     }
 
     /**
@@ -138,4 +703,36 @@ public class DTOProcessor extends AbstractProcessor {
     public TypeUtil typeUtil() {
         return typeUtil;
     }
+
+    JavaDocExtractor javaDocExtractor() {
+        return javaDocExtractor;
+    }
+
+    AnnotationFilter annotationFilter() {
+        return annotationFilter;
+    }
+
+    ProcessorStats stats() {
+        return stats;
+    }
+
+    /**
+     * {@return the estimated bytecode size (in bytes) above which the generated methods are split}
+     * @see #SPLIT_THRESHOLD_OPTION
+     */
+    public int splitThreshold() {
+        return splitThreshold;
+    }
+
+    /**
+     * {@return the minimum number of objects for the DTO record parallel bulk methods to map them in parallel}
+     * @see #BULK_PARALLEL_THRESHOLD_OPTION
+     */
+    int bulkParallelThreshold() {
+        return bulkParallelThreshold;
+    }
+
+    GenerationCache generationCache() {
+        return generationCache;
+    }
 }
@@ -10,6 +10,9 @@
 /// Therefore, if the DTORecord.java is a regular file,
 /// when the DTOGen project is built, the file is built too.
 ///
+/// The dtogen-runtime module compiles this same file,
+/// so that applications having that runtime on the classpath don't get a copy of it.
+///
 /// Comments starting with /// are striped out from the code when this file is read from the DTOGen jar resources dir.
 package io.github.manoelcampos.dtogen;
 
@@ -0,0 +1,298 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A cache of the generated DTO records persisted in a dir next to the class output dir of the annotation processor
+ * (such as target/dtogen-cache for Maven projects) or in the dir given by the {@link DTOProcessor#CACHE_DIR_OPTION}.
+ * For each model class, a cache file is stored containing the {@link ModelFingerprint fingerprint}
+ * of the model and the generated DTO code.
+ *
+ * <p>When the DTO record for a model has to be generated again (such as when the application is rebuilt),
+ * if the fingerprint of the model didn't change, the DTO code is taken from the cache,
+ * instead of being generated from scratch.
+ * The notes and warnings reported when the DTO was generated (such as when its methods are split)
+ * are stored too, so that they are reported again whenever the DTO is taken from the cache.</p>
+ *
+ * <p>The cache files aren't created using the {@link javax.annotation.processing.Filer},
+ * since build tools such as Maven delete the files created by the annotation processors before recompiling a project.</p>
+ * @author Manoel Campos
+ */
+final class GenerationCache {
+    /**
+     * The extension of the cache files.
+     */
+    static final String FILE_EXTENSION = ".dtogen";
+
+    /**
+     * The name of the default cache dir, created next to the class output dir.
+     */
+    static final String DEFAULT_DIR_NAME = "dtogen-cache";
+
+    /**
+     * The prefix of the lines in a cache file storing a {@link Message}, which can't be the start of Java code.
+     */
+    private static final String MESSAGE_PREFIX = "#";
+
+    private final DTOProcessor processor;
+
+    /**
+     * The dir to store the cache files or null if the cache is disabled.
+     * In such a case, DTO records are always generated from scratch.
+     */
+    @Nullable
+    private final Path dir;
+
+    /**
+     * A map where each key is a model class whose DTO record was missing or outdated in the cache
+     * and the value is the model fingerprint, to be stored together with the DTO record once it's generated.
+     */
+    private final Map<TypeElement, String> pendingFingerprints = new HashMap<>();
+
+    private int hits;
+    private int misses;
+
+    /**
+     * A note or warning reported when a DTO record was generated.
+     * @param kind the kind of the message
+     * @param text the message text
+     */
+    record Message(Diagnostic.Kind kind, String text) {}
+
+    /**
+     * Creates a generation cache.
+     * @param processor the running processor
+     * @param dir see {@link #dir}
+     */
+    GenerationCache(final DTOProcessor processor, @Nullable final Path dir) {
+        this.processor = processor;
+        this.dir = dir;
+    }
+
+    /**
+     * Creates a generation cache according to the processor options.
+     * @param processor the running processor
+     * @return the new generation cache
+     * @see DTOProcessor#CACHE_OPTION
+     * @see DTOProcessor#CACHE_DIR_OPTION
+     */
+    static GenerationCache newInstance(final DTOProcessor processor) {
+        final var options = processor.processingEnv().getOptions();
+        if (!Boolean.parseBoolean(options.getOrDefault(DTOProcessor.CACHE_OPTION, "true")))
+            return new GenerationCache(processor, null);
+
+        final var dir = options.get(DTOProcessor.CACHE_DIR_OPTION);
+        return new GenerationCache(processor, dir == null ? defaultDir(processor) : Path.of(dir));
+    }
+
+    /**
+     * {@return the default cache dir, next to the class output dir; or null if the class output is not a regular dir}
+     * It's also null if the processing environment has no {@link javax.annotation.processing.Filer} (such as in some tests).
+     * @param processor the running processor
+     */
+    @Nullable
+    private static Path defaultDir(final DTOProcessor processor) {
+        final var filer = processor.processingEnv().getFiler();
+        if (filer == null)
+            return null;
+
+        try {
+            final var uri = filer.getResource(StandardLocation.CLASS_OUTPUT, "", DEFAULT_DIR_NAME).toUri();
+            final var classOutputDir = Path.of(uri).getParent();
+            final var parentDir = classOutputDir == null ? null : classOutputDir.getParent();
+            return parentDir == null ? null : parentDir.resolve(DEFAULT_DIR_NAME);
+        } catch (final IOException | IllegalArgumentException | FileSystemNotFoundException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the code of a DTO record from the cache.
+     * If it's missing or outdated, the DTO record must be generated and then {@link #write(TypeElement, List, SourceWriter) stored into the cache}.
+     * @param modelTypeElement the model class to get the DTO record code
+     * @return an {@link Optional} with the cached DTO record code; or an empty Optional if it's missing or outdated
+     */
+    Optional<String> get(final TypeElement modelTypeElement) {
+        if (dir == null)
+            return Optional.empty();
+
+        final String fingerprint = ModelFingerprint.of(processor, modelTypeElement);
+        final var cachedSource = read(modelTypeElement, getFile(modelTypeElement), fingerprint);
+        if (cachedSource.isPresent())
+            hits++;
+        else {
+            misses++;
+            pendingFingerprints.put(modelTypeElement, fingerprint);
+        }
+
+        return cachedSource;
+    }
+
+    /**
+     * Writes the code of a DTO record through a given {@link SourceWriter}, storing a copy of it into the cache
+     * when it was missing or outdated there.
+     * The copy is written while the code is rendered, so no String with the whole code has to be built.
+     * It's written into a temporary file, which replaces the cache file just if the whole code was written.
+     * A failure to write the copy is not an error, since the DTO can be generated in the next build.
+     * @param modelTypeElement the model class the DTO record was generated for
+     * @param messages the notes and warnings reported when the DTO record was generated
+     * @param sourceWriter writes the DTO record code (and its copy)
+     * @return the number of chars written by the sourceWriter (0 if the code couldn't be written)
+     */
+    long write(final TypeElement modelTypeElement, final List<Message> messages, final SourceWriter sourceWriter) {
+        final var fingerprint = pendingFingerprints.remove(modelTypeElement);
+        if (fingerprint == null)
+            return sourceWriter.write(null);
+
+        final var file = getFile(modelTypeElement);
+        final var tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        final PrintWriter copy;
+        try {
+            Files.createDirectories(file.getParent());
+            // A PrintWriter doesn't throw exceptions, so a failure to write the copy doesn't break writing the DTO record
+            copy = new PrintWriter(Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8));
+        } catch (final IOException e) {
+            writeError(modelTypeElement, file, e);
+            return sourceWriter.write(null);
+        }
+
+        final long chars;
+        try (copy) {
+            copy.append(header(fingerprint, messages));
+            chars = sourceWriter.write(copy);
+        }
+
+        try {
+            if (chars > 0 && !copy.checkError())
+                Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+            else Files.deleteIfExists(tempFile);
+        } catch (final IOException e) {
+            writeError(modelTypeElement, file, e);
+        }
+
+        return chars;
+    }
+
+    /**
+     * Writes the code of a DTO record.
+     * @see #write(TypeElement, List, SourceWriter)
+     */
+    @FunctionalInterface
+    interface SourceWriter {
+        /**
+         * Writes the code of a DTO record.
+         * @param copy where a copy of the code must be written to (or null if no copy is required)
+         * @return the number of chars written (0 if the code couldn't be written)
+         */
+        long write(@Nullable Appendable copy);
+    }
+
+    /**
+     * {@return the cache file for the DTO record of a given model class}
+     * @param modelTypeElement the model class
+     */
+    private Path getFile(final TypeElement modelTypeElement) {
+        final var packageName = TypeUtil.getPackageName(modelTypeElement);
+        final var recordName = RecordGenerator.getRecordName(modelTypeElement);
+        return Objects.requireNonNull(dir).resolve(getQualifiedName(packageName, recordName) + FILE_EXTENSION);
+    }
+
+    /**
+     * {@return the fully qualified name of a DTO record}
+     */
+    private static String getQualifiedName(final String packageName, final String recordName) {
+        return packageName.isBlank() ? recordName : packageName + "." + recordName;
+    }
+
+    /**
+     * Reads the DTO record code from a cache file and reports again the messages stored with it.
+     * @param modelTypeElement the model class the DTO record was generated for
+     * @param file the cache file to read
+     * @param fingerprint the current fingerprint of the model class
+     * @return an {@link Optional} with the cached DTO code;
+     *         or an empty Optional if there is no cache file or the fingerprint inside it is different from the given one.
+     */
+    private Optional<String> read(final TypeElement modelTypeElement, final Path file, final String fingerprint) {
+        if (!Files.isRegularFile(file))
+            return Optional.empty();
+
+        try {
+            final String content = Files.readString(file, StandardCharsets.UTF_8);
+            int lineEnd = content.indexOf('\n');
+            if (lineEnd == -1 || !fingerprint.equals(content.substring(0, lineEnd)))
+                return Optional.empty();
+
+            final var messages = new ArrayList<Message>();
+            int lineStart = lineEnd + 1;
+            while (content.startsWith(MESSAGE_PREFIX, lineStart) && (lineEnd = content.indexOf('\n', lineStart)) != -1) {
+                final var line = content.substring(lineStart + MESSAGE_PREFIX.length(), lineEnd);
+                final int kindEnd = line.indexOf(' ');
+                messages.add(new Message(Diagnostic.Kind.valueOf(line.substring(0, kindEnd)), line.substring(kindEnd + 1)));
+                lineStart = lineEnd + 1;
+            }
+
+            final var messager = processor.processingEnv().getMessager();
+            messages.forEach(message -> messager.printMessage(message.kind(), message.text(), modelTypeElement));
+            return Optional.of(content.substring(lineStart));
+        } catch (final IOException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * {@return the start of a cache file, containing the model fingerprint and the messages reported when the DTO record was generated}
+     * Each message is stored in a single line (after the fingerprint), so line breaks inside it are replaced by spaces.
+     */
+    private static StringBuilder header(final String fingerprint, final List<Message> messages) {
+        final var header = new StringBuilder(fingerprint).append('\n');
+        for (final var message : messages) {
+            final var text = String.join(" ", message.text().lines().toList());
+            header.append(MESSAGE_PREFIX).append(message.kind()).append(' ').append(text).append('\n');
+        }
+
+        return header;
+    }
+
+    private void writeError(final TypeElement modelTypeElement, final Path file, final IOException e) {
+        processor.warning(modelTypeElement, "Error writing the DTOGen cache file %s: %s".formatted(file, e.getMessage()));
+    }
+
+    /**
+     * {@return true if the cache is enabled, false otherwise}
+     */
+    boolean enabled() {
+        return dir != null;
+    }
+
+    /**
+     * {@return the number of DTO records whose code was taken from the cache}
+     */
+    int hits() {
+        return hits;
+    }
+
+    /**
+     * {@return the number of DTO records that had to be generated because they were missing or outdated in the cache}
+     */
+    int misses() {
+        return misses;
+    }
+}
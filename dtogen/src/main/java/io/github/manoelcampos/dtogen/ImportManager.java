@@ -0,0 +1,96 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Manages the imports of a single generated Java file.
+ * Each type referenced in the generated code is registered by {@link #use(String)},
+ * which returns the name to be used in the code:
+ * the simple name when the type is imported (or doesn't need to be imported);
+ * or the fully qualified name if another type with the same simple name is already used in the file.
+ *
+ * <p>The imports are sorted by a key computed just once for each import,
+ * placing javax.* imports before java.* ones.</p>
+ * @author Manoel Campos
+ */
+final class ImportManager {
+    private static final String JAVA_LANG_PKG = "java.lang";
+
+    /**
+     * The package of the generated file, whose types don't need to be imported.
+     */
+    private final String packageName;
+
+    /**
+     * A map where each key is a simple name and the value is the fully qualified name
+     * of the type using that simple name in the generated file.
+     */
+    private final Map<String, String> typesBySimpleName = new HashMap<>();
+
+    /**
+     * A map where each key is a sort key and the value is the fully qualified name of the type to be imported.
+     * @see #sortKey(String)
+     */
+    private final Map<String, String> importsBySortKey = new TreeMap<>();
+
+    /**
+     * Creates an ImportManager for a generated file.
+     * @param packageName see {@link #packageName}
+     */
+    ImportManager(final String packageName) {
+        this.packageName = packageName;
+    }
+
+    /**
+     * Registers a type to be used in the generated file, adding an import for it if required.
+     * @param qualifiedName the fully qualified name of the type
+     * @return the name to be used to reference the type in the generated code:
+     *         the simple name if there is no other type with the same simple name in the file,
+     *         or the fully qualified name otherwise
+     */
+    String use(final String qualifiedName) {
+        final var typePackageName = TypeUtil.getPackageName(qualifiedName);
+        if (typePackageName.isEmpty())
+            return qualifiedName;
+
+        final var simpleName = TypeUtil.getSimpleClassName(qualifiedName);
+        final var previousType = typesBySimpleName.putIfAbsent(simpleName, qualifiedName);
+        if (previousType != null)
+            return previousType.equals(qualifiedName) ? simpleName : qualifiedName;
+
+        if (!typePackageName.equals(packageName) && !typePackageName.equals(JAVA_LANG_PKG))
+            importsBySortKey.put(sortKey(qualifiedName), qualifiedName);
+
+        return simpleName;
+    }
+
+    /**
+     * {@return true if a simple name is already used by a type referenced in the generated file}
+     * @param simpleName the simple name to check
+     */
+    boolean isUsed(final String simpleName) {
+        return typesBySimpleName.containsKey(simpleName);
+    }
+
+    /**
+     * {@return the key used to sort an import}
+     * Replaces "javax" by "java+" just for sorting, since + comes before x in the ASCII table.
+     * This places javax.* imports before java.* ones.
+     * @param qualifiedName the fully qualified name of the type to be imported
+     */
+    private static String sortKey(final String qualifiedName) {
+        return qualifiedName.startsWith("javax.") ? "java+" + qualifiedName.substring(5) : qualifiedName;
+    }
+
+    /**
+     * {@return the fully qualified names of the types to be imported, in a stable order}
+     */
+    Collection<String> imports() {
+        return importsBySortKey.values();
+    }
+}
@@ -1,143 +1,159 @@
 package io.github.manoelcampos.dtogen;
 
-import com.sun.source.tree.*;
 import com.sun.source.util.DocTrees;
-import com.sun.source.util.JavacTask;
-import com.sun.source.util.TreePath;
+import com.sun.source.util.Trees;
+import io.github.manoelcampos.dtogen.util.TypeUtil;
 
+import javax.annotation.Nullable;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
-import javax.tools.JavaCompiler;
-import javax.tools.ToolProvider;
-import java.io.IOException;
-import java.io.UncheckedIOException;
-import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import java.util.*;
 import java.util.Map.Entry;
-import java.util.Objects;
-import java.util.Optional;
 import java.util.stream.Stream;
 
 /**
- * A class to extract the JavaDoc comments from a Java source file.
+ * Extracts the JavaDoc comments from the fields of a class/record,
+ * using the compiler that is running the annotation processor.
+ * This way, the source files are not parsed again,
+ * since the compiler already has the comments for the elements being compiled.
+ *
+ * <p>The comments of each class are extracted just once and cached,
+ * so that superclasses shared by many model classes aren't processed multiple times.
+ * The cache is cleared at each annotation processing round (see {@link #clear()}).</p>
  * @author Manoel Campos
  */
 public class JavaDocExtractor {
     /**
-     * A map where the key is the name of a field and the value the JavaDoc comment for that field.
+     * A map where each key is a class/record and the value is another map
+     * where the key is the name of a field declared directly inside that class
+     * and the value the JavaDoc comment for that field.
      */
-    private final Map<String, String> fieldCommentsMap = new HashMap<>();
+    private final Map<TypeElement, Map<String, String>> declaredFieldCommentsCache = new HashMap<>();
+
+    private final Elements elements;
+    private final Types types;
 
     /**
-     * A type element representing a Java class, record, interface, etc.
+     * Enables getting the JavaDoc comments as a parsed tree when the compiler is javac.
+     * It's null for other compilers, when {@link Elements#getDocComment(Element)} is used instead.
      */
-    private final TypeElement typeElement;
-
+    @Nullable
+    private final DocTrees docTrees;
 
     /**
-     * Indicates if the Java fiel is inside the test dir or not.
+     * Creates an instance to extract JavaDoc comments using the compiler running a given processing environment.
+     * @param processingEnv the environment of the running annotation processor
      */
-    private final boolean testDir;
+    public JavaDocExtractor(final ProcessingEnvironment processingEnv) {
+        this(processingEnv.getElementUtils(), processingEnv.getTypeUtils(), getDocTrees(processingEnv));
+    }
 
     /**
-     * Creates an instance and extracts JavaDoc comments from the given Java element.
-     * @param typeElement see {@link #typeElement}
+     * Creates an instance to extract JavaDoc comments using given compiler utilities.
+     * @param elements the compiler {@link Elements} utility
+     * @param types the compiler {@link Types} utility
+     * @param trees the compiler {@link Trees} utility, which is used as {@link #docTrees} when it's a {@link DocTrees}
      */
-    public JavaDocExtractor(final TypeElement typeElement) {
-        this(typeElement, false);
+    JavaDocExtractor(final Elements elements, final Types types, @Nullable final Trees trees) {
+        this.elements = elements;
+        this.types = types;
+        this.docTrees = trees instanceof DocTrees docTrees ? docTrees : null;
     }
 
     /**
-     * Creates an instance and extracts JavaDoc comments from the given Java element.
-     * @param typeElement see {@link #typeElement}
-     * @param testDir see {@link #testDir}
+     * {@return the DocTrees for the compiler running the processing environment or null if the compiler is not javac}
+     * @param processingEnv the processing environment to get the DocTrees from
      */
-    JavaDocExtractor(final TypeElement typeElement, final boolean testDir) {
-        this.typeElement = typeElement;
-        this.testDir = testDir;
-        final var javaFilePath = getJavaFilePathFromQualifiedName();
-        System.out.println(javaFilePath);
-        extract(javaFilePath);
+    @Nullable
+    private static DocTrees getDocTrees(final ProcessingEnvironment processingEnv) {
+        try {
+            return DocTrees.instance(processingEnv);
+        } catch (final IllegalArgumentException | NoClassDefFoundError e) {
+            return null;
+        }
     }
 
     /**
-     * {@return the path of the Java source file for the given qualified name}
+     * {@return a stream of entries where the key is the name of a field and the value the JavaDoc comment for that field}
+     * It includes the fields inherited from superclasses.
+     * Fields are returned in the order they are declared, starting from the superclasses.
+     * @param typeElement the class/record to get the field comments from
      */
-    String getJavaFilePathFromQualifiedName() {
-        final String path = typeElement.getQualifiedName().toString().replace(".", "/");
-        final String dir = testDir ? "test" : "main";
-        return "src/%s/java/%s.java".formatted(dir, path);
+    public Stream<Entry<String, String>> getFieldCommentsStream(final TypeElement typeElement) {
+        final var fieldCommentsMap = new LinkedHashMap<String, String>();
+        collectFieldComments(typeElement, fieldCommentsMap);
+        return fieldCommentsMap.entrySet().stream();
     }
 
     /**
-     * Extracts the JavaDoc comments from a Java source file.
+     * Collects the comments from fields of a class and its superclasses into a given map.
+     * @param typeElement the class to get the field comments from
+     * @param fieldCommentsMap the map to add the field comments to
      */
-    private void extract(final String javaFilePath) {
-        Objects.requireNonNull(javaFilePath);
-        try {
-            // Step 1: Get Java Compiler
-            final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-            final var fileManager = compiler.getStandardFileManager(null, null, null);
-
-            // Step 2: Specify the Java File
-            final var sourceFile = Paths.get(javaFilePath).toFile();
-            final var fileObjectsIterable = fileManager.getJavaFileObjects(sourceFile);
-
-            // Step 3: Parse the Source File
-            final var task = (JavacTask) compiler.getTask(null, fileManager, null, null, null, fileObjectsIterable);
-            final var docTrees = DocTrees.instance(task);
-
-            // Step 4: Analyze the Compilation Unit (AST)
-            for (final CompilationUnitTree unitTree : task.parse()) {
-                parseTypeDeclarationTree(unitTree, docTrees);
-            }
-        } catch (final IOException e) {
-            throw new UncheckedIOException(e);
-        }
-    }
+    private void collectFieldComments(final TypeElement typeElement, final Map<String, String> fieldCommentsMap) {
+        if(TypeUtil.hasSuperClass(typeElement))
+            collectFieldComments((TypeElement) types.asElement(typeElement.getSuperclass()), fieldCommentsMap);
 
-    private void parseTypeDeclarationTree(final CompilationUnitTree unitTree, final DocTrees docTrees) {
-        for (final var tree : unitTree.getTypeDecls()) {
-            parseClassTree(unitTree, docTrees, tree);
-        }
+        fieldCommentsMap.putAll(declaredFieldComments(typeElement));
     }
 
-    private void parseClassTree(final CompilationUnitTree unitTree, final DocTrees docTrees, final Tree tree) {
-        if (tree instanceof ClassTree classTree) {
-            for (final Tree member : classTree.getMembers()) {
-                parseField(unitTree, docTrees, member);
-            }
-        }
+    /**
+     * {@return a map of the comments from fields declared directly inside a given class (not inherited)}
+     * @param typeElement the class to get the field comments from
+     */
+    private Map<String, String> declaredFieldComments(final TypeElement typeElement) {
+        return declaredFieldCommentsCache.computeIfAbsent(typeElement, this::extract);
     }
 
-    private void parseField(final CompilationUnitTree unitTree, final DocTrees docTrees, final Tree member) {
-        if (member instanceof VariableTree) {
-            final var optional = extractJavaDoc(docTrees, TreePath.getPath(unitTree, member));
-            optional.ifPresent(javadoc -> fieldCommentsMap.put(((VariableTree) member).getName().toString(), javadoc));
+    /**
+     * Extracts the JavaDoc comments from the fields declared directly inside a given class.
+     * @param typeElement the class to get the field comments from
+     * @return a map where the key is the name of a field and the value the JavaDoc comment for that field
+     */
+    private Map<String, String> extract(final TypeElement typeElement) {
+        final var fieldCommentsMap = new LinkedHashMap<String, String>();
+        for (final VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+            extractJavaDoc(field).ifPresent(javadoc -> fieldCommentsMap.put(field.getSimpleName().toString(), javadoc));
         }
+
+        return fieldCommentsMap;
     }
 
-    private Optional<String> extractJavaDoc(final DocTrees docTrees, final TreePath path) {
-        final var docCommentTree = docTrees.getDocCommentTree(path);
-        final boolean noJavaDoc = docCommentTree == null || docCommentTree.toString().isBlank();
+    private Optional<String> extractJavaDoc(final Element element) {
+        final String comment = getDocComment(element);
+        final boolean noJavaDoc = comment == null || comment.isBlank();
 
-        /* Replaces all line brakes that starts the new line with a space by just a line break,
+        /* Normalizes the line breaks (since the model source may use \r\n), then replaces all line brakes
+        * that starts the new line with a space by just a line break,
         * since the trim() only removes spaces at begin and end, not between lines. */
         return noJavaDoc ?
                 Optional.empty() :
-                Optional.of(docCommentTree.toString().trim().replaceAll("\n\\s", "\n"));
+                Optional.of(comment.replace("\r\n", "\n").replace('\r', '\n').trim().replaceAll("\n\\s", "\n"));
     }
 
-    public Stream<Entry<String, String>> getFieldCommentsStream() {
-        return fieldCommentsMap.entrySet().stream();
+    /**
+     * {@return the JavaDoc comment of an element or null if there is no comment}
+     * @param element the element to get its comment
+     */
+    @Nullable
+    private String getDocComment(final Element element) {
+        if (docTrees == null)
+            return elements.getDocComment(element);
+
+        final var docCommentTree = docTrees.getDocCommentTree(element);
+        return docCommentTree == null ? null : docCommentTree.toString();
     }
 
-    public static String getMemberName(final Tree member) {
-        return switch (member.getKind()) {
-            case METHOD -> ((MethodTree) member).getName().toString();
-            case VARIABLE -> ((VariableTree) member).getName().toString();
-            case CLASS -> ((ClassTree) member).getSimpleName().toString();
-            default -> "";
-        };
+    /**
+     * Clears the cache of extracted comments.
+     * Elements from a previous annotation processing round must not be used in a new round.
+     */
+    public void clear() {
+        declaredFieldCommentsCache.clear();
     }
 }
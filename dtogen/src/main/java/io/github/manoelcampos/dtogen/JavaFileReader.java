@@ -3,6 +3,7 @@ package io.github.manoelcampos.dtogen;
 import io.github.manoelcampos.dtogen.util.TypeUtil;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
 
 import static java.util.stream.Collectors.joining;
@@ -29,18 +30,34 @@ public class JavaFileReader {
      */
     public static String readFromResources(final String sourceFileName, final String packageName){
         // The file to be read must be inside the same package of the DTOProcessor class
-        final var inputStream = DTOProcessor.class.getResourceAsStream(sourceFileName);
+        return readFromResources(DTOProcessor.class.getResourceAsStream(sourceFileName), sourceFileName, packageName);
+    }
+
+    /**
+     * Reads the source file of a DTOGen class from the resources folder inside the DTOGen jar,
+     * where it's inside the dir of the class package.
+     *
+     * @param sourceClass the class to read its source file
+     * @return the source file code
+     * @throws UncheckedIOException if the file is not found inside the jar resources dir or cannot be read
+     */
+    public static String readFromResources(final Class<?> sourceClass){
+        final var sourceFileName = sourceClass.getSimpleName() + ".java";
+        return readFromResources(sourceClass.getResourceAsStream(sourceFileName), sourceFileName, sourceClass.getPackageName());
+    }
+
+    private static String readFromResources(final InputStream inputStream, final String sourceFileName, final String packageName){
         if(inputStream == null)
             throw new UncheckedIOException(new FileNotFoundException("Resource not found inside the DTOGen jar: " + sourceFileName));
 
-        final String newPackageName = "package %s;%n".formatted(packageName);
+        final String newPackageName = "package %s;".formatted(packageName) + CodeWriter.LN;
         final Function<String, String> packageReplacer = line -> line.startsWith("package") ? newPackageName : line;
 
-        try (var fileReader = new BufferedReader(new InputStreamReader(inputStream))){
+        try (var fileReader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))){
             return fileReader.lines()
                              .filter(TypeUtil::isNotThreeSlashesComment)
                              .map(packageReplacer)
-                             .collect(joining(System.lineSeparator()));
+                             .collect(joining(CodeWriter.LN, "", CodeWriter.LN));
         } catch (final IOException e) {
             throw new UncheckedIOException(e);
         }
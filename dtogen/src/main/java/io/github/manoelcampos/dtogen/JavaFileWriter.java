@@ -1,8 +1,12 @@
 package io.github.manoelcampos.dtogen;
 
+import javax.annotation.Nullable;
+import javax.lang.model.element.Element;
 import javax.tools.JavaFileObject;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
 
 /**
  * Enables the creation of a Java file from a given String containing the Java code to be written.
@@ -28,28 +32,65 @@ public class JavaFileWriter {
      * @param packageName the package the DTO record will be placed in
      * @param recordName the name of the DTO record generated, which is used as the file name
      * @param classContent the code for the Java file to be created
+     * @param originatingElements the elements (such as the model class) the Java file is generated from.
+     *                            They enable build tools to perform incremental annotation processing,
+     *                            regenerating a Java file only when such elements change.
+     * @return the number of chars written (0 if the file couldn't be written)
      */
-    public void write(final String packageName, final String recordName, final String classContent) {
-        try (final var out = newJavaFileWriter(packageName, recordName)) {
-            /* Does not use printf since that the JavaDoc string inside the Java file being saved
-            may contain % characters that will be interpreted as placeholders by the method,
-            causing exception during formatting. */
-            out.println(classContent);
-        } catch (final IOException e) {
+    public long write(final String packageName, final String recordName, final String classContent, final Element... originatingElements) {
+        return write(packageName, recordName, code -> code.append(classContent), originatingElements);
+    }
+
+    /**
+     * Writes the code of the generated DTO record straight into a Java file,
+     * without building a String with the whole code first.
+     * @param packageName the package the DTO record will be placed in
+     * @param recordName the name of the DTO record generated, which is used as the file name
+     * @param codeRenderer a function that writes the code for the Java file into a given {@link CodeWriter}
+     * @param originatingElements the elements (such as the model class) the Java file is generated from.
+     * @return the number of chars written (0 if the file couldn't be written)
+     * @see #write(String, String, String, Element...)
+     */
+    public long write(final String packageName, final String recordName, final Consumer<CodeWriter> codeRenderer, final Element... originatingElements) {
+        return write(packageName, recordName, codeRenderer, null, originatingElements);
+    }
+
+    /**
+     * Writes the code of the generated DTO record straight into a Java file and into a copy (such as a cache file),
+     * without building a String with the whole code first.
+     * @param packageName the package the DTO record will be placed in
+     * @param recordName the name of the DTO record generated, which is used as the file name
+     * @param codeRenderer a function that writes the code for the Java file into a given {@link CodeWriter}
+     * @param copy where a copy of the code is written to (or null if no copy is required)
+     * @param originatingElements the elements (such as the model class) the Java file is generated from.
+     * @return the number of chars written (0 if the file couldn't be written)
+     */
+    public long write(
+            final String packageName, final String recordName, final Consumer<CodeWriter> codeRenderer,
+            @Nullable final Appendable copy, final Element... originatingElements)
+    {
+        try (final var out = newJavaFileWriter(packageName, recordName, originatingElements)) {
+            final var code = new CodeWriter(out, copy);
+            codeRenderer.accept(code);
+            return code.length();
+        } catch (final IOException | UncheckedIOException e) {
             processor.error(null, "Error creating JavaFileObject to write the DTO generated code: " + e.getMessage());
+            return 0;
         }
     }
 
     /**
-     * Creates a new {@link PrintWriter} for a {@link JavaFileObject} to write the DTO record file.
+     * Creates a new {@link Writer} for a {@link JavaFileObject} to write the DTO record file.
      *
      * @param packageName   the name of the package where the record file will be placed (ending with a dot if not empty).
      * @param dtoRecordName the name of the DTO record
-     * @return the new {@link PrintWriter} object
+     * @param originatingElements the elements the Java file is generated from
+     * @return the new {@link Writer} object
      */
-    private PrintWriter newJavaFileWriter(final String packageName, final String dtoRecordName) throws IOException {
+    private Writer newJavaFileWriter(final String packageName, final String dtoRecordName, final Element... originatingElements) throws IOException {
         final var dot = packageName.isBlank() ? "" : ".";
-        final var javaFileObj = processor.processingEnv().getFiler().createSourceFile(packageName + dot + dtoRecordName);
-        return new PrintWriter(javaFileObj.openWriter());
+        final var filer = processor.processingEnv().getFiler();
+        final var javaFileObj = filer.createSourceFile(packageName + dot + dtoRecordName, originatingElements);
+        return javaFileObj.openWriter();
     }
 }
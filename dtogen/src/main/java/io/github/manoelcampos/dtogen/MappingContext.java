@@ -0,0 +1,128 @@
+/// Like the DTORecord interface, this class is copied to the resources dir of the DTOGen jar,
+/// so that its source file is written to the generated-sources dir of the application using DTOGen
+/// (unless the dtogen-runtime, which compiles this same file, is on the classpath).
+///
+/// Comments starting with /// are striped out from the code when this file is read from the DTOGen jar resources dir.
+package io.github.manoelcampos.dtogen;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * A context to map a graph of objects (model objects to DTO records or back),
+ * where each object is mapped just once, even if it's referred to by many other objects.
+ * Objects are compared by identity (not by {@code equals()}), so that each object mapped inside the context
+ * is always mapped to the same DTO record (or model object) and shared references are kept.
+ * Since DTO records are immutable, an object that refers to itself (directly or through its {@link DTO} annotated items)
+ * can't be mapped: such a cycle is detected and reported by an {@link IllegalStateException}, instead of a stack overflow.
+ *
+ * <p>A context is used by passing it to the generated {@code of(model, context)} and {@code toModel(context)} methods,
+ * which pass it to the mapping of the {@link DTO} annotated items:</p>
+ * <pre>{@code
+ * try (var context = MappingContext.open()) {
+ *     final var dtos = orders.stream().map(order -> OrderDTO.of(order, context)).toList();
+ * }
+ * }</pre>
+ *
+ * <p>A context isn't thread-safe. It must be closed after mapping a graph (even when the mapping fails),
+ * so that the mapped objects are released. A new context is created for each graph,
+ * instead of keeping closed contexts in a pool for each thread, which would keep their maps (and the classes of
+ * the application using DTOGen) alive for the whole thread life.</p>
+ * @author Manoel Campos
+ */
+public final class MappingContext implements AutoCloseable {
+    /**
+     * Indicates an object is being mapped, in the {@link #mappedObjects} map.
+     */
+    private static final Object IN_PROGRESS = new Object();
+
+    /**
+     * A map where each key is a source object and the value is the object it was mapped to
+     * (or {@link #IN_PROGRESS} if it's being mapped).
+     */
+    private final Map<Object, Object> mappedObjects = new IdentityHashMap<>();
+
+    /**
+     * The source objects being mapped, where the first one is the last started.
+     */
+    private final Deque<Object> path = new ArrayDeque<>();
+
+    private MappingContext() {/**/}
+
+    /**
+     * {@return a new context to map a graph of objects}
+     */
+    public static MappingContext open() {
+        return new MappingContext();
+    }
+
+    /**
+     * Starts mapping an object, if it wasn't mapped inside this context yet.
+     * If null is returned, the object must be mapped and then passed to {@link #finish(Object, Object)}.
+     * @param source the object to map
+     * @return the object the source was already mapped to, or null if it must be mapped
+     * @param <R> the type of the mapped object
+     * @throws IllegalStateException if the source object is already being mapped,
+     *                               meaning it refers to itself (directly or through other objects)
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R start(final Object source) {
+        final Object mapped = mappedObjects.putIfAbsent(source, IN_PROGRESS);
+        if (mapped == IN_PROGRESS)
+            throw new IllegalStateException("Cyclic reference found when mapping " + cycle(source));
+
+        if (mapped == null)
+            path.push(source);
+
+        return (R) mapped;
+    }
+
+    /**
+     * Finishes mapping an object, storing the object it was mapped to.
+     * @param source the object that was mapped
+     * @param target the object the source was mapped to
+     * @return the target object
+     * @param <R> the type of the mapped object
+     * @see #start(Object)
+     */
+    public <R> R finish(final Object source, final R target) {
+        mappedObjects.put(source, target);
+        path.pop();
+        return target;
+    }
+
+    /**
+     * {@return a description of the objects in a cycle}, such as {@code Order@1b6d3586 -> Item@4554617c -> Order@1b6d3586}.
+     * The {@code toString()} of the objects isn't called, since it may also not handle the cycle.
+     * @param source the object found again while it's being mapped
+     */
+    private String cycle(final Object source) {
+        final var cycle = new StringJoiner(" -> ");
+        boolean found = false;
+        for (final Iterator<Object> iterator = path.descendingIterator(); iterator.hasNext(); ) {
+            final Object object = iterator.next();
+            found = found || object == source;
+            if (found)
+                cycle.add(describe(object));
+        }
+
+        return cycle.add(describe(source)).toString();
+    }
+
+    private static String describe(final Object object) {
+        return object.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(object));
+    }
+
+    /**
+     * Clears the context, releasing the mapped objects.
+     */
+    @Override
+    public void close() {
+        mappedObjects.clear();
+        path.clear();
+    }
+}
@@ -0,0 +1,189 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import java.io.File;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Computes a structural fingerprint of a model class, which changes whenever
+ * anything used to generate the DTO record for that class changes.
+ * It covers the model fields (including inherited ones), their annotations and JavaDocs,
+ * the public methods (accessors), the types referenced by {@link DTO.MapToId} fields,
+ * the items of array, collection, {@code Map} and {@code Optional} fields (and if they are {@link DTO} annotated),
+ * the DTOGen processor options and the DTOGen version in use.
+ *
+ * <p>Computing a fingerprint just reads the elements already provided by the compiler,
+ * which is much cheaper than generating the DTO code.</p>
+ * @author Manoel Campos
+ * @see GenerationCache
+ */
+final class ModelFingerprint {
+    /**
+     * Identifies the DTOGen build in use, so that upgrading DTOGen invalidates previously generated DTOs.
+     */
+    private static final String GENERATOR_ID = generatorId();
+
+    private final DTOProcessor processor;
+    private final StringBuilder content = new StringBuilder();
+
+    /**
+     * Types already included into the fingerprint, avoiding infinite recursion
+     * for classes that reference themselves (such as a Person with a father field).
+     */
+    private final Set<TypeElement> visitedTypes = new HashSet<>();
+
+    private ModelFingerprint(final DTOProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * {@return the fingerprint of a model class as a hexadecimal SHA-256 hash}
+     * @param processor the running processor
+     * @param modelTypeElement the model class to compute the fingerprint
+     */
+    static String of(final DTOProcessor processor, final TypeElement modelTypeElement) {
+        final var fingerprint = new ModelFingerprint(processor);
+        fingerprint.appendHeader();
+        fingerprint.appendType(modelTypeElement, true);
+        fingerprint.appendJavaDoc(modelTypeElement);
+        fingerprint.appendSharedMapping(modelTypeElement);
+        return fingerprint.hash();
+    }
+
+    private void appendHeader() {
+        content.append(GENERATOR_ID).append('\n');
+        // Sorts the options to ensure the fingerprint doesn't depend on the order they were given
+        new TreeMap<>(processor.processingEnv().getOptions())
+                .forEach((key, value) -> {
+                    if (key.startsWith(DTOProcessor.OPTIONS_PREFIX))
+                        content.append(key).append('=').append(value).append('\n');
+                });
+        // The generated code depends on the dtogen-runtime being on the classpath
+        content.append("runtime=").append(processor.runtimeAvailable()).append('\n');
+    }
+
+    /**
+     * Appends the superclass whose fields are mapped by a shared mapping class (if any),
+     * since the DTO record calls that class instead of mapping such fields.
+     * @see SharedMappingGenerator
+     */
+    private void appendSharedMapping(final TypeElement modelTypeElement) {
+        final var superclass = SharedMappingGenerator.sharedSuperclass(processor, modelTypeElement);
+        if (superclass != null)
+            content.append("shared mapping: ").append(superclass.getQualifiedName()).append('\n');
+    }
+
+    /**
+     * Appends the structure of a type to the fingerprint.
+     * @param typeElement the type to append
+     * @param includeReferences indicates if the types referenced by the fields of the given type
+     *                          must be appended too (they are for the model class, but not for the referenced types)
+     */
+    private void appendType(final TypeElement typeElement, final boolean includeReferences) {
+        if (!visitedTypes.add(typeElement))
+            return;
+
+        // The superclass type includes its type arguments (such as BaseEntity<Long>), which define the types of the inherited fields
+        content.append(typeElement.getKind()).append(' ').append(typeElement.getQualifiedName())
+               .append(" extends ").append(typeElement.getSuperclass())
+               .append(typeElement.getAnnotationMirrors()).append('\n');
+
+        if (TypeUtil.hasSuperClass(typeElement) && processor.types().asElement(typeElement.getSuperclass()) instanceof TypeElement superclass)
+            appendType(superclass, includeReferences);
+
+        for (final Element member : typeElement.getEnclosedElements()) {
+            switch (member.getKind()) {
+                case FIELD -> appendField((VariableElement) member, includeReferences);
+                case METHOD -> appendMethod((ExecutableElement) member);
+                default -> { /* Other members aren't used to generate DTOs */ }
+            }
+        }
+    }
+
+    private void appendField(final VariableElement field, final boolean includeReferences) {
+        content.append(field.getModifiers()).append(' ')
+               .append(field.asType()).append(' ')
+               .append(field.getSimpleName())
+               .append(field.getAnnotationMirrors()).append('\n');
+
+        if (!includeReferences)
+            return;
+
+        final var fieldTypeElement = processor.typeUtil().getTypeElement(field);
+        if (fieldTypeElement != null && AnnotationData.contains(field, DTO.MapToId.class))
+            appendType(fieldTypeElement, false);
+
+        if (field.asType() instanceof ArrayType arrayType)
+            appendItemType(arrayType.getComponentType());
+
+        final var declaredType = TypeUtil.getAsDeclaredType(field.asType());
+        if (declaredType != null)
+            declaredType.getTypeArguments().forEach(this::appendItemType);
+    }
+
+    /**
+     * Appends to the fingerprint if the type of the items of a field (a generic type argument or an array component type,
+     * such as the values of a {@code Map} or the content of an {@code Optional}) is annotated with {@link DTO},
+     * since in such a case, the DTO of that type is used in the generated DTO record.
+     * @param itemType the generic type argument or array component type to append
+     */
+    private void appendItemType(final TypeMirror itemType) {
+        if (itemType instanceof DeclaredType declaredType) {
+            final var itemElement = declaredType.asElement();
+            content.append("item ").append(itemType).append(' ').append(AnnotationData.hasAnnotation(itemElement, DTO.class)).append('\n');
+        }
+    }
+
+    private void appendMethod(final ExecutableElement method) {
+        if (!TypeUtil.isPublic(method))
+            return;
+
+        content.append(method.getReturnType()).append(' ').append(method.getSimpleName()).append('(');
+        method.getParameters().forEach(param -> content.append(param.asType()).append(','));
+        content.append(")\n");
+    }
+
+    private void appendJavaDoc(final TypeElement modelTypeElement) {
+        processor.javaDocExtractor()
+                 .getFieldCommentsStream(modelTypeElement)
+                 .forEach(entry -> content.append(entry.getKey()).append('=').append(entry.getValue()).append('\n'));
+    }
+
+    private String hash() {
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * {@return an identifier for the DTOGen build in use}
+     * It's built from the location and last modification time of the DTOGen jar (or classes dir).
+     */
+    private static String generatorId() {
+        final var codeSource = DTOProcessor.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null)
+            return DTOProcessor.class.getName();
+
+        try {
+            final var location = new File(codeSource.getLocation().toURI());
+            return location + ":" + location.lastModified();
+        } catch (final URISyntaxException | IllegalArgumentException e) {
+            return codeSource.getLocation().toString();
+        }
+    }
+}
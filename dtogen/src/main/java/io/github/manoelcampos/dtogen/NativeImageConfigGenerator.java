@@ -0,0 +1,272 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.util.AccessorMethod;
+import io.github.manoelcampos.dtogen.util.FieldUtil;
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static io.github.manoelcampos.dtogen.util.AccessorMethod.AccessorType.GETTER;
+import static io.github.manoelcampos.dtogen.util.AccessorMethod.AccessorType.SETTER;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Generates the GraalVM native image reflection configuration for the DTO records,
+ * enabled by the {@link DTOProcessor#NATIVE_IMAGE_OPTION}.
+ * That enables libraries such as Jackson and Bean Validation to access the DTO records by reflection inside a native image.
+ *
+ * <p>A {@code reflect-config.json} file is written for each DTO record (into a dir named as the DTO record, inside {@link #baseDir}),
+ * so that it has a single originating element (the model class) and build tools performing incremental annotation processing
+ * regenerate it along with the DTO record. The native image builder reads the configuration files
+ * from all subdirs of {@code META-INF/native-image}.</p>
+ *
+ * <p>To keep the image size and build time as small as possible, just the members that are accessed are registered:</p>
+ * <ul>
+ *     <li>for each DTO record (and its nested records): the fields, canonical constructor and component accessors;</li>
+ *     <li>for the model class: the constructor, getters, setters and public fields used by the DTO record
+ *     {@code toModel()} and {@code fromModel()} methods.</li>
+ * </ul>
+ *
+ * <p>The configuration is written when the DTO record is compiled (usually in the processing round after it's generated),
+ * so that its members are taken from the compiled record.</p>
+ * @author Manoel Campos
+ */
+final class NativeImageConfigGenerator {
+    /**
+     * The name of the dir inside {@code META-INF/native-image} when no dir is given to the {@link DTOProcessor#NATIVE_IMAGE_OPTION}.
+     */
+    static final String DEFAULT_DIR = "dtogen";
+
+    static final String FILE_NAME = "reflect-config.json";
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    private final DTOProcessor processor;
+
+    /**
+     * The dir where the configuration files are written, inside the class output dir.
+     */
+    private final String baseDir;
+
+    /**
+     * A map where each key is the fully qualified name of a DTO record pending to have its configuration written
+     * and the value is the fully qualified name of its model class.
+     */
+    private final Map<String, String> pendingModelsByDto = new LinkedHashMap<>();
+
+    private NativeImageConfigGenerator(final DTOProcessor processor, final String dir) {
+        this.processor = processor;
+        this.baseDir = "META-INF/native-image/" + dir;
+    }
+
+    /**
+     * Creates a NativeImageConfigGenerator according to the processor options.
+     * @param processor the running processor
+     * @return the new NativeImageConfigGenerator or null if the native image configuration is disabled
+     * @see DTOProcessor#NATIVE_IMAGE_OPTION
+     */
+    @Nullable
+    static NativeImageConfigGenerator newInstance(final DTOProcessor processor) {
+        final var value = processor.processingEnv().getOptions().getOrDefault(DTOProcessor.NATIVE_IMAGE_OPTION, "false").strip();
+        if (value.isEmpty() || value.equalsIgnoreCase("false"))
+            return null;
+
+        return new NativeImageConfigGenerator(processor, value.equalsIgnoreCase("true") ? DEFAULT_DIR : value);
+    }
+
+    /**
+     * {@return the path of the configuration file for a DTO record, inside the class output dir}
+     * @param dtoQualifiedName the fully qualified name of the DTO record
+     */
+    String configFile(final String dtoQualifiedName) {
+        return baseDir + "/" + dtoQualifiedName + "/" + FILE_NAME;
+    }
+
+    /**
+     * Adds the DTO record for a model class, to have its configuration written once it's compiled.
+     * @param modelTypeElement the model class
+     */
+    void add(final TypeElement modelTypeElement) {
+        final var packageName = TypeUtil.getPackageName(modelTypeElement);
+        final var recordName = RecordGenerator.getRecordName(modelTypeElement);
+        pendingModelsByDto.put(packageName.isBlank() ? recordName : packageName + "." + recordName, modelTypeElement.getQualifiedName().toString());
+    }
+
+    /**
+     * Writes the configuration for the pending DTO records that were already compiled.
+     * DTO records not compiled in the last round (such as due to compilation errors) have no configuration written.
+     */
+    void writeCompiled() {
+        final var elements = processor.processingEnv().getElementUtils();
+        final var iterator = pendingModelsByDto.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final var entry = iterator.next();
+            final var dtoTypeElement = elements.getTypeElement(entry.getKey());
+            final var modelTypeElement = elements.getTypeElement(entry.getValue());
+            if (dtoTypeElement == null || modelTypeElement == null)
+                continue;
+
+            iterator.remove();
+            write(dtoTypeElement, modelTypeElement);
+        }
+    }
+
+    private void write(final TypeElement dtoTypeElement, final TypeElement modelTypeElement) {
+        final var entries = new TreeMap<String, ReflectionEntry>();
+        addRecord(entries, dtoTypeElement);
+        addModel(entries, modelTypeElement);
+
+        final var fileName = configFile(dtoTypeElement.getQualifiedName().toString());
+        try {
+            final var file = processor.processingEnv().getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", fileName, modelTypeElement);
+            try (var writer = file.openWriter()) {
+                writer.write(toJson(entries));
+            }
+        } catch (final IOException e) {
+            final var msg = "DTOGen native image configuration couldn't be written to %s: %s".formatted(fileName, e.getMessage());
+            processor.processingEnv().getMessager().printMessage(Diagnostic.Kind.WARNING, msg, modelTypeElement);
+        }
+    }
+
+    /**
+     * Adds a DTO record and its nested records, registering their fields, canonical constructor and component accessors.
+     * Jackson and Bean Validation access the record components by reflection, so their metadata is also registered
+     * (without making the other methods invocable).
+     */
+    private void addRecord(final Map<String, ReflectionEntry> entries, final TypeElement recordTypeElement) {
+        final var entry = entry(entries, recordTypeElement);
+        entry.queryAllDeclaredMethods = true;
+        final var components = recordTypeElement.getRecordComponents();
+        final var componentTypes = components.stream().map(component -> typeName(component.asType())).toList();
+        entry.methods.add(method(CONSTRUCTOR, componentTypes));
+        for (final RecordComponentElement component : components) {
+            entry.fields.add(component.getSimpleName().toString());
+            entry.methods.add(method(component.getSimpleName().toString(), List.of()));
+        }
+
+        recordTypeElement.getEnclosedElements()
+                         .stream()
+                         .filter(element -> element.getKind() == ElementKind.RECORD)
+                         .forEach(element -> addRecord(entries, (TypeElement) element));
+    }
+
+    /**
+     * Adds a model class, registering the constructor and the accessors (or public fields) used by the DTO record.
+     */
+    private void addModel(final Map<String, ReflectionEntry> entries, final TypeElement modelTypeElement) {
+        final boolean record = TypeUtil.isRecord(modelTypeElement);
+        final var fields = processor.typeUtil().getClassFields(modelTypeElement).filter(FieldUtil::isNotFieldExcluded).toList();
+        final var constructorParams = record ?
+                modelTypeElement.getRecordComponents().stream().map(component -> typeName(component.asType())).toList() :
+                List.<String>of();
+        entry(entries, modelTypeElement).methods.add(method(CONSTRUCTOR, constructorParams));
+
+        for (final VariableElement field : fields) {
+            addAccessor(entries, field, GETTER);
+            if (!record)
+                addAccessor(entries, field, SETTER);
+        }
+    }
+
+    /**
+     * Adds the accessor for a model field, registered into the class declaring it.
+     * If there is no accessor, the field is registered (if it's public).
+     */
+    private void addAccessor(final Map<String, ReflectionEntry> entries, final VariableElement field, final AccessorMethod.AccessorType type) {
+        final AccessorMethod accessor;
+        try {
+            accessor = new AccessorMethod(processor.typeUtil(), field, type);
+        } catch (final UnsupportedOperationException e) {
+            // The field isn't accessible, so it isn't mapped
+            return;
+        }
+
+        final var method = accessor.accessor();
+        if (method.isPresent() && method.get() instanceof ExecutableElement executable) {
+            final var paramTypes = executable.getParameters().stream().map(param -> typeName(param.asType())).toList();
+            entry(entries, (TypeElement) executable.getEnclosingElement()).methods.add(method(accessor.name(), paramTypes));
+        } else {
+            entry(entries, (TypeElement) field.getEnclosingElement()).fields.add(field.getSimpleName().toString());
+        }
+    }
+
+    private ReflectionEntry entry(final Map<String, ReflectionEntry> entries, final TypeElement typeElement) {
+        return entries.computeIfAbsent(binaryName(typeElement), name -> new ReflectionEntry());
+    }
+
+    private String binaryName(final TypeElement typeElement) {
+        return processor.processingEnv().getElementUtils().getBinaryName(typeElement).toString();
+    }
+
+    /**
+     * {@return the name of a type as expected by the reflection configuration}
+     * That is the binary name of the erased type for classes (such as {@code java.util.List} or {@code a.Outer$Inner}),
+     * followed by [] for arrays.
+     */
+    private String typeName(final TypeMirror type) {
+        final var erasedType = processor.types().erasure(type);
+        if (erasedType instanceof ArrayType arrayType)
+            return typeName(arrayType.getComponentType()) + "[]";
+
+        if (erasedType instanceof DeclaredType declaredType)
+            return binaryName((TypeElement) declaredType.asElement());
+
+        return erasedType.toString();
+    }
+
+    private static String method(final String name, final List<String> parameterTypes) {
+        final var params = parameterTypes.stream().map(type -> "\"" + type + "\"").collect(joining(", "));
+        return "{\"name\": \"" + name + "\", \"parameterTypes\": [" + params + "]}";
+    }
+
+    /**
+     * {@return the JSON for the configuration entries}
+     * The entries, fields and methods are sorted to generate the same configuration regardless of the order they are found.
+     */
+    private static String toJson(final Map<String, ReflectionEntry> entries) {
+        return entries.entrySet()
+                      .stream()
+                      .map(entry -> entry.getValue().toJson(entry.getKey()))
+                      .collect(joining(",\n", "[\n", "\n]\n"));
+    }
+
+    /**
+     * The members of a class registered for reflection.
+     */
+    private static final class ReflectionEntry {
+        private boolean queryAllDeclaredMethods;
+        private final Set<String> fields = new TreeSet<>();
+        private final Set<String> methods = new TreeSet<>();
+
+        private String toJson(final String className) {
+            final var json = new StringBuilder("  {\n    \"name\": \"").append(className).append('"');
+            if (queryAllDeclaredMethods)
+                json.append(",\n    \"queryAllDeclaredMethods\": true");
+
+            if (!fields.isEmpty())
+                json.append(",\n    \"fields\": [").append(fields.stream().map(field -> "{\"name\": \"" + field + "\"}").collect(joining(", "))).append(']');
+
+            if (!methods.isEmpty())
+                json.append(",\n    \"methods\": [\n      ").append(String.join(",\n      ", methods)).append("\n    ]");
+
+            return json.append("\n  }").toString();
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package io.github.manoelcampos.dtogen;
+
+import javax.lang.model.element.TypeElement;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static java.util.stream.Collectors.joining;
+
+/**
+ * Collects performance statistics for the {@link DTOProcessor}, enabled by the {@link DTOProcessor#STATS_OPTION}.
+ * It records the wall time spent on each {@link Phase} for each model class and for the whole processing,
+ * the number of fields and the size of the generated source code,
+ * enabling to track the processor cost in CI builds and find model classes which are expensive to process.
+ *
+ * <p>When disabled, no time is measured and nothing is recorded.
+ * Statistics must be recorded just from the annotation processor thread.</p>
+ * @author Manoel Campos
+ */
+final class ProcessorStats {
+    /**
+     * The name of the report file written into the class output dir.
+     */
+    static final String REPORT_FILE = "META-INF/dtogen/stats.json";
+
+    /**
+     * The phases of the DTO generation whose time is measured.
+     */
+    enum Phase {
+        /** Computing the model fingerprint and reading the {@link GenerationCache}. */
+        CACHE_LOOKUP("cacheLookup"),
+
+        /** Collecting the model fields and their annotations. */
+        FIELD_COLLECTION("fieldCollection"),
+
+        /** Extracting the JavaDoc comments of the model fields. */
+        JAVADOC_EXTRACTION("javaDocExtraction"),
+
+        /** Declaring the DTO record fields, including their annotations and types. */
+        RECORD_FIELDS("recordFields"),
+
+        /** Generating the values passed to the DTO record constructor by the {@code of()} method. */
+        FROM_MODEL("fromModel"),
+
+        /** Generating the default values passed to the canonical constructor by the DTO record no-args constructor. */
+        DEFAULT_VALUES("defaultValues"),
+
+        /** Checking if the DTO record fields must be grouped into nested records, and grouping them. */
+        FIELD_GROUPING("fieldGrouping"),
+
+        /** Generating the {@code toModel()} method code. */
+        TO_MODEL("toModel"),
+
+        /** Registering the types used by the static bulk and stream methods and building the list of imports. */
+        IMPORTS("imports"),
+
+        /**
+         * Rendering the DTO records source code.
+         * Since they may be rendered in parallel, it's measured just for the whole processing.
+         * When the code is written straight to the files, rendering is measured as {@link #WRITING}.
+         */
+        RENDERING("rendering"),
+
+        /** Writing the DTO records through the {@link javax.annotation.processing.Filer}. */
+        WRITING("writing");
+
+        private final String key;
+
+        Phase(final String key) {
+            this.key = key;
+        }
+
+        /**
+         * {@return the name of the phase in the statistics report}
+         */
+        String key() {
+            return key;
+        }
+    }
+
+    private final boolean enabled;
+
+    /**
+     * A map where each key is the fully qualified name of a model class and the value its statistics,
+     * in the order the model classes were processed.
+     */
+    private final Map<String, ModelStats> modelStatsMap = new LinkedHashMap<>();
+
+    /**
+     * The total time (in nanoseconds) spent on each phase, indexed by the {@link Phase#ordinal()}.
+     */
+    private final long[] phaseNanos = new long[Phase.values().length];
+
+    private int rounds;
+
+    /**
+     * The total wall time (in nanoseconds) spent by the processor along all rounds.
+     */
+    private long processingNanos;
+
+    /**
+     * Creates a ProcessorStats.
+     * @param enabled indicates if statistics must be collected
+     */
+    ProcessorStats(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * {@return the current time to be given to a method that records the time elapsed since then}
+     * or 0 if statistics are disabled (avoiding reading the clock).
+     */
+    long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the time spent on a phase for a model class.
+     * @param modelTypeElement the model class being processed
+     * @param phase the phase that has just finished
+     * @param startNanos the time the phase started, got from {@link #start()}
+     */
+    void stop(final TypeElement modelTypeElement, final Phase phase, final long startNanos) {
+        if (!enabled)
+            return;
+
+        final long elapsed = System.nanoTime() - startNanos;
+        modelStats(modelTypeElement).phaseNanos[phase.ordinal()] += elapsed;
+        phaseNanos[phase.ordinal()] += elapsed;
+    }
+
+    /**
+     * Records the time spent on a phase for all model classes at once.
+     * @param phase the phase that has just finished
+     * @param startNanos the time the phase started, got from {@link #start()}
+     */
+    void stop(final Phase phase, final long startNanos) {
+        if (enabled)
+            phaseNanos[phase.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Records the time spent on a processing round.
+     * @param startNanos the time the round started, got from {@link #start()}
+     */
+    void stopRound(final long startNanos) {
+        if (!enabled)
+            return;
+
+        rounds++;
+        processingNanos += System.nanoTime() - startNanos;
+    }
+
+    /**
+     * Records the number of fields of a model class.
+     * @param modelTypeElement the model class being processed
+     * @param modelFields the number of fields in the model class (including inherited ones)
+     * @param dtoFields the number of fields in the DTO record
+     */
+    void fields(final TypeElement modelTypeElement, final int modelFields, final int dtoFields) {
+        if (!enabled)
+            return;
+
+        final var stats = modelStats(modelTypeElement);
+        stats.modelFields = modelFields;
+        stats.dtoFields = dtoFields;
+    }
+
+    /**
+     * Records the size of the source code generated for a model class.
+     * @param modelTypeElement the model class being processed
+     * @param sourceChars the number of chars in the DTO record source code
+     * @param cached indicates if the code was taken from the {@link GenerationCache}
+     */
+    void source(final TypeElement modelTypeElement, final long sourceChars, final boolean cached) {
+        if (!enabled)
+            return;
+
+        final var stats = modelStats(modelTypeElement);
+        stats.sourceChars = sourceChars;
+        stats.cached = cached;
+    }
+
+    private ModelStats modelStats(final TypeElement modelTypeElement) {
+        return modelStatsMap.computeIfAbsent(modelTypeElement.getQualifiedName().toString(), name -> new ModelStats());
+    }
+
+    /**
+     * {@return the total number of chars of the generated DTO records}
+     */
+    private long totalSourceChars() {
+        return modelStatsMap.values().stream().mapToLong(stats -> stats.sourceChars).sum();
+    }
+
+    /**
+     * {@return a one-line summary of the statistics}
+     */
+    String summary() {
+        final var phases = Arrays.stream(Phase.values())
+                                 .map(phase -> phase.key + " " + millis(phaseNanos[phase.ordinal()]) + " ms")
+                                 .collect(joining(", "));
+        return "DTOGen stats: %d DTO(s), %d chars generated in %s ms along %d round(s) (%s)"
+                .formatted(modelStatsMap.size(), totalSourceChars(), millis(processingNanos), rounds, phases);
+    }
+
+    /**
+     * {@return the statistics as a JSON document}
+     */
+    String toJson() {
+        final var json = new StringBuilder(512 + 256 * modelStatsMap.size());
+        json.append("{\n")
+            .append("  \"rounds\": ").append(rounds).append(",\n")
+            .append("  \"totalMillis\": ").append(millis(processingNanos)).append(",\n")
+            .append("  \"dtos\": ").append(modelStatsMap.size()).append(",\n")
+            .append("  \"sourceChars\": ").append(totalSourceChars()).append(",\n")
+            .append("  \"phaseMillis\": ");
+        appendPhases(json, phaseNanos);
+        json.append(",\n  \"models\": [");
+
+        final var separator = new StringBuilder("\n");
+        modelStatsMap.forEach((modelName, stats) -> {
+            json.append(separator)
+                .append("    {\"model\": \"").append(escapeJson(modelName)).append('"')
+                .append(", \"modelFields\": ").append(stats.modelFields)
+                .append(", \"dtoFields\": ").append(stats.dtoFields)
+                .append(", \"sourceChars\": ").append(stats.sourceChars)
+                .append(", \"cached\": ").append(stats.cached)
+                .append(", \"phaseMillis\": ");
+            appendPhases(json, stats.phaseNanos);
+            json.append('}');
+            separator.setLength(0);
+            separator.append(",\n");
+        });
+
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    private static void appendPhases(final StringBuilder json, final long[] phaseNanos) {
+        final var phases = Arrays.stream(Phase.values())
+                                 .map(phase -> "\"" + phase.key + "\": " + millis(phaseNanos[phase.ordinal()]))
+                                 .collect(joining(", ", "{", "}"));
+        json.append(phases);
+    }
+
+    /**
+     * {@return a time in milliseconds, formatted with 3 decimal places regardless of the default locale}
+     * @param nanos the time in nanoseconds
+     */
+    private static String millis(final long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0);
+    }
+
+    private static String escapeJson(final String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Statistics for a single model class.
+     */
+    private static final class ModelStats {
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private int modelFields;
+        private int dtoFields;
+        private long sourceChars;
+        private boolean cached;
+    }
+}
@@ -0,0 +1,450 @@
+package io.github.manoelcampos.dtogen;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static io.github.manoelcampos.dtogen.CodeWriter.LN;
+import static java.util.stream.Collectors.joining;
+
+/**
+ * An immutable description of a DTO record to be generated for a model class,
+ * captured by the {@link RecordGenerator} from the elements provided by the compiler.
+ * It contains just Strings, so that the DTO record source code can be {@link #render() rendered}
+ * on any thread, since the compiler elements must be accessed only by the annotation processor thread.
+ * The code is rendered using a {@link CodeWriter}, which can write it straight into a file.
+ *
+ * @param packageName the package of the model class and DTO record
+ * @param modelTypeName the simple name of the model class
+ * @param recordName the name of the DTO record
+ * @param fieldComments entries where the key is the name of a model field and the value its JavaDoc comment
+ * @param recordFields the declaration of each DTO record field (including annotations)
+ * @param imports the types to be imported (just the type names, not the full import statements), in the order they must be written
+ * @param toModelCode the code inside the {@code toModel()} method
+ * @param fromModelValues the values passed to the DTO record constructor inside the static {@code of()} method
+ * @param defaultFieldValues the values passed to the canonical constructor by the DTO record no-args constructor
+ * @param toModelHelpers entries where the key is the name of a helper method called by the {@code toModel()} method
+ *                       and the value is the code inside it, used when that method is split into smaller ones
+ * @param bulkMethods the methods called by the static methods mapping many objects at once
+ * @param streamMethods the methods called by the static methods lazily mapping streams of objects
+ * @param fieldGroups the nested records grouping the DTO fields, when the model has too many fields to be included
+ *                    directly into the DTO record (in which case the recordFields are the groups)
+ * @param omittedMethods the names of the bulk and stream static methods that aren't generated,
+ *                       since they would clash with the accessors of record components with the same names
+ * @param dtoSetFields the names of the DTO record fields that are sets of DTO records,
+ *                     where model items mapped to equal DTO records are kept just once
+ * @author Manoel Campos
+ * @see io.github.manoelcampos.dtogen.util.MethodSize
+ */
+record RecordDescriptor(
+        String packageName, String modelTypeName, String recordName,
+        List<Map.Entry<String, String>> fieldComments, List<String> recordFields,
+        List<String> imports, String toModelCode, List<String> fromModelValues, String defaultFieldValues,
+        List<Map.Entry<String, String>> toModelHelpers,
+        BulkMethods bulkMethods, StreamMethods streamMethods, List<FieldGroup> fieldGroups, Set<String> omittedMethods,
+        List<String> dtoSetFields)
+{
+    private static final String GENERATED_COMMENTS = "DTO generated using DTOGen Annotation Processor";
+
+    /**
+     * The names of the static methods generated into the DTO records to map many objects at once or lazily map streams of them.
+     * @see #renderBulkMethods(CodeWriter)
+     * @see #renderStreamMethods(CodeWriter)
+     */
+    static final Set<String> STATIC_METHOD_NAMES = Set.of(
+            "fromModels", "fromModelsParallel", "toModels", "toModelsParallel", "stream", "spliterator", "mapping");
+
+    RecordDescriptor {
+        fieldComments = List.copyOf(fieldComments);
+        recordFields = List.copyOf(recordFields);
+        imports = List.copyOf(imports);
+        fromModelValues = List.copyOf(fromModelValues);
+        toModelHelpers = List.copyOf(toModelHelpers);
+        fieldGroups = List.copyOf(fieldGroups);
+        omittedMethods = Set.copyOf(omittedMethods);
+        dtoSetFields = List.copyOf(dtoSetFields);
+    }
+
+    /**
+     * A nested record grouping some fields of a DTO record, including a static {@code fromModel()} method
+     * to create the group from the model object.
+     * Each group is a component of the DTO record, avoiding a canonical constructor
+     * exceeding the JVM limit of parameters and a huge {@code fromModel()} method.
+     *
+     * @param typeName the name of the nested record
+     * @param fieldComments entries where the key is the name of a model field and the value its JavaDoc comment
+     * @param recordFields the declaration of each field in the group (including annotations)
+     * @param fromModelValues the values passed to the group constructor inside its {@code fromModel()} method
+     */
+    record FieldGroup(String typeName, List<Map.Entry<String, String>> fieldComments, List<String> recordFields, List<String> fromModelValues) {
+        FieldGroup {
+            fieldComments = List.copyOf(fieldComments);
+            recordFields = List.copyOf(recordFields);
+            fromModelValues = List.copyOf(fromModelValues);
+        }
+
+        /**
+         * {@return the name of the field in a record field declaration}
+         * @param declaration the field declaration, including annotations and type
+         */
+        static String fieldName(final String declaration) {
+            return declaration.substring(declaration.lastIndexOf(' ') + 1);
+        }
+    }
+
+    /**
+     * The names used by the static methods of a DTO record mapping many objects at once
+     * (such as {@code fromModels()} and {@code toModelsParallel()}).
+     *
+     * @param collectionType the name used to reference {@link java.util.Collection} in the DTO record
+     * @param listType the name used to reference {@link java.util.List} in the DTO record
+     * @param mapList the code to reference the method mapping a collection into a list
+     * @param mapArray the code to reference the method mapping an array into another one
+     * @param mapListParallel the code to reference the method mapping a collection into a list using multiple threads
+     * @param parallelThreshold the minimum number of objects to map them using multiple threads
+     * @see CollectionMapping.Kind
+     */
+    record BulkMethods(String collectionType, String listType, String mapList, String mapArray, String mapListParallel, int parallelThreshold) {
+    }
+
+    /**
+     * The names used by the static methods of a DTO record lazily mapping streams of model objects
+     * (such as {@code stream()} and {@code mapping()}).
+     *
+     * @param streamType the name used to reference {@link java.util.stream.Stream} in the DTO record
+     * @param spliteratorType the name used to reference {@link java.util.Spliterator} in the DTO record
+     * @param collectorType the name used to reference {@link java.util.stream.Collector} in the DTO record
+     * @param listType the name used to reference {@link java.util.List} in the DTO record
+     * @param mapStream the code to reference the method mapping a stream
+     * @param mapSpliterator the code to reference the method mapping a spliterator
+     * @param mappingCollector the code to reference the method creating a collector that maps the items into a list
+     * @see CollectionMapping.Kind
+     */
+    record StreamMethods(
+            String streamType, String spliteratorType, String collectorType, String listType,
+            String mapStream, String mapSpliterator, String mappingCollector)
+    {
+    }
+
+    /**
+     * Renders the DTO record source code.
+     * @return the generated java code for the DTO record
+     */
+    String render() {
+        final var builder = new StringBuilder(estimatedSize());
+        render(new CodeWriter(builder));
+        return builder.toString();
+    }
+
+    /**
+     * {@return an estimation of the DTO record code length},
+     * avoiding growing the buffer many times while rendering the code.
+     */
+    private int estimatedSize() {
+        final int groupedFields = fieldGroups.stream().mapToInt(group -> group.recordFields().size()).sum();
+        return 1024 + 256 * (recordFields.size() + groupedFields);
+    }
+
+    /**
+     * Renders the DTO record source code.
+     * @param code where the code will be written to
+     */
+    void render(final CodeWriter code) {
+        if (!packageName.isBlank())
+            code.line("package ", packageName, ";").newLine();
+
+        imports.forEach(name -> code.line("import ", name, ";"));
+        code.newLine();
+
+        renderJavaDoc(code);
+        code.line("@Generated(value = \"", DTOProcessor.class.getName(), "\", comments = \"", GENERATED_COMMENTS, "\")");
+        code.append("public record ", recordName, " (")
+            .list(", ", recordFields)
+            .append(") implements ", DTORecord.class.getSimpleName(), "<", modelTypeName, "> {")
+            .newLine()
+            .indent();
+
+        renderToModelMethod(code);
+        renderToModelHelpers(code);
+        renderFromModelMethod(code);
+        renderOfMethod(code);
+        renderBulkMethods(code);
+        renderStreamMethods(code);
+        renderDefaultRecordConstrutor(code);
+        fieldGroups.forEach(group -> renderFieldGroup(code, group));
+        code.unindent().line("}");
+    }
+
+    /**
+     * Renders the JavaDoc to be included in the generated DTO record, copying the model entity fields JavaDoc.
+     * Since no format string is used, JavaDocs containing % characters are written as is.
+     */
+    private void renderJavaDoc(final CodeWriter code) {
+        code.line("/**");
+        code.javaDocLine("A {@link DTORecord Data Transfer Object} for {@link ", modelTypeName, "}.");
+        if (!fieldComments.isEmpty())
+            code.line(" *");
+
+        fieldComments.forEach(entry -> code.javaDocLine("@param ", entry.getKey(), " ", entry.getValue().replace('\n', ' ')));
+        code.line(" */");
+    }
+
+    private void renderToModelMethod(final CodeWriter code) {
+        code.line("@Override")
+            .line("public ", modelTypeName, " toModel(){")
+            .indent()
+            .line("return toModel(null);")
+            .unindent()
+            .line("}")
+            .newLine()
+            .line("/**")
+            .javaDocLine("{@return a new model object with the values from this DTO record, or the one already mapped from this record in a mapping context}")
+            .javaDocLine("The DTO records inside the fields of this record are mapped inside the same context.")
+            .javaDocLine("@param mappingContext the context mapping a graph of objects (where each object is mapped just once),")
+            .javaDocLine("                      or null to always create a new model object")
+            .line(" */")
+            .line("public ", modelTypeName, " toModel(final ", MappingContext.class.getSimpleName(), " mappingContext){")
+            .indent()
+            .line("final ", modelTypeName, " mappedModel = mappingContext == null ? null : mappingContext.start(this);")
+            .line("if (mappedModel != null)")
+            .indent()
+            .line("return mappedModel;")
+            .unindent()
+            .unindent()
+            .newLine()
+            .line(toModelCode)
+            .line("}")
+            .newLine();
+    }
+
+    private void renderToModelHelpers(final CodeWriter code) {
+        toModelHelpers.forEach(helper ->
+            code.line("private void ", helper.getKey(), "(final ", modelTypeName, " model, final ", MappingContext.class.getSimpleName(), " mappingContext) {")
+                .append(helper.getValue())
+                .newLine()
+                .line("}")
+                .newLine());
+    }
+
+    private void renderFromModelMethod(final CodeWriter code) {
+        code.line("@Override")
+            .line("public ", recordName, " fromModel(final ", modelTypeName, " model){")
+            .indent()
+            .line("return of(model);")
+            .unindent()
+            .line("}")
+            .newLine();
+    }
+
+    /**
+     * Renders the static factory method creating a DTO record from a model object.
+     * Unlike the {@code fromModel()} method, it doesn't require creating a DTO record with default values first,
+     * so it's used to map lists of model objects.
+     */
+    private void renderOfMethod(final CodeWriter code) {
+        code.line("/**")
+            .javaDocLine("{@return a new DTO record with the values from a model object}")
+            .javaDocLine("@param model the model object to get the values from")
+            .line(" */")
+            .line("public static ", recordName, " of(final ", modelTypeName, " model){")
+            .indent()
+            .line("return of(model, null);")
+            .unindent()
+            .line("}")
+            .newLine()
+            .line("/**")
+            .javaDocLine("{@return a new DTO record with the values from a model object, or the one already mapped from that object in a mapping context}")
+            .javaDocLine("The model items that have a DTO record are mapped inside the same context.");
+        renderSetFieldsNote(code);
+        code.javaDocLine("@param model the model object to get the values from")
+            .javaDocLine("@param mappingContext the context mapping a graph of objects (where each object is mapped just once),")
+            .javaDocLine("                      or null to always create a new DTO record")
+            .javaDocLine("@throws IllegalStateException if the model object refers to itself (directly or through its items) inside the context")
+            .line(" */")
+            .line("public static ", recordName, " of(final ", modelTypeName, " model, final ", MappingContext.class.getSimpleName(), " mappingContext){")
+            .indent()
+            .line("final ", recordName, " mappedDto = mappingContext == null ? null : mappingContext.start(model);")
+            .line("if (mappedDto != null)")
+            .indent()
+            .line("return mappedDto;")
+            .unindent()
+            .newLine()
+            .line("final var dto = new ", recordName, "(")
+            .list("," + LN, fromModelValues)
+            .newLine()
+            .line(");")
+            .line("return mappingContext == null ? dto : mappingContext.finish(model, dto);")
+            .unindent()
+            .line("}")
+            .newLine();
+    }
+
+    /**
+     * Renders a JavaDoc note about the {@link #dtoSetFields}, if there are any:
+     * since records are compared by their values, distinct model items mapped to equal DTO records are kept just once,
+     * so a DTO set may have fewer items than the model set.
+     */
+    private void renderSetFieldsNote(final CodeWriter code) {
+        if (dtoSetFields.isEmpty())
+            return;
+
+        final var fieldNames = dtoSetFields.stream().map(name -> "{@code " + name + "}").collect(joining(", "));
+        code.javaDocLine("Model items of the ", fieldNames, " set(s) that are mapped to equal DTO records are kept just once,")
+            .javaDocLine("so such DTO sets may have fewer items than the model ones.")
+            .javaDocLine("The DTO sets keep the iteration order of the model sets (but not the comparator of a sorted set).");
+    }
+
+    /**
+     * Renders the static methods mapping many model objects to DTO records and back at once.
+     * They map the objects into presized lists (or arrays), keeping their order.
+     * The parallel methods split the objects among multiple threads when there are many of them.
+     */
+    private void renderBulkMethods(final CodeWriter code) {
+        final var bulk = bulkMethods;
+        final var dtoList = bulk.listType() + "<" + recordName + ">";
+        final var modelList = bulk.listType() + "<" + modelTypeName + ">";
+        final var models = "final " + bulk.collectionType() + "<? extends " + modelTypeName + "> models";
+        final var dtos = "final " + bulk.collectionType() + "<" + recordName + "> dtos";
+        final var parallelDoc = "If there are at least " + bulk.parallelThreshold() +
+                                " objects, they are split among the threads of the fork-join pool running the caller (or the common pool).";
+
+        renderStaticMethod(
+                code, dtoList, "fromModels", models, bulk.mapList() + "(models, " + recordName + "::of)",
+                "{@return a list of new DTO records with the values from model objects (in the same order)}",
+                "@param models the model objects to get the values from (null objects are kept null)");
+        renderStaticMethod(
+                code, recordName + "[]", "fromModels", "final " + modelTypeName + "[] models",
+                bulk.mapArray() + "(models, " + recordName + "[]::new, " + recordName + "::of)",
+                "{@return an array of new DTO records with the values from model objects (in the same order)}",
+                "@param models the model objects to get the values from (null objects are kept null)");
+        renderStaticMethod(
+                code, dtoList, "fromModelsParallel", models,
+                bulk.mapListParallel() + "(models, " + recordName + "::of, " + bulk.parallelThreshold() + ")",
+                "{@return a list of new DTO records with the values from model objects (in the same order), using multiple threads}",
+                parallelDoc,
+                "@param models the model objects to get the values from (null objects are kept null)");
+        renderStaticMethod(
+                code, modelList, "toModels", dtos, bulk.mapList() + "(dtos, " + recordName + "::toModel)",
+                "{@return a list of new model objects with the values from DTO records (in the same order)}",
+                "@param dtos the DTO records to get the values from (null records are kept null)");
+        renderStaticMethod(
+                code, modelTypeName + "[]", "toModels", "final " + recordName + "[] dtos",
+                bulk.mapArray() + "(dtos, " + modelTypeName + "[]::new, " + recordName + "::toModel)",
+                "{@return an array of new model objects with the values from DTO records (in the same order)}",
+                "@param dtos the DTO records to get the values from (null records are kept null)");
+        renderStaticMethod(
+                code, modelList, "toModelsParallel", dtos,
+                bulk.mapListParallel() + "(dtos, " + recordName + "::toModel, " + bulk.parallelThreshold() + ")",
+                "{@return a list of new model objects with the values from DTO records (in the same order), using multiple threads}",
+                parallelDoc,
+                "@param dtos the DTO records to get the values from (null records are kept null)");
+    }
+
+    /**
+     * Renders the static methods lazily mapping streams of model objects to DTO records, as the objects are consumed.
+     * That keeps memory bounded when mapping huge results (such as a {@code Stream} of entities from a database).
+     * The mapped streams and spliterators keep the size and split characteristics of the source ones.
+     */
+    private void renderStreamMethods(final CodeWriter code) {
+        final var methods = streamMethods;
+        final var collector = methods.collectorType() + "<" + modelTypeName + ", ?, " + methods.listType() + "<" + recordName + ">>";
+        renderStaticMethod(
+                code, methods.streamType() + "<" + recordName + ">", "stream",
+                "final " + methods.streamType() + "<? extends " + modelTypeName + "> models",
+                methods.mapStream() + "(models, " + recordName + "::of)",
+                "{@return a stream lazily mapping each model object to a new DTO record, as the stream is consumed}",
+                "Closing the returned stream closes the given one.",
+                "@param models the stream of model objects (null objects are kept null)");
+        renderStaticMethod(
+                code, methods.spliteratorType() + "<" + recordName + ">", "spliterator",
+                "final " + methods.spliteratorType() + "<? extends " + modelTypeName + "> models",
+                methods.mapSpliterator() + "(models, " + recordName + "::of)",
+                "{@return a spliterator lazily mapping each model object to a new DTO record, as it's traversed}",
+                "It has the characteristics of the given spliterator (such as {@code SIZED} and {@code SUBSIZED}),",
+                "except {@code DISTINCT} and {@code SORTED}.",
+                "@param models the spliterator of model objects (null objects are kept null)");
+        renderStaticMethod(
+                code, collector, "mapping", "", methods.mappingCollector() + "(" + recordName + "::of, 0)",
+                "{@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}",
+                "@see #mapping(int)");
+        renderStaticMethod(
+                code, collector, "mapping", "final int expectedSize", methods.mappingCollector() + "(" + recordName + "::of, expectedSize)",
+                "{@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}",
+                "@param expectedSize the expected number of model objects, to create the list with that size",
+                "                    (each thread collecting a parallel stream creates a list with that size)");
+    }
+
+    /**
+     * Renders a static method, unless it's one of the {@link #omittedMethods}.
+     */
+    private void renderStaticMethod(
+            final CodeWriter code, final String returnType, final String name, final String param,
+            final String returnValue, final String... javaDocLines)
+    {
+        if (omittedMethods.contains(name))
+            return;
+
+        code.line("/**");
+        for (final String javaDocLine : javaDocLines)
+            code.javaDocLine(javaDocLine);
+
+        code.line(" */")
+            .line("public static ", returnType, " ", name, "(", param, "){")
+            .indent()
+            .line("return ", returnValue, ";")
+            .unindent()
+            .line("}")
+            .newLine();
+    }
+
+    private void renderDefaultRecordConstrutor(final CodeWriter code) {
+        code.line("public ", recordName, "() {")
+            .indent()
+            .line("this(", defaultFieldValues, ");")
+            .unindent()
+            .line("}");
+    }
+
+    private void renderFieldGroup(final CodeWriter code, final FieldGroup group) {
+        final var firstField = FieldGroup.fieldName(group.recordFields().getFirst());
+        final var lastField = FieldGroup.fieldName(group.recordFields().getLast());
+        code.newLine()
+            .line("/**")
+            .javaDocLine("The fields from {@code ", firstField, "} to {@code ", lastField, "} of the {@link ", recordName, "}.");
+        if (!group.fieldComments().isEmpty())
+            code.line(" *");
+
+        group.fieldComments().forEach(entry -> code.javaDocLine("@param ", entry.getKey(), " ", entry.getValue().replace('\n', ' ')));
+        code.line(" */")
+            .writeIndentation()
+            .append("public record ", group.typeName(), " (")
+            .list(", ", group.recordFields())
+            .append(") {")
+            .newLine()
+            .indent()
+            .line("static ", group.typeName(), " fromModel(final ", modelTypeName, " model, final ", MappingContext.class.getSimpleName(), " mappingContext) {")
+            .indent()
+            .line("return new ", group.typeName(), "(")
+            .list("," + LN, group.fromModelValues())
+            .newLine()
+            .line(");")
+            .unindent()
+            .line("}")
+            .unindent()
+            .line("}");
+    }
+
+    /**
+     * Renders the source code of many DTO records.
+     * @param descriptors the descriptors of the DTO records to render
+     * @param parallel indicates if the DTO records are rendered in parallel (using the common fork-join pool)
+     *                 or sequentially in the caller thread.
+     *                 Since the mapping code is already built into the descriptors, just its layout is done in parallel.
+     * @return the list of generated source codes, in the same order of the given descriptors
+     */
+    static List<String> renderAll(final List<RecordDescriptor> descriptors, final boolean parallel) {
+        final Stream<RecordDescriptor> stream = parallel ? descriptors.parallelStream() : descriptors.stream();
+        return stream.map(RecordDescriptor::render).toList();
+    }
+}
@@ -1,16 +1,25 @@
 package io.github.manoelcampos.dtogen;
 
+import io.github.manoelcampos.dtogen.ProcessorStats.Phase;
+import io.github.manoelcampos.dtogen.RecordDescriptor.FieldGroup;
 import io.github.manoelcampos.dtogen.instantiation.ObjectInstantiation;
+import io.github.manoelcampos.dtogen.runtime.Mappings;
 import io.github.manoelcampos.dtogen.util.AccessorMethod;
 import io.github.manoelcampos.dtogen.util.FieldUtil;
+import io.github.manoelcampos.dtogen.util.MethodSize;
 import io.github.manoelcampos.dtogen.util.TypeUtil;
 
+import javax.annotation.Nullable;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static io.github.manoelcampos.dtogen.AnnotationData.getFieldAnnotationsStr;
@@ -25,19 +34,6 @@ import static java.util.stream.Collectors.*;
  */
 public final class RecordGenerator {
     private final DTOProcessor processor;
-    private static final String ln = System.lineSeparator();
-
-    private final Set<String> excludedAnnotationNameSet = Set.of(
-            DTOProcessor.class.getPackageName(),
-            "jakarta.persistence.Id", "jakarta.persistence.GeneratedValue", "jakarta.persistence.Enumerated",
-            "jakarta.persistence.OneToMany", "jakarta.persistence.ManyToOne",
-            "jakarta.persistence.OneToOne", "jakarta.persistence.ManyToMany",
-            "jakarta.persistence.JoinColumn", "jakarta.persistence.Transient", "jakarta.persistence.JoinTable",
-            "jakarta.persistence.Column", "jakarta.persistence.Lob",
-            "org.hibernate.annotations.",
-            "javax.annotation.meta.When", "lombok", "JsonIgnore",
-            DTO.class.getName()
-    );
 
     private final String modelPackageName;
 
@@ -67,28 +63,110 @@ public final class RecordGenerator {
     private final Map<VariableElement, List<AnnotationData>> sourceFieldAnnotationsMap;
 
     /**
-     * A Set with additional elements to be imported in the generated record file.
-     * Each item is just the element name, not the full import statement.
-     *
-     * <p>Sorts the list placing javax.* imports at the beginning
-     * Uses + instead of x, since + comes before x in the ASCII table.
-     * The change is made locally just for sorting. The imports are not changed in the end.
-     * </p>
-     * @see #fieldAnnotationsImports()
+     * Manages the imports for the types referenced in the generated record file.
      */
-    private final Set<String> additionalImports = new TreeSet<>(Comparator.comparing(s -> s.replaceAll("javax", "java+")));
+    private final ImportManager imports;
     private final TypeUtil typeUtil;
 
+    /**
+     * Indicates if this generator is used to generate a shared mapping class for a superclass
+     * (which is the {@link #modelTypeElement}), instead of a DTO record.
+     * In such a case, just the superclass fields that can be shared are included.
+     * @see SharedMappingGenerator
+     */
+    private final boolean sharedMapping;
+
+    /**
+     * The superclass of the model class whose fields are mapped by a shared mapping class, or null if there is no such a superclass.
+     * @see SharedMappingGenerator
+     */
+    @Nullable
+    private final TypeElement sharedSuperclass;
+
+    /**
+     * The fields of the {@link #sharedSuperclass} mapped by the shared mapping class.
+     */
+    private final Set<VariableElement> sharedFields;
+
+    /**
+     * The name used to reference the shared mapping class in the generated code, or an empty string if there is no such a class.
+     */
+    private final String sharedMappingName;
+
+    /**
+     * A map where each key is a model field and the value is the name of the DTO record component
+     * grouping the DTO field generated for it, when the DTO fields are grouped into nested records.
+     * @see #groupFields(List, List)
+     */
+    private final Map<VariableElement, String> groupComponentsByField = new HashMap<>();
+
+    /**
+     * Entries where the key is the name of a helper method called by the {@code toModel()} method
+     * and the value is the code inside it.
+     * @see #addToModelHelper(String)
+     */
+    private final List<Map.Entry<String, String>> toModelHelpers = new ArrayList<>();
+
+    /**
+     * The annotation included in the generated records to indicate they were generated by DTOGen.
+     */
+    static final String GENERATED_ANNOTATION = "javax.annotation.processing.Generated";
+
     public RecordGenerator(final DTOProcessor processor, final Element classElement) {
+        this(processor, classElement, false);
+    }
+
+    /**
+     * Creates a RecordGenerator.
+     * @param processor the running processor
+     * @param classElement the model class
+     * @param sharedMapping see {@link #sharedMapping}
+     */
+    RecordGenerator(final DTOProcessor processor, final Element classElement, final boolean sharedMapping) {
         this.processor = processor;
+        this.sharedMapping = sharedMapping;
         this.typeUtil = processor.typeUtil();
         this.annnotationPredicate = Predicate.not(this::isExcludedAnnotation);
         this.sourceClassFieldPredicate = FieldUtil::isNotFieldExcluded;
         this.modelTypeElement = (TypeElement) classElement;
         this.modelTypeName = modelTypeElement.getSimpleName().toString();
         this.modelPackageName = TypeUtil.getPackageName(modelTypeElement);
-        this.recordName = modelTypeName + "DTO";
+        this.recordName = getRecordName(modelTypeElement);
+        final var stats = processor.stats();
+        final long fieldCollectionStart = stats.start();
         this.sourceFieldAnnotationsMap = newFieldsMap(modelTypeElement);
+        stats.stop(modelTypeElement, Phase.FIELD_COLLECTION, fieldCollectionStart);
+        this.imports = newImportManager();
+        this.sharedSuperclass = sharedMapping ? null : SharedMappingGenerator.sharedSuperclass(processor, modelTypeElement);
+        this.sharedFields = sharedSuperclass == null ? Set.of() : sharedFields(sharedSuperclass);
+        this.sharedMappingName = sharedSuperclass == null ? "" : imports.use(SharedMappingGenerator.qualifiedName(sharedSuperclass));
+    }
+
+    /**
+     * {@return the fields of a superclass mapped by its shared mapping class}
+     * Fields whose items are {@link DTO} annotated classes are not shared.
+     * @param superclass the superclass to get the fields from
+     * @see SharedMappingGenerator
+     */
+    private Set<VariableElement> sharedFields(final TypeElement superclass) {
+        return typeUtil.getClassFields(superclass)
+                       .filter(field -> !hasDtoItems(field))
+                       .collect(toSet());
+    }
+
+    /**
+     * Creates the {@link ImportManager} for the generated record,
+     * registering the types that are always referenced by their simple names.
+     * @return the new ImportManager
+     */
+    private ImportManager newImportManager() {
+        final var importManager = new ImportManager(modelPackageName);
+        importManager.use(modelTypeElement.getQualifiedName().toString());
+        importManager.use(modelPackageName.isBlank() ? recordName : modelPackageName + "." + recordName);
+        importManager.use(DTORecord.class.getName());
+        importManager.use(MappingContext.class.getName());
+        importManager.use(GENERATED_ANNOTATION);
+        return importManager;
     }
 
     /**
@@ -98,17 +176,29 @@ public final class RecordGenerator {
      * @return the new fields map
      */
     private Map<VariableElement, List<AnnotationData>> newFieldsMap(final TypeElement modelClassTypeElement) {
-        final var classFieldsList = TypeUtil.getClassFields(processor.types(), modelClassTypeElement).toList();
+        final var classFieldsList = typeUtil.getClassFields(modelClassTypeElement).toList();
         return classFieldsList
                 .stream()
+                .filter(field -> !sharedMapping || !hasDtoItems(field))
                 .collect(toMap(identity(), this::getFieldAnnotations, (a, b) -> a, LinkedHashMap::new));
     }
 
     /**
-     * Generates the DTO record for the {@link DTO} annotated class and writes it to a file.
+     * {@return the name of the DTO record to be generated for a given model class}
+     * @param modelTypeElement the model class to get the name of its DTO record
+     */
+    static String getRecordName(final TypeElement modelTypeElement) {
+        return modelTypeElement.getSimpleName() + "DTO";
+    }
+
+    /**
+     * {@return the fully qualified name of the DTO record to be generated for a given model class}
+     * @param modelTypeElement the model class to get the name of its DTO record
      */
-    public void write() {
-        new JavaFileWriter(processor).write(modelPackageName, recordName, generate());
+    static String getRecordQualifiedName(final TypeElement modelTypeElement) {
+        final var packageName = TypeUtil.getPackageName(modelTypeElement);
+        final var recordName = getRecordName(modelTypeElement);
+        return packageName.isBlank() ? recordName : packageName + "." + recordName;
     }
 
     /**
@@ -116,72 +206,199 @@ public final class RecordGenerator {
      * @return the generated java code for the DTO record
      */
     String generate() {
-        final String fieldsStr = recordFieldsStr();
+        return describe().render();
+    }
 
-        final var recordBodyContent = new StringBuilder();
-        final String implementsClause = "implements %s<%s>".formatted(DTORecord.class.getSimpleName(), modelTypeName);
+    /**
+     * Captures everything needed to render the DTO record for the {@link DTO} annotated class.
+     * This must be called from the annotation processor thread, since it accesses the compiler elements.
+     * Therefore, the mapping code (which takes most of the DTO record generation time) is built here sequentially,
+     * leaving to the {@link RecordDescriptor#render() rendering} just the layout of that code.
+     * @return an immutable descriptor of the DTO record to be generated
+     */
+    RecordDescriptor describe() {
+        final var stats = processor.stats();
+        long phaseStart = stats.start();
+        final var recordFields = recordFieldsList();
+        stats.stop(modelTypeElement, Phase.RECORD_FIELDS, phaseStart);
+
+        phaseStart = stats.start();
+        final var fieldComments =
+                processor.javaDocExtractor()
+                         .getFieldCommentsStream(modelTypeElement)
+                         .map(entry -> Map.entry(entry.getKey(), entry.getValue()))
+                         .toList();
+        stats.stop(modelTypeElement, Phase.JAVADOC_EXTRACTION, phaseStart);
+
+        final var fields = fieldStream().toList();
+        phaseStart = stats.start();
+        final var fromModelValues = fields.stream().map(this::dtoConstructorParam).toList();
+        stats.stop(modelTypeElement, Phase.FROM_MODEL, phaseStart);
+
+        phaseStart = stats.start();
+        final var defaultFieldValues = fields.stream().map(field -> ObjectInstantiation.generateFieldInitialization(typeUtil, field, null)).toList();
+        stats.stop(modelTypeElement, Phase.DEFAULT_VALUES, phaseStart);
+
+        phaseStart = stats.start();
+        final var groupsIndexes = groupFields(fields, fromModelValues);
+        stats.stop(modelTypeElement, Phase.FIELD_GROUPING, phaseStart);
+
+        phaseStart = stats.start();
+        final String toModelCode = toModelCode();
+        stats.stop(modelTypeElement, Phase.TO_MODEL, phaseStart);
+        stats.fields(modelTypeElement, sourceFieldAnnotationsMap.size(), recordFields.size());
+
+        // The components of grouped fields are named groupN, so they can't clash with the static methods
+        final var omittedMethods = groupsIndexes.isEmpty() ? omittedStaticMethods(recordFields) : Set.<String>of();
+        phaseStart = stats.start();
+        final var bulkMethods = bulkMethods(omittedMethods);
+        final var streamMethods = streamMethods(omittedMethods);
+        final var importList = List.copyOf(imports.imports());
+        stats.stop(modelTypeElement, Phase.IMPORTS, phaseStart);
+        final var dtoSetFields = fields.stream().filter(RecordGenerator::hasDtoSetItems).map(this::dtoFieldName).toList();
+        if (groupsIndexes.isEmpty()) {
+            return new RecordDescriptor(
+                    modelPackageName, modelTypeName, recordName,
+                    fieldComments, recordFields, importList,
+                    toModelCode, fromModelValues, String.join(", ", defaultFieldValues), toModelHelpers,
+                    bulkMethods, streamMethods, List.of(), omittedMethods, dtoSetFields);
+        }
 
-        recordBodyContent.append(dtoJavaDoc());
-        recordBodyContent.append(getGeneratedAnnotation());
-        recordBodyContent.append("public record %s (%s) %s {%n".formatted(recordName, fieldsStr, implementsClause));
-        recordBodyContent.append(generateToModelMethod());
-        recordBodyContent.append(generateFromModelMethod());
-        recordBodyContent.append(defaultRecordConstrutor());
-        recordBodyContent.append("}%n".formatted());
+        final var fieldGroups = new ArrayList<FieldGroup>();
+        final var groupComments = new ArrayList<Map.Entry<String, String>>();
+        final var groupFields = new ArrayList<String>();
+        final var groupFromModelValues = new ArrayList<String>();
+        final var groupDefaultValues = new ArrayList<String>();
+        for (int i = 0; i < groupsIndexes.size(); i++) {
+            final var indexes = groupsIndexes.get(i);
+            final var fieldNames = indexes.stream().map(index -> fields.get(index).getSimpleName().toString()).collect(toSet());
+            final var group = new FieldGroup(
+                    groupTypeName(i + 1),
+                    fieldComments.stream().filter(entry -> fieldNames.contains(entry.getKey())).toList(),
+                    indexes.stream().map(recordFields::get).toList(),
+                    indexes.stream().map(fromModelValues::get).toList());
+            fieldGroups.add(group);
+
+            final var firstField = FieldGroup.fieldName(group.recordFields().getFirst());
+            final var lastField = FieldGroup.fieldName(group.recordFields().getLast());
+            groupComments.add(Map.entry(groupComponentName(i + 1), "The fields from {@code %s} to {@code %s}.".formatted(firstField, lastField)));
+            groupFields.add(group.typeName() + " " + groupComponentName(i + 1));
+            groupFromModelValues.add("          " + group.typeName() + ".fromModel(model, mappingContext)");
+            groupDefaultValues.add("new " + group.typeName() + "(" + indexes.stream().map(defaultFieldValues::get).collect(joining(", ")) + ")");
+        }
 
-        final var recordFullContent = new StringBuilder();
-        if (!modelPackageName.isBlank())
-            recordFullContent.append("package %s;%n%n".formatted(modelPackageName));
+        return new RecordDescriptor(
+                modelPackageName, modelTypeName, recordName,
+                groupComments, groupFields, importList,
+                toModelCode, groupFromModelValues, String.join(", ", groupDefaultValues), toModelHelpers,
+                bulkMethods, streamMethods, fieldGroups, omittedMethods, dtoSetFields);
+    }
 
-        addElementToImport(DTORecord.class.getName());
-        recordFullContent.append(fieldAnnotationsImports());
-        recordFullContent.append(fieldTypeImports());
-        recordFullContent.append(recordBodyContent);
+    /**
+     * {@return the names of the static bulk and stream methods that must not be generated into the DTO record,
+     * since there are record components with the same names}
+     * The accessor of such a component would clash with the static method (such as {@code mapping()} for a {@code mapping} field)
+     * or overload it with an unrelated meaning. A warning is reported for those methods.
+     * @param recordFields the declaration of each DTO record component
+     * @see RecordDescriptor#STATIC_METHOD_NAMES
+     */
+    private Set<String> omittedStaticMethods(final List<String> recordFields) {
+        final var methodNames = recordFields.stream()
+                                            .map(FieldGroup::fieldName)
+                                            .filter(RecordDescriptor.STATIC_METHOD_NAMES::contains)
+                                            .collect(toCollection(TreeSet::new));
+        if (!methodNames.isEmpty()) {
+            final var msg = "The static %s() methods weren't generated in %s, since they would clash with the accessors of the fields with the same names.";
+            processor.warning(modelTypeElement, msg.formatted(String.join("(), ", methodNames), recordName));
+        }
 
-        return recordFullContent.toString();
+        return methodNames;
     }
 
     /**
-     * {@return the JavaDoc to be included in the generated DTO record, copying the model entity fields JavaDoc.}
+     * Splits the DTO record fields into groups, each one to be generated as a nested record,
+     * when there are too many fields to be included directly into the DTO record.
+     * That happens when the DTO record canonical constructor would exceed the JVM limit of parameter slots
+     * or the {@code fromModel()} method would exceed the {@link DTOProcessor#splitThreshold()}.
+     * Each group is small enough for the method creating it from a model object to be inlined by the JIT compiler.
+     *
+     * <p>This must be called before generating the {@code toModel()} code,
+     * so that the grouped fields are accessed through their groups.</p>
+     *
+     * @param fields the model fields included in the DTO record
+     * @param fromModelValues the values passed to the DTO record constructor for each field inside the {@code fromModel()} method
+     * @return a list where each item is a group containing the indexes of its fields;
+     *         or an empty list if the fields don't need to be grouped
+     * @see #dtoFieldReference(VariableElement, String)
      */
-    private String dtoJavaDoc() {
-        /* Do not include the javadoc strings as a variable for the formatted method, since that string
-        may contain % characters that will be interpreted as placeholders by the method,
-        causing exception during formatting.
-        This way, String.format or String.formatted is not used anywhere in this method
-        when JavaDoc strings are being used. */
-        final var extractor = new JavaDocExtractor(modelTypeElement);
-        final String fieldsJavaDoc =
-                extractor.getFieldCommentsStream()
-                         .map(e -> " * @param " + e.getKey() + " " +  e.getValue().replaceAll("\n", " "))
-                         .collect(joining(ln));
+    private List<List<Integer>> groupFields(final List<VariableElement> fields, final List<String> fromModelValues) {
+        final int parameterSlots = fields.stream().mapToInt(this::parameterSlots).sum();
+        final int fromModelSize = MethodSize.estimate(String.join(", ", fromModelValues));
+        if (parameterSlots <= MethodSize.MAX_PARAMETER_SLOTS && fromModelSize <= processor.splitThreshold())
+            return List.of();
+
+        final var indexes = IntStream.range(0, fields.size()).boxed().toList();
+        final var groups = MethodSize.chunk(indexes, i -> MethodSize.estimate(fromModelValues.get(i)), MethodSize.INLINE_SIZE_LIMIT);
+        for (int i = 0; i < groups.size(); i++) {
+            final var groupComponentName = groupComponentName(i + 1);
+            groups.get(i).forEach(index -> groupComponentsByField.put(fields.get(index), groupComponentName));
+        }
 
-        final var recordJavaDoc =
-                """
-                %n
-                /**
-                 * A {@link DTORecord Data Transfer Object} for {@link %s}."""
-                .formatted(modelTypeName);
-        return recordJavaDoc + (fieldsJavaDoc.isBlank() ? "" : " %n * %n".formatted() + fieldsJavaDoc) + ln + " */" + ln;
+        final var msg = "The %d fields of %s were grouped into %d nested records, since they take %d constructor parameter slots (the JVM limit is %d) " +
+                        "and the estimated size of the fromModel() method is %d bytes (the split threshold is %d).";
+        processor.note(modelTypeElement, msg.formatted(
+                fields.size(), recordName, groups.size(), parameterSlots,
+                MethodSize.MAX_PARAMETER_SLOTS, fromModelSize, processor.splitThreshold()));
+        return groups;
     }
 
-    private String getGeneratedAnnotation() {
-        final var processorClass = DTOProcessor.class.getName();
-        final var comments = "DTO generated using DTOGen Annotation Processor";
+    /**
+     * {@return the number of constructor parameter slots taken by the DTO record field generated for a model field}
+     * Long and double values take 2 slots.
+     * @param sourceField the model field
+     */
+    private int parameterSlots(final VariableElement sourceField) {
+        final var dtoField = nonPrimitiveFieldHasMapToId(sourceField) ? typeUtil.findIdField(sourceField).orElse(sourceField) : sourceField;
+        final var kind = dtoField.asType().getKind();
+        return kind == TypeKind.LONG || kind == TypeKind.DOUBLE ? 2 : 1;
+    }
+
+    private static String groupComponentName(final int groupNumber) {
+        return "group" + groupNumber;
+    }
 
-        addElementToImport("javax.annotation.processing.Generated");
-        return "@Generated(value = \"%s\", comments = \"%s\")%n".formatted(processorClass, comments);
+    /**
+     * {@return the name of a nested record grouping DTO fields}
+     * If that name is already used by another type referenced in the DTO record, the record name is used as prefix.
+     * @param groupNumber the number of the group (starting at 1)
+     */
+    private String groupTypeName(final int groupNumber) {
+        final var typeName = "Group" + groupNumber;
+        return imports.isUsed(typeName) ? recordName + typeName : typeName;
     }
 
-    private String defaultRecordConstrutor() {
-        final var builder = new StringBuilder("    public %s() {%n".formatted(recordName));
-        builder.append("        this(");
+    /**
+     * {@return the code to access a DTO record field inside the DTO record methods}
+     * If the DTO fields are grouped into nested records, the field is accessed through its group.
+     * @param sourceField the model field the DTO record field was generated from
+     * @param dtoFieldName the name of the DTO record field
+     * @see #groupFields(List, List)
+     */
+    public String dtoFieldReference(final VariableElement sourceField, final String dtoFieldName) {
+        final var groupComponentName = groupComponentsByField.get(sourceField);
+        return groupComponentName == null ? dtoFieldName : groupComponentName + "." + dtoFieldName;
+    }
 
-        final String fieldValues = generateFieldListInitialization();
-        builder.append(fieldValues);
-        builder.append(");%n".formatted());
-        builder.append("    }%n".formatted());
-        return builder.toString();
+    /**
+     * Adds a helper method called by the {@code toModel()} method, when it's split into smaller methods.
+     * The helper methods receive the model object being instantiated.
+     * @param code the code inside the helper method
+     * @return the name of the helper method
+     */
+    public String addToModelHelper(final String code) {
+        final var methodName = "toModel" + (toModelHelpers.size() + 1);
+        toModelHelpers.add(Map.entry(methodName, code));
+        return methodName;
     }
 
     /**
@@ -208,16 +425,16 @@ public final class RecordGenerator {
     }
 
     /**
-     * {@return a string with the DTO record fields, based on the fields of the model class being processed}
+     * {@return a list with the DTO record fields, based on the fields of the model class being processed}
      * It doesn't sort elements to ensure the fields are returned in the same order they are declared in the class.
      */
-    private String recordFieldsStr() {
+    private List<String> recordFieldsList() {
         return sourceFieldAnnotationsMap
                 .entrySet()
                 .stream()
                 .filter(entry -> sourceClassFieldPredicate.test(entry.getKey()))
                 .map(entry -> generateRecordField(entry.getKey(), entry.getValue()))
-                .collect(joining(", "));
+                .toList();
     }
 
     /**
@@ -230,19 +447,26 @@ public final class RecordGenerator {
         final VariableElement sourceField,
         final List<AnnotationData> sourceFieldAnnotationData)
     {
-        final var sourceFieldAnnotationsStr = getFieldAnnotationsStr(sourceFieldAnnotationData);
+        final var sourceFieldAnnotationsStr = getFieldAnnotationsStr(sourceFieldAnnotationData, imports::use);
         final var mapToIdAnnotation = DTO.MapToId.class;
         final var fieldClassType = processor.typeUtil().getTypeElement(sourceField);
         final boolean primitive = fieldClassType == null;
         final boolean containsMapToId = AnnotationData.contains(sourceField, mapToIdAnnotation);
 
+        if (sourceField.asType().getKind() == TypeKind.TYPEVAR) {
+            final var msg = "The %s field is declared with the type variable %s of a generic class, which isn't supported in DTO records. " +
+                            "Declare the field with a concrete type.";
+            processor.error(sourceField, msg.formatted(sourceField.getSimpleName(), sourceField.asType()));
+            return "";
+        }
+
         if(containsMapToId && primitive){
             final var msg = "The @MapToId annotation in %s is not allowed for primitive fields.";
             processor.error(sourceField, msg.formatted(sourceField.getSimpleName()));
         }
 
         if (!containsMapToId || primitive) {
-            return String.format("%s %s %s", sourceFieldAnnotationsStr, getFieldType(sourceField), sourceField.getSimpleName());
+            return sourceFieldAnnotationsStr + " " + getFieldType(sourceField) + " " + sourceField.getSimpleName();
         }
 
         final var msg =
@@ -259,96 +483,252 @@ public final class RecordGenerator {
                 });
     }
 
+    private String formatIdField(final VariableElement sourceField, final VariableElement idField, final List<AnnotationData> sourceFieldAnnotationData) {
+        return getFieldAnnotationsStr(sourceFieldAnnotationData, imports::use) + " " + getFieldType(idField) + " " + sourceField.getSimpleName() + "Id";
+    }
+
     /**
-     * {@return a String containing all the imports for the annotations from the model class fields}
-     * That list includes the {@link #additionalImports}.
+     * {@return the type of the DTO record field generated for a model field}
+     * For a {@link DTO.MapToId} field, that is the type of the id field of the model field type.
+     * @param sourceField the model field
      */
-    private String fieldAnnotationsImports() {
-        final var importsSet = sourceFieldAnnotationsMap
-                .values()
-                .stream()
-                .flatMap(Collection::stream)
-                .map(AnnotationData::name)
-                .collect(toSet());
+    String dtoFieldType(final VariableElement sourceField) {
+        return getFieldType(mapToIdField(sourceField).orElse(sourceField));
+    }
 
-        final var importStream = Stream.concat(importsSet.stream(), additionalImports.stream());
-        final String imports = importStream.map("import %s;"::formatted).collect(joining(ln)) + ln;
-        return "%s%n".formatted(imports);
+    /**
+     * {@return the name of the DTO record field generated for a model field}
+     * @param sourceField the model field
+     */
+    String dtoFieldName(final VariableElement sourceField) {
+        return sourceField.getSimpleName() + (mapToIdField(sourceField).isPresent() ? "Id" : "");
     }
 
     /**
-     * {@return a string containing the imports for the field types from the model class}
+     * {@return the id field of the type of a {@link DTO.MapToId} model field, or an empty optional if it's not such a field}
+     * @param sourceField the model field
      */
-    private String fieldTypeImports() {
-        final var importsSet = sourceFieldAnnotationsMap
-                .keySet()
-                .stream()
-                .filter(field -> !FieldUtil.isPrimitive(field))
-                .filter(field -> !typeUtil.getTypeName(field).startsWith("java.lang."))
-                .filter(field -> !isFieldTypePkgSameAsRecordPkg(typeUtil.getTypeName(field)))
-                .map(field -> typeUtil.getTypeName(field, true, false))
-                .collect(toSet());
+    private Optional<VariableElement> mapToIdField(final VariableElement sourceField) {
+        return nonPrimitiveFieldHasMapToId(sourceField) ? typeUtil.findIdField(sourceField) : Optional.empty();
+    }
 
-        final String imports = importsSet.stream().map("import %s;"::formatted).collect(joining(ln));
-        return imports.isBlank() ? imports : ln + imports;
+    /**
+     * {@return true if a model field is mapped by the shared mapping class for the model superclass}
+     * Such fields aren't set by the DTO record {@code toModel()} method, which calls the shared mapping class instead.
+     * @param sourceField the model field
+     * @see SharedMappingGenerator
+     */
+    public boolean isSharedField(final VariableElement sourceField) {
+        return sharedFields.contains(sourceField);
     }
 
-    private String formatIdField(final VariableElement sourceField, final VariableElement idField, final List<AnnotationData> sourceFieldAnnotationData) {
-        return "%s %s %sId".formatted(getFieldAnnotationsStr(sourceFieldAnnotationData), getFieldType(idField), sourceField.getSimpleName());
+    /**
+     * {@return true if a model field is mapped by a method in the shared mapping class to get its value for the DTO record}
+     * That is the case for {@link DTO.MapToId} fields, whose value requires checking if the field is null.
+     * @param sourceField the model field
+     */
+    boolean hasSharedAccessor(final VariableElement sourceField) {
+        return mapToIdField(sourceField).isPresent();
     }
 
     /**
-     * {@return the type of a field without the java.lang package prefix (if existing)}
-     * @param fieldElement field element to get its type
+     * {@return the code to call the shared mapping class for the model superclass inside the DTO record toModel() method,
+     * or an empty optional if there is no such a class}
+     * @see SharedMappingGenerator
      */
-    private String getFieldType(final VariableElement fieldElement) {
-        final String typeName = typeUtil.getTypeName(fieldElement).replaceAll("java\\.lang\\.", "");
-        return TypeUtil.getSimpleClassName(typeName);
+    public Optional<String> sharedToModelCall() {
+        if (sharedSuperclass == null)
+            return Optional.empty();
+
+        // The args are given in the same order the fields are declared, as the parameters of the shared toModel() method
+        final var args = fieldStream().filter(sharedFields::contains).map(field -> dtoFieldReference(field, dtoFieldName(field))).toList();
+        return Optional.of("          " + sharedMappingName + ".toModel(this, model, " + String.join(", ", args) + ");");
     }
 
     /**
-     * {@return true if the package of a field type is the same as the package of the model class}
-     * @param fullyQualifiedFieldClassName the fully qualified name of the field type class
+     * {@return the name of the method to be called to instantiate the object of a {@link DTO.MapToId} field only if it has an id}
+     * Inside a shared mapping class, that method is called on the DTO record given as parameter.
+     * @see DTORecord#newObject(Object, java.util.function.Supplier)
      */
-    private boolean isFieldTypePkgSameAsRecordPkg(final String fullyQualifiedFieldClassName) {
-        return isFieldTypePkgEqualsTo(fullyQualifiedFieldClassName, modelPackageName);
+    public String newObjectMethod() {
+        if (processor.runtimeAvailable())
+            return runtimeMethod("newObject");
+
+        return sharedMapping ? "dto.newObject" : "newObject";
     }
 
     /**
-     * {@return true if the package of a field type is equal to a given package}
-     *
-     * @param fullyQualifiedFieldTypeName the fully qualified name of the field type
-     * @param packageName                 the name of the package to check if the field type belongs to
+     * {@return the names used by the DTO record static methods mapping many objects at once}
+     * This must be called before getting the {@link #imports()}, since it registers the types they use.
+     * @param omittedMethods the names of the static methods that aren't generated, whose types aren't registered
      */
-    public static boolean isFieldTypePkgEqualsTo(final String fullyQualifiedFieldTypeName, final String packageName) {
-        return packageName.equals(TypeUtil.getPackageName(fullyQualifiedFieldTypeName));
+    private RecordDescriptor.BulkMethods bulkMethods(final Set<String> omittedMethods) {
+        final var methods = new String[]{"fromModels", "fromModelsParallel", "toModels", "toModelsParallel"};
+        return new RecordDescriptor.BulkMethods(
+                nameUsedBy(omittedMethods, () -> imports.use("java.util.Collection"), methods),
+                nameUsedBy(omittedMethods, () -> imports.use("java.util.List"), methods),
+                nameUsedBy(omittedMethods, () -> mappingMethod(CollectionMapping.Kind.LIST), "fromModels", "toModels"),
+                nameUsedBy(omittedMethods, () -> mappingMethod(CollectionMapping.Kind.ARRAY), "fromModels", "toModels"),
+                nameUsedBy(omittedMethods, () -> mappingMethod(CollectionMapping.Kind.PARALLEL_LIST), "fromModelsParallel", "toModelsParallel"),
+                processor.bulkParallelThreshold());
     }
 
     /**
-     * Checks if a field has a generic type argument annotated with {@link DTO}
-     * in order to generate that field using the DTO record instead of the Model class.
-     * Consider we have a DTO record MainDTO that has a field of type {@code List<ModelClass>}.
-     * if ModelClass is created with the {@link DTO} annotation, its related field in MainDTO
-     * will be {@code List<ModelClassDTO>} instead of {@code List<ModelClass>}.
-     *
-     * @param fieldElement the field to check
-     * @return the first generic type (ModelClass from a declaration such as {@code List<ModelClass>})
-     * (the generic type argument) if ModelClass is annotated with {@link DTO}; an empty string otherwise.
+     * {@return the names used by the DTO record static methods lazily mapping streams of objects}
+     * This must be called before getting the {@link #imports()}, since it registers the types they use.
+     * @param omittedMethods the names of the static methods that aren't generated, whose types aren't registered
      */
-    public String getFirstGenericTypeArgAnnotatedWithDTO(final VariableElement fieldElement) {
-        final var typeMirror = fieldElement.asType();
-        if (!(typeMirror instanceof DeclaredType declaredType)) {
-            return "";
-        }
+    private RecordDescriptor.StreamMethods streamMethods(final Set<String> omittedMethods) {
+        return new RecordDescriptor.StreamMethods(
+                nameUsedBy(omittedMethods, () -> imports.use("java.util.stream.Stream"), "stream"),
+                nameUsedBy(omittedMethods, () -> imports.use("java.util.Spliterator"), "spliterator"),
+                nameUsedBy(omittedMethods, () -> imports.use("java.util.stream.Collector"), "mapping"),
+                nameUsedBy(omittedMethods, () -> imports.use("java.util.List"), "mapping"),
+                nameUsedBy(omittedMethods, () -> mappingMethod(CollectionMapping.Kind.STREAM), "stream"),
+                nameUsedBy(omittedMethods, () -> mappingMethod(CollectionMapping.Kind.SPLITERATOR), "spliterator"),
+                nameUsedBy(omittedMethods, () -> mappingMethod(CollectionMapping.Kind.COLLECTOR), "mapping"));
+    }
 
-        if (declaredType.getTypeArguments().isEmpty())
-            return "";
+    /**
+     * {@return the name used to reference a type or method inside some static methods of the DTO record,
+     * or an empty string if none of them is generated}
+     * The name is got (registering its import) just if some of the methods is generated.
+     * @param omittedMethods the names of the static methods that aren't generated
+     * @param name a function that registers the type or method and returns its name
+     * @param methodNames the names of the static methods using the type or method
+     */
+    private static String nameUsedBy(final Set<String> omittedMethods, final Supplier<String> name, final String... methodNames) {
+        return omittedMethods.containsAll(List.of(methodNames)) ? "" : name.get();
+    }
+
+    /**
+     * {@return the code to map the {@link DTO} annotated items of a DTO record field back to the model items,
+     * or an empty optional if the field has no such items}
+     * @param sourceField the model field the DTO record field was generated from
+     * @param dtoField the code to get the DTO record field value
+     * @see CollectionMapping
+     */
+    public Optional<String> dtoItemsToModel(final VariableElement sourceField, final String dtoField) {
+        final var mapping = CollectionMapping.of(sourceField.asType());
+        if (mapping == null || !mapping.supported())
+            return Optional.empty();
+
+        return Optional.of(mapping.toModel(mappingMethod(mapping), dtoField, imports::use));
+    }
+
+    /**
+     * {@return true if a model field is a set of {@link DTO} annotated items, mapped to a set of DTO records}
+     * @param sourceField the model field
+     */
+    private static boolean hasDtoSetItems(final VariableElement sourceField) {
+        final var mapping = CollectionMapping.of(sourceField.asType());
+        return mapping != null && mapping.supported() && mapping.kind() == CollectionMapping.Kind.SET;
+    }
+
+    /**
+     * {@return the code to reference the method mapping the items of a collection field}
+     * @param mapping the mapping of the collection field
+     */
+    private String mappingMethod(final CollectionMapping mapping) {
+        return mappingMethod(Objects.requireNonNull(mapping.kind()));
+    }
+
+    /**
+     * {@return the code to reference a method mapping items}
+     * That is a method from the {@link Mappings} class, which is shared by all DTO records.
+     * @param kind the kind of mapping method
+     */
+    private String mappingMethod(final CollectionMapping.Kind kind) {
+        return runtimeMethod(kind.methodName());
+    }
+
+    /**
+     * {@return true if a model field has items that are {@link DTO} annotated classes (such as a {@code List<Item>})}
+     * @param sourceField the model field
+     * @see CollectionMapping
+     */
+    private boolean hasDtoItems(final VariableElement sourceField) {
+        return CollectionMapping.of(sourceField.asType()) != null;
+    }
+
+    /**
+     * {@return the code to call a static method from the {@link Mappings} helpers}
+     * They come from the dtogen-runtime (when available) or are written once into the application being compiled.
+     * @param methodName the name of the method to call
+     * @see DTOProcessor#runtimeAvailable()
+     */
+    private String runtimeMethod(final String methodName) {
+        return imports.use(Mappings.class.getName()) + "." + methodName;
+    }
 
-        final var firstTypeArg = typeUtil.getTypeMirrorAsTypeElement(declaredType.getTypeArguments().getFirst());
-        return hasAnnotation(firstTypeArg, DTO.class) ? firstTypeArg.getSimpleName().toString() : "";
+    /**
+     * {@return the types to be imported by the generated code}
+     */
+    Collection<String> imports() {
+        return imports.imports();
     }
 
+    /**
+     * {@return the type of a field to be used in the generated code}
+     * The type is imported (being referenced by its simple name) unless there is another type
+     * with the same simple name in the generated record, when the fully qualified name is used.
+     * Generic type arguments are included without the java.lang package prefix (if existing).
+     * @param fieldElement field element to get its type
+     */
+    private String getFieldType(final VariableElement fieldElement) {
+        if (FieldUtil.isPrimitive(fieldElement))
+            return typeUtil.getTypeName(fieldElement);
 
+        if (fieldElement.asType() instanceof ArrayType arrayType)
+            return getArrayType(arrayType, true);
+
+        final String rawTypeName = typeUtil.getTypeName(fieldElement, true, false);
+        final String typeArgs = typeUtil.getTypeName(fieldElement).substring(rawTypeName.length()).replace("java.lang.", "");
+        return imports.use(rawTypeName) + typeArgs;
+    }
+
+    /**
+     * {@return the type of an array field to be used in the generated code}
+     * If the array items are {@link DTO} annotated classes, the type is an array of their DTO records.
+     * Multidimensional arrays keep the model classes, since their items aren't mapped.
+     * @param arrayType the type of the array field
+     * @param dtoItems indicates if {@link DTO} annotated items are replaced by their DTO records
+     * @see CollectionMapping
+     */
+    private String getArrayType(final ArrayType arrayType, final boolean dtoItems) {
+        final var componentType = arrayType.getComponentType();
+        if (componentType instanceof ArrayType componentArrayType)
+            return getArrayType(componentArrayType, false) + "[]";
+
+        if (!(componentType instanceof DeclaredType declaredType))
+            return componentType + "[]";
+
+        final var componentElement = (TypeElement) declaredType.asElement();
+        final var componentName = dtoItems && hasAnnotation(componentElement, DTO.class) ?
+                getRecordQualifiedName(componentElement) :
+                componentElement.getQualifiedName().toString();
+        return imports.use(componentName) + "[]";
+    }
+
+    /**
+     * Registers a type to be referenced in the generated record.
+     * @param typeElement the type to be referenced
+     * @return the name to be used to reference the type in the generated code
+     * @see ImportManager#use(String)
+     */
+    public String useType(final TypeElement typeElement) {
+        return imports.use(typeElement.getQualifiedName().toString());
+    }
+
+    /**
+     * {@return true if the package of a field type is equal to a given package}
+     *
+     * @param fullyQualifiedFieldTypeName the fully qualified name of the field type
+     * @param packageName                 the name of the package to check if the field type belongs to
+     */
+    public static boolean isFieldTypePkgEqualsTo(final String fullyQualifiedFieldTypeName, final String packageName) {
+        return packageName.equals(TypeUtil.getPackageName(fullyQualifiedFieldTypeName));
+    }
 
     /**
      * {@return the annotations of a field}
@@ -358,52 +738,33 @@ public final class RecordGenerator {
         return AnnotationData.getFieldAnnotations(field, annnotationPredicate);
     }
 
-    private String generateToModelMethod() {
-        final var template = """
-                                 @Override
-                                 public %s toModel(){
-                                 %s
-                                 }
-                             
-                             """;
-
-        allFieldsStream()
-                .filter(RecordGenerator::nonPrimitiveFieldHasMapToId)
-                .forEach(field -> addElementToImport(typeUtil.getTypeName(field, true, false)));
+    /**
+     * {@return the code inside the toModel() method}
+     */
+    private String toModelCode() {
+        final var code = ObjectInstantiation.newInstance(this, modelTypeElement).generate();
+        if (!toModelHelpers.isEmpty()) {
+            final int size = toModelHelpers.stream().mapToInt(helper -> MethodSize.estimate(helper.getValue())).sum();
+            final var msg = "%s.toModel() was split into %d helper methods, since its estimated size is %d bytes (the split threshold is %d).";
+            processor.note(modelTypeElement, msg.formatted(recordName, toModelHelpers.size(), size, processor.splitThreshold()));
+        }
 
-        // formatted() replaces %n codes by the OS-dependent char
-        final var methodInternalCode = ObjectInstantiation.newInstance(this, modelTypeElement).generate().formatted();
-        return template.formatted(modelTypeName, methodInternalCode);
+        return code;
     }
 
     private static boolean nonPrimitiveFieldHasMapToId(final VariableElement field) {
         return AnnotationData.contains(field, DTO.MapToId.class) && !FieldUtil.isPrimitive(field);
     }
 
-    private String generateFromModelMethod() {
-        final var methodCode =
-             """
-                 @Override
-                 public %1$s fromModel(final %2$s model){
-                     final var dto = new %1$s(
-             %3$s
-                     );
-             
-                     return dto;
-                 }
-             
-             """;
-
-        final var constructorValues = fieldStream().map(this::dtoConstructorParam).collect(joining(",%n".formatted()));
-        return methodCode.formatted(recordName, modelTypeName, constructorValues);
-    }
-
     /**
      * Generates the value representing a parameter for a DTO constructor call.
      * @param sourceField the field in the model/entity class to pass as parameter to the DTO constructor
      * @return a String representing the generated value to pass to the constructor
      */
-    private String dtoConstructorParam(final VariableElement sourceField) {
+    String dtoConstructorParam(final VariableElement sourceField) {
+        if (isSharedField(sourceField) && hasSharedAccessor(sourceField))
+            return "          " + sharedMappingName + "." + dtoFieldName(sourceField) + "(model)";
+
         final boolean sourceFieldHasMapToId = AnnotationData.contains(sourceField, DTO.MapToId.class);
 
         final var modelGetterName = "model." + getterName(sourceField);
@@ -414,7 +775,7 @@ public final class RecordGenerator {
             final String defaultNumVal = ObjectInstantiation.generateFieldInitialization(typeUtil, sourceField, null);
             final String idFieldValue =
                     typeUtil.findIdField(sourceField)
-                            .map(idField -> "          %1$s == null ? %2$s : %1$s.%3$s".formatted(modelGetterName, defaultNumVal, getterName(idField)))
+                            .map(idField -> "          " + associationId(modelGetterName, idField, defaultNumVal))
                             .orElse("");
 
             // If there is no "id" field, ignores the MapToId annotation
@@ -423,14 +784,56 @@ public final class RecordGenerator {
             }
         }
 
-        final var genericTypeArg = getFirstGenericTypeArgAnnotatedWithDTO(sourceField);
-        final var formattedGetter = "          %s".formatted(modelGetterName);
+        final var formattedGetter = "          " + modelGetterName;
+        final var mapping = CollectionMapping.of(sourceField.asType());
+        if (mapping == null)
+            return formattedGetter;
 
-        // Generates a stream chain to map a Model object to a DTO
-        final var dtoRecordName = genericTypeArg + DTO.class.getSimpleName();
-        final var dtoToModelMapper = ".stream().map(item -> new %s().fromModel(item)).toList()".formatted(dtoRecordName);
+        if (!mapping.supported()) {
+            processor.error(sourceField, mapping.unsupportedMessage(sourceField.getSimpleName().toString()));
+            return formattedGetter;
+        }
+
+        final var collectionMode = collectionMode(sourceField);
+        if (mapping.kind() == CollectionMapping.Kind.LIST && collectionMode != DTO.CollectionMode.COPY) {
+            final boolean memoize = collectionMode == DTO.CollectionMode.MEMOIZED_VIEW;
+            return "          " + mapping.toDtoView(mappingMethod(CollectionMapping.Kind.LIST_VIEW), modelGetterName, memoize, imports::use);
+        }
+
+        // Maps the model items to DTOs
+        return "          " + mapping.toDto(mappingMethod(mapping), modelGetterName, imports::use);
+    }
+
+    /**
+     * {@return how a List or Collection model field with {@link DTO} annotated items is mapped to the DTO record}
+     * That is given by the {@link DTO.MapCollection} annotation of the field or, if absent, by the {@link DTO} annotation of the model class.
+     * @param sourceField the model field
+     */
+    private DTO.CollectionMode collectionMode(final VariableElement sourceField) {
+        final var fieldAnnotation = sourceField.getAnnotation(DTO.MapCollection.class);
+        if (fieldAnnotation != null)
+            return fieldAnnotation.value();
 
-        return formattedGetter + (genericTypeArg.isBlank() ? "" : dtoToModelMapper);
+        final var modelAnnotation = modelTypeElement.getAnnotation(DTO.class);
+        return modelAnnotation == null ? DTO.CollectionMode.COPY : modelAnnotation.collections();
+    }
+
+    /**
+     * {@return the code to get the id of an object associated to the model, which may be null}
+     * If the dtogen-runtime is available and the id is a long or int,
+     * a runtime method is called to get it, instead of repeating the null check.
+     * @param association the code to get the associated object from the model
+     * @param idField the id field in the associated object class
+     * @param defaultValue the code of the value to return if the associated object is null
+     */
+    private String associationId(final String association, final VariableElement idField, final String defaultValue) {
+        final var idKind = idField.asType().getKind();
+        if (processor.runtimeAvailable() && (idKind == TypeKind.LONG || idKind == TypeKind.INT)) {
+            final var method = idKind == TypeKind.LONG ? "longId" : "intId";
+            return runtimeMethod(method) + "(" + association + ", association -> association." + getterName(idField) + ")";
+        }
+
+        return association + " == null ? " + defaultValue + " : " + association + "." + getterName(idField);
     }
 
     /**
@@ -445,17 +848,6 @@ public final class RecordGenerator {
         return accessor.existing() ? getterCall : accessor.sourceFieldName();
     }
 
-    /**
-     * Adds an elemento to the {@link #additionalImports} list
-     * and returns the simple name of that element.
-     * @param elementQualifiedName full qualified name (including package) of the element to add to the imports list
-     */
-    private void addElementToImport(final String elementQualifiedName) {
-        final String elementPackage = TypeUtil.getPackageName(elementQualifiedName);
-        if(!elementPackage.equals(modelPackageName) && !elementPackage.isBlank() && !elementQualifiedName.startsWith("java.lang"))
-            additionalImports.add(elementQualifiedName);
-    }
-
     /**
      * Checks if an annotation is to be excluded from the DTO fields.
      * DTO or a JPA/Hibernation annotations has only effect on database tables and
@@ -463,9 +855,10 @@ public final class RecordGenerator {
      *
      * @param annotation the annotation to check
      * @return true if the annotation is to be excluded, false otherwise
+     * @see AnnotationFilter
      */
     private boolean isExcludedAnnotation(final AnnotationData annotation) {
-        return excludedAnnotationNameSet.stream().anyMatch(annotation.name()::contains);
+        return processor.annotationFilter().isExcluded(annotation.name());
     }
 
     public DTOProcessor getProcessor() {
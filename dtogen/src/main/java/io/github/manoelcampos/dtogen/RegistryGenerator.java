@@ -0,0 +1,293 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generates a registry class that maps each {@link DTO} annotated model class compiled in a module
+ * to its DTO record, enabled by the {@link DTOProcessor#REGISTRY_OPTION}.
+ * It enables converting an arbitrary model object to its DTO without reflection,
+ * such as {@code DTORegistry.toDto(model)}.
+ *
+ * <p>The generated registry dispatches on the model class using a {@link ClassValue},
+ * whose value for each class is computed just once by a {@code switch} on the class name
+ * (including superclasses, so that model subclasses such as JPA proxies are mapped too).
+ * Each mapper is a lambda, so the DTO records are loaded only when the first model of that type is mapped,
+ * instead of when the registry is loaded.</p>
+ *
+ * <p>Since the registry must contain all model classes, it's written once all DTO records were generated,
+ * in the first processing round without new {@link DTO} annotated classes.
+ * All model classes are its originating elements and the processor is handled by Gradle as aggregating
+ * when the registry is enabled (see {@link DTOProcessor#getSupportedOptions()}),
+ * so that an incremental build doesn't write a registry with just the recompiled model classes.</p>
+ * @author Manoel Campos
+ */
+final class RegistryGenerator {
+    /**
+     * The simple name of the registry class when no name is given to the {@link DTOProcessor#REGISTRY_OPTION}.
+     */
+    static final String DEFAULT_NAME = "DTORegistry";
+
+    private static final String MAPPER_TYPE = "java.util.function.Function<Object, DTORecord<?>>";
+
+    private final DTOProcessor processor;
+
+    /**
+     * The fully qualified name of the registry class,
+     * or null to generate the registry with the {@link #DEFAULT_NAME} in the common package of all model classes.
+     */
+    @Nullable
+    private final String configuredName;
+
+    /**
+     * A map where each key is the binary name of a model class (as returned by {@link Class#getName()})
+     * and the value is the fully qualified name of its DTO record.
+     * The map is sorted to generate the same code regardless of the order the model classes are processed.
+     */
+    private final Map<String, String> dtoNamesByModel = new TreeMap<>();
+
+    /**
+     * A map where each key is the binary name of a model class and the value is its canonical name,
+     * used to reference the model class in the generated code.
+     */
+    private final Map<String, String> canonicalNamesByModel = new TreeMap<>();
+
+    /**
+     * The model classes added to the registry, which are the originating elements of the registry class.
+     */
+    private final List<TypeElement> modelTypeElements = new ArrayList<>();
+
+    private boolean written;
+
+    private RegistryGenerator(final DTOProcessor processor, @Nullable final String configuredName) {
+        this.processor = processor;
+        this.configuredName = configuredName;
+    }
+
+    /**
+     * Creates a RegistryGenerator according to the processor options.
+     * @param processor the running processor
+     * @return the new RegistryGenerator or null if the registry is disabled
+     * @see DTOProcessor#REGISTRY_OPTION
+     */
+    @Nullable
+    static RegistryGenerator newInstance(final DTOProcessor processor) {
+        final var value = processor.processingEnv().getOptions().getOrDefault(DTOProcessor.REGISTRY_OPTION, "false").strip();
+        if (value.isEmpty() || value.equalsIgnoreCase("false"))
+            return null;
+
+        return new RegistryGenerator(processor, value.equalsIgnoreCase("true") ? null : value);
+    }
+
+    /**
+     * Adds a model class to the registry.
+     * @param modelTypeElement the model class to add
+     */
+    void add(final TypeElement modelTypeElement) {
+        final var binaryName = processor.processingEnv().getElementUtils().getBinaryName(modelTypeElement).toString();
+        if (written) {
+            final var msg = "%s isn't included into the DTO registry, since it was processed after the registry was generated."
+                    .formatted(modelTypeElement.getQualifiedName());
+            processor.processingEnv().getMessager().printMessage(Diagnostic.Kind.WARNING, msg, modelTypeElement);
+            return;
+        }
+
+        final var packageName = TypeUtil.getPackageName(modelTypeElement);
+        final var recordName = RecordGenerator.getRecordName(modelTypeElement);
+        dtoNamesByModel.put(binaryName, packageName.isBlank() ? recordName : packageName + "." + recordName);
+        canonicalNamesByModel.put(binaryName, modelTypeElement.getQualifiedName().toString());
+        modelTypeElements.add(modelTypeElement);
+    }
+
+    /**
+     * {@return true if there are model classes added to the registry and it was not written yet}
+     */
+    boolean pending() {
+        return !written && !dtoNamesByModel.isEmpty();
+    }
+
+    /**
+     * Writes the registry class file, generated from all the model classes added to it.
+     * If no name was given to the {@link DTOProcessor#REGISTRY_OPTION} and the model classes don't share a package,
+     * an error is reported instead, since the registry would be written into the unnamed package.
+     * @param javaFileWriter the object used to write the file
+     * @return true if the registry was written, false otherwise
+     */
+    boolean write(final JavaFileWriter javaFileWriter) {
+        written = true;
+        final var qualifiedName = qualifiedName();
+        if (TypeUtil.getPackageName(qualifiedName).isEmpty()) {
+            final var msg = ("The model classes don't share a package to generate the %s into. " +
+                             "Give the registry class name as -A%s=com.company.MyRegistry").formatted(DEFAULT_NAME, DTOProcessor.REGISTRY_OPTION);
+            processor.error(modelTypeElements.getFirst(), msg);
+            return false;
+        }
+
+        final var originatingElements = modelTypeElements.toArray(TypeElement[]::new);
+        javaFileWriter.write(TypeUtil.getPackageName(qualifiedName), TypeUtil.getSimpleClassName(qualifiedName), this::render, originatingElements);
+        return true;
+    }
+
+    /**
+     * {@return the fully qualified name of the registry class}
+     * If no name was given to the {@link DTOProcessor#REGISTRY_OPTION},
+     * the registry is placed in the longest package shared by all model classes.
+     * Such a name isn't stable: adding a model class to a package outside the current common one
+     * moves the registry to a parent package (breaking the code using it).
+     * That's why the name should be given when the model classes are spread among many packages.
+     */
+    String qualifiedName() {
+        if (configuredName != null)
+            return configuredName;
+
+        final var packageName = commonPackage();
+        return packageName.isEmpty() ? DEFAULT_NAME : packageName + "." + DEFAULT_NAME;
+    }
+
+    private String commonPackage() {
+        String common = null;
+        for (final String modelName : canonicalNamesByModel.values()) {
+            final var packageName = TypeUtil.getPackageName(modelName);
+            common = common == null ? packageName : commonPackage(common, packageName);
+        }
+
+        return common == null ? "" : common;
+    }
+
+    /**
+     * {@return the longest package that is equal to or a parent of both given packages}
+     */
+    private static String commonPackage(final String package1, final String package2) {
+        final var parts1 = package1.split("\\.");
+        final var parts2 = package2.split("\\.");
+        final var common = new StringBuilder();
+        for (int i = 0; i < Math.min(parts1.length, parts2.length) && parts1[i].equals(parts2[i]); i++)
+            common.append(i == 0 ? "" : ".").append(parts1[i]);
+
+        return common.toString();
+    }
+
+    /**
+     * Renders the registry class source code.
+     * Types are referenced by their fully qualified names, since model classes in different packages may have the same name.
+     * @param code where the code will be written to
+     */
+    void render(final CodeWriter code) {
+        final var qualifiedName = qualifiedName();
+        final var packageName = TypeUtil.getPackageName(qualifiedName);
+        final var className = TypeUtil.getSimpleClassName(qualifiedName);
+        if (!packageName.isBlank())
+            code.line("package ", packageName, ";").newLine();
+
+        if (!packageName.equals(DTORecord.class.getPackageName()))
+            code.line("import ", DTORecord.class.getName(), ";");
+        code.line("import ", RecordGenerator.GENERATED_ANNOTATION, ";").newLine();
+
+        code.line("/**")
+            .javaDocLine("Maps the {@link io.github.manoelcampos.dtogen.DTO} annotated model classes to their DTO records, without reflection.")
+            .javaDocLine("The mapper for each model class is found just once and the DTO record classes are loaded just when first used.")
+            .line(" */")
+            .line("@Generated(value = \"", DTOProcessor.class.getName(), "\", comments = \"DTO registry generated using DTOGen Annotation Processor\")")
+            .line("public final class ", className, " {")
+            .indent();
+
+        renderMappersField(code);
+        code.line("private ", className, "() {/**/}").newLine();
+        renderMapperMethod(code);
+        renderPublicMethods(code);
+        code.unindent().line("}");
+    }
+
+    private void renderMappersField(final CodeWriter code) {
+        code.line("private static final ClassValue<", MAPPER_TYPE, "> MAPPERS = new ClassValue<>() {")
+            .indent()
+            .line("@Override")
+            .line("protected ", MAPPER_TYPE, " computeValue(final Class<?> type) {")
+            .indent()
+            .line("// Superclasses are checked too, so that subclasses of model classes (such as JPA proxies) are mapped")
+            .line("for (Class<?> clazz = type; clazz != null; clazz = clazz.getSuperclass()) {")
+            .indent()
+            .line("final var mapper = mapper(clazz.getName());")
+            .line("if (mapper != null)")
+            .indent().line("return mapper;").unindent()
+            .unindent()
+            .line("}")
+            .newLine()
+            .line("return null;")
+            .unindent()
+            .line("}")
+            .unindent()
+            .line("};")
+            .newLine();
+    }
+
+    private void renderMapperMethod(final CodeWriter code) {
+        code.line("private static ", MAPPER_TYPE, " mapper(final String modelClassName) {")
+            .indent()
+            .line("return switch (modelClassName) {")
+            .indent();
+
+        dtoNamesByModel.forEach((binaryName, dtoName) -> {
+            final var modelName = canonicalNamesByModel.get(binaryName);
+            code.line("case \"", binaryName, "\" -> model -> ", dtoName, ".of((", modelName, ") model);");
+        });
+
+        code.line("default -> null;")
+            .unindent()
+            .line("};")
+            .unindent()
+            .line("}")
+            .newLine();
+    }
+
+    private static void renderPublicMethods(final CodeWriter code) {
+        code.line("/**")
+            .javaDocLine("{@return true if there is a DTO record for a given model class (or any of its superclasses)}")
+            .javaDocLine("@param modelClass the model class to check")
+            .line(" */")
+            .line("public static boolean isRegistered(final Class<?> modelClass) {")
+            .indent().line("return MAPPERS.get(modelClass) != null;").unindent()
+            .line("}")
+            .newLine();
+
+        code.line("/**")
+            .javaDocLine("Converts a model object to its DTO record.")
+            .javaDocLine("@param model the model object to convert")
+            .javaDocLine("@return the DTO record for the model object (or null if the model is null)")
+            .javaDocLine("@param <T> the type of the model object")
+            .javaDocLine("@throws IllegalArgumentException if there is no DTO record for the model class")
+            .line(" */")
+            .line("@SuppressWarnings(\"unchecked\")")
+            .line("public static <T> DTORecord<T> toDto(final T model) {")
+            .indent()
+            .line("if (model == null)")
+            .indent().line("return null;").unindent()
+            .newLine()
+            .line("final var mapper = MAPPERS.get(model.getClass());")
+            .line("if (mapper == null)")
+            .indent().line("throw new IllegalArgumentException(\"There is no DTO record for \" + model.getClass().getName());").unindent()
+            .newLine()
+            .line("return (DTORecord<T>) mapper.apply(model);")
+            .unindent()
+            .line("}")
+            .newLine();
+
+        code.line("/**")
+            .javaDocLine("Converts a DTO record to its model object.")
+            .javaDocLine("Since each DTO record knows its model class, no lookup is required.")
+            .javaDocLine("@param dto the DTO record to convert")
+            .javaDocLine("@return the model object for the DTO record (or null if the DTO is null)")
+            .javaDocLine("@param <T> the type of the model object")
+            .line(" */")
+            .line("public static <T> T toModel(final DTORecord<T> dto) {")
+            .indent().line("return dto == null ? null : dto.toModel();").unindent()
+            .line("}");
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.manoelcampos.dtogen;
+
+import io.github.manoelcampos.dtogen.instantiation.ObjectInstantiation;
+import io.github.manoelcampos.dtogen.util.MethodSize;
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import java.util.HashSet;
+import java.util.Set;
+
+import static io.github.manoelcampos.dtogen.CodeWriter.LN;
+
+/**
+ * Generates a class with the code shared by the DTO records of all subclasses of a model superclass,
+ * to map the fields declared in that superclass.
+ * Since the DTO record for a model class includes the inherited fields, without such a class,
+ * every subclass DTO (such as for entities extending a {@code BaseEntity} with id, version and audit fields)
+ * would repeat the same mapping code. That increases the bytecode size, the metaspace and code cache usage,
+ * and requires the JIT compiler to profile and compile the same code once for each DTO.
+ *
+ * <p>A class named as the superclass with the {@link #NAME_SUFFIX} is generated in the superclass package
+ * for the nearest superclass of a model class that is annotated with {@link DTO} or with {@code @MappedSuperclass}
+ * (such as from JPA), if that superclass is compiled together with the model class. It contains:</p>
+ * <ul>
+ *     <li>a {@code toModel()} method that sets the superclass fields of a model object from the values of a DTO record;</li>
+ *     <li>a method for each {@link DTO.MapToId} field in the superclass, to get the id value of that field from a model object.</li>
+ * </ul>
+ *
+ * <p>Fields whose type is a list of {@link DTO} annotated classes are mapped by each subclass DTO,
+ * since the DTO records of such classes may not be accessible from the superclass package.</p>
+ * @author Manoel Campos
+ */
+final class SharedMappingGenerator {
+    /**
+     * The suffix of the name of the generated class for a superclass.
+     */
+    static final String NAME_SUFFIX = "DTOMapping";
+
+    private static final String MAPPED_SUPERCLASS_ANNOTATION = "MappedSuperclass";
+
+    private final DTOProcessor processor;
+
+    /**
+     * The fully qualified names of the superclasses whose shared mapping classes were already written.
+     */
+    private final Set<String> writtenSuperclasses = new HashSet<>();
+
+    SharedMappingGenerator(final DTOProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * {@return the nearest superclass of a model class whose fields are mapped by a shared mapping class},
+     * or null if there is no such a superclass.
+     * @param processor the running processor
+     * @param modelTypeElement the model class
+     */
+    @Nullable
+    static TypeElement sharedSuperclass(final DTOProcessor processor, final TypeElement modelTypeElement) {
+        for (var type = superclass(modelTypeElement); type != null; type = superclass(type)) {
+            if (isMapped(type))
+                return isShareable(processor, type) ? type : null;
+        }
+
+        return null;
+    }
+
+    @Nullable
+    private static TypeElement superclass(final TypeElement typeElement) {
+        if (!TypeUtil.hasSuperClass(typeElement))
+            return null;
+
+        return typeElement.getSuperclass() instanceof DeclaredType declaredType ? (TypeElement) declaredType.asElement() : null;
+    }
+
+    /**
+     * {@return true if a class is annotated with {@link DTO} or with {@code @MappedSuperclass} (from any package)}
+     */
+    private static boolean isMapped(final TypeElement typeElement) {
+        return AnnotationData.hasAnnotation(typeElement, DTO.class) ||
+               typeElement.getAnnotationMirrors().stream()
+                          .anyMatch(mirror -> mirror.getAnnotationType().asElement().getSimpleName().contentEquals(MAPPED_SUPERCLASS_ANNOTATION));
+    }
+
+    /**
+     * {@return true if a shared mapping class can be generated for a superclass}
+     * That requires the superclass to be a top-level class with some fields,
+     * whose values can be passed as parameters to the shared {@code toModel()} method
+     * (which also receives the DTO record and the model object).
+     * The superclass must also be compiled from the sources of the current compilation,
+     * since the shared mapping class is generated into its package: a superclass from a dependency jar
+     * would have that class generated into every module extending it (splitting the package).
+     * The DTO records of subclasses of other superclasses map the inherited fields by themselves.
+     */
+    private static boolean isShareable(final DTOProcessor processor, final TypeElement superclass) {
+        if (superclass.getEnclosingElement().getKind() != ElementKind.PACKAGE || !processor.isSourceType(superclass))
+            return false;
+
+        final var fields = processor.typeUtil().getClassFields(superclass).toList();
+        // Long and double values take 2 slots, but the types of MapToId fields are not checked, so 2 slots are assumed for every field
+        return !fields.isEmpty() && fields.size() * 2 <= MethodSize.MAX_PARAMETER_SLOTS - 2;
+    }
+
+    /**
+     * {@return the fully qualified name of the shared mapping class for a superclass}
+     * @param superclass the superclass to get the shared mapping class name
+     */
+    static String qualifiedName(final TypeElement superclass) {
+        return superclass.getQualifiedName() + NAME_SUFFIX;
+    }
+
+    /**
+     * Writes the shared mapping class for the superclass of a model class (if there is such a superclass),
+     * unless it was already written.
+     * The superclass is set as the originating element, so that build tools performing incremental annotation processing
+     * regenerate the shared mapping class just when the superclass changes.
+     * @param modelTypeElement the model class to write the shared mapping class for its superclass
+     * @param javaFileWriter the object used to write the file
+     */
+    void write(final TypeElement modelTypeElement, final JavaFileWriter javaFileWriter) {
+        final var superclass = sharedSuperclass(processor, modelTypeElement);
+        if (superclass == null || !writtenSuperclasses.add(superclass.getQualifiedName().toString()))
+            return;
+
+        final var className = superclass.getSimpleName() + NAME_SUFFIX;
+        final var recordGen = new RecordGenerator(processor, superclass, true);
+        javaFileWriter.write(TypeUtil.getPackageName(superclass), className, code -> render(code, recordGen, superclass, className), superclass);
+    }
+
+    /**
+     * Renders the shared mapping class source code.
+     * The code for the methods is generated before writing the imports, since it registers the types to be imported.
+     */
+    private void render(final CodeWriter code, final RecordGenerator recordGen, final TypeElement superclass, final String className) {
+        final var superclassName = superclass.getSimpleName().toString();
+        final var toModelParams = recordGen.fieldStream().map(field -> "final " + recordGen.dtoFieldType(field) + " " + recordGen.dtoFieldName(field)).toList();
+        final var toModelCode = String.join(LN, ObjectInstantiation.newInstance(recordGen, superclass).fieldValues().stream().filter(value -> !value.isBlank()).toList()).stripTrailing();
+        final var accessorFields = recordGen.fieldStream().filter(recordGen::hasSharedAccessor).toList();
+        final var accessorTypes = accessorFields.stream().map(recordGen::dtoFieldType).toList();
+
+        final var packageName = TypeUtil.getPackageName(superclass);
+        if (!packageName.isBlank())
+            code.line("package ", packageName, ";").newLine();
+
+        recordGen.imports().forEach(name -> code.line("import ", name, ";"));
+        code.newLine()
+            .line("/**")
+            .javaDocLine("Maps the fields declared in {@link ", superclassName, "} (including inherited ones) for the DTO records of its subclasses,")
+            .javaDocLine("sharing the mapping code between all of them.")
+            .line(" */")
+            .line("@Generated(value = \"", DTOProcessor.class.getName(), "\", comments = \"Shared mapping code generated using DTOGen Annotation Processor\")")
+            .line("public final class ", className, " {")
+            .indent()
+            .line("private ", className, "() {/**/}")
+            .newLine()
+            .line("/**")
+            .javaDocLine("Sets the fields declared in {@link ", superclassName, "} into a model object, from the values of a DTO record.")
+            .line(" */")
+            .line("public static void toModel(final ", DTORecord.class.getSimpleName(), "<?> dto, final ", superclassName, " model, ", String.join(", ", toModelParams), ") {")
+            .append(toModelCode)
+            .newLine()
+            .line("}");
+
+        for (int i = 0; i < accessorFields.size(); i++) {
+            final var field = accessorFields.get(i);
+            code.newLine()
+                .line("/**")
+                .javaDocLine("{@return the value for the ", recordGen.dtoFieldName(field), " field of a DTO record, from a model object}")
+                .line(" */")
+                .line("public static ", accessorTypes.get(i), " ", recordGen.dtoFieldName(field), "(final ", superclassName, " model) {")
+                .indent()
+                .line("return ", recordGen.dtoConstructorParam(field).strip(), ";")
+                .unindent()
+                .line("}");
+        }
+
+        code.unindent().line("}");
+    }
+}
@@ -0,0 +1,422 @@
+package io.github.manoelcampos.dtogen.cli;
+
+import io.github.manoelcampos.dtogen.DTO;
+import io.github.manoelcampos.dtogen.DTOProcessor;
+
+import javax.annotation.Nullable;
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Generates the DTO records for all {@link DTO} annotated classes inside a source dir,
+ * outside the compilation of the application (such as in a separate CI step).
+ * It runs the {@link DTOProcessor} in javac instances that just parse the sources and process the annotations
+ * ({@code -proc:only}), without generating class files.
+ * Since the DTOs are generated by the same processor, the generated files are exactly the same as when the processor
+ * is attached to the application compilation.
+ *
+ * <p>The source files are partitioned by package among worker threads, each one running its own javac instance
+ * (since the compiler elements aren't thread-safe). The source dir is given as the source path for every instance,
+ * so that classes from packages in other partitions are still found.</p>
+ *
+ * <p>Options making the processor write files into the class output dir (such as {@code -Adtogen.classlist=true})
+ * require a {@code --resources-output} dir, where such files are copied to (since no class output dir is kept).
+ * Options making the processor generate a file from all model classes (such as {@code -Adtogen.registry=true})
+ * require all sources to be processed together, using just 1 thread.</p>
+ *
+ * <p>Usage: {@code java -jar dtogen.jar --source src/main/java --output target/generated-sources/dtogen
+ * [--resources-output target/classes] [--classpath path] [--threads n] [-Adtogen.option=value ...]}.
+ * Add {@code --watch} to keep regenerating the DTOs when the sources change (see {@link WatchMode}).</p>
+ * @author Manoel Campos
+ */
+public final class BatchGenerator {
+    /**
+     * The argument to keep watching the source dir for changes, regenerating the affected DTOs.
+     * @see WatchMode
+     */
+    static final String WATCH_ARG = "--watch";
+
+    private static final String USAGE =
+            "Usage: java -jar dtogen.jar [--watch] --source dir --output dir [--resources-output dir] " +
+            "[--classpath path] [--threads n] [-Adtogen.option=value ...]";
+
+    /**
+     * The processor options making it write files into the class output dir,
+     * which requires the {@link #resourcesOutputDir}.
+     */
+    private static final List<String> CLASS_OUTPUT_OPTIONS = List.of("dtogen.classlist", "dtogen.native.image", "dtogen.stats");
+
+    /**
+     * The processor options making it generate a file from all model classes,
+     * which requires all sources to be processed together (by a single thread).
+     */
+    private static final List<String> AGGREGATING_OPTIONS = List.of("dtogen.registry", "dtogen.classlist", "dtogen.stats");
+
+    private final Path sourceDir;
+    private final Path outputDir;
+
+    /**
+     * The dir where the files written by the processor into the class output dir (such as the class list) are copied to,
+     * or null if no such files are generated.
+     * @see #CLASS_OUTPUT_OPTIONS
+     */
+    @Nullable
+    private final Path resourcesOutputDir;
+
+    private final String classpath;
+    private final int threads;
+
+    /**
+     * The DTOGen options given to the processor, such as {@code -Adtogen.cache.dir=path}.
+     */
+    private final List<String> processorOptions;
+
+    private final PrintStream log;
+
+    /**
+     * Creates a BatchGenerator that doesn't keep the files written by the processor into the class output dir.
+     * @param sourceDir the root dir of the source files to process
+     * @param outputDir the dir where the generated sources will be written to
+     * @param classpath the classpath required to process the source files (the DTOGen jar is included automatically)
+     * @param threads number of worker threads, each one processing a partition of the packages
+     * @param processorOptions the options given to the processor (such as {@code -Adtogen.cache.dir=path})
+     * @param log where the compiler diagnostics are printed to
+     * @throws IllegalArgumentException if the processor options require a resources output dir or a single thread
+     */
+    public BatchGenerator(
+            final Path sourceDir, final Path outputDir, final String classpath, final int threads,
+            final List<String> processorOptions, final PrintStream log)
+    {
+        this(sourceDir, outputDir, null, classpath, threads, processorOptions, log);
+    }
+
+    /**
+     * Creates a BatchGenerator.
+     * @param sourceDir the root dir of the source files to process
+     * @param outputDir the dir where the generated sources will be written to
+     * @param resourcesOutputDir see {@link #resourcesOutputDir}
+     * @param classpath the classpath required to process the source files (the DTOGen jar is included automatically)
+     * @param threads number of worker threads, each one processing a partition of the packages
+     * @param processorOptions the options given to the processor (such as {@code -Adtogen.cache.dir=path})
+     * @param log where the compiler diagnostics are printed to
+     * @throws IllegalArgumentException if the processor options require a resources output dir or a single thread
+     */
+    public BatchGenerator(
+            final Path sourceDir, final Path outputDir, @Nullable final Path resourcesOutputDir, final String classpath,
+            final int threads, final List<String> processorOptions, final PrintStream log)
+    {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1");
+
+        this.sourceDir = Objects.requireNonNull(sourceDir);
+        this.outputDir = Objects.requireNonNull(outputDir);
+        this.resourcesOutputDir = resourcesOutputDir;
+        this.classpath = Objects.requireNonNull(classpath);
+        this.threads = threads;
+        this.processorOptions = List.copyOf(processorOptions);
+        this.log = Objects.requireNonNull(log);
+        for (final String option : AGGREGATING_OPTIONS) {
+            if (threads > 1 && optionEnabled(option))
+                throw new IllegalArgumentException("-A%s requires all the sources to be processed together, using just 1 thread".formatted(option));
+        }
+
+        for (final String option : CLASS_OUTPUT_OPTIONS) {
+            if (resourcesOutputDir == null && optionEnabled(option))
+                throw new IllegalArgumentException("-A%s writes files into the class output dir, which requires a --resources-output dir".formatted(option));
+        }
+    }
+
+    /**
+     * {@return true if the processor generates some file from all model classes (such as the DTO registry)},
+     * so that all the model classes must be processed to generate such a file.
+     */
+    boolean aggregating() {
+        return AGGREGATING_OPTIONS.stream().anyMatch(this::optionEnabled);
+    }
+
+    /**
+     * {@return true if a processor option is given with a value other than false}
+     * @param option the name of the option (without the -A prefix)
+     */
+    boolean optionEnabled(final String option) {
+        final var prefix = "-A" + option + "=";
+        return processorOptions.stream()
+                               .filter(arg -> arg.startsWith(prefix))
+                               .map(arg -> arg.substring(prefix.length()).strip())
+                               .reduce((first, last) -> last)
+                               .filter(value -> !value.isEmpty() && !value.equalsIgnoreCase("false"))
+                               .isPresent();
+    }
+
+    public static void main(final String[] args) {
+        final var argList = new ArrayList<>(List.of(args));
+        final boolean watch = argList.remove(WATCH_ARG);
+        try {
+            final var generator = newInstance(argList.toArray(String[]::new));
+            if (watch) {
+                try (var watchMode = new WatchMode(generator)) {
+                    watchMode.run();
+                }
+                return;
+            }
+
+            System.exit(generator.generate() ? 0 : 1);
+        } catch (final IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (final IOException e) {
+            System.err.println("Error generating the DTOs: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Creates a BatchGenerator from command line arguments.
+     * @param args the command line arguments
+     * @return the new BatchGenerator
+     * @throws IllegalArgumentException if the arguments are invalid
+     */
+    static BatchGenerator newInstance(final String[] args) {
+        Path sourceDir = null;
+        Path outputDir = null;
+        Path resourcesOutputDir = null;
+        String classpath = "";
+        int threads = Runtime.getRuntime().availableProcessors();
+        final var processorOptions = new ArrayList<String>();
+        for (int i = 0; i < args.length; i++) {
+            final var arg = args[i];
+            if (arg.startsWith("-A")) {
+                processorOptions.add(arg);
+                continue;
+            }
+
+            if (i == args.length - 1)
+                throw new IllegalArgumentException("Missing value for " + arg);
+
+            final var value = args[++i];
+            switch (arg) {
+                case "--source" -> sourceDir = Path.of(value);
+                case "--output" -> outputDir = Path.of(value);
+                case "--resources-output" -> resourcesOutputDir = Path.of(value);
+                case "--classpath", "-cp" -> classpath = value;
+                case "--threads" -> threads = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+
+        if (sourceDir == null || outputDir == null)
+            throw new IllegalArgumentException("The source and output dirs are required");
+
+        return new BatchGenerator(sourceDir, outputDir, resourcesOutputDir, classpath, threads, processorOptions, System.err);
+    }
+
+    /**
+     * Generates the DTO records for all source files inside the {@link #sourceDir}.
+     * @return true if the DTOs were generated successfully, false if any error was reported
+     * @throws IOException when the source files cannot be read or the generated ones cannot be written
+     */
+    public boolean generate() throws IOException {
+        try (Stream<Path> paths = Files.walk(sourceDir)) {
+            return generate(paths.filter(path -> path.toString().endsWith(".java") && Files.isRegularFile(path)).toList());
+        }
+    }
+
+    /**
+     * Generates the DTO records for some source files inside the {@link #sourceDir}.
+     * @param sourceFiles the source files to process
+     * @return true if the DTOs were generated successfully, false if any error was reported
+     * @throws IOException when the source files cannot be read or the generated ones cannot be written
+     */
+    public boolean generate(final Collection<Path> sourceFiles) throws IOException {
+        return generate(sourceFiles, new HashSet<>());
+    }
+
+    /**
+     * Generates the DTO records for some source files inside the {@link #sourceDir}.
+     * @param sourceFiles the source files to process
+     * @param generatedFiles a set to add the files written into the {@link #outputDir} to
+     * @return true if the DTOs were generated successfully, false if any error was reported
+     * @throws IOException when the source files cannot be read or the generated ones cannot be written
+     */
+    boolean generate(final Collection<Path> sourceFiles, final Set<Path> generatedFiles) throws IOException {
+        final var partitions = partitionByPackage(sourceFiles, threads);
+        if (partitions.isEmpty())
+            return true;
+
+        final var workDir = Files.createTempDirectory("dtogen-batch");
+        try (var executor = Executors.newFixedThreadPool(Math.min(threads, partitions.size()))) {
+            final var futures = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < partitions.size(); i++) {
+                final var partitionDir = workDir.resolve("partition" + i);
+                final var partition = partitions.get(i);
+                futures.add(executor.submit(() -> process(partition, partitionDir)));
+            }
+
+            boolean success = true;
+            for (final var future : futures)
+                success &= future.get();
+
+            // Each partition writes to its own dir, then files are merged (such as the DTORecord interface written by all of them)
+            for (int i = 0; i < partitions.size(); i++) {
+                final var partitionDir = workDir.resolve("partition" + i);
+                generatedFiles.addAll(copyFiles(partitionDir.resolve("sources"), outputDir));
+                if (resourcesOutputDir != null)
+                    copyFiles(partitionDir.resolve("classes"), resourcesOutputDir);
+            }
+
+            return success;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException)
+                throw ioException;
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    Path sourceDir() {
+        return sourceDir;
+    }
+
+    Path outputDir() {
+        return outputDir;
+    }
+
+    PrintStream log() {
+        return log;
+    }
+
+    /**
+     * Partitions source files by package, balancing the number of files in each partition.
+     * All the files from a package are placed in the same partition.
+     * @param sourceFiles the source files to partition
+     * @param maxPartitions the maximum number of partitions
+     * @return the list of partitions, each one containing a list of source files
+     */
+    static List<List<Path>> partitionByPackage(final Collection<Path> sourceFiles, final int maxPartitions) {
+        final var filesByPackage = new TreeMap<>(sourceFiles.stream().collect(groupingBy(file -> String.valueOf(file.toAbsolutePath().getParent()))));
+        final var partitions = new ArrayList<List<Path>>();
+        for (int i = 0; i < Math.min(maxPartitions, filesByPackage.size()); i++)
+            partitions.add(new ArrayList<>());
+
+        // Assigns the largest packages first, always to the partition with fewer files
+        final var packages = new ArrayList<>(filesByPackage.values());
+        packages.sort(Comparator.comparingInt(List<Path>::size).reversed());
+        for (final var packageFiles : packages) {
+            final var smallest = partitions.stream().min(Comparator.comparingInt(List::size)).orElseThrow();
+            smallest.addAll(packageFiles);
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Processes a partition of the source files with a javac instance running the {@link DTOProcessor}.
+     * @param sourceFiles the source files in the partition
+     * @param partitionDir the dir where the partition output is written to
+     * @return true if no error was reported, false otherwise
+     */
+    private boolean process(final List<Path> sourceFiles, final Path partitionDir) throws IOException {
+        final var compiler = Objects.requireNonNull(ToolProvider.getSystemJavaCompiler(), "A JDK is required to generate the DTOs");
+        final var classOutput = Files.createDirectories(partitionDir.resolve("classes"));
+        final var sourceOutput = Files.createDirectories(partitionDir.resolve("sources"));
+
+        final var options = new ArrayList<>(List.of(
+                "-proc:only", "-implicit:none",
+                "-sourcepath", sourceDir.toString(), "-cp", fullClasspath(),
+                "-d", classOutput.toString(), "-s", sourceOutput.toString()));
+
+        options.addAll(processorOptions);
+
+        final var diagnostics = new DiagnosticCollector<JavaFileObject>();
+        try (var fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            final var task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromPaths(sourceFiles));
+            task.setProcessors(List.of(new DTOProcessor()));
+            final boolean success = task.call();
+            printDiagnostics(diagnostics.getDiagnostics());
+            return success;
+        }
+    }
+
+    /**
+     * {@return the classpath including the DTOGen jar, required to find the {@link DTO} annotation}
+     * If the location the DTOGen classes were loaded from is unknown (such as when they are loaded by some custom class loaders),
+     * just the given classpath is returned.
+     */
+    private String fullClasspath() {
+        final var codeSource = DTO.class.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null)
+            return classpath;
+
+        try {
+            final var dtogenPath = Path.of(codeSource.getLocation().toURI()).toString();
+            return classpath.isBlank() ? dtogenPath : classpath + File.pathSeparator + dtogenPath;
+        } catch (final URISyntaxException e) {
+            return classpath;
+        }
+    }
+
+    private void printDiagnostics(final List<Diagnostic<? extends JavaFileObject>> diagnostics) {
+        synchronized (log) {
+            for (final var diagnostic : diagnostics) {
+                final var source = diagnostic.getSource() == null ? "" : diagnostic.getSource().getName() + ":" + diagnostic.getLineNumber() + ": ";
+                log.println(diagnostic.getKind() + ": " + source + diagnostic.getMessage(Locale.getDefault()));
+            }
+        }
+    }
+
+    /**
+     * Copies the files generated for a partition into an output dir.
+     * @param partitionDir the dir where the files for a partition were generated
+     * @param targetDir the dir to copy the files to, keeping their paths relative to the partition dir
+     * @return the copied files inside the target dir
+     */
+    private static List<Path> copyFiles(final Path partitionDir, final Path targetDir) throws IOException {
+        final var copiedFiles = new ArrayList<Path>();
+        try (Stream<Path> paths = Files.walk(partitionDir)) {
+            for (final var file : paths.filter(Files::isRegularFile).toList()) {
+                final var target = targetDir.resolve(partitionDir.relativize(file).toString());
+                Files.createDirectories(target.getParent());
+                copiedFiles.add(Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING));
+            }
+        }
+
+        return copiedFiles;
+    }
+
+    private static void deleteRecursively(final Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package io.github.manoelcampos.dtogen.cli;
+
+import io.github.manoelcampos.dtogen.DTO;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches a source dir for changes and regenerates just the DTO records affected by each change,
+ * giving fast feedback during development, instead of requiring a full build after each model change.
+ * It uses a {@link BatchGenerator}, whose compiler classes stay loaded and optimized by the JVM
+ * between regenerations, and reports the latency of each one.
+ *
+ * <p>The DTO record for a model class depends on the model class itself, its superclasses
+ * and the types referenced by its fields (such as {@link DTO.MapToId} and {@code List<@DTO>} fields).
+ * Since the source files are just indexed (not compiled) to find such dependencies,
+ * a model is considered affected by a change whenever its source references (directly or transitively)
+ * the name of a changed type. That may regenerate a few more DTOs than strictly needed, but never less.</p>
+ *
+ * <p>When the processor generates files from all model classes (such as with {@code -Adtogen.registry=true}),
+ * all DTOs are regenerated after each change that affects some model, so that such files include every model class
+ * (the unchanged DTOs are usually taken from the generation cache) and the previously generated files that aren't generated
+ * anymore are deleted. Shared mapping classes generated for superclasses
+ * are deleted when no DTO uses them anymore, such as after their last subclass is deleted.</p>
+ *
+ * <p>Usage: {@code java -jar dtogen.jar --watch --source src/main/java --output target/generated-sources/dtogen}</p>
+ * @author Manoel Campos
+ */
+public final class WatchMode implements Closeable {
+    private static final String JAVA_EXTENSION = ".java";
+
+    /**
+     * The suffix of the name of the shared mapping classes generated for the superclasses of model classes.
+     */
+    private static final String SHARED_MAPPING_SUFFIX = "DTOMapping";
+
+    /**
+     * Matches a {@link DTO} annotation (but not the nested annotations such as {@link DTO.MapToId}).
+     */
+    private static final Pattern DTO_ANNOTATION = Pattern.compile("@(?:io\\.github\\.manoelcampos\\.dtogen\\.)?DTO(?![.\\w])");
+
+    /**
+     * Matches a {@code @MappedSuperclass} annotation (from any package, such as from JPA).
+     */
+    private static final Pattern MAPPED_SUPERCLASS_ANNOTATION = Pattern.compile("@(?:[\\w.]+\\.)?MappedSuperclass(?![.\\w])");
+
+    /**
+     * Matches a class declaration extending another class, capturing the simple name of the superclass.
+     */
+    private static final Pattern SUPERCLASS = Pattern.compile("\\bclass\\s+[A-Za-z_$][\\w$]*\\s*(?:<[^{]*?>)?\\s*extends\\s+(?:[\\w$]+\\.)*([A-Za-z_$][\\w$]*)");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][\\w$]*");
+
+    /**
+     * Time to wait for more changes after one is detected, since editors and build tools usually change many files at once.
+     */
+    private static final long DEBOUNCE_MILLIS = 50;
+
+    private final BatchGenerator generator;
+    private final Path sourceDir;
+    private final Path outputDir;
+    private final PrintStream log;
+    private final WatchService watchService;
+
+    /**
+     * A map where each key is a source file and the value has the information extracted from it.
+     */
+    private final Map<Path, SourceInfo> sourceIndex = new HashMap<>();
+
+    /**
+     * Information extracted from a source file.
+     * @param model indicates if the file declares a {@link DTO} annotated class
+     * @param mapped indicates if the file declares a class whose fields are mapped by a shared mapping class
+     *               for its subclasses, which is a {@link DTO} or {@code @MappedSuperclass} annotated class
+     * @param superclass the simple name of the superclass of the class declared in the file (or null if it doesn't extend any class)
+     * @param identifiers the identifiers found in the file, including the names of the referenced types
+     */
+    private record SourceInfo(boolean model, boolean mapped, @Nullable String superclass, Set<String> identifiers) {}
+
+    /**
+     * Creates a WatchMode.
+     * @param generator the generator used to regenerate the DTOs, which defines the source and output dirs
+     * @throws IOException when the watch service cannot be created
+     */
+    public WatchMode(final BatchGenerator generator) throws IOException {
+        this.generator = Objects.requireNonNull(generator);
+        this.sourceDir = generator.sourceDir();
+        this.outputDir = generator.outputDir();
+        this.log = generator.log();
+        this.watchService = sourceDir.getFileSystem().newWatchService();
+    }
+
+    /**
+     * Generates all the DTOs and then keeps regenerating the ones affected by the changes in the source dir,
+     * until the thread is interrupted or the WatchMode is closed.
+     * @throws IOException when the source dir cannot be watched or the DTOs cannot be generated
+     */
+    public void run() throws IOException {
+        final long start = System.nanoTime();
+        final var sourceFiles = start();
+        log.printf("DTOGen generated DTOs for %d source file(s) in %d ms. Watching %s for changes...%n",
+                   sourceFiles, elapsedMillis(start), sourceDir);
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final var changedFiles = takeChanges();
+                if (!changedFiles.isEmpty())
+                    regenerate(changedFiles);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ClosedWatchServiceException e) {
+            // The WatchMode was closed, finishing the loop
+        }
+    }
+
+    /**
+     * Indexes the source files, registers the dirs to be watched and generates all the DTOs.
+     * @return the number of source files found
+     */
+    int start() throws IOException {
+        registerDirs(sourceDir);
+        final List<Path> sourceFiles;
+        try (Stream<Path> paths = Files.walk(sourceDir)) {
+            sourceFiles = paths.filter(WatchMode::isSourceFile).toList();
+        }
+
+        for (final var file : sourceFiles)
+            index(file);
+
+        generator.generate(sourceFiles);
+        return sourceFiles.size();
+    }
+
+    /**
+     * Regenerates the DTOs affected by some changed files and reports the latency.
+     * @param changedFiles the source files that were created, modified or deleted
+     * @return the model files whose DTOs were regenerated
+     */
+    Set<Path> regenerate(final Set<Path> changedFiles) throws IOException {
+        final long start = System.nanoTime();
+        final boolean modelRemoved = changedFiles.stream().anyMatch(file -> !Files.exists(file) && isModel(file));
+        // Found before reindexing, to include the superclasses of deleted files and superclasses that aren't extended anymore
+        final var changedSuperclasses = changedSuperclasses(changedFiles);
+        changedFiles.forEach(this::reindex);
+        deleteDtosOfRemovedModels(changedFiles);
+
+        final var affectedModels = affectedModels(changedFiles);
+        final boolean regenerateAll = generator.aggregating() && (modelRemoved || !affectedModels.isEmpty());
+        final var models = regenerateAll ? allModels() : affectedModels;
+        final var generatedFiles = new HashSet<Path>();
+        final boolean success = models.isEmpty() || generator.generate(models, generatedFiles);
+        if (regenerateAll && success)
+            deleteFilesNotGenerated(generatedFiles);
+        deleteUnusedSharedMappings(changedSuperclasses);
+        log.printf("DTOGen regenerated %d DTO(s) for %d changed file(s) in %d ms%s%n",
+                   models.size(), changedFiles.size(), elapsedMillis(start), success ? "" : " (with errors)");
+        return models;
+    }
+
+    private boolean isModel(final Path file) {
+        final var info = sourceIndex.get(file);
+        return info != null && info.model();
+    }
+
+    /**
+     * {@return all the model files in the index}
+     */
+    private Set<Path> allModels() {
+        final var models = new TreeSet<Path>();
+        sourceIndex.forEach((file, info) -> {
+            if (info.model())
+                models.add(file);
+        });
+
+        return models;
+    }
+
+    /**
+     * {@return the model files whose DTOs are affected by some changed files}
+     * These are the changed model files and the model files referencing (directly or transitively)
+     * the types declared in any changed file.
+     * @param changedFiles the source files that were created, modified or deleted
+     */
+    Set<Path> affectedModels(final Collection<Path> changedFiles) {
+        final var affected = new TreeSet<Path>();
+        final var changedTypes = new ArrayDeque<String>();
+        final var visitedTypes = new HashSet<String>();
+        for (final var file : changedFiles) {
+            if (isModel(file))
+                affected.add(file);
+            changedTypes.add(typeName(file));
+        }
+
+        while (!changedTypes.isEmpty()) {
+            final var typeName = changedTypes.poll();
+            if (!visitedTypes.add(typeName))
+                continue;
+
+            sourceIndex.forEach((file, info) -> {
+                if (info.identifiers().contains(typeName) && !typeName.equals(typeName(file))) {
+                    if (info.model())
+                        affected.add(file);
+                    changedTypes.add(typeName(file));
+                }
+            });
+        }
+
+        return affected;
+    }
+
+    /**
+     * Waits for changes in the source dir.
+     * @return the changed source files (which may be empty if just dirs or non-source files changed)
+     */
+    private Set<Path> takeChanges() throws InterruptedException, IOException {
+        final var changedFiles = new HashSet<Path>();
+        WatchKey key = watchService.take();
+        while (key != null) {
+            final var dir = (Path) key.watchable();
+            for (final var event : key.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    // Some events were lost, so all the files are considered changed
+                    try (Stream<Path> paths = Files.walk(sourceDir)) {
+                        paths.filter(WatchMode::isSourceFile).forEach(changedFiles::add);
+                    }
+                    continue;
+                }
+
+                final var path = dir.resolve((Path) event.context());
+                if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                    registerDirs(path);
+                    try (Stream<Path> paths = Files.walk(path)) {
+                        paths.filter(WatchMode::isSourceFile).forEach(changedFiles::add);
+                    }
+                } else if (path.toString().endsWith(JAVA_EXTENSION)) {
+                    changedFiles.add(path);
+                }
+            }
+
+            key.reset();
+            key = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        return changedFiles;
+    }
+
+    private void registerDirs(final Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (final var subDir : paths.filter(Files::isDirectory).toList())
+                subDir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        }
+    }
+
+    /**
+     * Updates the index for a changed file, removing it if the file was deleted.
+     */
+    private void reindex(final Path file) {
+        if (isSourceFile(file))
+            index(file);
+        else sourceIndex.remove(file);
+    }
+
+    private void index(final Path file) {
+        try {
+            final var code = Files.readString(file);
+            final var identifiers = new HashSet<String>();
+            final var matcher = IDENTIFIER.matcher(code);
+            while (matcher.find())
+                identifiers.add(matcher.group());
+
+            final boolean model = DTO_ANNOTATION.matcher(code).find();
+            final boolean mapped = model || MAPPED_SUPERCLASS_ANNOTATION.matcher(code).find();
+            final var superclassMatcher = SUPERCLASS.matcher(code);
+            final var superclass = superclassMatcher.find() ? superclassMatcher.group(1) : null;
+            sourceIndex.put(file, new SourceInfo(model, mapped, superclass, identifiers));
+        } catch (final IOException e) {
+            // The file may have been deleted or be being written, so it's indexed again when the next change is detected
+            sourceIndex.remove(file);
+        }
+    }
+
+    /**
+     * Deletes the DTO records generated for deleted source files.
+     */
+    private void deleteDtosOfRemovedModels(final Set<Path> changedFiles) throws IOException {
+        for (final var file : changedFiles) {
+            if (Files.exists(file))
+                continue;
+
+            final var relativeDir = sourceDir.relativize(file.getParent());
+            Files.deleteIfExists(outputDir.resolve(relativeDir).resolve(typeName(file) + DTO.class.getSimpleName() + JAVA_EXTENSION));
+        }
+    }
+
+    /**
+     * Deletes the files in the output dir that weren't generated when all models were processed,
+     * such as a registry class previously written into a package that isn't the common package of all models anymore.
+     * @param generatedFiles the files generated for all models
+     */
+    private void deleteFilesNotGenerated(final Set<Path> generatedFiles) throws IOException {
+        try (Stream<Path> paths = Files.walk(outputDir)) {
+            for (final var file : paths.filter(WatchMode::isSourceFile).toList()) {
+                if (!generatedFiles.contains(file))
+                    Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * {@return the source files whose shared mapping classes may not be used anymore after some files change}
+     * These are the changed files themselves and their superclasses (as indexed before the change).
+     * @param changedFiles the source files that were created, modified or deleted
+     */
+    private Set<Path> changedSuperclasses(final Set<Path> changedFiles) {
+        final var filesByTypeName = filesByTypeName();
+        final var superclasses = new HashSet<>(changedFiles);
+        changedFiles.forEach(file -> superclasses.addAll(superclassFiles(file, filesByTypeName, false)));
+        return superclasses;
+    }
+
+    /**
+     * Deletes the shared mapping classes that aren't used by any DTO anymore,
+     * such as when the last subclass of a superclass was deleted or the superclass isn't mapped anymore.
+     * Just the mapping classes of the given superclasses are checked, using the source index
+     * (instead of reading the generated files): a mapping class is used if its superclass is
+     * the nearest mapped superclass of some model.
+     * @param superclasses the source files of the superclasses whose mapping classes may not be used anymore
+     * @see #changedSuperclasses(Set)
+     */
+    private void deleteUnusedSharedMappings(final Set<Path> superclasses) throws IOException {
+        final var filesByTypeName = filesByTypeName();
+        final var usedSuperclasses = new HashSet<Path>();
+        sourceIndex.forEach((file, info) -> {
+            if (info.model())
+                usedSuperclasses.addAll(superclassFiles(file, filesByTypeName, true));
+        });
+
+        for (final var superclass : superclasses) {
+            if (!usedSuperclasses.contains(superclass)) {
+                final var relativeDir = sourceDir.relativize(superclass.getParent());
+                Files.deleteIfExists(outputDir.resolve(relativeDir).resolve(typeName(superclass) + SHARED_MAPPING_SUFFIX + JAVA_EXTENSION));
+            }
+        }
+    }
+
+    /**
+     * {@return the source files of the superclasses of the class declared in a file}
+     * Since superclasses are found by their simple names, when many files declare types with the same name,
+     * all of them are considered, so that a shared mapping class in use is never taken as unused.
+     * @param file the source file to get the superclasses of the declared class
+     * @param filesByTypeName the indexed source files for each type name
+     * @param nearestMapped true to get just the nearest superclass that is mapped (the one whose shared mapping class
+     *                      is used by the DTO for the class in the file); false to get all superclasses
+     */
+    private Set<Path> superclassFiles(final Path file, final Map<String, List<Path>> filesByTypeName, final boolean nearestMapped) {
+        final var superclasses = new HashSet<Path>();
+        final var visited = new HashSet<>(Set.of(file));
+        final var pending = new ArrayDeque<>(List.of(file));
+        while (!pending.isEmpty()) {
+            final var info = sourceIndex.get(pending.poll());
+            if (info == null || info.superclass() == null)
+                continue;
+
+            for (final var superclass : filesByTypeName.getOrDefault(info.superclass(), List.of())) {
+                if (!visited.add(superclass))
+                    continue;
+
+                final var superclassInfo = sourceIndex.get(superclass);
+                final boolean mapped = superclassInfo != null && superclassInfo.mapped();
+                if (!nearestMapped || mapped)
+                    superclasses.add(superclass);
+                if (!nearestMapped || !mapped)
+                    pending.add(superclass);
+            }
+        }
+
+        return superclasses;
+    }
+
+    /**
+     * {@return a map where each key is a type name and the value is the indexed source files declaring such a type}
+     */
+    private Map<String, List<Path>> filesByTypeName() {
+        final var filesByTypeName = new HashMap<String, List<Path>>();
+        sourceIndex.keySet().forEach(file -> filesByTypeName.computeIfAbsent(typeName(file), name -> new ArrayList<>()).add(file));
+        return filesByTypeName;
+    }
+
+    /**
+     * {@return the name of the top-level type declared in a source file, which is the file name without extension}
+     */
+    private static String typeName(final Path file) {
+        final var fileName = file.getFileName().toString();
+        return fileName.substring(0, fileName.length() - JAVA_EXTENSION.length());
+    }
+
+    private static boolean isSourceFile(final Path path) {
+        return path.toString().endsWith(JAVA_EXTENSION) && Files.isRegularFile(path);
+    }
+
+    private static long elapsedMillis(final long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -4,14 +4,17 @@ import io.github.manoelcampos.dtogen.AnnotationData;
 import io.github.manoelcampos.dtogen.DTO;
 import io.github.manoelcampos.dtogen.RecordGenerator;
 import io.github.manoelcampos.dtogen.util.AccessorMethod;
-import io.github.manoelcampos.dtogen.util.TypeUtil;
+import io.github.manoelcampos.dtogen.util.MethodSize;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import java.util.List;
 import java.util.stream.Stream;
 
+import static io.github.manoelcampos.dtogen.CodeWriter.LN;
 import static io.github.manoelcampos.dtogen.util.AccessorMethod.AccessorType;
+import static java.util.stream.Collectors.joining;
 
 /**
  * Generates the code to instantiate a class.
@@ -20,21 +23,45 @@ import static io.github.manoelcampos.dtogen.util.AccessorMethod.AccessorType;
  */
 public final class ClassInstantiation extends ObjectInstantiation {
     ClassInstantiation(final RecordGenerator recordGen) {
-        super(recordGen, "%n");
+        super(recordGen, LN);
     }
 
     @Override
     protected String constructorCall(final String fieldValues) {
-        return CODE_TEMPLATE.formatted(recordGen.getModelTypeName(), METHOD_CALL_CLOSING, fieldValues);
+        return constructorCall(recordGen.getModelTypeName(), METHOD_CALL_CLOSING, fieldValues);
+    }
+
+    /**
+     * {@inheritDoc}
+     * If the estimated size of the setter calls exceeds the split threshold,
+     * they are split into helper methods small enough to be inlined by the JIT compiler.
+     * @param fieldValues {@inheritDoc}
+     * @return {@inheritDoc}
+     * @see MethodSize
+     */
+    @Override
+    protected String constructorCall(final List<String> fieldValues) {
+        final String code = String.join(LN, fieldValues);
+        if (MethodSize.estimate(code) <= recordGen.getProcessor().splitThreshold())
+            return constructorCall(code);
+
+        final var setterCalls = fieldValues.stream().filter(value -> !value.isBlank()).toList();
+        final String helperCalls =
+                MethodSize.chunk(setterCalls, MethodSize::estimate, MethodSize.INLINE_SIZE_LIMIT)
+                          .stream()
+                          .map(chunk -> "        " + recordGen.addToModelHelper(String.join(LN, chunk)) + "(model, mappingContext);")
+                          .collect(joining(LN));
+
+        return constructorCall(helperCalls);
     }
 
     @Override
     protected String newObjectInternal(final Element fieldClass, final String idFieldValue, final Stream<VariableElement> __) {
         // Class to be instantiated (the class of the field to assign the new object to)
-        final var classTypeName = fieldClass.getSimpleName().toString();
-        final var setter = TypeUtil.getPublicMethod(fieldClass, "setId");
-        final var fieldAssignment = (setter.isPresent() ? "setId(%s)" : "id = %s").formatted(idFieldValue);
-        return " newObject(%s, () -> { var o = new %s(); o.%s; return o; })".formatted(idFieldValue, classTypeName, fieldAssignment);
+        final var classTypeName = recordGen.useType((TypeElement) fieldClass);
+        final var setter = typeUtil.getPublicMethod((TypeElement) fieldClass, "setId");
+        final var fieldAssignment = setter.isPresent() ? "setId(" + idFieldValue + ")" : "id = " + idFieldValue;
+        return " " + recordGen.newObjectMethod() + "(" + idFieldValue + ", () -> { var o = new " + classTypeName + "(); o." + fieldAssignment + "; return o; })";
     }
 
     /**
@@ -52,16 +79,24 @@ public final class ClassInstantiation extends ObjectInstantiation {
         }
 
         final var accessor = new AccessorMethod(typeUtil, sourceField, AccessorType.SETTER);
-        // Calls the setter of assign the field directly if there is no setter
-        final var fieldAccess = "          model." + (accessor.existing() ? "%s(%s)" : "%s = %s") + ";";
         if(sourceFieldAnnotatedWithMapToId && !accessor.isPrimitiveField()) {
             final String newObjectCall = newObject(sourceField, fieldValue);
 
             // Instantiates an object of the type of the model field so that the id can be set
-            return fieldAccess.formatted(accessor.methodOrField(), newObjectCall) + "%n";
+            return fieldAccess(accessor, newObjectCall) + LN;
         }
 
-        return fieldAccess.formatted(accessor.methodOrField(), fieldValue);
+        return fieldAccess(accessor, fieldValue);
+    }
+
+    /**
+     * {@return the code to call the setter of a field or assign the field directly if there is no setter}
+     * @param accessor the setter for the field
+     * @param value the value to give to the field
+     */
+    private static String fieldAccess(final AccessorMethod accessor, final String value) {
+        final var access = accessor.existing() ? "(" + value + ")" : " = " + value;
+        return "          model." + accessor.methodOrField() + access + ";";
     }
 
     /**
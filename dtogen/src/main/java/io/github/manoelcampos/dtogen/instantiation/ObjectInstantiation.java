@@ -11,9 +11,12 @@ import javax.annotation.Nullable;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.stream.Stream;
 
+import static io.github.manoelcampos.dtogen.CodeWriter.LN;
 import static io.github.manoelcampos.dtogen.util.FieldUtil.isNotIdField;
 import static java.util.stream.Collectors.joining;
 
@@ -25,11 +28,6 @@ import static java.util.stream.Collectors.joining;
  * @see #newInstance(RecordGenerator, TypeElement)
  */
 public abstract sealed class ObjectInstantiation permits ClassInstantiation, RecordInstantiation{
-    protected static final String CODE_TEMPLATE =
-                         """
-                                 final var model = new %s(%s
-                         %s
-                                 return model;""";
     protected static final String METHOD_CALL_CLOSING = ");";
 
     /**
@@ -66,13 +64,36 @@ public abstract sealed class ObjectInstantiation permits ClassInstantiation, Rec
      * @see #recordGen
      */
     public final String generate(){
+        return constructorCall(fieldValues());
+    }
+
+    /**
+     * {@return the values for the attributes of the object to be instantiated}
+     * Depending on whether the object is a record or class, each value is given to the constructor or to a setter call.
+     * If the object is a class whose superclass has a shared mapping class, the first value is the call to that class,
+     * which sets the superclass fields.
+     * @see RecordGenerator#sharedToModelCall()
+     */
+    public final List<String> fieldValues(){
+        final var fieldValues = new ArrayList<String>();
+        recordGen.sharedToModelCall().ifPresent(fieldValues::add);
+
         // Gets all fields in the model class to allow instantiating it (including fields annotated with @DTO.Ignore)
-        final String fieldValues =
-                recordGen.allFieldsStream()
-                         .map(this::generateFieldValue)
-                         .collect(joining(fieldDelimiter));
+        recordGen.allFieldsStream()
+                 .filter(field -> !recordGen.isSharedField(field))
+                 .map(this::generateFieldValue)
+                 .forEach(fieldValues::add);
 
-        return constructorCall(fieldValues);
+        return fieldValues;
+    }
+
+    /**
+     * Generates the actual code to call a constructor to instantiate a model object.
+     * @param fieldValues the values for each object attribute
+     * @return the generated constructor call code
+     */
+    protected String constructorCall(final List<String> fieldValues) {
+        return constructorCall(String.join(fieldDelimiter, fieldValues));
     }
 
     /**
@@ -112,15 +133,12 @@ public abstract sealed class ObjectInstantiation permits ClassInstantiation, Rec
         if(FieldUtil.isFieldExcluded(sourceField))
             return excludedFieldValue(sourceField);
 
-        final var sourceFieldName = FieldUtil.getFieldName(sourceField);
-        final var genericTypeArg = recordGen.getFirstGenericTypeArgAnnotatedWithDTO(sourceField);
+        final var sourceFieldName = recordGen.dtoFieldReference(sourceField, FieldUtil.getFieldName(sourceField));
         final boolean notPrimitive = !FieldUtil.isPrimitive(sourceField);
-        if (genericTypeArg.isBlank()) {
-            return "%s%s".formatted(sourceFieldName, sourceFieldHasMapToId && notPrimitive ? "Id" : "");
-        }
 
-        // Generates a stream chain to map a DTO object to a Model
-        return "%s.stream().map(%s::toModel).toList()".formatted(sourceFieldName, genericTypeArg + DTO.class.getSimpleName());
+        // Maps the DTO items (if any) to model items
+        return recordGen.dtoItemsToModel(sourceField, sourceFieldName)
+                        .orElseGet(() -> sourceFieldHasMapToId && notPrimitive ? sourceFieldName + "Id" : sourceFieldName);
     }
 
     /**
@@ -139,6 +157,17 @@ public abstract sealed class ObjectInstantiation permits ClassInstantiation, Rec
      */
     protected abstract String constructorCall(String fieldValues);
 
+    /**
+     * {@return the code to instantiate a model object and return it}
+     * The object is stored into the {@link io.github.manoelcampos.dtogen.MappingContext} passed to the {@code toModel()} method (if any).
+     * @param modelTypeName the name of the model class/record to instantiate
+     * @param firstLineEnd the code at the end of the line calling the constructor
+     * @param remainingCode the code after the constructor call line
+     */
+    protected static String constructorCall(final String modelTypeName, final String firstLineEnd, final String remainingCode) {
+        return "        final var model = new " + modelTypeName + "(" + firstLineEnd + LN + remainingCode + LN + "        return mappingContext == null ? model : mappingContext.finish(this, model);";
+    }
+
     /**
      * Generates the code to instantiate a model object from the type of given field.
      * @param sourceField field to get its class/record type to instantiate an object
@@ -153,11 +182,11 @@ public abstract sealed class ObjectInstantiation permits ClassInstantiation, Rec
         if(isPrimitive)
             return generateFieldInitialization(typeUtil, sourceField, false);
 
-        final var fieldStream = TypeUtil.getClassFields(processor.types(), fieldTypeElement);
+        final var fieldLayout = typeUtil.getClassLayout(fieldTypeElement);
 
         // Since the field type may be either a class or record, we need a new ObjectInstantiation according to the field type
-        final var fieldInstantiation = newInstance(recordGen, fieldTypeElement);
-        return fieldInstantiation.newObjectInternal(fieldTypeElement, idFieldValue, fieldStream);
+        final var fieldInstantiation = fieldLayout.record() ? new RecordInstantiation(recordGen) : new ClassInstantiation(recordGen);
+        return fieldInstantiation.newObjectInternal(fieldTypeElement, idFieldValue, fieldLayout.fields().stream());
     }
 
     /**
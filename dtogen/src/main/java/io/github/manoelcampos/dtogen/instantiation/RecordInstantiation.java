@@ -10,6 +10,8 @@ import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import java.util.stream.Stream;
 
+import static io.github.manoelcampos.dtogen.CodeWriter.LN;
+
 /**
  * Generates the code to instantiate a record.
  * @author Manoel Campos
@@ -22,12 +24,12 @@ public final class RecordInstantiation extends ObjectInstantiation {
 
     @Override
     protected String constructorCall(final String fieldValues) {
-        return CODE_TEMPLATE.formatted(recordGen.getModelTypeName(), fieldValues, METHOD_CALL_CLOSING);
+        return constructorCall(recordGen.getModelTypeName(), fieldValues, METHOD_CALL_CLOSING);
     }
 
     @Override
     protected String newObjectInternal(final Element fieldClass, final String idFieldValue, final Stream<VariableElement> fieldStream) {
-        return "new %s(%s)".formatted(fieldClass.getSimpleName(), generateFieldListInitialization(typeUtil, fieldStream, idFieldValue));
+        return "new " + recordGen.useType((TypeElement) fieldClass) + "(" + generateFieldListInitialization(typeUtil, fieldStream, idFieldValue) + ")";
     }
 
     /**
@@ -43,7 +45,7 @@ public final class RecordInstantiation extends ObjectInstantiation {
             final String newObjectCall = newObject(sourceField, fieldValue);
 
             // Instantiates an object of the type of the model field so that the id can be set
-            return "%n%s".formatted(newObjectCall);
+            return LN + newObjectCall;
         }
 
         return fieldValue;
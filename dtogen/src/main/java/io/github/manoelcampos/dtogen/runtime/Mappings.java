@@ -0,0 +1,397 @@
+/// Like the DTORecord interface, this class is copied to the resources dir of the DTOGen jar,
+/// so that its source file is written to the generated-sources dir of the application using DTOGen
+/// (unless the dtogen-runtime, which compiles this same file, is on the classpath).
+/// This way, there is a single copy of the mapping helpers, shared by all DTO records in the application.
+///
+/// Comments starting with /// are striped out from the code when this file is read from the DTOGen jar resources dir.
+package io.github.manoelcampos.dtogen.runtime;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Mapping primitives called by the DTO records generated by DTOGen.
+ * Since this class is shared by all DTO records, its methods are compiled once by the JIT compiler
+ * (and are small enough to be inlined), instead of each DTO record repeating the same mapping code.
+ * It comes from the dtogen-runtime, when it's on the classpath,
+ * or is written once per compilation into the application using DTOGen.
+ * @author Manoel Campos
+ */
+public final class Mappings {
+    private Mappings() {/**/}
+
+    /**
+     * Maps the items of a collection into a new unmodifiable list.
+     * The new list is created with the size of the source collection
+     * and, for random access lists, the items are accessed by index (avoiding an iterator allocation).
+     * That is lighter than a {@code collection.stream().map(mapper).toList()} chain.
+     * @param source the collection to map its items (which may be null)
+     * @param mapper the function to map each non-null item (null items are kept null)
+     * @return the list of mapped items, or null if the source collection is null
+     * @param <T> the type of the source items
+     * @param <R> the type of the mapped items
+     */
+    public static <T, R> List<R> mapList(final Collection<T> source, final Function<? super T, ? extends R> mapper) {
+        if (source == null)
+            return null;
+
+        final int size = source.size();
+        if (size == 0)
+            return List.of();
+
+        final var target = new ArrayList<R>(size);
+        if (source instanceof List<T> list && source instanceof RandomAccess) {
+            for (int i = 0; i < size; i++) {
+                final T item = list.get(i);
+                target.add(item == null ? null : mapper.apply(item));
+            }
+        } else {
+            for (final T item : source)
+                target.add(item == null ? null : mapper.apply(item));
+        }
+
+        return Collections.unmodifiableList(target);
+    }
+
+    /**
+     * Maps the items of a collection into a new unmodifiable list, using multiple threads when there are many items.
+     * If the collection has at least {@code threshold} items, they are split by index into chunks mapped by the threads of
+     * the {@link java.util.concurrent.ForkJoinPool} running the caller (or the common pool, if the caller isn't running in a pool).
+     * Otherwise, the items are mapped by the caller thread, since the cost of splitting the work would exceed the gain.
+     * Each mapped item is stored at the index of its source item, so the order is kept.
+     * @param source the collection to map its items (which may be null)
+     * @param mapper the function to map each non-null item (null items are kept null),
+     *               which must be thread-safe when the items are mapped in parallel
+     * @param threshold the minimum number of items to map them in parallel
+     * @return the list of mapped items, or null if the source collection is null
+     * @param <T> the type of the source items
+     * @param <R> the type of the mapped items
+     */
+    public static <T, R> List<R> mapListParallel(final Collection<T> source, final Function<? super T, ? extends R> mapper, final int threshold) {
+        if (source == null || source.size() < threshold)
+            return mapList(source, mapper);
+
+        final List<T> list = source instanceof List<T> sourceList && source instanceof RandomAccess ? sourceList : new ArrayList<>(source);
+        final Object[] target = new Object[list.size()];
+        IntStream.range(0, target.length).parallel().forEach(i -> {
+            final T item = list.get(i);
+            target[i] = item == null ? null : mapper.apply(item);
+        });
+
+        @SuppressWarnings("unchecked")
+        final var result = (List<R>) Arrays.asList(target);
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Creates a read-only list view of a collection, mapping an item whenever it's accessed.
+     * Creating the view doesn't map any item, so it takes the same time regardless of the number of items
+     * (collections that aren't random access lists are just copied into an array list, without mapping the items).
+     * The source collection must not be changed while the view is used.
+     * @param source the collection to map its items (which may be null)
+     * @param mapper the function to map each non-null item (null items are kept null)
+     * @param memoize true to store each mapped item, so that it's mapped just once (when first accessed);
+     *                false to map an item every time it's accessed.
+     *                The mapped items are safely published to other threads: when multiple threads access an item
+     *                for the first time at once, it may be mapped by each of them, but just the first mapped object is stored
+     *                and all threads get that same object.
+     * @return the list view of mapped items, or null if the source collection is null
+     * @param <T> the type of the source items
+     * @param <R> the type of the mapped items
+     */
+    public static <T, R> List<R> viewList(final Collection<T> source, final Function<? super T, ? extends R> mapper, final boolean memoize) {
+        if (source == null)
+            return null;
+
+        final List<T> list = source instanceof List<T> sourceList && source instanceof RandomAccess ? sourceList : new ArrayList<>(source);
+        final AtomicReferenceArray<R> mappedItems = memoize ? new AtomicReferenceArray<>(list.size()) : null;
+
+        final class ListView extends AbstractList<R> implements RandomAccess {
+            @Override
+            public R get(final int index) {
+                if (mappedItems == null)
+                    return map(list.get(index));
+
+                final R mappedItem = mappedItems.get(index);
+                if (mappedItem != null)
+                    return mappedItem;
+
+                // If another thread stored the item meanwhile, that one is returned, so that all threads get the same object
+                final R item = map(list.get(index));
+                return item == null || mappedItems.compareAndSet(index, null, item) ? item : mappedItems.get(index);
+            }
+
+            private R map(final T item) {
+                return item == null ? null : mapper.apply(item);
+            }
+
+            @Override
+            public int size() {
+                return list.size();
+            }
+        }
+
+        return new ListView();
+    }
+
+    /**
+     * Maps the items of a set into a new unmodifiable set, keeping the iteration order of the source set.
+     * The new set is created with enough capacity for all items, so that it's never rehashed.
+     * Distinct source items mapped to equal items (such as model objects with the same values mapped to DTO records)
+     * are kept just once, so the new set may be smaller than the source one.
+     * A sorted source set is mapped keeping its iteration order, but the new set isn't sorted by its comparator.
+     * @param source the set to map its items (which may be null)
+     * @param mapper the function to map each non-null item (null items are kept null)
+     * @return the set of mapped items, or null if the source set is null
+     * @param <T> the type of the source items
+     * @param <R> the type of the mapped items
+     */
+    public static <T, R> Set<R> mapSet(final Set<T> source, final Function<? super T, ? extends R> mapper) {
+        if (source == null)
+            return null;
+
+        if (source.isEmpty())
+            return Set.of();
+
+        final var target = LinkedHashSet.<R>newLinkedHashSet(source.size());
+        for (final T item : source)
+            target.add(item == null ? null : mapper.apply(item));
+
+        return Collections.unmodifiableSet(target);
+    }
+
+    /**
+     * Maps the keys and values of a map into a new unmodifiable map, keeping the iteration order of the source map.
+     * The new map is created with enough capacity for all entries, so that it's never rehashed.
+     * @param source the map to map its entries (which may be null)
+     * @param keyMapper the function to map each non-null key (null keys are kept null)
+     * @param valueMapper the function to map each non-null value (null values are kept null)
+     * @return the map of mapped entries, or null if the source map is null
+     * @param <K> the type of the source keys
+     * @param <V> the type of the source values
+     * @param <RK> the type of the mapped keys
+     * @param <RV> the type of the mapped values
+     */
+    public static <K, V, RK, RV> Map<RK, RV> mapMap(
+            final Map<K, V> source,
+            final Function<? super K, ? extends RK> keyMapper,
+            final Function<? super V, ? extends RV> valueMapper)
+    {
+        if (source == null)
+            return null;
+
+        if (source.isEmpty())
+            return Map.of();
+
+        final var target = LinkedHashMap.<RK, RV>newLinkedHashMap(source.size());
+        for (final Map.Entry<K, V> entry : source.entrySet()) {
+            final K key = entry.getKey();
+            final V value = entry.getValue();
+            target.put(key == null ? null : keyMapper.apply(key), value == null ? null : valueMapper.apply(value));
+        }
+
+        return Collections.unmodifiableMap(target);
+    }
+
+    /**
+     * Maps the items of an array into a new array of the same length.
+     * @param source the array to map its items (which may be null)
+     * @param generator the function to create the new array with a given length (such as {@code ItemDTO[]::new})
+     * @param mapper the function to map each non-null item (null items are kept null)
+     * @return the array of mapped items, or null if the source array is null
+     * @param <T> the type of the source items
+     * @param <R> the type of the mapped items
+     */
+    public static <T, R> R[] mapArray(final T[] source, final IntFunction<R[]> generator, final Function<? super T, ? extends R> mapper) {
+        if (source == null)
+            return null;
+
+        final R[] target = generator.apply(source.length);
+        for (int i = 0; i < source.length; i++) {
+            final T item = source[i];
+            target[i] = item == null ? null : mapper.apply(item);
+        }
+
+        return target;
+    }
+
+    /**
+     * Maps the value of an {@link Optional}.
+     * @param source the optional to map its value (which may be null)
+     * @param mapper the function to map the value
+     * @return an optional with the mapped value, or null if the source optional is null
+     * @param <T> the type of the source value
+     * @param <R> the type of the mapped value
+     */
+    public static <T, R> Optional<R> mapOptional(final Optional<T> source, final Function<? super T, ? extends R> mapper) {
+        return source == null ? null : source.map(mapper);
+    }
+
+    /**
+     * Lazily maps the items of a stream, as they are consumed.
+     * Since {@link Stream#map(Function)} keeps the {@link Spliterator#SIZED} characteristic of the source,
+     * terminal operations such as {@link Stream#toList()} or {@link Stream#toArray()} create their result with the exact size.
+     * Closing the returned stream closes the source one.
+     * @param source the stream to map its items (which may be null)
+     * @param mapper the function to map each non-null item (null items are kept null)
+     * @return the stream of mapped items, or null if the source stream is null
+     * @param <T> the type of the source items
+     * @param <R> the type of the mapped items
+     */
+    public static <T, R> Stream<R> mapStream(final Stream<T> source, final Function<? super T, ? extends R> mapper) {
+        return source == null ? null : source.map(item -> item == null ? null : mapper.apply(item));
+    }
+
+    /**
+     * Lazily maps the items of a spliterator, as they are traversed.
+     * The returned spliterator has the same characteristics of the source one (except {@link Spliterator#DISTINCT}
+     * and {@link Spliterator#SORTED}, since distinct or sorted items may be mapped to equal or unsorted ones).
+     * This way, {@link Spliterator#SIZED} and {@link Spliterator#SUBSIZED} sources still provide their exact size
+     * and are split into balanced parts, when the spliterator is used by a parallel stream.
+     * @param source the spliterator to map its items (which may be null)
+     * @param mapper the function to map each non-null item (null items are kept null)
+     * @return the spliterator of mapped items, or null if the source spliterator is null
+     * @param <T> the type of the source items
+     * @param <R> the type of the mapped items
+     */
+    public static <T, R> Spliterator<R> mapSpliterator(final Spliterator<T> source, final Function<? super T, ? extends R> mapper) {
+        if (source == null)
+            return null;
+
+        return new Spliterator<>() {
+            @Override
+            public boolean tryAdvance(final Consumer<? super R> action) {
+                return source.tryAdvance(item -> action.accept(item == null ? null : mapper.apply(item)));
+            }
+
+            @Override
+            public void forEachRemaining(final Consumer<? super R> action) {
+                source.forEachRemaining(item -> action.accept(item == null ? null : mapper.apply(item)));
+            }
+
+            @Override
+            public Spliterator<R> trySplit() {
+                final Spliterator<T> prefix = source.trySplit();
+                return prefix == null ? null : mapSpliterator(prefix, mapper);
+            }
+
+            @Override
+            public long estimateSize() {
+                return source.estimateSize();
+            }
+
+            @Override
+            public int characteristics() {
+                return source.characteristics() & ~(Spliterator.DISTINCT | Spliterator.SORTED);
+            }
+        };
+    }
+
+    /**
+     * {@return a collector mapping the items of a stream into a new unmodifiable list}
+     * Streams know their size just when collected into an array (or by {@link Stream#toList()}),
+     * so the list can be presized with the expected number of items (such as the page size of a database query).
+     * Each thread collecting a parallel stream creates a list with that size.
+     * @param mapper the function to map each non-null item (null items are kept null)
+     * @param expectedSize the expected number of items, or zero to use the default list capacity
+     * @param <T> the type of the source items
+     * @param <R> the type of the mapped items
+     */
+    public static <T, R> Collector<T, ?, List<R>> mappingCollector(final Function<? super T, ? extends R> mapper, final int expectedSize) {
+        return Collector.<T, ArrayList<R>, List<R>>of(
+                () -> expectedSize > 0 ? new ArrayList<>(expectedSize) : new ArrayList<>(),
+                (list, item) -> list.add(item == null ? null : mapper.apply(item)),
+                (left, right) -> {
+                    left.addAll(right);
+                    return left;
+                },
+                Collections::unmodifiableList);
+    }
+
+    /**
+     * {@return true if a primitive id value is set (greater than zero)}
+     * @param id the id to check
+     */
+    public static boolean hasId(final long id) {
+        return id > 0;
+    }
+
+    /**
+     * {@return true if an id value is set}
+     * That is the case when the id is a number greater than zero or any other non-blank object.
+     * @param id the id to check (which may be null)
+     */
+    public static boolean hasId(final Object id) {
+        if (Objects.isNull(id))
+            return false;
+
+        if (id instanceof Number number)
+            return number.doubleValue() > 0;
+
+        return !id.toString().isBlank();
+    }
+
+    /**
+     * {@return a new object created by a supplier function if a primitive id is set, or null otherwise}
+     * Avoids boxing the id to call {@link #newObject(Object, Supplier)}.
+     * @param id the id to check
+     * @param supplier the supplier function to create the object and set its id
+     * @param <O> the type of the object to create
+     */
+    public static <O> O newObject(final long id, final Supplier<O> supplier) {
+        return hasId(id) ? supplier.get() : null;
+    }
+
+    /**
+     * {@return a new object created by a supplier function if an id is set, or null otherwise}
+     * @param id the id to check (which may be null)
+     * @param supplier the supplier function to create the object and set its id
+     * @param <O> the type of the object to create
+     * @see #hasId(Object)
+     */
+    public static <O> O newObject(final Object id, final Supplier<O> supplier) {
+        return hasId(id) ? supplier.get() : null;
+    }
+
+    /**
+     * {@return the long id of an associated object, or zero if the association is null}
+     * @param association the associated object (which may be null)
+     * @param idGetter the function to get the id from the associated object
+     * @param <T> the type of the associated object
+     */
+    public static <T> long longId(final T association, final ToLongFunction<? super T> idGetter) {
+        return association == null ? 0 : idGetter.applyAsLong(association);
+    }
+
+    /**
+     * {@return the int id of an associated object, or zero if the association is null}
+     * @param association the associated object (which may be null)
+     * @param idGetter the function to get the id from the associated object
+     * @param <T> the type of the associated object
+     */
+    public static <T> int intId(final T association, final ToIntFunction<? super T> idGetter) {
+        return association == null ? 0 : idGetter.applyAsInt(association);
+    }
+}
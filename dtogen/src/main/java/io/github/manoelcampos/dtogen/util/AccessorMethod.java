@@ -1,6 +1,7 @@
 package io.github.manoelcampos.dtogen.util;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import java.util.Optional;
 
@@ -46,7 +47,7 @@ public final class AccessorMethod {
         // If there is an accessor, returns it, otherwise, returns the field name to be accessed directly
         this.name = "%s%s".formatted(prefix, formatedFieldName);
 
-        this.accessorOptional = TypeUtil.getPublicMethod(containingClassRecord, name);
+        this.accessorOptional = typeUtil.getPublicMethod((TypeElement) containingClassRecord, name);
         checkAccess();
     }
 
@@ -0,0 +1,70 @@
+package io.github.manoelcampos.dtogen.util;
+
+import javax.annotation.Nullable;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The field layout of a class/record, which is computed just once for each type by the {@link TypeUtil}.
+ * @param typeElement the class/record
+ * @param fields the instance fields of the class/record, including the ones from its superclasses,
+ *               in the same order they are declared (starting from the superclasses)
+ * @param idField an {@link Optional} containing the "id" field if the class/record (or any superclass) has one;
+ *                or an empty optional otherwise
+ * @param record true if the type is a {@link Record}, false if it's a class
+ * @param publicMethods an index where each key is a method name and the value the public method with that name,
+ *                      including the ones inherited from superclasses (such as getters and setters).
+ *                      If a method is overloaded, the first one declared is indexed.
+ * @author Manoel Campos
+ * @see TypeUtil#getClassLayout(TypeElement)
+ */
+public record ClassLayout(TypeElement typeElement, List<VariableElement> fields, Optional<VariableElement> idField, boolean record,
+                          Map<String, ExecutableElement> publicMethods) {
+    /**
+     * Creates the layout for a class/record from the layout of its superclass.
+     * This way, the fields and methods of a superclass shared by many classes are collected just once.
+     * @param typeElement the class/record to create the layout for
+     * @param superClassLayout the layout of the superclass (null if there is no superclass other than {@link Object})
+     * @return the new layout
+     */
+    static ClassLayout of(final TypeElement typeElement, @Nullable final ClassLayout superClassLayout) {
+        final var declaredFields =
+                typeElement.getEnclosedElements().stream()
+                           .filter(enclosedElement -> enclosedElement.getKind().isField())
+                           .map(enclosedElement -> (VariableElement) enclosedElement)
+                           .filter(FieldUtil::isInstanceField);
+
+        final var superClassFields = superClassLayout == null ? Stream.<VariableElement>empty() : superClassLayout.fields().stream();
+        final var fields = Stream.concat(superClassFields, declaredFields).toList();
+        final var idField = fields.stream().filter(field -> "id".equals(FieldUtil.getFieldName(field))).findFirst();
+        return new ClassLayout(typeElement, fields, idField, TypeUtil.isRecord(typeElement), publicMethods(typeElement, superClassLayout));
+    }
+
+    /**
+     * {@return the index of public methods for a class/record}
+     * Methods declared in the class/record override the ones with the same name from the superclass.
+     * @param typeElement the class/record to index its methods
+     * @param superClassLayout the layout of the superclass (null if there is no superclass other than {@link Object})
+     */
+    private static Map<String, ExecutableElement> publicMethods(final TypeElement typeElement, @Nullable final ClassLayout superClassLayout) {
+        final var declaredMethods = new HashMap<String, ExecutableElement>();
+        for (final ExecutableElement method : ElementFilter.methodsIn(typeElement.getEnclosedElements())) {
+            if (TypeUtil.isPublic(method))
+                declaredMethods.putIfAbsent(method.getSimpleName().toString(), method);
+        }
+
+        if (superClassLayout == null)
+            return Map.copyOf(declaredMethods);
+
+        final var methods = new HashMap<>(superClassLayout.publicMethods());
+        methods.putAll(declaredMethods);
+        return Map.copyOf(methods);
+    }
+}
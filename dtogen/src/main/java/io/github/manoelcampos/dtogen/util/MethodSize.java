@@ -0,0 +1,107 @@
+package io.github.manoelcampos.dtogen.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates the bytecode size of generated methods and splits their code into chunks,
+ * so that the generated methods can be JIT-compiled.
+ * HotSpot doesn't JIT-compile methods larger than {@code -XX:HugeMethodLimit} (8000 bytes by default),
+ * making them run interpreted forever, and inlines just methods smaller than {@code -XX:FreqInlineSize}
+ * (325 bytes by default).
+ *
+ * <p>The size is estimated from the generated Java code (which is not compiled by the processor),
+ * assigning to each token the size of the instructions it's usually compiled to.
+ * The estimate is intentionally conservative (usually larger than the actual size).</p>
+ * @author Manoel Campos
+ */
+public final class MethodSize {
+    /**
+     * The default maximum bytecode size of a method to be JIT-compiled by HotSpot ({@code -XX:HugeMethodLimit}).
+     */
+    public static final int HUGE_METHOD_LIMIT = 8000;
+
+    /**
+     * The default maximum bytecode size of a frequently called method to be inlined by HotSpot ({@code -XX:FreqInlineSize}).
+     */
+    public static final int INLINE_SIZE_LIMIT = 325;
+
+    /**
+     * The maximum number of parameter slots of a constructor (255, including {@code this}),
+     * where long and double parameters take 2 slots.
+     */
+    public static final int MAX_PARAMETER_SLOTS = 254;
+
+    private static final Pattern TOKEN = Pattern.compile(
+            "[A-Za-z_$][\\w$]*|\\d[\\w.]*|\"(?:\\\\.|[^\"\\\\])*\"|'(?:\\\\.|[^'\\\\])*'|->|==|!=|\\S");
+
+    private MethodSize() {/**/}
+
+    /**
+     * {@return the estimated bytecode size of some Java code}
+     * @param code the Java statements or expressions to estimate the size
+     */
+    public static int estimate(final CharSequence code) {
+        int size = 0;
+        String previousToken = "";
+        final var matcher = TOKEN.matcher(code);
+        while (matcher.find()) {
+            final var token = matcher.group();
+            size += switch (token) {
+                case "final", "var", "return", "null", "true", "false", ")", ",", ";", ".", "{", "}", "=" -> 0;
+                // A constructor call requires new and dup instructions, besides the invokespecial for the following "("
+                case "new" -> 4;
+                // A method or constructor call, when the parenthesis follows a name; just a grouping parenthesis otherwise
+                case "(" -> isName(previousToken) ? 3 : 0;
+                // A lambda expression is created by an invokedynamic instruction
+                case "->" -> 5;
+                // A conditional expression requires a branch and a goto instruction
+                case "?" -> 6;
+                case "==", "!=" -> 3;
+                // A variable, field or literal is usually loaded by a 1 to 3 bytes instruction
+                default -> 2;
+            };
+
+            previousToken = token;
+        }
+
+        return size;
+    }
+
+    private static boolean isName(final String token) {
+        return !token.isEmpty() && Character.isJavaIdentifierStart(token.charAt(0));
+    }
+
+    /**
+     * Splits a list of items into consecutive chunks whose total estimated size doesn't exceed a given limit.
+     * An item larger than the limit is placed alone in a chunk.
+     * @param items the items to split
+     * @param sizeFunction a function to estimate the size of an item
+     * @param maxChunkSize the maximum size of each chunk
+     * @return the list of chunks, in the same order of the items
+     * @param <T> the type of the items
+     */
+    public static <T> List<List<T>> chunk(final List<T> items, final ToIntFunction<T> sizeFunction, final int maxChunkSize) {
+        final var chunks = new ArrayList<List<T>>();
+        List<T> chunk = new ArrayList<>();
+        int chunkSize = 0;
+        for (final T item : items) {
+            final int itemSize = sizeFunction.applyAsInt(item);
+            if (!chunk.isEmpty() && chunkSize + itemSize > maxChunkSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunkSize = 0;
+            }
+
+            chunk.add(item);
+            chunkSize += itemSize;
+        }
+
+        if (!chunk.isEmpty())
+            chunks.add(chunk);
+
+        return chunks;
+    }
+}
@@ -7,13 +7,14 @@ import io.github.manoelcampos.dtogen.RecordGenerator;
 
 import javax.annotation.Nullable;
 import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
-import javax.lang.model.util.Types;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import static java.util.stream.Collectors.joining;
@@ -25,6 +26,17 @@ import static java.util.stream.Collectors.joining;
 public final class TypeUtil {
     private final DTOProcessor processor;
 
+    /**
+     * A map where each key is a class/record and the value its field layout.
+     * Since the layout of a class is built from the layout of its superclass,
+     * a superclass shared by many model classes (such as a BaseEntity) is scanned just once.
+     * The cache is cleared at each annotation processing round (see {@link #clear()}).
+     */
+    private final Map<TypeElement, ClassLayout> classLayoutCache = new HashMap<>();
+
+    private int layoutCacheHits;
+    private int layoutCacheMisses;
+
     public TypeUtil(final DTOProcessor processor) {
         this.processor = processor;
     }
@@ -40,11 +52,11 @@ public final class TypeUtil {
 
     /**
      * {@return a TypeElement that indicates the type of an element that represents a field or reference type (class, record, interface...);
-     * or null if the type of the element is primitive}
+     * or null if the type of the element is primitive or a type variable (such as a field declared as {@code ID id} in a generic class)}
      * @param element the element representing the field or reference type.
      */
     public @Nullable TypeElement getTypeElement(final Element element) {
-        return getTypeMirrorAsTypeElement(element.asType());
+        return processor.types().asElement(element.asType()) instanceof TypeElement typeElement ? typeElement : null;
     }
 
     public TypeElement getTypeMirrorAsTypeElement(final TypeMirror typeMirror) {
@@ -70,6 +82,9 @@ public final class TypeUtil {
      */
     public String getTypeName(final VariableElement fieldElement, final boolean qualified, final boolean includeTypeArgs) {
         final var typeMirror = fieldElement.asType();
+        if (typeMirror instanceof ArrayType arrayType)
+            return getArrayTypeName(arrayType, qualified);
+
         final var declaredType = getAsDeclaredType(typeMirror);
         if (declaredType == null) // is primitive
             return typeMirror.getKind().toString().toLowerCase();
@@ -81,6 +96,24 @@ public final class TypeUtil {
         return name + typeArguments;
     }
 
+    /**
+     * {@return the name of an array type, such as {@code int[]} or {@code String[]}}
+     * @param arrayType the array type to get its name
+     * @param qualified if the name of the array items type must include the full-qualified package name
+     */
+    private static String getArrayTypeName(final ArrayType arrayType, final boolean qualified) {
+        final var componentType = arrayType.getComponentType();
+        if (componentType instanceof ArrayType componentArrayType)
+            return getArrayTypeName(componentArrayType, qualified) + "[]";
+
+        if (componentType instanceof DeclaredType declaredType) {
+            final var typeElement = (TypeElement) declaredType.asElement();
+            return (qualified ? typeElement.getQualifiedName() : typeElement.getSimpleName()) + "[]";
+        }
+
+        return componentType + "[]";
+    }
+
     /**
      * Gets the generic type arguments of a given type.
      * If the type is {@code List<Customer>}, List is the declared type and Customer is the generic argument.
@@ -161,8 +194,7 @@ public final class TypeUtil {
         if(type == null) // primitive type
             return Optional.empty();
 
-        final var classFieldsStream = TypeUtil.getClassFields(processor.types(), type);
-        return classFieldsStream.filter(f -> f.getSimpleName().toString().equals("id")).findFirst();
+        return getClassLayout(type).idField();
     }
 
     /**
@@ -213,55 +245,75 @@ public final class TypeUtil {
     }
 
     /**
-     * Gets the fields of a given class, including the ones from its superclasses.
-     * It doesn't sort elements to ensure the fields are returned in the same order they are declared in the class.
+     * Gets the fields of a given class, including the ones from its superclasses,
+     * using the {@link #getClassLayout(TypeElement) class layout cache}.
+     * The fields are returned in the same order they are declared in the class.
      *
-     * @param types        a reference to {@link DTOProcessor#types()}
      * @param classTypeElement the class to get the fields from
      * @return a stream of fields from the given class
      */
-    public static Stream<VariableElement> getClassFields(final Types types, final TypeElement classTypeElement) {
-        final var fieldStream =
-                classTypeElement.getEnclosedElements().stream()
-                                .filter(enclosedElement -> enclosedElement.getKind().isField())
-                                .map(enclosedElement -> (VariableElement) enclosedElement)
-                                .filter(FieldUtil::isInstanceField);
-
-        final var superclassType = classTypeElement.getSuperclass();
-        final var superclassElement = (TypeElement) types.asElement(superclassType);
-        final var superClassFields = hasSuperClass(classTypeElement) ?
-                                        getClassFields(types, superclassElement) :
-                                        Stream.<VariableElement>empty();
-
-        return Stream.concat(superClassFields, fieldStream);
+    public Stream<VariableElement> getClassFields(final TypeElement classTypeElement) {
+        return getClassLayout(classTypeElement).fields().stream();
     }
 
-    public boolean isBooleanType(final VariableElement fieldElement) {
-        return "boolean".equalsIgnoreCase(getTypeName(fieldElement));
+    /**
+     * Gets the field layout of a given class/record, which is computed just once for each type.
+     * @param classTypeElement the class/record to get its layout
+     * @return the class/record layout
+     */
+    public ClassLayout getClassLayout(final TypeElement classTypeElement) {
+        /* Doesn't use Map.computeIfAbsent() since the layout of the superclass is computed recursively,
+         * which would change the map during the computation. */
+        final var cachedLayout = classLayoutCache.get(classTypeElement);
+        if (cachedLayout != null) {
+            layoutCacheHits++;
+            return cachedLayout;
+        }
+
+        layoutCacheMisses++;
+        final var superClassLayout = hasSuperClass(classTypeElement) ?
+                                        getClassLayout((TypeElement) processor.types().asElement(classTypeElement.getSuperclass())) :
+                                        null;
+        final var layout = ClassLayout.of(classTypeElement, superClassLayout);
+        classLayoutCache.put(classTypeElement, layout);
+        return layout;
+    }
+
+    /**
+     * {@return the number of times a class layout was taken from the cache}
+     */
+    public int layoutCacheHits() {
+        return layoutCacheHits;
+    }
+
+    /**
+     * {@return the number of times a class layout had to be computed}
+     */
+    public int layoutCacheMisses() {
+        return layoutCacheMisses;
     }
 
-    public static Optional<? extends Element> getPublicMethod(final Element classOrRecordElement, final String methodName) {
-        final var optionalElement = getMethod(classOrRecordElement, methodName);
-        return optionalElement.filter(TypeUtil::isPublic);
+    /**
+     * Clears the class layout cache.
+     * Elements from a previous annotation processing round must not be used in a new round.
+     */
+    public void clear() {
+        classLayoutCache.clear();
     }
 
-    public static Optional<? extends Element> getMethod(final Element classOrRecordElement, final String methodName) {
-        return getElement(classOrRecordElement, methodName, element -> element.getKind() == ElementKind.METHOD);
+    public boolean isBooleanType(final VariableElement fieldElement) {
+        return "boolean".equalsIgnoreCase(getTypeName(fieldElement));
     }
 
     /**
-     * Checks if a class/record has a given element and returns it.
-     * @param classOrRecordElement the class/record to check if it contains a given element
-     * @param elementName the element to check if it's indie the class/record
-     * @return an Optional containing the element or {@link Optional#empty()} if not found
+     * Gets a public method from a class/record (including the ones inherited from superclasses),
+     * using the method index from the {@link #getClassLayout(TypeElement) class layout cache}.
+     * @param classOrRecordElement the class/record to get the method from
+     * @param methodName the name of the method to get
+     * @return an Optional containing the method or {@link Optional#empty()} if not found
      */
-    private static Optional<? extends Element> getElement(final Element classOrRecordElement,
-                                                          final String elementName, final Predicate<Element> filter) {
-        return classOrRecordElement
-                .getEnclosedElements()
-                .stream()
-                .filter(filter.and(element -> element.getSimpleName().toString().equals(elementName)))
-                .findFirst();
+    public Optional<ExecutableElement> getPublicMethod(final TypeElement classOrRecordElement, final String methodName) {
+        return Optional.ofNullable(getClassLayout(classOrRecordElement).publicMethods().get(methodName));
     }
 
     /**
@@ -0,0 +1,63 @@
+package io.github.manoelcampos.dtogen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnnotationFilterTest {
+    @Test
+    void defaultExcludedAnnotations() {
+        final var instance = new AnnotationFilter(List.of(), List.of());
+        assertTrue(instance.isExcluded(DTO.class.getName()));
+        assertTrue(instance.isExcluded(DTO.MapToId.class.getCanonicalName()));
+        assertTrue(instance.isExcluded("jakarta.persistence.Column"));
+        assertTrue(instance.isExcluded("org.hibernate.annotations.Formula"));
+        assertTrue(instance.isExcluded("lombok.experimental.Accessors"));
+        assertTrue(instance.isExcluded("com.fasterxml.jackson.annotation.JsonIgnoreProperties"));
+
+        assertFalse(instance.isExcluded("jakarta.validation.constraints.NotNull"));
+        assertFalse(instance.isExcluded("jakarta.persistence.Table"));
+        assertFalse(instance.isExcluded("com.lombok.Custom"), "Package prefixes must match whole package names");
+    }
+
+    @Test
+    void excludePatterns() {
+        final var options = Map.of(DTOProcessor.ANNOTATIONS_EXCLUDE_OPTION, " com.company.persistence.*, com.other., JsonView ,com.company.*.Internal*,Audit*");
+        final var instance = AnnotationFilter.newInstance(options);
+        assertTrue(instance.isExcluded("com.company.persistence.Versioned"));
+        assertTrue(instance.isExcluded("com.company.persistence.sub.Indexed"));
+        assertTrue(instance.isExcluded("com.other.Ignored"));
+        assertTrue(instance.isExcluded("com.fasterxml.jackson.annotation.JsonView"));
+        assertTrue(instance.isExcluded("com.company.api.InternalOnly"));
+        assertTrue(instance.isExcluded("org.sample.AuditedBy"));
+
+        assertFalse(instance.isExcluded("com.company.api.Public"));
+        assertFalse(instance.isExcluded("com.company.persistenceX.Versioned"));
+        assertFalse(instance.isExcluded("org.sample.JsonViews"));
+    }
+
+    /**
+     * Checks that included patterns take precedence over the default and given excluded ones.
+     */
+    @Test
+    void includePatternsOverrideExcluded() {
+        final var options = Map.of(
+                DTOProcessor.ANNOTATIONS_EXCLUDE_OPTION, "com.company.*",
+                DTOProcessor.ANNOTATIONS_INCLUDE_OPTION, "jakarta.persistence.Column,com.company.Kept");
+        final var instance = AnnotationFilter.newInstance(options);
+        assertFalse(instance.isExcluded("jakarta.persistence.Column"));
+        assertFalse(instance.isExcluded("com.company.Kept"));
+        assertTrue(instance.isExcluded("com.company.Dropped"));
+        assertTrue(instance.isExcluded("jakarta.persistence.Id"));
+    }
+
+    @Test
+    void parsePatterns() {
+        assertEquals(List.of(), AnnotationFilter.parsePatterns(null));
+        assertEquals(List.of(), AnnotationFilter.parsePatterns(" , "));
+        assertEquals(List.of("a.*", "B"), AnnotationFilter.parsePatterns("a.*, B,"));
+    }
+}
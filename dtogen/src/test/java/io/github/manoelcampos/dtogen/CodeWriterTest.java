@@ -0,0 +1,45 @@
+package io.github.manoelcampos.dtogen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static io.github.manoelcampos.dtogen.CodeWriter.LN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CodeWriterTest {
+    @Test
+    void lineWithIndentation() {
+        final var builder = new StringBuilder();
+        new CodeWriter(builder)
+                .line("class A {")
+                .indent().line("int ", "x;")
+                .indent().line("int y;")
+                .unindent().unindent().unindent()
+                .line("}");
+
+        assertEquals("class A {" + LN + "    int x;" + LN + "        int y;" + LN + "}" + LN, builder.toString());
+    }
+
+    @Test
+    void list() {
+        final var builder = new StringBuilder();
+        new CodeWriter(builder)
+                .append("f(").list(", ", List.of("a", "b", "c")).append(")")
+                .append(" g(").list(", ", List.of()).append(")");
+
+        assertEquals("f(a, b, c) g()", builder.toString());
+    }
+
+    /**
+     * Checks that JavaDocs are written as is, even if they contain % characters,
+     * but a comment closing sequence is escaped.
+     */
+    @Test
+    void javaDocLine() {
+        final var builder = new StringBuilder();
+        new CodeWriter(builder).indent().javaDocLine("@param rate the rate in %n or %s; never */ null");
+
+        assertEquals("     * @param rate the rate in %n or %s; never *&#47; null" + LN, builder.toString());
+    }
+}
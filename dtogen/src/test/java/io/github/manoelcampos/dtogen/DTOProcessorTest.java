@@ -0,0 +1,1291 @@
+package io.github.manoelcampos.dtogen;
+
+import com.karuslabs.elementary.Compiler;
+import com.karuslabs.elementary.Results;
+import com.karuslabs.elementary.file.FileObjects;
+import io.github.manoelcampos.dtogen.runtime.Mappings;
+import io.github.manoelcampos.dtogen.util.TypeUtil;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedSourceVersion;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.tools.JavaFileObject;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.joining;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests the {@link DTOProcessor} by compiling some model classes in-process.
+ * @author Manoel Campos
+ */
+class DTOProcessorTest {
+    private static final JavaFileObject PERSON = FileObjects.ofLines("incremental.Person",
+            """
+            package incremental;
+
+            @io.github.manoelcampos.dtogen.DTO
+            public class Person {
+                public long id;
+
+                /** The person name, which is 100% required (%s and %n aren't format placeholders). */
+                public String name;
+            }
+            """);
+
+    private static final JavaFileObject COUNTRY = FileObjects.ofLines("incremental.Country",
+            """
+            package incremental;
+
+            @io.github.manoelcampos.dtogen.DTO
+            public record Country(long id, String name) {
+            }
+            """);
+
+    @TempDir
+    File classOutput;
+
+    @TempDir
+    File sourceOutput;
+
+    @TempDir
+    File cacheDir;
+
+    /**
+     * Checks that each generated DTO is tied to its model class,
+     * so that build tools performing incremental annotation processing (such as Gradle)
+     * regenerate a DTO only when its model class changes.
+     * The {@link DTORecord} interface written into the application is used by all DTOs,
+     * so it's tied to all model classes and the processor must be handled by Gradle as aggregating.
+     */
+    @Test
+    void generatedDtoHasModelAsOriginatingElement() {
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, PERSON, COUNTRY);
+
+        assertTrue(results.success, results.errors::toString);
+        assertEquals(List.of("Person"), processor.originatingElementNames("incremental.PersonDTO"));
+        assertEquals(List.of("Country"), processor.originatingElementNames("incremental.CountryDTO"));
+        assertEquals(List.of("Person", "Country"), processor.originatingElementNames(DTORecord.class.getName()));
+        assertTrue(processor.getSupportedOptions().contains(DTOProcessor.GRADLE_AGGREGATING_OPTION));
+        assertFalse(processor.getSupportedOptions().contains(DTOProcessor.GRADLE_ISOLATING_OPTION));
+    }
+
+    /**
+     * Checks that the {@link DTORecord} interface and the {@link MappingContext} class are generated again
+     * when just some model classes are recompiled by an incremental build,
+     * instead of relying on the classes compiled by a previous build (which may come from an older DTOGen version).
+     */
+    @Test
+    void dtoInterfaceGeneratedAgainOnIncrementalBuild() {
+        assertTrue(compile(new OriginatingElementsProcessor(), PERSON, COUNTRY).success);
+        assertTrue(classOutput.toPath().resolve("io/github/manoelcampos/dtogen/DTORecord.class").toFile().isFile());
+
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, PERSON);
+        assertTrue(results.success, results.errors::toString);
+        assertEquals(
+            Set.of("incremental.PersonDTO", DTORecord.class.getName(), MappingContext.class.getName(), Mappings.class.getName()),
+            processor.originatingElementsMap.keySet());
+        assertEquals(List.of("Person"), processor.originatingElementNames(MappingContext.class.getName()));
+    }
+
+    /**
+     * Checks that the {@link Mappings} source written into the application is the one from the DTOGen sources
+     * (the same one compiled by the dtogen-runtime) and that it declares the methods called by the DTO records
+     * for every {@link CollectionMapping.Kind}, so that there is a single source for the mapping helpers.
+     */
+    @Test
+    void mappingsWrittenFromSingleSource() throws IOException {
+        assertTrue(compile(new OriginatingElementsProcessor(), PERSON).success);
+
+        final var mappingsPath = Mappings.class.getName().replace('.', '/') + ".java";
+        final String writtenSource = Files.readString(sourceOutput.toPath().resolve(mappingsPath));
+        try (var lines = Files.lines(Path.of("src/main/java", mappingsPath))) {
+            final String expectedSource = lines.filter(TypeUtil::isNotThreeSlashesComment).collect(joining(CodeWriter.LN, "", CodeWriter.LN));
+            TestUtil.assertCodeEquals(expectedSource, writtenSource);
+        }
+
+        for (final var kind : CollectionMapping.Kind.values()) {
+            final boolean declared = Arrays.stream(Mappings.class.getDeclaredMethods())
+                                           .anyMatch(method -> method.getName().equals(kind.methodName()) && Modifier.isPublic(method.getModifiers()) && Modifier.isStatic(method.getModifiers()));
+            assertTrue(declared, () -> "Mappings doesn't declare a public static method " + kind.methodName());
+        }
+    }
+
+    /**
+     * Checks that DTOs for model classes which didn't change since the last build are taken from the {@link GenerationCache}.
+     */
+    @Test
+    void unchangedModelsTakenFromGenerationCache() throws IOException {
+        final var firstProcessor = new OriginatingElementsProcessor();
+        assertTrue(compile(firstProcessor, PERSON, COUNTRY).success);
+        assertEquals(0, firstProcessor.generationCache().hits());
+        assertEquals(2, firstProcessor.generationCache().misses());
+        final String generatedPersonDto = readGeneratedSource("PersonDTO");
+        final var cacheFile = new File(cacheDir, "incremental.PersonDTO" + GenerationCache.FILE_EXTENSION).toPath();
+        assertTrue(Files.readString(cacheFile).endsWith("\n" + generatedPersonDto));
+        assertFalse(Files.exists(Path.of(cacheFile + ".tmp")));
+
+        final var secondProcessor = new OriginatingElementsProcessor();
+        assertTrue(compile(secondProcessor, PERSON, COUNTRY).success);
+        assertEquals(2, secondProcessor.generationCache().hits());
+        assertEquals(0, secondProcessor.generationCache().misses());
+        assertEquals(generatedPersonDto, readGeneratedSource("PersonDTO"));
+        assertTrue(new File(cacheDir, "incremental.PersonDTO" + GenerationCache.FILE_EXTENSION).isFile());
+    }
+
+    /**
+     * Checks that the DTO for a model class that changed since the last build is generated again,
+     * instead of being taken from the {@link GenerationCache}.
+     */
+    @Test
+    void changedModelGeneratedAgain() throws IOException {
+        assertTrue(compile(new OriginatingElementsProcessor(), PERSON).success);
+
+        final var changedPerson = FileObjects.ofLines("incremental.Person",
+                """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Person {
+                    public long id;
+                    public String name;
+                    public String email;
+                }
+                """);
+
+        final var processor = new OriginatingElementsProcessor();
+        assertTrue(compile(processor, changedPerson).success);
+        assertEquals(0, processor.generationCache().hits());
+        assertEquals(1, processor.generationCache().misses());
+        assertTrue(readGeneratedSource("PersonDTO").contains("String email"));
+    }
+
+    /**
+     * Checks that the DTO for a model class is generated again when the items of an array, {@code Optional} or {@code Map} field
+     * change from a regular class to a {@link DTO} annotated one, since the DTO field then has the DTO of that class.
+     * @param fieldType the type of the model field
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"Country[]", "java.util.Optional<Country>", "java.util.Map<String, Country>"})
+    void changedItemModelGeneratedAgain(final String fieldType) throws IOException {
+        final var order = FileObjects.ofLines("incremental.Order", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Order {
+                    public long id;
+                    public %s countries;
+                }
+                """.formatted(fieldType));
+        final var country = FileObjects.ofLines("incremental.Country", "package incremental; public record Country(long id, String name) {}");
+        assertTrue(compile(new OriginatingElementsProcessor(), order, country).success);
+        assertFalse(readGeneratedSource("OrderDTO").contains("CountryDTO"));
+
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, order, COUNTRY);
+        assertTrue(results.success, results.errors::toString);
+        assertEquals(0, processor.generationCache().hits());
+        assertTrue(readGeneratedSource("OrderDTO").contains("CountryDTO"));
+    }
+
+    /**
+     * Checks that the DTO for a model class extending a generic superclass is generated again
+     * when the type arguments of the superclass change (since they may define the types of the inherited fields).
+     */
+    @Test
+    void changedSuperclassTypeArgumentGeneratedAgain() throws IOException {
+        final var baseEntity = FileObjects.ofLines("incremental.BaseEntity", "package incremental; public class BaseEntity<ID> { public long id; }");
+        final var personSource = """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Person extends BaseEntity<%s> {
+                    public String name;
+                }
+                """;
+        final var firstResults = compile(new OriginatingElementsProcessor(), baseEntity, FileObjects.ofLines("incremental.Person", personSource.formatted("Long")));
+        assertTrue(firstResults.success, firstResults.errors::toString);
+        assertTrue(readGeneratedSource("PersonDTO").contains("long id"));
+
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, baseEntity, FileObjects.ofLines("incremental.Person", personSource.formatted("Integer")));
+        assertTrue(results.success, results.errors::toString);
+        assertEquals(0, processor.generationCache().hits());
+        assertEquals(1, processor.generationCache().misses());
+    }
+
+    /**
+     * Checks that an error is reported for an inherited field declared with a type variable of a generic superclass,
+     * whose type isn't resolved into the DTO record field type.
+     */
+    @Test
+    void typeVariableFieldReported() {
+        final var baseEntity = FileObjects.ofLines("incremental.BaseEntity", "package incremental; public class BaseEntity<ID> { public ID id; }");
+        final var person = FileObjects.ofLines("incremental.Person", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Person extends BaseEntity<Long> {
+                    public String name;
+                }
+                """);
+
+        final var results = compile(new OriginatingElementsProcessor(), baseEntity, person);
+        assertFalse(results.success);
+        final var errors = results.errors.stream().map(error -> error.getMessage(null)).toList();
+        assertTrue(errors.stream().anyMatch(error -> error.startsWith("The id field is declared with the type variable ID")), errors::toString);
+    }
+
+    /**
+     * Checks that the notes reported when a DTO is generated (such as when its methods are split)
+     * are reported again when the DTO is taken from the {@link GenerationCache}.
+     */
+    @Test
+    void messagesReportedAgainForCachedDto() {
+        final var thresholdOption = "-A%s=1000".formatted(DTOProcessor.SPLIT_THRESHOLD_OPTION);
+        final var wide = wideModel(300);
+        final var firstNotes = compile(new OriginatingElementsProcessor(), List.of(thresholdOption), wide).notes
+                .stream().map(note -> note.getMessage(null)).filter(note -> note.contains("WideDTO")).toList();
+        assertEquals(2, firstNotes.size(), firstNotes::toString);
+
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, List.of(thresholdOption), wide);
+        assertEquals(1, processor.generationCache().hits());
+        final var notes = results.notes.stream().map(note -> note.getMessage(null)).filter(note -> note.contains("WideDTO")).toList();
+        assertEquals(firstNotes, notes);
+    }
+
+    /**
+     * Checks that a DTO for a model having fields of different types with the same simple name compiles,
+     * since one of the types is referenced by its fully qualified name.
+     */
+    @Test
+    void fieldTypesWithSameSimpleNameDontClash() throws IOException {
+        final var statusA = FileObjects.ofLines("incremental.a.Status", "package incremental.a; public enum Status { OPEN }");
+        final var statusB = FileObjects.ofLines("incremental.b.Status", "package incremental.b; public enum Status { PAID }");
+        final var order = FileObjects.ofLines("incremental.Order",
+                """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Order {
+                    public long id;
+                    public incremental.a.Status status;
+                    public incremental.b.Status paymentStatus;
+                }
+                """);
+
+        final var results = compile(new OriginatingElementsProcessor(), statusA, statusB, order);
+        assertTrue(results.success, results.errors::toString);
+        final String orderDto = readGeneratedSource("OrderDTO");
+        assertTrue(orderDto.contains("import incremental.a.Status;"));
+        assertTrue(orderDto.matches("(?s).*\\sStatus status,\\s+incremental\\.b\\.Status paymentStatus.*"));
+    }
+
+    /**
+     * Checks that rendering DTO records in parallel generates exactly the same code as rendering them sequentially
+     * (when the code is written straight to the files, since the cache is disabled).
+     */
+    @Test
+    void parallelRenderingGeneratesSameCodeAsSequential() throws IOException {
+        final var noCacheOption = "-A%s=false".formatted(DTOProcessor.CACHE_OPTION);
+        final var parallelOption = "-A%s=true".formatted(DTOProcessor.PARALLEL_OPTION);
+        assertTrue(compile(new OriginatingElementsProcessor(), List.of(noCacheOption), PERSON, COUNTRY).success);
+        final String sequentialPersonDto = readGeneratedSource("PersonDTO");
+        final String sequentialCountryDto = readGeneratedSource("CountryDTO");
+
+        assertTrue(compile(new OriginatingElementsProcessor(), List.of(noCacheOption, parallelOption), PERSON, COUNTRY).success);
+        assertEquals(sequentialPersonDto, readGeneratedSource("PersonDTO"));
+        assertEquals(sequentialCountryDto, readGeneratedSource("CountryDTO"));
+        assertTrue(sequentialPersonDto.contains("@param name The person name, which is 100% required (%s and %n aren't format placeholders)."));
+    }
+
+    /**
+     * Checks that when there are more model classes than fit into a rendering batch,
+     * the DTO records of all batches are written and stored into the cache.
+     * @see DTOProcessor#RENDERING_BATCH_SIZE
+     */
+    @Test
+    void modelsWrittenInManyRenderingBatches() throws IOException {
+        final int modelCount = DTOProcessor.RENDERING_BATCH_SIZE + 2;
+        final var models = new JavaFileObject[modelCount];
+        for (int i = 0; i < modelCount; i++) {
+            final var modelName = "Model" + i;
+            models[i] = FileObjects.ofLines("incremental." + modelName,
+                    "package incremental;\n\n@io.github.manoelcampos.dtogen.DTO\npublic record %s(long id, String name) {}\n".formatted(modelName));
+        }
+
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, models);
+        assertTrue(results.success, results.errors::toString);
+        assertEquals(modelCount, processor.generationCache().misses());
+        for (int i = 0; i < modelCount; i++) {
+            final var modelName = "Model" + i;
+            assertEquals(List.of(modelName), processor.originatingElementNames("incremental." + modelName + "DTO"));
+            assertTrue(readGeneratedSource(modelName + "DTO").contains("public record %sDTO ".formatted(modelName)));
+            assertTrue(new File(cacheDir, "incremental.%sDTO%s".formatted(modelName, GenerationCache.FILE_EXTENSION)).isFile());
+        }
+    }
+
+    /**
+     * Checks that the generated sources are byte-identical regardless of the order the model classes are processed
+     * and of the line separators used in the model sources, so that build caches aren't invalidated by regenerated code.
+     */
+    @Test
+    void generatedSourcesAreByteIdentical() throws IOException {
+        final var windowsModel = FileObjects.ofLines("incremental.Address",
+                "package incremental;\r\n\r\n@io.github.manoelcampos.dtogen.DTO\r\npublic class Address {\r\n" +
+                "    public long id;\r\n\r\n    /**\r\n     * The street name,\r\n     * written in many lines.\r\n     */\r\n" +
+                "    public String street;\r\n}\r\n");
+        final var options = List.of("-A%s=false".formatted(DTOProcessor.CACHE_OPTION), "-A%s=true".formatted(DTOProcessor.REGISTRY_OPTION));
+
+        assertTrue(compile(new OriginatingElementsProcessor(), options, PERSON, COUNTRY, windowsModel).success);
+        final var firstSources = readGeneratedSources();
+        assertEquals(Set.of("AddressDTO.java", "CountryDTO.java", "PersonDTO.java", RegistryGenerator.DEFAULT_NAME + ".java"), firstSources.keySet());
+        firstSources.forEach((file, bytes) -> assertFalse(new String(bytes).contains("\r"), file));
+
+        assertTrue(compile(new OriginatingElementsProcessor(), options, windowsModel, COUNTRY, PERSON).success);
+        final var secondSources = readGeneratedSources();
+        firstSources.forEach((file, bytes) -> assertArrayEquals(bytes, secondSources.get(file), file));
+    }
+
+    /**
+     * Checks that the static of() method creates a DTO with the values from a model object
+     * and that fromModel() gives the same DTO.
+     */
+    @Test
+    void staticOfMethodCreatesDtoFromModel() throws Exception {
+        assertTrue(compile(new OriginatingElementsProcessor(), COUNTRY).success);
+        try (var loader = new URLClassLoader(new URL[]{classOutput.toURI().toURL()}, getClass().getClassLoader())) {
+            final var modelClass = loader.loadClass("incremental.Country");
+            final var dtoClass = loader.loadClass("incremental.CountryDTO");
+            final var country = modelClass.getConstructor(long.class, String.class).newInstance(1L, "Brazil");
+            final var dto = dtoClass.getMethod("of", modelClass).invoke(null, country);
+            assertEquals(dtoClass.getConstructor(long.class, String.class).newInstance(1L, "Brazil"), dto);
+            assertEquals(dto, dtoClass.getMethod("fromModel", modelClass).invoke(dtoClass.getConstructor().newInstance(), country));
+            assertEquals(country, dtoClass.getMethod("toModel").invoke(dto));
+        }
+    }
+
+    /**
+     * Checks that a DTO for a model having fields named as the static bulk or stream methods compiles,
+     * since such methods aren't generated (and a warning is reported), while the other ones are.
+     */
+    @Test
+    void staticMethodsClashingWithFieldsNotGenerated() throws IOException {
+        final var model = FileObjects.ofLines("incremental.Shipment",
+                "package incremental;\n\n@io.github.manoelcampos.dtogen.DTO\npublic record Shipment(long id, String mapping, int stream) {}\n");
+        final var results = compile(new OriginatingElementsProcessor(), model);
+        assertTrue(results.success, results.errors::toString);
+
+        final var warnings = results.warnings.stream().map(warning -> warning.getMessage(null)).toList();
+        assertEquals(List.of("The static mapping(), stream() methods weren't generated in ShipmentDTO, " +
+                             "since they would clash with the accessors of the fields with the same names."), warnings);
+        final String dto = readGeneratedSource("ShipmentDTO");
+        assertFalse(dto.contains(" mapping("), dto);
+        assertFalse(dto.contains(" stream("), dto);
+        assertFalse(dto.contains("import java.util.stream."), dto);
+        assertTrue(dto.contains("public static Spliterator<ShipmentDTO> spliterator("), dto);
+        assertTrue(dto.contains("public static List<ShipmentDTO> fromModels("), dto);
+    }
+
+    /**
+     * Checks that the statistics report is written into the class output dir and a summary note is shown
+     * when the stats option is enabled.
+     */
+    @Test
+    void statsReportWrittenWhenEnabled() throws IOException {
+        final var statsOption = "-A%s=true".formatted(DTOProcessor.STATS_OPTION);
+        final var results = compile(new OriginatingElementsProcessor(), List.of(statsOption), PERSON, COUNTRY);
+        assertTrue(results.success, results.errors::toString);
+
+        final String report = Files.readString(classOutput.toPath().resolve(ProcessorStats.REPORT_FILE));
+        assertTrue(report.contains("\"dtos\": 2,"), report);
+        assertTrue(report.contains("{\"model\": \"incremental.Person\", \"modelFields\": 2, \"dtoFields\": 2,"), report);
+        assertTrue(report.contains("\"cached\": false"), report);
+        for (final var phase : ProcessorStats.Phase.values())
+            assertTrue(report.contains("\"%s\": ".formatted(phase.key())), report);
+        assertTrue(results.notes.stream().anyMatch(note -> note.getMessage(null).startsWith("DTOGen stats: 2 DTO(s)")));
+    }
+
+    @Test
+    void statsReportNotWrittenByDefault() {
+        assertTrue(compile(new OriginatingElementsProcessor(), PERSON).success);
+        assertFalse(Files.exists(classOutput.toPath().resolve(ProcessorStats.REPORT_FILE)));
+    }
+
+    /**
+     * Checks that the generated registry compiles and maps model objects to their DTOs.
+     * Since the registry is generated from all model classes, the processor must be handled by Gradle as aggregating.
+     */
+    @Test
+    void registryMapsModelsToDtos() throws Exception {
+        final var registryOption = "-A%s=true".formatted(DTOProcessor.REGISTRY_OPTION);
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, List.of(registryOption), PERSON, COUNTRY);
+        assertTrue(results.success, results.errors::toString);
+        assertTrue(results.warnings.isEmpty(), results.warnings::toString);
+        assertEquals(List.of("Person", "Country"), processor.originatingElementNames("incremental." + RegistryGenerator.DEFAULT_NAME));
+        assertTrue(processor.getSupportedOptions().contains(DTOProcessor.GRADLE_AGGREGATING_OPTION));
+        assertFalse(processor.getSupportedOptions().contains(DTOProcessor.GRADLE_ISOLATING_OPTION));
+
+        try (var loader = new URLClassLoader(new URL[]{classOutput.toURI().toURL()}, getClass().getClassLoader())) {
+            final var registry = loader.loadClass("incremental." + RegistryGenerator.DEFAULT_NAME);
+            final var person = loader.loadClass("incremental.Person").getConstructor().newInstance();
+            final Object dto = registry.getMethod("toDto", Object.class).invoke(null, person);
+            assertEquals("incremental.PersonDTO", dto.getClass().getName());
+            assertEquals(person.getClass(), registry.getMethod("toModel", DTORecord.class).invoke(null, dto).getClass());
+            assertEquals(Boolean.TRUE, registry.getMethod("isRegistered", Class.class).invoke(null, person.getClass()));
+            assertEquals(Boolean.FALSE, registry.getMethod("isRegistered", Class.class).invoke(null, String.class));
+        }
+    }
+
+    /**
+     * Checks that when the model classes don't share a package and no registry class name is given,
+     * an error is reported instead of writing the registry into the unnamed package.
+     */
+    @Test
+    void registryNameRequiredWhenModelsDontSharePackage() {
+        final var product = FileObjects.ofLines("catalog.Product", "package catalog; @io.github.manoelcampos.dtogen.DTO public record Product(long id) {}");
+        final var results = compile(new OriginatingElementsProcessor(), List.of("-A%s=true".formatted(DTOProcessor.REGISTRY_OPTION)), PERSON, product);
+        assertFalse(results.success);
+        assertTrue(results.errors.toString().contains("-A%s=com.company.MyRegistry".formatted(DTOProcessor.REGISTRY_OPTION)), results.errors::toString);
+        assertFalse(Files.exists(sourceOutput.toPath().resolve(RegistryGenerator.DEFAULT_NAME + ".java")));
+
+        final var namedRegistryOption = "-A%s=app.Registry".formatted(DTOProcessor.REGISTRY_OPTION);
+        final var namedResults = compile(new OriginatingElementsProcessor(), List.of(namedRegistryOption), PERSON, product);
+        assertTrue(namedResults.success, namedResults.errors::toString);
+        assertTrue(Files.exists(sourceOutput.toPath().resolve("app/Registry.java")));
+    }
+
+    @Test
+    void registryNotGeneratedByDefault() {
+        final var processor = new OriginatingElementsProcessor();
+        assertTrue(compile(processor, PERSON).success);
+        assertTrue(processor.getSupportedOptions().contains(DTOProcessor.REGISTRY_OPTION));
+        assertFalse(Files.exists(sourceOutput.toPath().resolve("incremental").resolve(RegistryGenerator.DEFAULT_NAME + ".java")));
+    }
+
+    /**
+     * Checks that a DTO for a model with too many fields to be included directly into a record is grouped into nested records,
+     * its toModel() method is split into helper methods and the model fields are still mapped back and forth.
+     */
+    @Test
+    void wideModelDtoSplitIntoGroupsAndHelperMethods() throws Exception {
+        final int fieldCount = 300;
+        final var wide = wideModel(fieldCount);
+
+        final var thresholdOption = "-A%s=1000".formatted(DTOProcessor.SPLIT_THRESHOLD_OPTION);
+        final var results = compile(new OriginatingElementsProcessor(), List.of(thresholdOption), wide);
+        assertTrue(results.success, results.errors::toString);
+        final var notes = results.notes.stream().map(note -> note.getMessage(null)).toList();
+        assertTrue(notes.stream().anyMatch(note -> note.startsWith("The 300 fields of WideDTO were grouped into")), notes::toString);
+        assertTrue(notes.stream().anyMatch(note -> note.startsWith("WideDTO.toModel() was split into")), notes::toString);
+
+        final String wideDto = readGeneratedSource("WideDTO");
+        assertTrue(wideDto.contains("public record WideDTO (Group1 group1, Group2 group2,"), wideDto);
+        assertTrue(wideDto.contains("private void toModel1(final Wide model, final MappingContext mappingContext) {"), wideDto);
+
+        try (var loader = new URLClassLoader(new URL[]{classOutput.toURI().toURL()}, getClass().getClassLoader())) {
+            final var modelClass = loader.loadClass("incremental.Wide");
+            final var model = modelClass.getConstructor().newInstance();
+            for (int i = 0; i < fieldCount; i++)
+                modelClass.getField("field" + i).setLong(model, i + 1);
+
+            final var dto = (DTORecord<?>) loader.loadClass("incremental.WideDTO").getConstructor().newInstance();
+            final var dtoFromModel = (DTORecord<?>) dto.getClass().getMethod("fromModel", modelClass).invoke(dto, model);
+            final Object newModel = dtoFromModel.toModel();
+            for (int i = 0; i < fieldCount; i++)
+                assertEquals(i + 1, modelClass.getField("field" + i).getLong(newModel));
+        }
+    }
+
+    /**
+     * {@return a model class with many long fields}
+     * @param fieldCount the number of fields
+     */
+    private static JavaFileObject wideModel(final int fieldCount) {
+        final var fields = new StringBuilder();
+        for (int i = 0; i < fieldCount; i++)
+            fields.append("    public long field%d;%n".formatted(i));
+
+        return FileObjects.ofLines("incremental.Wide", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Wide {
+                %s}
+                """.formatted(fields));
+    }
+
+    /**
+     * Checks that the DTOs for subclasses of a mapped superclass (in another package) call a single shared mapping class
+     * to map the inherited fields, instead of repeating that code.
+     */
+    @Test
+    void subclassDtosShareSuperclassMapping() throws Exception {
+        final var mappedSuperclass = FileObjects.ofLines("incremental.base.MappedSuperclass", "package incremental.base; public @interface MappedSuperclass {}");
+        final var user = FileObjects.ofLines("incremental.base.User", "package incremental.base; public class User { public long id; }");
+        final var baseEntity = FileObjects.ofLines("incremental.base.BaseEntity", """
+                package incremental.base;
+
+                @MappedSuperclass
+                public abstract class BaseEntity {
+                    public long id;
+                    public int version;
+
+                    @io.github.manoelcampos.dtogen.DTO.MapToId
+                    public User createdBy;
+                }
+                """);
+        final var customer = FileObjects.ofLines("incremental.Customer", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Customer extends incremental.base.BaseEntity {
+                    public String name;
+                }
+                """);
+        final var invoice = FileObjects.ofLines("incremental.Invoice", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Invoice extends incremental.base.BaseEntity {
+                    public double total;
+                }
+                """);
+
+        final var results = compile(new OriginatingElementsProcessor(), mappedSuperclass, user, baseEntity, customer, invoice);
+        assertTrue(results.success, results.errors::toString);
+        final var mappingSource = Files.readString(sourceOutput.toPath().resolve("incremental/base/BaseEntity" + SharedMappingGenerator.NAME_SUFFIX + ".java"));
+        assertTrue(mappingSource.contains("public static void toModel(final DTORecord<?> dto, final BaseEntity model, final long id, final int version, final long createdById) {"), mappingSource);
+        for (final var dtoName : List.of("CustomerDTO", "InvoiceDTO")) {
+            final var dtoSource = readGeneratedSource(dtoName);
+            assertTrue(dtoSource.contains("BaseEntityDTOMapping.toModel(this, model, id, version, createdById);"), dtoSource);
+            assertTrue(dtoSource.contains("BaseEntityDTOMapping.createdById(model)"), dtoSource);
+        }
+
+        try (var loader = new URLClassLoader(new URL[]{classOutput.toURI().toURL()}, getClass().getClassLoader())) {
+            final var customerClass = loader.loadClass("incremental.Customer");
+            final var userObject = loader.loadClass("incremental.base.User").getConstructor().newInstance();
+            userObject.getClass().getField("id").setLong(userObject, 7);
+            final var customerObject = customerClass.getConstructor().newInstance();
+            customerClass.getField("id").setLong(customerObject, 1);
+            customerClass.getField("createdBy").set(customerObject, userObject);
+
+            final var dto = (DTORecord<?>) loader.loadClass("incremental.CustomerDTO").getConstructor().newInstance();
+            final var newCustomer = ((DTORecord<?>) dto.getClass().getMethod("fromModel", customerClass).invoke(dto, customerObject)).toModel();
+            assertEquals(1L, customerClass.getField("id").getLong(newCustomer));
+            final Object newUser = customerClass.getField("createdBy").get(newCustomer);
+            assertEquals(7L, newUser.getClass().getField("id").getLong(newUser));
+        }
+    }
+
+    /**
+     * Checks that no shared mapping class is generated for a mapped superclass coming from the classpath
+     * (such as from a dependency jar), since it would be generated into the superclass package
+     * of every module extending it. The subclass DTO maps the inherited fields by itself instead.
+     * A plain {@link DTOProcessor} is used, so that it checks the classes parsed by javac.
+     */
+    @Test
+    void superclassFromClasspathNotShared(@TempDir final File libOutput) throws Exception {
+        final var mappedSuperclass = FileObjects.ofLines("lib.MappedSuperclass", "package lib; public @interface MappedSuperclass {}");
+        final var baseEntity = FileObjects.ofLines("lib.BaseEntity", """
+                package lib;
+
+                @MappedSuperclass
+                public abstract class BaseEntity {
+                    public long id;
+                    public int version;
+                }
+                """);
+        final var libResults = Compiler.javac(libOutput, libOutput).currentClasspath().options("-proc:none").compile(mappedSuperclass, baseEntity);
+        assertTrue(libResults.success, libResults.errors::toString);
+
+        final var customer = FileObjects.ofLines("incremental.Customer", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Customer extends lib.BaseEntity {
+                    public String name;
+                }
+                """);
+        final var results = Compiler.javac(classOutput, sourceOutput)
+                                    .currentClasspath()
+                                    .classpath(List.of(libOutput))
+                                    .processors(new DTOProcessor())
+                                    .options("-A%s=%s".formatted(DTOProcessor.CACHE_DIR_OPTION, cacheDir))
+                                    .compile(customer);
+        assertTrue(results.success, results.errors::toString);
+        assertFalse(sourceOutput.toPath().resolve("lib").toFile().exists());
+        final var dtoSource = readGeneratedSource("CustomerDTO");
+        assertFalse(dtoSource.contains(SharedMappingGenerator.NAME_SUFFIX), dtoSource);
+
+        try (var loader = new URLClassLoader(new URL[]{classOutput.toURI().toURL(), libOutput.toURI().toURL()}, getClass().getClassLoader())) {
+            final var customerClass = loader.loadClass("incremental.Customer");
+            final var customerObject = customerClass.getConstructor().newInstance();
+            customerClass.getField("id").setLong(customerObject, 1);
+            customerClass.getField("version").setInt(customerObject, 2);
+
+            final var dto = (DTORecord<?>) loader.loadClass("incremental.CustomerDTO").getConstructor().newInstance();
+            final var newCustomer = ((DTORecord<?>) dto.getClass().getMethod("fromModel", customerClass).invoke(dto, customerObject)).toModel();
+            assertEquals(1L, customerClass.getField("id").getLong(newCustomer));
+            assertEquals(2, customerClass.getField("version").getInt(newCustomer));
+        }
+    }
+
+    /**
+     * Checks that when the dtogen-runtime is on the classpath, the {@link DTORecord} interface
+     * and the {@link Mappings} class aren't generated and the DTO records call the runtime mapping helpers.
+     * Since each DTO is then generated from its model class alone, the processor is handled by Gradle as isolating.
+     * The class indicating the runtime is available is compiled from its source together with the model classes
+     * (the other runtime classes are on the test classpath).
+     */
+    @Test
+    void runtimeHelpersUsedWhenRuntimeAvailable() throws Exception {
+        final var runtimeClass = runtimeClass();
+        final var item = FileObjects.ofLines("incremental.Item", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Item(long id, String description) {
+                }
+                """);
+        final var order = FileObjects.ofLines("incremental.Order", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Order {
+                    public long id;
+
+                    @io.github.manoelcampos.dtogen.DTO.MapToId
+                    public Person customer;
+
+                    public java.util.List<Item> items;
+                }
+                """);
+
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, runtimeClass, PERSON, item, order);
+        assertTrue(results.success, results.errors::toString);
+        assertFalse(processor.originatingElementsMap.containsKey(DTORecord.class.getName()));
+        assertFalse(processor.originatingElementsMap.containsKey(Mappings.class.getName()));
+        assertTrue(processor.getSupportedOptions().contains(DTOProcessor.GRADLE_ISOLATING_OPTION));
+        assertFalse(processor.getSupportedOptions().contains(DTOProcessor.GRADLE_AGGREGATING_OPTION));
+        final var orderDto = readGeneratedSource("OrderDTO");
+        assertTrue(orderDto.contains("Mappings.longId(model.customer, association -> association.id)"), orderDto);
+        assertTrue(orderDto.contains("Mappings.mapList(model.items, item -> ItemDTO.of(item, mappingContext))"), orderDto);
+        assertTrue(orderDto.contains("Mappings.mapList(items, item -> item.toModel(mappingContext))"), orderDto);
+        assertTrue(orderDto.contains("Mappings.newObject(customerId, "), orderDto);
+
+        try (var loader = new URLClassLoader(new URL[]{classOutput.toURI().toURL()}, getClass().getClassLoader())) {
+            final var orderClass = loader.loadClass("incremental.Order");
+            final var orderObject = orderClass.getConstructor().newInstance();
+            orderClass.getField("id").setLong(orderObject, 3);
+
+            final var dto = (DTORecord<?>) loader.loadClass("incremental.OrderDTO").getConstructor().newInstance();
+            final var newOrder = ((DTORecord<?>) dto.getClass().getMethod("fromModel", orderClass).invoke(dto, orderObject)).toModel();
+            assertEquals(3L, orderClass.getField("id").getLong(newOrder));
+            assertNull(orderClass.getField("customer").get(newOrder));
+            assertNull(orderClass.getField("items").get(newOrder));
+        }
+    }
+
+    /**
+     * Checks that the items of List, Collection, Set, Map, array and Optional fields are mapped to DTO records and back
+     * by loops (without streams), keeping null collections and items, by the {@link Mappings} methods
+     * (either written into the application or from the dtogen-runtime).
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void collectionItemsMappedBothWays(final boolean runtime) throws Exception {
+        final var catalogCheck = """
+                final var pen = new Item(1, "Pen");
+                final var ink = new Item(2, "Ink");
+                final var model = new Catalog();
+                model.list = Arrays.asList(pen, null);
+                model.collection = new ArrayDeque<>(List.of(pen, ink));
+                model.set = new LinkedHashSet<>(List.of(ink, pen));
+                model.map = new LinkedHashMap<>(Map.of("pen", pen));
+                model.array = new Item[]{ink, null};
+                model.optional = Optional.of(pen);
+                model.tags = new String[]{"office"};
+
+                final CatalogDTO dto = CatalogDTO.of(model);
+                final List<ItemDTO> list = dto.list();
+                final Set<ItemDTO> set = dto.set();
+                final Map<String, ItemDTO> map = dto.map();
+                final ItemDTO[] array = dto.array();
+                final Optional<ItemDTO> optional = dto.optional();
+                check(Arrays.asList(new ItemDTO(1, "Pen"), null).equals(list), "list");
+                check(List.of(new ItemDTO(2, "Ink"), new ItemDTO(1, "Pen")).equals(List.copyOf(set)), "set order");
+                check(Map.of("pen", new ItemDTO(1, "Pen")).equals(map), "map");
+                check(Arrays.equals(new ItemDTO[]{new ItemDTO(2, "Ink"), null}, array), "array");
+                check(Optional.of(new ItemDTO(1, "Pen")).equals(optional), "optional");
+                check(dto.nullList() == null, "null list");
+
+                final Catalog back = dto.toModel();
+                check(model.list.equals(back.list), "list back");
+                check(List.copyOf(model.collection).equals(List.copyOf(back.collection)), "collection back");
+                check(model.set.equals(back.set), "set back");
+                check(model.map.equals(back.map), "map back");
+                check(Arrays.equals(model.array, back.array), "array back");
+                check(model.optional.equals(back.optional), "optional back");
+                check(Arrays.equals(model.tags, back.tags), "tags back");
+                check(back.nullList == null, "null list back");
+                """;
+        final var item = FileObjects.ofLines("incremental.Item", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Item(long id, String description) {
+                }
+                """);
+        final var catalog = FileObjects.ofLines("incremental.Catalog", """
+                package incremental;
+
+                import java.util.*;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Catalog {
+                    public List<Item> list;
+                    public Collection<Item> collection;
+                    public Set<Item> set;
+                    public Map<String, Item> map;
+                    public Item[] array;
+                    public Optional<Item> optional;
+                    public String[] tags;
+                    public List<Item> nullList;
+                }
+                """);
+
+        final var sources = new ArrayList<>(List.of(item, catalog));
+        if (runtime)
+            sources.add(runtimeClass());
+
+        compileAndRunCheck(List.of(), catalogCheck, sources.toArray(JavaFileObject[]::new));
+        final var catalogDto = readGeneratedSource("CatalogDTO");
+        assertFalse(catalogDto.contains(".stream()"), catalogDto);
+        assertTrue(catalogDto.contains("String[] tags"), catalogDto);
+        assertTrue(catalogDto.contains("ItemDTO[] array"), catalogDto);
+        assertTrue(catalogDto.contains("Mappings.mapSet(model.set, item -> ItemDTO.of(item, mappingContext))"), catalogDto);
+        assertTrue(catalogDto.contains("Mappings.mapMap(map, Function.identity(), item -> item.toModel(mappingContext))"), catalogDto);
+        assertTrue(catalogDto.contains("Mappings.mapArray(model.array, ItemDTO[]::new, item -> ItemDTO.of(item, mappingContext))"), catalogDto);
+        assertTrue(catalogDto.contains("Mappings.mapArray(array, Item[]::new, item -> item.toModel(mappingContext))"), catalogDto);
+        assertFalse(catalogDto.contains("private static"), catalogDto);
+    }
+
+    /**
+     * Checks that distinct model items of a Set field mapped to equal DTO records are kept just once,
+     * as documented in the generated DTO record.
+     */
+    @Test
+    void setItemsMappedToEqualDtosCollapsed() throws Exception {
+        final var tag = FileObjects.ofLines("incremental.Tag", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Tag {
+                    public String name;
+
+                    public Tag() {}
+
+                    public Tag(final String name) {
+                        this.name = name;
+                    }
+                }
+                """);
+        final var post = FileObjects.ofLines("incremental.Post", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Post {
+                    public java.util.Set<Tag> tags;
+                }
+                """);
+        final var setCheck = """
+                final var post = new Post();
+                post.tags = new LinkedHashSet<>(List.of(new Tag("java"), new Tag("dto"), new Tag("java")));
+                check(post.tags.size() == 3, "distinct model tags");
+                check(List.of(new TagDTO("java"), new TagDTO("dto")).equals(List.copyOf(PostDTO.of(post).tags())), "equal DTO tags collapsed");
+                """;
+
+        compileAndRunCheck(List.of(), setCheck, tag, post);
+        final var postDto = readGeneratedSource("PostDTO");
+        assertTrue(postDto.contains("Model items of the {@code tags} set(s) that are mapped to equal DTO records are kept just once,"), postDto);
+        assertFalse(readGeneratedSource("TagDTO").contains("kept just once"));
+    }
+
+    /**
+     * Checks that List and Collection fields in a view mode (given by the {@link DTO} or the field annotation)
+     * are mapped to read-only list views, whose items are mapped just when accessed (and just once, if memoized),
+     * by the {@link Mappings} method (either written into the application or from the dtogen-runtime).
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void listFieldsMappedToLazyViews(final boolean runtime) throws Exception {
+        final var item = FileObjects.ofLines("incremental.Item", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Item(long id, String description) {
+                    public static int reads;
+
+                    @Override
+                    public String description() {
+                        reads++;
+                        return description;
+                    }
+                }
+                """);
+        final var order = FileObjects.ofLines("incremental.Order", """
+                package incremental;
+
+                import io.github.manoelcampos.dtogen.DTO;
+                import java.util.*;
+
+                @DTO(collections = DTO.CollectionMode.VIEW)
+                public class Order {
+                    public List<Item> items;
+                    public Collection<Item> collection;
+                    @DTO.MapCollection(DTO.CollectionMode.MEMOIZED_VIEW)
+                    public List<Item> memoizedItems;
+                    @DTO.MapCollection(DTO.CollectionMode.COPY)
+                    public List<Item> copiedItems;
+                    public Set<Item> set;
+                }
+                """);
+        final var viewCheck = """
+                final var items = LongStream.range(0, 1000).mapToObj(id -> new Item(id, "Item " + id)).toList();
+                final var model = new Order();
+                model.items = items;
+                model.collection = new ArrayDeque<>(items);
+                model.memoizedItems = items;
+                model.set = Set.of(items.getFirst());
+
+                final OrderDTO dto = OrderDTO.of(model);
+                check(Item.reads == 1, "just the set item mapped");
+                check(dto.items().size() == 1000 && dto.collection().size() == 1000, "view size");
+
+                check(dto.items().get(5).equals(new ItemDTO(5, "Item 5")), "view item");
+                dto.items().get(5);
+                check(Item.reads == 3, "view item mapped on every access");
+
+                check(dto.memoizedItems().get(7) == dto.memoizedItems().get(7), "memoized item");
+                check(Item.reads == 4, "memoized item mapped once");
+
+                final var expected = items.stream().map(ItemDTO::of).toList();
+                check(expected.equals(dto.items()) && expected.equals(dto.memoizedItems()), "view items");
+                check(expected.equals(List.copyOf(dto.collection())), "collection view items");
+                check(dto.copiedItems() == null, "null list");
+
+                try {
+                    dto.items().add(new ItemDTO());
+                    throw new AssertionError("view changed");
+                } catch (final UnsupportedOperationException e) {
+                    // The view is read-only
+                }
+
+                check(items.equals(dto.toModel().items), "items back");
+                """;
+
+        final var sources = new ArrayList<>(List.of(item, order));
+        if (runtime)
+            sources.add(runtimeClass());
+
+        compileAndRunCheck(List.of(), viewCheck, sources.toArray(JavaFileObject[]::new));
+        final var orderDto = readGeneratedSource("OrderDTO");
+        assertTrue(orderDto.contains("Mappings.viewList(model.items, ItemDTO::of, false)"), orderDto);
+        assertTrue(orderDto.contains("Mappings.viewList(model.memoizedItems, ItemDTO::of, true)"), orderDto);
+        assertTrue(orderDto.contains("Mappings.mapList(model.copiedItems, item -> ItemDTO.of(item, mappingContext))"), orderDto);
+        assertTrue(orderDto.contains("Mappings.mapSet(model.set, item -> ItemDTO.of(item, mappingContext))"), orderDto);
+    }
+
+    /**
+     * Checks that objects mapped inside a {@link MappingContext} are mapped just once (keeping shared references
+     * in the mapped graph, both ways) and that a model referring to itself through its items is reported,
+     * instead of overflowing the stack.
+     */
+    @Test
+    void graphMappedInsideContext() throws Exception {
+        final var node = FileObjects.ofLines("incremental.Node", """
+                package incremental;
+
+                import java.util.*;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Node {
+                    public long id;
+                    public List<Node> children = new ArrayList<>();
+
+                    public Node() {}
+
+                    public Node(final long id, final Node... children) {
+                        this.id = id;
+                        this.children.addAll(List.of(children));
+                    }
+                }
+                """);
+        final var graphCheck = """
+                final var shared = new Node(3);
+                final var root = new Node(1, new Node(2, shared), shared);
+
+                final NodeDTO dto;
+                try (var context = MappingContext.open()) {
+                    dto = NodeDTO.of(root, context);
+                    check(dto == NodeDTO.of(root, context), "same DTO for the same model");
+                }
+
+                final NodeDTO sharedDto = dto.children().get(1);
+                check(dto.children().getFirst().children().getFirst() == sharedDto, "shared DTO");
+                check(NodeDTO.of(root).children().get(1) != NodeDTO.of(root).children().get(1), "no context");
+
+                try (var context = MappingContext.open()) {
+                    final Node model = dto.toModel(context);
+                    check(model.children.getFirst().children.getFirst() == model.children.get(1), "shared model");
+                }
+
+                final var cyclic = new Node(4);
+                cyclic.children.add(new Node(5, cyclic));
+                try (var context = MappingContext.open()) {
+                    NodeDTO.of(cyclic, context);
+                    throw new AssertionError("cycle not found");
+                } catch (final IllegalStateException e) {
+                    check(e.getMessage().matches("Cyclic reference found when mapping Node@\\\\w+ -> Node@\\\\w+ -> Node@\\\\w+"), e.getMessage());
+                }
+                """;
+
+        compileAndRunCheck(List.of(), graphCheck, node);
+        assertTrue(readGeneratedSource("NodeDTO").contains("item -> NodeDTO.of(item, mappingContext)"));
+    }
+
+    /**
+     * Checks that the DTO record bulk methods map many objects (including their nested DTO items) back and forth,
+     * keeping their order, both sequentially and in parallel (when the objects reach the parallel threshold).
+     * Also checks that the stream methods map the objects lazily, keeping the size of the source.
+     */
+    @Test
+    void bulkMethodsMapManyObjectsInOrder() throws Exception {
+        final var item = FileObjects.ofLines("incremental.Item", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Item(long id, String description) {
+                }
+                """);
+        final var order = FileObjects.ofLines("incremental.Order", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Order(long id, java.util.List<Item> items) {
+                }
+                """);
+        final var bulkCheck = """
+                final List<Order> orders = LongStream.range(0, 1000)
+                        .mapToObj(id -> new Order(id, List.of(new Item(id, "Item " + id))))
+                        .collect(Collectors.toCollection(LinkedList::new));
+                orders.set(1, null);
+                final List<OrderDTO> expected = orders.stream().map(o -> o == null ? null : OrderDTO.of(o)).toList();
+
+                check(expected.equals(OrderDTO.fromModels(orders)), "fromModels");
+                check(expected.equals(OrderDTO.fromModelsParallel(orders)), "fromModelsParallel");
+                check(Arrays.equals(expected.toArray(), OrderDTO.fromModels(orders.toArray(Order[]::new))), "fromModels array");
+                check(expected.get(2).items().equals(List.of(new ItemDTO(2, "Item 2"))), "nested items");
+
+                check(orders.equals(OrderDTO.toModels(expected)), "toModels");
+                check(orders.equals(OrderDTO.toModelsParallel(expected)), "toModelsParallel");
+                check(Arrays.equals(orders.toArray(), OrderDTO.toModels(expected.toArray(OrderDTO[]::new))), "toModels array");
+                check(OrderDTO.fromModels((Collection<Order>) null) == null, "null models");
+
+                check(expected.equals(OrderDTO.stream(orders.stream()).toList()), "stream");
+                check(expected.equals(orders.stream().collect(OrderDTO.mapping())), "mapping");
+                check(expected.equals(orders.parallelStream().collect(OrderDTO.mapping(100))), "parallel mapping");
+                final var mappedCount = new java.util.concurrent.atomic.AtomicInteger();
+                OrderDTO.stream(orders.stream().peek(o -> mappedCount.incrementAndGet())).limit(3).toList();
+                check(mappedCount.get() == 3, "lazy stream");
+
+                final var spliterator = OrderDTO.spliterator(new ArrayList<>(orders).spliterator());
+                check(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED), "sized spliterator");
+                check(spliterator.getExactSizeIfKnown() == orders.size(), "spliterator size");
+                check(expected.equals(StreamSupport.stream(spliterator, true).toList()), "parallel spliterator");
+                """;
+
+        final var thresholdOption = "-A%s=100".formatted(DTOProcessor.BULK_PARALLEL_THRESHOLD_OPTION);
+        compileAndRunCheck(List.of(thresholdOption), bulkCheck, item, order);
+        assertTrue(readGeneratedSource("OrderDTO").contains("mapListParallel(models, OrderDTO::of, 100)"));
+    }
+
+    /**
+     * Checks that an error is reported for a field whose type is a generic type (other than the supported collections)
+     * with {@link DTO} annotated type arguments, since its items can't be mapped.
+     */
+    @Test
+    void unsupportedCollectionOfDtosReportsError() {
+        final var shelf = FileObjects.ofLines("incremental.Shelf", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Shelf {
+                    public java.util.ArrayList<Country> countries;
+                }
+                """);
+
+        final var results = compile(new OriginatingElementsProcessor(), COUNTRY, shelf);
+        assertFalse(results.success);
+        assertTrue(results.errors.stream().anyMatch(error -> error.getMessage(null).contains("countries field type (java.util.ArrayList)")), results.errors::toString);
+    }
+
+    /**
+     * Checks that the class list for AppCDS archives includes the DTO records, the model classes,
+     * the classes of MapToId fields and the DTO registry, in the class list format.
+     */
+    @Test
+    void classListWrittenWhenEnabled() throws IOException {
+        final var address = FileObjects.ofLines("incremental.Address", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Address(long id, String street, @io.github.manoelcampos.dtogen.DTO.MapToId Country country) {
+                }
+                """);
+        final var options = List.of("-A%s=true".formatted(DTOProcessor.CLASSLIST_OPTION), "-A%s=true".formatted(DTOProcessor.REGISTRY_OPTION));
+        final var results = compile(new OriginatingElementsProcessor(), options, PERSON, COUNTRY, address);
+        assertTrue(results.success, results.errors::toString);
+
+        final var classList = Files.readAllLines(classOutput.toPath().resolve(ClassListGenerator.FILE));
+        assertTrue(classList.getFirst().startsWith("#"), classList::toString);
+        assertEquals(
+            List.of("incremental/Address", "incremental/AddressDTO", "incremental/Country", "incremental/CountryDTO",
+                    "incremental/DTORegistry", "incremental/Person", "incremental/PersonDTO",
+                    "io/github/manoelcampos/dtogen/DTORecord", "io/github/manoelcampos/dtogen/MappingContext",
+                    "io/github/manoelcampos/dtogen/runtime/Mappings"),
+            classList.subList(1, classList.size()));
+    }
+
+    /**
+     * Checks that the class list is generated from all model classes,
+     * so that the processor is handled by Gradle as aggregating when the list is enabled.
+     */
+    @Test
+    void classListGeneratedFromAllModels() {
+        final var processor = new OriginatingElementsProcessor();
+        final var results = compile(processor, List.of("-A%s=true".formatted(DTOProcessor.CLASSLIST_OPTION)), PERSON, COUNTRY);
+        assertTrue(results.success, results.errors::toString);
+        assertEquals(List.of("Person", "Country"), processor.originatingElementNames(ClassListGenerator.FILE));
+        assertTrue(processor.getSupportedOptions().contains(DTOProcessor.GRADLE_AGGREGATING_OPTION));
+    }
+
+    /**
+     * Checks that the class list isn't written when the {@link DTOProcessor#CLASSLIST_OPTION} isn't enabled.
+     */
+    @Test
+    void classListNotWrittenByDefault() {
+        assertTrue(compile(new OriginatingElementsProcessor(), PERSON).success);
+        assertFalse(classOutput.toPath().resolve(ClassListGenerator.FILE).toFile().exists());
+    }
+
+    /**
+     * Checks that a native image reflection configuration is written for each DTO record,
+     * registering just the DTO record members and the model members used by the mapping methods.
+     */
+    @Test
+    void nativeImageConfigWrittenForEachDto() throws IOException {
+        final var customer = FileObjects.ofLines("incremental.Customer", """
+                package incremental;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Customer {
+                    private long id;
+                    public java.util.List<String> phones;
+
+                    @io.github.manoelcampos.dtogen.DTO.MapToId
+                    public Country country;
+
+                    public long getId() { return id; }
+                    public void setId(long id) { this.id = id; }
+                }
+                """);
+        final var option = "-A%s=com.company/app".formatted(DTOProcessor.NATIVE_IMAGE_OPTION);
+        final var results = compile(new OriginatingElementsProcessor(), List.of(option), COUNTRY, customer);
+        assertTrue(results.success, results.errors::toString);
+
+        final var configDir = classOutput.toPath().resolve("META-INF/native-image/com.company/app");
+        final var countryConfig = Files.readString(configDir.resolve("incremental.CountryDTO").resolve(NativeImageConfigGenerator.FILE_NAME));
+        assertTrue(countryConfig.contains("\"name\": \"incremental.CountryDTO\""), countryConfig);
+        assertTrue(countryConfig.contains("{\"name\": \"<init>\", \"parameterTypes\": [\"long\", \"java.lang.String\"]}"), countryConfig);
+
+        final var customerConfig = Files.readString(configDir.resolve("incremental.CustomerDTO").resolve(NativeImageConfigGenerator.FILE_NAME));
+        assertEquals("""
+                [
+                  {
+                    "name": "incremental.Customer",
+                    "fields": [{"name": "country"}, {"name": "phones"}],
+                    "methods": [
+                      {"name": "<init>", "parameterTypes": []},
+                      {"name": "getId", "parameterTypes": []},
+                      {"name": "setId", "parameterTypes": ["long"]}
+                    ]
+                  },
+                  {
+                    "name": "incremental.CustomerDTO",
+                    "queryAllDeclaredMethods": true,
+                    "fields": [{"name": "countryId"}, {"name": "id"}, {"name": "phones"}],
+                    "methods": [
+                      {"name": "<init>", "parameterTypes": ["long", "java.util.List", "long"]},
+                      {"name": "countryId", "parameterTypes": []},
+                      {"name": "id", "parameterTypes": []},
+                      {"name": "phones", "parameterTypes": []}
+                    ]
+                  }
+                ]
+                """, customerConfig);
+    }
+
+    /**
+     * {@return the source of the class indicating the dtogen-runtime is on the classpath}
+     * @see DTOProcessor#RUNTIME_CLASS
+     */
+    private static JavaFileObject runtimeClass() throws IOException {
+        final var runtimeFile = Path.of("../runtime/src/main/java", DTOProcessor.RUNTIME_CLASS.replace('.', '/') + ".java");
+        return FileObjects.ofLines(DTOProcessor.RUNTIME_CLASS, Files.readString(runtimeFile));
+    }
+
+    private String readGeneratedSource(final String className) throws IOException {
+        return Files.readString(sourceOutput.toPath().resolve("incremental").resolve(className + ".java"));
+    }
+
+    /**
+     * {@return a map where each key is the name of a generated source file and the value is its content}
+     */
+    private Map<String, byte[]> readGeneratedSources() throws IOException {
+        final var sources = new HashMap<String, byte[]>();
+        try (var files = Files.list(sourceOutput.toPath().resolve("incremental"))) {
+            for (final var file : files.toList())
+                sources.put(file.getFileName().toString(), Files.readAllBytes(file));
+        }
+
+        return sources;
+    }
+
+    /**
+     * Compiles some model classes together with a {@code Check} class and runs its {@code check()} method,
+     * which uses the generated DTO records.
+     * The Check class is in the models package and imports {@code java.util.*}, {@code java.util.stream.*} and the {@link MappingContext}.
+     * @param options the options given to the compiler
+     * @param checkBody the code inside the {@code check()} method,
+     *                  which calls {@code check(condition, message)} to throw an {@link AssertionError} when a condition is false
+     * @param sources the model classes to compile
+     */
+    private void compileAndRunCheck(final List<String> options, final String checkBody, final JavaFileObject... sources) throws Exception {
+        final var check = FileObjects.ofLines("incremental.Check", """
+                package incremental;
+
+                import io.github.manoelcampos.dtogen.MappingContext;
+                import java.util.*;
+                import java.util.stream.*;
+
+                public class Check {
+                    public static void check() {
+                """ + checkBody.indent(8) + """
+                    }
+
+                    private static void check(final boolean condition, final String message) {
+                        if (!condition)
+                            throw new AssertionError(message);
+                    }
+                }
+                """);
+
+        final var allSources = Stream.concat(Stream.of(sources), Stream.of(check)).toArray(JavaFileObject[]::new);
+        final var results = compile(new OriginatingElementsProcessor(), options, allSources);
+        assertTrue(results.success, results.errors::toString);
+        try (var loader = new URLClassLoader(new URL[]{classOutput.toURI().toURL()}, getClass().getClassLoader())) {
+            loader.loadClass("incremental.Check").getMethod("check").invoke(null);
+        }
+    }
+
+    private Results compile(final DTOProcessor processor, final JavaFileObject... sources) {
+        return compile(processor, List.of(), sources);
+    }
+
+    private Results compile(final DTOProcessor processor, final List<String> options, final JavaFileObject... sources) {
+        final var allOptions = new ArrayList<>(options);
+        allOptions.add("-A%s=%s".formatted(DTOProcessor.CACHE_DIR_OPTION, cacheDir));
+        return Compiler.javac(classOutput, sourceOutput)
+                       .currentClasspath()
+                       .processors(processor)
+                       .options(allOptions)
+                       .compile(sources);
+    }
+
+    /**
+     * A {@link DTOProcessor} that records the originating elements given to the {@link Filer} for each created source or resource file.
+     * Since the processor annotations aren't inherited, they must be declared again.
+     */
+    @SupportedAnnotationTypes("io.github.manoelcampos.dtogen.DTO")
+    @SupportedSourceVersion(SourceVersion.RELEASE_21)
+    private static final class OriginatingElementsProcessor extends DTOProcessor {
+        /**
+         * A map where each key is the name of a created source (or resource) file and the value the originating elements for that file.
+         */
+        private final Map<String, Element[]> originatingElementsMap = new HashMap<>();
+
+        @Override
+        public synchronized void init(final ProcessingEnvironment processingEnv) {
+            final var filer = processingEnv.getFiler();
+            final Filer recordingFiler = newProxy(Filer.class, (proxy, method, args) -> {
+                if ("createSourceFile".equals(method.getName()))
+                    originatingElementsMap.put(args[0].toString(), (Element[]) args[1]);
+                else if ("createResource".equals(method.getName()))
+                    originatingElementsMap.put(args[2].toString(), (Element[]) args[3]);
+                return invoke(method, filer, args);
+            });
+
+            super.init(newProxy(ProcessingEnvironment.class, (proxy, method, args) ->
+                    "getFiler".equals(method.getName()) ? recordingFiler : invoke(method, processingEnv, args)));
+        }
+
+        private List<String> originatingElementNames(final String sourceFileName) {
+            final var elements = originatingElementsMap.getOrDefault(sourceFileName, new Element[0]);
+            return Stream.of(elements).map(element -> element.getSimpleName().toString()).toList();
+        }
+
+        private static <T> T newProxy(final Class<T> clazz, final InvocationHandler handler) {
+            return clazz.cast(Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, handler));
+        }
+
+        private static Object invoke(final Method method, final Object target, final Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
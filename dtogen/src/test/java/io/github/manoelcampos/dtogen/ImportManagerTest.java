@@ -0,0 +1,50 @@
+package io.github.manoelcampos.dtogen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImportManagerTest {
+    @Test
+    void useReturnsSimpleNameAndImportsTypesFromOtherPackages() {
+        final var instance = new ImportManager("com.sample");
+        assertEquals("Person", instance.use("com.sample.Person"));
+        assertEquals("String", instance.use("java.lang.String"));
+        assertEquals("LocalDate", instance.use("java.time.LocalDate"));
+        assertEquals("LocalDate", instance.use("java.time.LocalDate"));
+        assertEquals("Primitive", instance.use("Primitive"));
+
+        assertEquals(List.of("java.time.LocalDate"), List.copyOf(instance.imports()));
+    }
+
+    /**
+     * Checks that when two types have the same simple name, the second one is referenced by its fully qualified name.
+     */
+    @Test
+    void useReturnsQualifiedNameWhenSimpleNamesClash() {
+        final var instance = new ImportManager("com.sample");
+        assertEquals("Status", instance.use("com.sample.a.Status"));
+        assertEquals("com.sample.b.Status", instance.use("com.sample.b.Status"));
+        assertEquals("Status", instance.use("com.sample.a.Status"));
+        assertEquals("String", instance.use("java.lang.String"));
+        assertEquals("com.other.String", instance.use("com.other.String"), "A type must not shadow a java.lang one");
+
+        assertEquals(List.of("com.sample.a.Status"), List.copyOf(instance.imports()));
+    }
+
+    @Test
+    void importsSortedWithJavaxBeforeJava() {
+        final var instance = new ImportManager("com.sample");
+        instance.use("java.util.List");
+        instance.use("jakarta.validation.constraints.NotNull");
+        instance.use("javax.annotation.processing.Generated");
+        instance.use("io.github.manoelcampos.dtogen.DTORecord");
+
+        final var expected = List.of(
+                "io.github.manoelcampos.dtogen.DTORecord", "jakarta.validation.constraints.NotNull",
+                "javax.annotation.processing.Generated", "java.util.List");
+        assertEquals(expected, List.copyOf(instance.imports()));
+    }
+}
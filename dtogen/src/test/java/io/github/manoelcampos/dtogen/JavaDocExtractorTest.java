@@ -1,38 +1,42 @@
 package io.github.manoelcampos.dtogen;
 
+import com.karuslabs.elementary.junit.Tools;
+import com.karuslabs.elementary.junit.annotations.Classpath;
 import io.github.manoelcampos.dtogen.samples.Class1;
+import io.github.manoelcampos.dtogen.samples.ClassWithInheritedJavaDoc;
 import io.github.manoelcampos.dtogen.samples.ClassWithJavaDoc;
 import org.junit.jupiter.api.Test;
 
 import java.util.AbstractMap;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+/**
+ * Sample classes are compiled in-process (from the test resources), so that their JavaDocs are available.
+ * Classes loaded from .class files don't have JavaDocs.
+ */
+@Classpath("io.github.manoelcampos.dtogen.samples.Class1")
+@Classpath("io.github.manoelcampos.dtogen.samples.ClassWithJavaDoc")
+@Classpath("io.github.manoelcampos.dtogen.samples.ClassWithInheritedJavaDoc")
 class JavaDocExtractorTest extends AbstractToolsExtensionTest {
-
-    @Test
-    void getJavaFilePathFromQualifiedName() {
-        final var instance = newInstance(Class1.class);
-        final String expectedPath = "src/test/java/io/github/manoelcampos/dtogen/samples/Class1.java";
-        assertEquals(expectedPath, instance.getJavaFilePathFromQualifiedName());
-    }
+    private static final String NAME_JAVADOC =
+            """
+            The name of the object.
+            <p>This is used to provide a user-friendly representation when printing the object.</p>""";
 
     @Test
     void getFieldCommentsStreamForClassWithNoJavaDocInFields() {
-        final var instance = newInstance(Class1.class);
-        assertTrue(instance.getFieldCommentsStream().toList().isEmpty());
+        final var instance = newInstance();
+        assertTrue(instance.getFieldCommentsStream(getClassTypeElement(Class1.class)).toList().isEmpty());
     }
 
     @Test
     void getFieldCommentsStreamForClassWithSomeJavaDocInFields() {
-        final var instance = newInstance(ClassWithJavaDoc.class);
-        final var javadocMap = new HashMap<String, String>();
-        instance.getFieldCommentsStream().forEach(entry -> {
-            javadocMap.put(entry.getKey(), entry.getValue());
-        });
+        final var javadocMap = getFieldComments(newInstance(), ClassWithJavaDoc.class);
 
         final int numberOfDocumentedFields = 3;
         assertEquals(numberOfDocumentedFields, javadocMap.size());
@@ -40,11 +44,7 @@ class JavaDocExtractorTest extends AbstractToolsExtensionTest {
         final var expectedValuesList = List.of(
                 new AbstractMap.SimpleEntry<>("MAX", "A MAX constant."),
                 new AbstractMap.SimpleEntry<>("id", "The id of the object."),
-                new AbstractMap.SimpleEntry<>("name",
-                    """
-                    The name of the object.
-                    <p>This is used to provide a user-friendly representation when printing the object.</p>"""
-                )
+                new AbstractMap.SimpleEntry<>("name", NAME_JAVADOC)
         );
 
         expectedValuesList.forEach(expectedEntry -> {
@@ -53,7 +53,30 @@ class JavaDocExtractorTest extends AbstractToolsExtensionTest {
         });
     }
 
-    private JavaDocExtractor newInstance(final Class<?> clazz) {
-        return new JavaDocExtractor(getClassTypeElement(clazz), true);
+    @Test
+    void getFieldCommentsStreamIncludingInheritedFields() {
+        final var javadocMap = getFieldComments(newInstance(), ClassWithInheritedJavaDoc.class);
+
+        // Fields are returned in declaration order, starting from the superclass
+        assertEquals(List.of("MAX", "id", "name", "description"), List.copyOf(javadocMap.keySet()));
+        assertEquals("The description of the object.", javadocMap.get("description"));
+        assertEquals(NAME_JAVADOC, javadocMap.get("name"));
+    }
+
+    @Test
+    void getFieldCommentsStreamWithoutDocTrees() {
+        final var instance = new JavaDocExtractor(elements, types, null);
+        assertEquals(getFieldComments(newInstance(), ClassWithJavaDoc.class), getFieldComments(instance, ClassWithJavaDoc.class));
+    }
+
+    private Map<String, String> getFieldComments(final JavaDocExtractor instance, final Class<?> clazz) {
+        final var javadocMap = new LinkedHashMap<String, String>();
+        instance.getFieldCommentsStream(getClassTypeElement(clazz))
+                .forEach(entry -> javadocMap.put(entry.getKey(), entry.getValue()));
+        return javadocMap;
+    }
+
+    private JavaDocExtractor newInstance() {
+        return new JavaDocExtractor(elements, types, Tools.trees());
     }
 }
@@ -0,0 +1,43 @@
+package io.github.manoelcampos.dtogen;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingContextTest {
+    @Test
+    void mapsEachObjectOnce() {
+        final var source = new Object();
+        try (var context = MappingContext.open()) {
+            assertNull(context.start(source));
+            assertEquals("target", context.finish(source, "target"));
+            assertEquals("target", context.start(source));
+        }
+    }
+
+    @Test
+    void cycle() {
+        final var first = new Object();
+        final var second = new Object();
+        try (var context = MappingContext.open()) {
+            context.start(first);
+            context.start(second);
+            final var error = assertThrows(IllegalStateException.class, () -> context.start(first));
+            assertTrue(error.getMessage().matches("Cyclic reference found when mapping Object@\\w+ -> Object@\\w+ -> Object@\\w+"), error.getMessage());
+        }
+    }
+
+    @Test
+    void closedContextCleared() {
+        final var source = new Object();
+        final var context = MappingContext.open();
+        context.finish(source, context.start(source) == null ? "target" : "");
+        context.close();
+        assertNull(context.start(source));
+
+        try (var other = MappingContext.open()) {
+            assertNotSame(context, other);
+            assertNull(other.start(source));
+        }
+    }
+}
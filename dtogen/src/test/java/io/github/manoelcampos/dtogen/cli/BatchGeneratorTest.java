@@ -0,0 +1,195 @@
+package io.github.manoelcampos.dtogen.cli;
+
+import io.github.manoelcampos.dtogen.DTOProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Manoel Campos
+ */
+class BatchGeneratorTest {
+    private static final String NO_CACHE_OPTION = "-Adtogen.cache=false";
+
+    @TempDir
+    Path sourceDir;
+
+    @TempDir
+    Path outputDir;
+
+    @TempDir
+    Path processorOutputDir;
+
+    /**
+     * Checks that the batch generator writes exactly the same files as the annotation processor attached to javac,
+     * even when the packages are processed by different threads and model classes reference classes in other packages
+     * (including a mapped superclass, whose shared mapping class is generated while processing its subclass).
+     */
+    @Test
+    void generatesSameFilesAsAnnotationProcessor() throws IOException {
+        writeSources();
+
+        final var log = new ByteArrayOutputStream();
+        final var generator = new BatchGenerator(sourceDir, outputDir, "", 2, List.of(NO_CACHE_OPTION), new PrintStream(log));
+        assertTrue(generator.generate(), log::toString);
+
+        final var generatedFiles = readFiles(outputDir);
+        assertTrue(generatedFiles.containsKey("batch/a/PersonDTO.java"), generatedFiles.keySet()::toString);
+        assertTrue(generatedFiles.containsKey("batch/b/CountryDTO.java"), generatedFiles.keySet()::toString);
+        assertTrue(generatedFiles.containsKey("batch/c/BaseEntityDTOMapping.java"), generatedFiles.keySet()::toString);
+        assertEquals(readFiles(runAnnotationProcessor()), generatedFiles);
+    }
+
+    /**
+     * Checks that the files the processor writes into the class output dir (such as the class list and
+     * the native image configuration) are copied to the resources output dir, instead of being lost with the work dir.
+     */
+    @Test
+    void classOutputFilesCopiedToResourcesOutputDir(@TempDir final Path resourcesOutputDir) throws IOException {
+        writeSources();
+
+        final var log = new ByteArrayOutputStream();
+        final var options = List.of(NO_CACHE_OPTION, "-Adtogen.classlist=true", "-Adtogen.native.image=true");
+        final var generator = new BatchGenerator(sourceDir, outputDir, resourcesOutputDir, "", 1, options, new PrintStream(log));
+        assertTrue(generator.generate(), log::toString);
+
+        final var resources = readFiles(resourcesOutputDir);
+        assertTrue(resources.getOrDefault("META-INF/dtogen/classlist", "").contains("batch/a/PersonDTO"), resources.keySet()::toString);
+        assertTrue(resources.keySet().stream().anyMatch(file -> file.startsWith("META-INF/native-image/")), resources.keySet()::toString);
+        assertTrue(readFiles(outputDir).containsKey("batch/a/PersonDTO.java"));
+    }
+
+    /**
+     * Checks that options writing files into the class output dir require a resources output dir
+     * and options generating a file from all model classes require a single thread, instead of losing or splitting such files.
+     */
+    @Test
+    void optionsRequiringResourcesOutputOrSingleThreadRejected(@TempDir final Path resourcesOutputDir) {
+        final var log = new PrintStream(new ByteArrayOutputStream());
+        for (final var option : List.of("-Adtogen.classlist=true", "-Adtogen.native.image=true", "-Adtogen.stats=true"))
+            assertThrows(IllegalArgumentException.class, () -> new BatchGenerator(sourceDir, outputDir, "", 1, List.of(option), log), option);
+
+        for (final var option : List.of("-Adtogen.registry=true", "-Adtogen.classlist=true", "-Adtogen.stats=true"))
+            assertThrows(IllegalArgumentException.class, () -> new BatchGenerator(sourceDir, outputDir, resourcesOutputDir, "", 2, List.of(option), log), option);
+
+        assertNotNull(new BatchGenerator(sourceDir, outputDir, resourcesOutputDir, "", 2, List.of("-Adtogen.native.image=true"), log));
+        assertNotNull(new BatchGenerator(sourceDir, outputDir, "", 2, List.of("-Adtogen.classlist=false", "-Adtogen.registry=false"), log));
+    }
+
+    @Test
+    void partitionByPackageKeepsPackagesTogether() {
+        final var files = List.of(
+                Path.of("a", "A1.java"), Path.of("a", "A2.java"), Path.of("a", "A3.java"),
+                Path.of("b", "B1.java"), Path.of("b", "B2.java"), Path.of("c", "C1.java"));
+
+        final var partitions = BatchGenerator.partitionByPackage(files, 2);
+        assertEquals(2, partitions.size());
+        assertEquals(List.of(Path.of("a", "A1.java"), Path.of("a", "A2.java"), Path.of("a", "A3.java")), partitions.get(0));
+        assertEquals(List.of(Path.of("b", "B1.java"), Path.of("b", "B2.java"), Path.of("c", "C1.java")), partitions.get(1));
+        assertEquals(1, BatchGenerator.partitionByPackage(files, 1).size());
+        assertEquals(3, BatchGenerator.partitionByPackage(files, 8).size());
+    }
+
+    @Test
+    void newInstanceRequiresSourceAndOutputDirs() {
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.newInstance(new String[]{"--source", "src"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.newInstance(new String[]{"--source"}));
+        assertThrows(IllegalArgumentException.class, () -> BatchGenerator.newInstance(new String[]{"--unknown", "x"}));
+        assertNotNull(BatchGenerator.newInstance(new String[]{"--source", "src", "--output", "out", "-Adtogen.cache=false"}));
+    }
+
+    private void writeSources() throws IOException {
+        write("batch/a/Person.java", """
+                package batch.a;
+
+                import io.github.manoelcampos.dtogen.DTO;
+
+                @DTO
+                public class Person extends batch.c.BaseEntity {
+                    /** The person name. */
+                    public String name;
+
+                    @DTO.MapToId
+                    public batch.b.Country country;
+                }
+                """);
+        write("batch/b/Country.java", """
+                package batch.b;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Country(long id, String name) {
+                }
+                """);
+        write("batch/c/Helper.java", """
+                package batch.c;
+
+                public class Helper {
+                }
+                """);
+        write("batch/c/MappedSuperclass.java", "package batch.c; public @interface MappedSuperclass {}");
+        write("batch/c/BaseEntity.java", """
+                package batch.c;
+
+                @MappedSuperclass
+                public abstract class BaseEntity {
+                    public long id;
+                }
+                """);
+    }
+
+    private void write(final String fileName, final String code) throws IOException {
+        final var file = sourceDir.resolve(fileName);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, code);
+    }
+
+    /**
+     * Generates the DTOs attaching the {@link DTOProcessor} to javac, processing all source files together.
+     * @return the dir where the sources were generated
+     */
+    private Path runAnnotationProcessor() throws IOException {
+        final var compiler = ToolProvider.getSystemJavaCompiler();
+        final var classOutput = Files.createDirectories(processorOutputDir.resolve("classes"));
+        final var sourceOutput = Files.createDirectories(processorOutputDir.resolve("sources"));
+        try (var fileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+             Stream<Path> paths = Files.walk(sourceDir))
+        {
+            final var sources = paths.filter(Files::isRegularFile).toList();
+            final var options = List.of(
+                    "-proc:only", "-cp", System.getProperty("java.class.path"),
+                    "-d", classOutput.toString(), "-s", sourceOutput.toString(), NO_CACHE_OPTION);
+            final var task = compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjectsFromPaths(sources));
+            task.setProcessors(List.of(new DTOProcessor()));
+            assertTrue(task.call());
+        }
+
+        return sourceOutput;
+    }
+
+    /**
+     * {@return a map where each key is the path of a file (relative to a given dir) and the value the file content}
+     */
+    private static Map<String, String> readFiles(final Path dir) throws IOException {
+        final var files = new TreeMap<String, String>();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (final var file : paths.filter(Files::isRegularFile).toList())
+                files.put(dir.relativize(file).toString().replace('\\', '/'), Files.readString(file));
+        }
+
+        return files;
+    }
+}
@@ -0,0 +1,232 @@
+package io.github.manoelcampos.dtogen.cli;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Manoel Campos
+ */
+class WatchModeTest {
+    @TempDir
+    Path sourceDir;
+
+    @TempDir
+    Path outputDir;
+
+    private final ByteArrayOutputStream log = new ByteArrayOutputStream();
+
+    /**
+     * Checks that just the DTOs for the changed model and for the models referencing it are regenerated.
+     */
+    @Test
+    void regeneratesJustAffectedDtos() throws IOException {
+        final var person = write("watch/a/Person.java", """
+                package watch.a;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Person extends watch.a.Base {
+                    public String name;
+
+                    @io.github.manoelcampos.dtogen.DTO.MapToId
+                    public watch.b.Country country;
+                }
+                """);
+        final var base = write("watch/a/Base.java", """
+                package watch.a;
+
+                public class Base {
+                    public long id;
+                }
+                """);
+        final var country = write("watch/b/Country.java", """
+                package watch.b;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Country(long id, String name) {
+                }
+                """);
+        final var language = write("watch/b/Language.java", """
+                package watch.b;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Language(long id, String code) {
+                }
+                """);
+
+        try (var watchMode = newWatchMode()) {
+            assertEquals(4, watchMode.start());
+            assertTrue(Files.exists(outputDir.resolve("watch/a/PersonDTO.java")), log::toString);
+            assertTrue(Files.exists(outputDir.resolve("watch/b/LanguageDTO.java")), log::toString);
+
+            Files.writeString(country, Files.readString(country).replace("String name", "String name, int population"));
+            assertEquals(Set.of(country, person), watchMode.regenerate(Set.of(country)));
+            assertTrue(Files.readString(outputDir.resolve("watch/b/CountryDTO.java")).contains("int population"));
+
+            Files.writeString(base, Files.readString(base).replace("public long id;", "public long id;\n    public String code;"));
+            assertEquals(Set.of(person), watchMode.regenerate(Set.of(base)));
+            assertTrue(Files.readString(outputDir.resolve("watch/a/PersonDTO.java")).contains("String code"));
+
+            Files.delete(language);
+            assertEquals(Set.of(), watchMode.regenerate(Set.of(language)));
+            assertFalse(Files.exists(outputDir.resolve("watch/b/LanguageDTO.java")));
+        }
+
+        assertTrue(log.toString().contains("DTOGen regenerated 2 DTO(s) for 1 changed file(s) in"), log::toString);
+    }
+
+    /**
+     * Checks that the registry, which is generated from all model classes, keeps including the unchanged models
+     * and doesn't include the removed ones, even when it's moved to another package.
+     */
+    @Test
+    void registryIncludesAllModelsAfterChanges() throws IOException {
+        final var person = write("watch/a/Person.java", """
+                package watch.a;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Person(long id, String name) {
+                }
+                """);
+        final var country = write("watch/b/Country.java", """
+                package watch.b;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public record Country(long id, String name) {
+                }
+                """);
+        final var registry = outputDir.resolve("watch/DTORegistry.java");
+
+        try (var watchMode = newWatchMode("-Adtogen.registry=true")) {
+            watchMode.start();
+            assertTrue(Files.readString(registry).contains("watch.a.PersonDTO"), log::toString);
+
+            Files.writeString(country, Files.readString(country).replace("String name", "String name, int population"));
+            assertEquals(Set.of(country, person), watchMode.regenerate(Set.of(country)));
+            assertTrue(Files.readString(registry).contains("watch.a.PersonDTO"), log::toString);
+            assertTrue(Files.readString(registry).contains("watch.b.CountryDTO"), log::toString);
+
+            // The registry is moved to the common package of the remaining models
+            Files.delete(country);
+            assertEquals(Set.of(person), watchMode.regenerate(Set.of(country)));
+            assertFalse(Files.exists(registry));
+            final var movedRegistry = Files.readString(outputDir.resolve("watch/a/DTORegistry.java"));
+            assertTrue(movedRegistry.contains("watch.a.PersonDTO"), log::toString);
+            assertFalse(movedRegistry.contains("watch.b.CountryDTO"), log::toString);
+        }
+    }
+
+    /**
+     * Checks that the mapping class shared by the subclasses of a superclass is deleted with its last subclass.
+     */
+    @Test
+    void sharedMappingDeletedWithLastSubclass() throws IOException {
+        write("watch/a/MappedSuperclass.java", """
+                package watch.a;
+
+                public @interface MappedSuperclass {
+                }
+                """);
+        write("watch/a/BaseEntity.java", """
+                package watch.a;
+
+                @MappedSuperclass
+                public class BaseEntity {
+                    public long id;
+                }
+                """);
+        final var person = write("watch/a/Person.java", """
+                package watch.a;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Person extends BaseEntity {
+                    public String name;
+                }
+                """);
+        final var sharedMapping = outputDir.resolve("watch/a/BaseEntityDTOMapping.java");
+
+        try (var watchMode = newWatchMode()) {
+            watchMode.start();
+            assertTrue(Files.exists(sharedMapping), log::toString);
+
+            Files.writeString(person, Files.readString(person).replace("public String name;", "public String name;\n    public int age;"));
+            watchMode.regenerate(Set.of(person));
+            assertTrue(Files.exists(sharedMapping), log::toString);
+
+            Files.delete(person);
+            watchMode.regenerate(Set.of(person));
+            assertFalse(Files.exists(outputDir.resolve("watch/a/PersonDTO.java")));
+            assertFalse(Files.exists(sharedMapping));
+        }
+    }
+
+    /**
+     * Checks that the mapping class shared by the subclasses of a superclass is deleted
+     * when that superclass isn't mapped anymore, while the one for a superclass that is still mapped is kept.
+     */
+    @Test
+    void sharedMappingDeletedWhenSuperclassNotMapped() throws IOException {
+        final var base = write("watch/a/BaseEntity.java", """
+                package watch.a;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class BaseEntity {
+                    public long id;
+                }
+                """);
+        final var auditable = write("watch/a/Auditable.java", """
+                package watch.a;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Auditable extends BaseEntity {
+                    public long version;
+                }
+                """);
+        write("watch/a/Person.java", """
+                package watch.a;
+
+                @io.github.manoelcampos.dtogen.DTO
+                public class Person extends Auditable {
+                    public String name;
+                }
+                """);
+        final var baseMapping = outputDir.resolve("watch/a/BaseEntityDTOMapping.java");
+        final var auditableMapping = outputDir.resolve("watch/a/AuditableDTOMapping.java");
+
+        try (var watchMode = newWatchMode()) {
+            watchMode.start();
+            assertTrue(Files.exists(baseMapping), log::toString);
+            assertTrue(Files.exists(auditableMapping), log::toString);
+
+            Files.writeString(auditable, Files.readString(auditable).replace("@io.github.manoelcampos.dtogen.DTO\n", ""));
+            watchMode.regenerate(Set.of(auditable));
+            assertFalse(Files.exists(auditableMapping), log::toString);
+            assertTrue(Files.exists(baseMapping), log::toString);
+            assertTrue(Files.readString(outputDir.resolve("watch/a/PersonDTO.java")).contains("BaseEntityDTOMapping"));
+            assertTrue(Files.exists(base));
+        }
+    }
+
+    private WatchMode newWatchMode(final String... options) throws IOException {
+        final var allOptions = new ArrayList<String>(List.of("-Adtogen.cache=false"));
+        allOptions.addAll(List.of(options));
+        final var generator = new BatchGenerator(sourceDir, outputDir, "", 1, allOptions, new PrintStream(log));
+        return new WatchMode(generator);
+    }
+
+    private Path write(final String fileName, final String code) throws IOException {
+        final var file = sourceDir.resolve(fileName);
+        Files.createDirectories(file.getParent());
+        return Files.writeString(file, code);
+    }
+}
@@ -1,8 +1,15 @@
 package io.github.manoelcampos.dtogen.samples;
 
 import io.github.manoelcampos.dtogen.DTORecord;
+import io.github.manoelcampos.dtogen.MappingContext;
+import io.github.manoelcampos.dtogen.runtime.Mappings;
 
 import javax.annotation.processing.Generated;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 /// A sample of the DTO record that the DTOGen must generate for the [Class2] model.
 /// This DTO is used in tests to check if the DTO is generated as expected and compiles correctly.
@@ -17,21 +24,144 @@ import javax.annotation.processing.Generated;
 public record Class2DTO (long id, int class3Id) implements DTORecord<Class2> {
     @Override
     public Class2 toModel(){
+        return toModel(null);
+    }
+
+    /**
+     * {@return a new model object with the values from this DTO record, or the one already mapped from this record in a mapping context}
+     * The DTO records inside the fields of this record are mapped inside the same context.
+     * @param mappingContext the context mapping a graph of objects (where each object is mapped just once),
+     *                       or null to always create a new model object
+     */
+    public Class2 toModel(final MappingContext mappingContext){
+        final Class2 mappedModel = mappingContext == null ? null : mappingContext.start(this);
+        if (mappedModel != null)
+            return mappedModel;
+
         final var model = new Class2();
         model.setId(id);
         model.setClass3(newObject(class3Id, () -> { var o = new Class3(); o.setId(class3Id); return o; }));
 
-        return model;
+        return mappingContext == null ? model : mappingContext.finish(this, model);
     }
 
     @Override
     public Class2DTO fromModel(final Class2 model){
+        return of(model);
+    }
+
+    /**
+     * {@return a new DTO record with the values from a model object}
+     * @param model the model object to get the values from
+     */
+    public static Class2DTO of(final Class2 model){
+        return of(model, null);
+    }
+
+    /**
+     * {@return a new DTO record with the values from a model object, or the one already mapped from that object in a mapping context}
+     * The model items that have a DTO record are mapped inside the same context.
+     * @param model the model object to get the values from
+     * @param mappingContext the context mapping a graph of objects (where each object is mapped just once),
+     *                       or null to always create a new DTO record
+     * @throws IllegalStateException if the model object refers to itself (directly or through its items) inside the context
+     */
+    public static Class2DTO of(final Class2 model, final MappingContext mappingContext){
+        final Class2DTO mappedDto = mappingContext == null ? null : mappingContext.start(model);
+        if (mappedDto != null)
+            return mappedDto;
+
         final var dto = new Class2DTO(
                 model.getId(),
                 model.getClass3() == null ? 0 : model.getClass3().getId()
         );
+        return mappingContext == null ? dto : mappingContext.finish(model, dto);
+    }
+
+    /**
+     * {@return a list of new DTO records with the values from model objects (in the same order)}
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static List<Class2DTO> fromModels(final Collection<? extends Class2> models){
+        return Mappings.mapList(models, Class2DTO::of);
+    }
+
+    /**
+     * {@return an array of new DTO records with the values from model objects (in the same order)}
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static Class2DTO[] fromModels(final Class2[] models){
+        return Mappings.mapArray(models, Class2DTO[]::new, Class2DTO::of);
+    }
+
+    /**
+     * {@return a list of new DTO records with the values from model objects (in the same order), using multiple threads}
+     * If there are at least 10000 objects, they are split among the threads of the fork-join pool running the caller (or the common pool).
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static List<Class2DTO> fromModelsParallel(final Collection<? extends Class2> models){
+        return Mappings.mapListParallel(models, Class2DTO::of, 10000);
+    }
+
+    /**
+     * {@return a list of new model objects with the values from DTO records (in the same order)}
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static List<Class2> toModels(final Collection<Class2DTO> dtos){
+        return Mappings.mapList(dtos, Class2DTO::toModel);
+    }
+
+    /**
+     * {@return an array of new model objects with the values from DTO records (in the same order)}
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static Class2[] toModels(final Class2DTO[] dtos){
+        return Mappings.mapArray(dtos, Class2[]::new, Class2DTO::toModel);
+    }
+
+    /**
+     * {@return a list of new model objects with the values from DTO records (in the same order), using multiple threads}
+     * If there are at least 10000 objects, they are split among the threads of the fork-join pool running the caller (or the common pool).
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static List<Class2> toModelsParallel(final Collection<Class2DTO> dtos){
+        return Mappings.mapListParallel(dtos, Class2DTO::toModel, 10000);
+    }
+
+    /**
+     * {@return a stream lazily mapping each model object to a new DTO record, as the stream is consumed}
+     * Closing the returned stream closes the given one.
+     * @param models the stream of model objects (null objects are kept null)
+     */
+    public static Stream<Class2DTO> stream(final Stream<? extends Class2> models){
+        return Mappings.mapStream(models, Class2DTO::of);
+    }
+
+    /**
+     * {@return a spliterator lazily mapping each model object to a new DTO record, as it's traversed}
+     * It has the characteristics of the given spliterator (such as {@code SIZED} and {@code SUBSIZED}),
+     * except {@code DISTINCT} and {@code SORTED}.
+     * @param models the spliterator of model objects (null objects are kept null)
+     */
+    public static Spliterator<Class2DTO> spliterator(final Spliterator<? extends Class2> models){
+        return Mappings.mapSpliterator(models, Class2DTO::of);
+    }
+
+    /**
+     * {@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}
+     * @see #mapping(int)
+     */
+    public static Collector<Class2, ?, List<Class2DTO>> mapping(){
+        return Mappings.mappingCollector(Class2DTO::of, 0);
+    }
 
-        return dto;
+    /**
+     * {@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}
+     * @param expectedSize the expected number of model objects, to create the list with that size
+     *                     (each thread collecting a parallel stream creates a list with that size)
+     */
+    public static Collector<Class2, ?, List<Class2DTO>> mapping(final int expectedSize){
+        return Mappings.mappingCollector(Class2DTO::of, expectedSize);
     }
 
     public Class2DTO() {
@@ -0,0 +1,17 @@
+package io.github.manoelcampos.dtogen.samples;
+
+import io.github.manoelcampos.dtogen.DTO;
+
+/**
+ * A class inheriting documented fields from {@link ClassWithJavaDoc}.
+ * The class is used to check if the JavaDoc of inherited fields is extracted too.
+ * @author Manoel Campos
+ */
+@SuppressWarnings("unused")
+@DTO
+public class ClassWithInheritedJavaDoc extends ClassWithJavaDoc {
+    /**
+     * The description of the object.
+     */
+    private String description;
+}
@@ -1,8 +1,15 @@
 package io.github.manoelcampos.dtogen.samples;
 
 import io.github.manoelcampos.dtogen.DTORecord;
+import io.github.manoelcampos.dtogen.MappingContext;
+import io.github.manoelcampos.dtogen.runtime.Mappings;
 
 import javax.annotation.processing.Generated;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 /// A sample of the DTO record that the DTOGen must generate for the [ExcludedFieldSampleClass] model.
 /// This DTO is used in tests to check if the DTO is generated as expected and compiles correctly.
@@ -17,16 +24,140 @@ import javax.annotation.processing.Generated;
 public record ExcludedFieldSampleClassDTO (boolean included) implements DTORecord<ExcludedFieldSampleClass> {
     @Override
     public ExcludedFieldSampleClass toModel(){
+        return toModel(null);
+    }
+
+    /**
+     * {@return a new model object with the values from this DTO record, or the one already mapped from this record in a mapping context}
+     * The DTO records inside the fields of this record are mapped inside the same context.
+     * @param mappingContext the context mapping a graph of objects (where each object is mapped just once),
+     *                       or null to always create a new model object
+     */
+    public ExcludedFieldSampleClass toModel(final MappingContext mappingContext){
+        final ExcludedFieldSampleClass mappedModel = mappingContext == null ? null : mappingContext.start(this);
+        if (mappedModel != null)
+            return mappedModel;
+
         final var model = new ExcludedFieldSampleClass();
         model.setIncluded(included);
 
-        return model;
+        return mappingContext == null ? model : mappingContext.finish(this, model);
     }
 
     @Override
     public ExcludedFieldSampleClassDTO fromModel(final ExcludedFieldSampleClass model){
+        return of(model);
+    }
+
+    /**
+     * {@return a new DTO record with the values from a model object}
+     * @param model the model object to get the values from
+     */
+    public static ExcludedFieldSampleClassDTO of(final ExcludedFieldSampleClass model){
+        return of(model, null);
+    }
+
+    /**
+     * {@return a new DTO record with the values from a model object, or the one already mapped from that object in a mapping context}
+     * The model items that have a DTO record are mapped inside the same context.
+     * @param model the model object to get the values from
+     * @param mappingContext the context mapping a graph of objects (where each object is mapped just once),
+     *                       or null to always create a new DTO record
+     * @throws IllegalStateException if the model object refers to itself (directly or through its items) inside the context
+     */
+    public static ExcludedFieldSampleClassDTO of(final ExcludedFieldSampleClass model, final MappingContext mappingContext){
+        final ExcludedFieldSampleClassDTO mappedDto = mappingContext == null ? null : mappingContext.start(model);
+        if (mappedDto != null)
+            return mappedDto;
+
         final var dto = new ExcludedFieldSampleClassDTO(model.isIncluded());
-        return dto;
+        return mappingContext == null ? dto : mappingContext.finish(model, dto);
+    }
+
+    /**
+     * {@return a list of new DTO records with the values from model objects (in the same order)}
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static List<ExcludedFieldSampleClassDTO> fromModels(final Collection<? extends ExcludedFieldSampleClass> models){
+        return Mappings.mapList(models, ExcludedFieldSampleClassDTO::of);
+    }
+
+    /**
+     * {@return an array of new DTO records with the values from model objects (in the same order)}
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static ExcludedFieldSampleClassDTO[] fromModels(final ExcludedFieldSampleClass[] models){
+        return Mappings.mapArray(models, ExcludedFieldSampleClassDTO[]::new, ExcludedFieldSampleClassDTO::of);
+    }
+
+    /**
+     * {@return a list of new DTO records with the values from model objects (in the same order), using multiple threads}
+     * If there are at least 10000 objects, they are split among the threads of the fork-join pool running the caller (or the common pool).
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static List<ExcludedFieldSampleClassDTO> fromModelsParallel(final Collection<? extends ExcludedFieldSampleClass> models){
+        return Mappings.mapListParallel(models, ExcludedFieldSampleClassDTO::of, 10000);
+    }
+
+    /**
+     * {@return a list of new model objects with the values from DTO records (in the same order)}
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static List<ExcludedFieldSampleClass> toModels(final Collection<ExcludedFieldSampleClassDTO> dtos){
+        return Mappings.mapList(dtos, ExcludedFieldSampleClassDTO::toModel);
+    }
+
+    /**
+     * {@return an array of new model objects with the values from DTO records (in the same order)}
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static ExcludedFieldSampleClass[] toModels(final ExcludedFieldSampleClassDTO[] dtos){
+        return Mappings.mapArray(dtos, ExcludedFieldSampleClass[]::new, ExcludedFieldSampleClassDTO::toModel);
+    }
+
+    /**
+     * {@return a list of new model objects with the values from DTO records (in the same order), using multiple threads}
+     * If there are at least 10000 objects, they are split among the threads of the fork-join pool running the caller (or the common pool).
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static List<ExcludedFieldSampleClass> toModelsParallel(final Collection<ExcludedFieldSampleClassDTO> dtos){
+        return Mappings.mapListParallel(dtos, ExcludedFieldSampleClassDTO::toModel, 10000);
+    }
+
+    /**
+     * {@return a stream lazily mapping each model object to a new DTO record, as the stream is consumed}
+     * Closing the returned stream closes the given one.
+     * @param models the stream of model objects (null objects are kept null)
+     */
+    public static Stream<ExcludedFieldSampleClassDTO> stream(final Stream<? extends ExcludedFieldSampleClass> models){
+        return Mappings.mapStream(models, ExcludedFieldSampleClassDTO::of);
+    }
+
+    /**
+     * {@return a spliterator lazily mapping each model object to a new DTO record, as it's traversed}
+     * It has the characteristics of the given spliterator (such as {@code SIZED} and {@code SUBSIZED}),
+     * except {@code DISTINCT} and {@code SORTED}.
+     * @param models the spliterator of model objects (null objects are kept null)
+     */
+    public static Spliterator<ExcludedFieldSampleClassDTO> spliterator(final Spliterator<? extends ExcludedFieldSampleClass> models){
+        return Mappings.mapSpliterator(models, ExcludedFieldSampleClassDTO::of);
+    }
+
+    /**
+     * {@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}
+     * @see #mapping(int)
+     */
+    public static Collector<ExcludedFieldSampleClass, ?, List<ExcludedFieldSampleClassDTO>> mapping(){
+        return Mappings.mappingCollector(ExcludedFieldSampleClassDTO::of, 0);
+    }
+
+    /**
+     * {@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}
+     * @param expectedSize the expected number of model objects, to create the list with that size
+     *                     (each thread collecting a parallel stream creates a list with that size)
+     */
+    public static Collector<ExcludedFieldSampleClass, ?, List<ExcludedFieldSampleClassDTO>> mapping(final int expectedSize){
+        return Mappings.mappingCollector(ExcludedFieldSampleClassDTO::of, expectedSize);
     }
 
     public ExcludedFieldSampleClassDTO() {
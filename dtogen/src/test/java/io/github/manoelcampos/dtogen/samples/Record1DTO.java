@@ -1,9 +1,16 @@
 package io.github.manoelcampos.dtogen.samples;
 
 import io.github.manoelcampos.dtogen.DTORecord;
+import io.github.manoelcampos.dtogen.MappingContext;
+import io.github.manoelcampos.dtogen.runtime.Mappings;
 
 import javax.annotation.processing.Generated;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 
 /// A sample of the DTO record that the DTOGen must generate for the [Record1] model.
@@ -19,19 +26,142 @@ import java.time.LocalDate;
 public record Record1DTO (Long id, String name, LocalDate date) implements DTORecord<Record1> {
     @Override
     public Record1 toModel(){
+        return toModel(null);
+    }
+
+    /**
+     * {@return a new model object with the values from this DTO record, or the one already mapped from this record in a mapping context}
+     * The DTO records inside the fields of this record are mapped inside the same context.
+     * @param mappingContext the context mapping a graph of objects (where each object is mapped just once),
+     *                       or null to always create a new model object
+     */
+    public Record1 toModel(final MappingContext mappingContext){
+        final Record1 mappedModel = mappingContext == null ? null : mappingContext.start(this);
+        if (mappedModel != null)
+            return mappedModel;
+
         final var model = new Record1(id, name, date);
-        return model;
+        return mappingContext == null ? model : mappingContext.finish(this, model);
     }
 
     @Override
     public Record1DTO fromModel(final Record1 model){
+        return of(model);
+    }
+
+    /**
+     * {@return a new DTO record with the values from a model object}
+     * @param model the model object to get the values from
+     */
+    public static Record1DTO of(final Record1 model){
+        return of(model, null);
+    }
+
+    /**
+     * {@return a new DTO record with the values from a model object, or the one already mapped from that object in a mapping context}
+     * The model items that have a DTO record are mapped inside the same context.
+     * @param model the model object to get the values from
+     * @param mappingContext the context mapping a graph of objects (where each object is mapped just once),
+     *                       or null to always create a new DTO record
+     * @throws IllegalStateException if the model object refers to itself (directly or through its items) inside the context
+     */
+    public static Record1DTO of(final Record1 model, final MappingContext mappingContext){
+        final Record1DTO mappedDto = mappingContext == null ? null : mappingContext.start(model);
+        if (mappedDto != null)
+            return mappedDto;
+
         final var dto = new Record1DTO(
                 model.id(),
                 model.name(),
                 model.date()
         );
+        return mappingContext == null ? dto : mappingContext.finish(model, dto);
+    }
+
+    /**
+     * {@return a list of new DTO records with the values from model objects (in the same order)}
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static List<Record1DTO> fromModels(final Collection<? extends Record1> models){
+        return Mappings.mapList(models, Record1DTO::of);
+    }
+
+    /**
+     * {@return an array of new DTO records with the values from model objects (in the same order)}
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static Record1DTO[] fromModels(final Record1[] models){
+        return Mappings.mapArray(models, Record1DTO[]::new, Record1DTO::of);
+    }
+
+    /**
+     * {@return a list of new DTO records with the values from model objects (in the same order), using multiple threads}
+     * If there are at least 10000 objects, they are split among the threads of the fork-join pool running the caller (or the common pool).
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static List<Record1DTO> fromModelsParallel(final Collection<? extends Record1> models){
+        return Mappings.mapListParallel(models, Record1DTO::of, 10000);
+    }
+
+    /**
+     * {@return a list of new model objects with the values from DTO records (in the same order)}
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static List<Record1> toModels(final Collection<Record1DTO> dtos){
+        return Mappings.mapList(dtos, Record1DTO::toModel);
+    }
+
+    /**
+     * {@return an array of new model objects with the values from DTO records (in the same order)}
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static Record1[] toModels(final Record1DTO[] dtos){
+        return Mappings.mapArray(dtos, Record1[]::new, Record1DTO::toModel);
+    }
+
+    /**
+     * {@return a list of new model objects with the values from DTO records (in the same order), using multiple threads}
+     * If there are at least 10000 objects, they are split among the threads of the fork-join pool running the caller (or the common pool).
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static List<Record1> toModelsParallel(final Collection<Record1DTO> dtos){
+        return Mappings.mapListParallel(dtos, Record1DTO::toModel, 10000);
+    }
+
+    /**
+     * {@return a stream lazily mapping each model object to a new DTO record, as the stream is consumed}
+     * Closing the returned stream closes the given one.
+     * @param models the stream of model objects (null objects are kept null)
+     */
+    public static Stream<Record1DTO> stream(final Stream<? extends Record1> models){
+        return Mappings.mapStream(models, Record1DTO::of);
+    }
+
+    /**
+     * {@return a spliterator lazily mapping each model object to a new DTO record, as it's traversed}
+     * It has the characteristics of the given spliterator (such as {@code SIZED} and {@code SUBSIZED}),
+     * except {@code DISTINCT} and {@code SORTED}.
+     * @param models the spliterator of model objects (null objects are kept null)
+     */
+    public static Spliterator<Record1DTO> spliterator(final Spliterator<? extends Record1> models){
+        return Mappings.mapSpliterator(models, Record1DTO::of);
+    }
+
+    /**
+     * {@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}
+     * @see #mapping(int)
+     */
+    public static Collector<Record1, ?, List<Record1DTO>> mapping(){
+        return Mappings.mappingCollector(Record1DTO::of, 0);
+    }
 
-        return dto;
+    /**
+     * {@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}
+     * @param expectedSize the expected number of model objects, to create the list with that size
+     *                     (each thread collecting a parallel stream creates a list with that size)
+     */
+    public static Collector<Record1, ?, List<Record1DTO>> mapping(final int expectedSize){
+        return Mappings.mappingCollector(Record1DTO::of, expectedSize);
     }
 
     public Record1DTO() {
@@ -1,9 +1,16 @@
 package io.github.manoelcampos.dtogen.samples;
 
 import io.github.manoelcampos.dtogen.DTORecord;
+import io.github.manoelcampos.dtogen.MappingContext;
+import io.github.manoelcampos.dtogen.runtime.Mappings;
 
 import javax.annotation.processing.Generated;
 import java.time.LocalTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 /// A sample of the DTO record that the DTOGen must generate for the [Record2] model.
 /// This DTO is used in tests to check if the DTO is generated as expected and compiles correctly.
@@ -18,20 +25,143 @@ import java.time.LocalTime;
 public record Record2DTO ( Long id,  LocalTime time,  double value,  Long record3Id) implements DTORecord<Record2> {
     @Override
     public Record2 toModel(){
+        return toModel(null);
+    }
+
+    /**
+     * {@return a new model object with the values from this DTO record, or the one already mapped from this record in a mapping context}
+     * The DTO records inside the fields of this record are mapped inside the same context.
+     * @param mappingContext the context mapping a graph of objects (where each object is mapped just once),
+     *                       or null to always create a new model object
+     */
+    public Record2 toModel(final MappingContext mappingContext){
+        final Record2 mappedModel = mappingContext == null ? null : mappingContext.start(this);
+        if (mappedModel != null)
+            return mappedModel;
+
         final var model = new Record2(id, time, value, new Record3(record3Id, '\0'));
-        return model;
+        return mappingContext == null ? model : mappingContext.finish(this, model);
     }
 
     @Override
     public Record2DTO fromModel(final Record2 model){
+        return of(model);
+    }
+
+    /**
+     * {@return a new DTO record with the values from a model object}
+     * @param model the model object to get the values from
+     */
+    public static Record2DTO of(final Record2 model){
+        return of(model, null);
+    }
+
+    /**
+     * {@return a new DTO record with the values from a model object, or the one already mapped from that object in a mapping context}
+     * The model items that have a DTO record are mapped inside the same context.
+     * @param model the model object to get the values from
+     * @param mappingContext the context mapping a graph of objects (where each object is mapped just once),
+     *                       or null to always create a new DTO record
+     * @throws IllegalStateException if the model object refers to itself (directly or through its items) inside the context
+     */
+    public static Record2DTO of(final Record2 model, final MappingContext mappingContext){
+        final Record2DTO mappedDto = mappingContext == null ? null : mappingContext.start(model);
+        if (mappedDto != null)
+            return mappedDto;
+
         final var dto = new Record2DTO(
                 model.id(),
                 model.time(),
                 model.value(),
                 model.record3() == null ? 0L : model.record3().id()
         );
+        return mappingContext == null ? dto : mappingContext.finish(model, dto);
+    }
+
+    /**
+     * {@return a list of new DTO records with the values from model objects (in the same order)}
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static List<Record2DTO> fromModels(final Collection<? extends Record2> models){
+        return Mappings.mapList(models, Record2DTO::of);
+    }
+
+    /**
+     * {@return an array of new DTO records with the values from model objects (in the same order)}
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static Record2DTO[] fromModels(final Record2[] models){
+        return Mappings.mapArray(models, Record2DTO[]::new, Record2DTO::of);
+    }
+
+    /**
+     * {@return a list of new DTO records with the values from model objects (in the same order), using multiple threads}
+     * If there are at least 10000 objects, they are split among the threads of the fork-join pool running the caller (or the common pool).
+     * @param models the model objects to get the values from (null objects are kept null)
+     */
+    public static List<Record2DTO> fromModelsParallel(final Collection<? extends Record2> models){
+        return Mappings.mapListParallel(models, Record2DTO::of, 10000);
+    }
+
+    /**
+     * {@return a list of new model objects with the values from DTO records (in the same order)}
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static List<Record2> toModels(final Collection<Record2DTO> dtos){
+        return Mappings.mapList(dtos, Record2DTO::toModel);
+    }
+
+    /**
+     * {@return an array of new model objects with the values from DTO records (in the same order)}
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static Record2[] toModels(final Record2DTO[] dtos){
+        return Mappings.mapArray(dtos, Record2[]::new, Record2DTO::toModel);
+    }
+
+    /**
+     * {@return a list of new model objects with the values from DTO records (in the same order), using multiple threads}
+     * If there are at least 10000 objects, they are split among the threads of the fork-join pool running the caller (or the common pool).
+     * @param dtos the DTO records to get the values from (null records are kept null)
+     */
+    public static List<Record2> toModelsParallel(final Collection<Record2DTO> dtos){
+        return Mappings.mapListParallel(dtos, Record2DTO::toModel, 10000);
+    }
+
+    /**
+     * {@return a stream lazily mapping each model object to a new DTO record, as the stream is consumed}
+     * Closing the returned stream closes the given one.
+     * @param models the stream of model objects (null objects are kept null)
+     */
+    public static Stream<Record2DTO> stream(final Stream<? extends Record2> models){
+        return Mappings.mapStream(models, Record2DTO::of);
+    }
+
+    /**
+     * {@return a spliterator lazily mapping each model object to a new DTO record, as it's traversed}
+     * It has the characteristics of the given spliterator (such as {@code SIZED} and {@code SUBSIZED}),
+     * except {@code DISTINCT} and {@code SORTED}.
+     * @param models the spliterator of model objects (null objects are kept null)
+     */
+    public static Spliterator<Record2DTO> spliterator(final Spliterator<? extends Record2> models){
+        return Mappings.mapSpliterator(models, Record2DTO::of);
+    }
+
+    /**
+     * {@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}
+     * @see #mapping(int)
+     */
+    public static Collector<Record2, ?, List<Record2DTO>> mapping(){
+        return Mappings.mappingCollector(Record2DTO::of, 0);
+    }
 
-        return dto;
+    /**
+     * {@return a collector mapping each model object to a new DTO record, collected into an unmodifiable list}
+     * @param expectedSize the expected number of model objects, to create the list with that size
+     *                     (each thread collecting a parallel stream creates a list with that size)
+     */
+    public static Collector<Record2, ?, List<Record2DTO>> mapping(final int expectedSize){
+        return Mappings.mappingCollector(Record2DTO::of, expectedSize);
     }
 
     public Record2DTO() {
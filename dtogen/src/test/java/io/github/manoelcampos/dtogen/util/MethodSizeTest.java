@@ -0,0 +1,28 @@
+package io.github.manoelcampos.dtogen.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Manoel Campos
+ */
+class MethodSizeTest {
+    @Test
+    void estimate() {
+        assertEquals(0, MethodSize.estimate(""));
+        assertEquals(7, MethodSize.estimate("model.getId()"));
+        assertTrue(MethodSize.estimate("model.getCountry() == null ? 0 : model.getCountry().getId()") > MethodSize.estimate("model.getId()"));
+        assertEquals(MethodSize.estimate("new Person(\"a, b\", 'c')"), MethodSize.estimate("new Person(name, code)"));
+    }
+
+    @Test
+    void chunk() {
+        final var items = List.of("a", "bb", "ccc", "dddddd", "e");
+        assertEquals(List.of(List.of("a", "bb"), List.of("ccc"), List.of("dddddd"), List.of("e")), MethodSize.chunk(items, String::length, 4));
+        assertEquals(List.of(items), MethodSize.chunk(items, String::length, 100));
+        assertEquals(List.of(), MethodSize.chunk(List.<String>of(), String::length, 4));
+    }
+}
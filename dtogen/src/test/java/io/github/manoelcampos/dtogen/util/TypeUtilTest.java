@@ -3,12 +3,17 @@ package io.github.manoelcampos.dtogen.util;
 import io.github.manoelcampos.dtogen.AbstractProcessorTest;
 import io.github.manoelcampos.dtogen.DTOProcessor;
 import io.github.manoelcampos.dtogen.samples.Class1;
+import io.github.manoelcampos.dtogen.samples.ClassWithInheritedJavaDoc;
+import io.github.manoelcampos.dtogen.samples.ClassWithJavaDoc;
+import io.github.manoelcampos.dtogen.samples.Record1;
 import io.github.manoelcampos.dtogen.samples.SampleClass;
 import org.junit.jupiter.api.Test;
 
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import java.util.List;
+import java.util.Stack;
+import java.util.Vector;
 
 import static io.github.manoelcampos.dtogen.TestUtil.findField;
 import static io.github.manoelcampos.dtogen.util.TypeUtil.*;
@@ -50,7 +55,7 @@ class TypeUtilTest extends AbstractProcessorTest {
 
     @Test
     void testGetClassFields() {
-        final var fieldNames = getClassFields(types, getClassTypeElement(Class1.class))
+        final var fieldNames = new TypeUtil(processor).getClassFields(getClassTypeElement(Class1.class))
                 .map(e -> e.getSimpleName().toString())
                 .toList();
 
@@ -112,4 +117,54 @@ class TypeUtilTest extends AbstractProcessorTest {
         final var class1Element = getClassTypeElement(Class1.class);
         assertFalse(typeUtil.findIdField(class1Element).isEmpty());
     }
+
+    @Test
+    void testGetClassLayoutIncludingInheritedFields() {
+        final var typeUtil = new TypeUtil(processor);
+        final var layout = typeUtil.getClassLayout(getClassTypeElement(ClassWithInheritedJavaDoc.class));
+
+        assertEquals(List.of("id", "name", "value", "description"), layout.fields().stream().map(FieldUtil::getFieldName).toList());
+        assertEquals("id", layout.idField().map(FieldUtil::getFieldName).orElseThrow());
+        assertFalse(layout.record());
+        assertTrue(typeUtil.getClassLayout(getClassTypeElement(Record1.class)).record());
+    }
+
+    @Test
+    void testGetClassLayoutSharesSuperclassLayout() {
+        final var typeUtil = new TypeUtil(processor);
+        final var subclassElement = getClassTypeElement(ClassWithInheritedJavaDoc.class);
+        typeUtil.getClassLayout(subclassElement);
+        assertEquals(0, typeUtil.layoutCacheHits());
+        assertEquals(2, typeUtil.layoutCacheMisses());
+
+        // The superclass layout was computed together with the subclass one
+        final var superclassLayout = typeUtil.getClassLayout(getClassTypeElement(ClassWithJavaDoc.class));
+        assertEquals(List.of("id", "name", "value"), superclassLayout.fields().stream().map(FieldUtil::getFieldName).toList());
+        assertEquals(1, typeUtil.layoutCacheHits());
+
+        typeUtil.getClassFields(subclassElement);
+        typeUtil.findIdField(subclassElement);
+        assertEquals(3, typeUtil.layoutCacheHits());
+        assertEquals(2, typeUtil.layoutCacheMisses());
+
+        typeUtil.clear();
+        typeUtil.getClassLayout(subclassElement);
+        assertEquals(3, typeUtil.layoutCacheHits());
+        assertEquals(4, typeUtil.layoutCacheMisses());
+    }
+
+    @Test
+    void testGetPublicMethod() {
+        final var typeUtil = new TypeUtil(processor);
+        final var class1Element = getClassTypeElement(Class1.class);
+        assertEquals("getClass2", typeUtil.getPublicMethod(class1Element, "getClass2").orElseThrow().getSimpleName().toString());
+        assertTrue(typeUtil.getPublicMethod(class1Element, "getClass3").isEmpty());
+
+        // Methods inherited from superclasses are indexed too, unless they are overridden
+        final var stackElement = getClassTypeElement(Stack.class);
+        final var inheritedMethod = typeUtil.getPublicMethod(stackElement, "size").orElseThrow();
+        assertEquals(getClassTypeElement(Vector.class), inheritedMethod.getEnclosingElement());
+        final var declaredMethod = typeUtil.getPublicMethod(stackElement, "push").orElseThrow();
+        assertEquals(stackElement, declaredMethod.getEnclosingElement());
+    }
 }
@@ -0,0 +1,15 @@
+package io.github.manoelcampos.dtogen.runtime;
+
+/**
+ * Indicates the dtogen-runtime is on the classpath of the application being compiled.
+ * The DTOGen processor looks for this class (by its fully qualified name) to find out if the runtime is available.
+ * In such a case, the processor doesn't write the {@code DTORecord}, {@code MappingContext} and {@link Mappings} sources
+ * into the application, since the runtime includes them.
+ *
+ * <p>This class exists just in the runtime (the other ones are compiled from the DTOGen processor sources,
+ * which are also inside the DTOGen jar), so it must not be renamed or moved.</p>
+ * @author Manoel Campos
+ */
+public final class DTOGenRuntime {
+    private DTOGenRuntime() {/**/}
+}
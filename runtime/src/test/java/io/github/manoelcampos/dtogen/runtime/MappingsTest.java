@@ -0,0 +1,192 @@
+package io.github.manoelcampos.dtogen.runtime;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author Manoel Campos
+ */
+class MappingsTest {
+    record Country(long id, String name) {}
+
+    @Test
+    void mapList() {
+        assertNull(Mappings.mapList(null, Object::toString));
+        assertEquals(List.of(), Mappings.mapList(List.of(), Object::toString));
+        assertEquals(List.of("1", "2"), Mappings.mapList(List.of(1, 2), Object::toString));
+        assertEquals(List.of("1", "2"), Mappings.mapList(new LinkedList<>(List.of(1, 2)), Object::toString));
+        assertThrows(UnsupportedOperationException.class, () -> Mappings.mapList(List.of(1), Object::toString).add("3"));
+        assertEquals(Arrays.asList("1", null), Mappings.mapList(Arrays.asList(1, null), Object::toString));
+        assertEquals(List.of("1", "2"), Mappings.mapList(new TreeSet<>(Set.of(2, 1)), Object::toString));
+    }
+
+    @Test
+    void mapListParallel() {
+        assertNull(Mappings.mapListParallel(null, Object::toString, 1));
+        final var source = IntStream.range(0, 10_000).boxed().toList();
+        final var expected = source.stream().map(Object::toString).toList();
+        assertEquals(expected, Mappings.mapListParallel(source, Object::toString, 1000));
+        assertEquals(expected, Mappings.mapListParallel(new LinkedList<>(source), Object::toString, 1000));
+        assertEquals(expected, Mappings.mapListParallel(source, Object::toString, 20_000));
+        assertEquals(Arrays.asList("1", null), Mappings.mapListParallel(Arrays.asList(1, null), Object::toString, 1));
+        assertThrows(UnsupportedOperationException.class, () -> Mappings.mapListParallel(source, Object::toString, 1).set(0, ""));
+    }
+
+    @Test
+    void viewList() {
+        assertNull(Mappings.viewList(null, Object::toString, false));
+        final var mappedCount = new AtomicInteger();
+        final Function<Integer, String> mapper = item -> {
+            mappedCount.incrementAndGet();
+            return item.toString();
+        };
+
+        final var view = Mappings.viewList(Arrays.asList(1, null, 3), mapper, false);
+        assertEquals(0, mappedCount.get());
+        assertEquals(3, view.size());
+        assertEquals("3", view.get(2));
+        assertEquals("3", view.get(2));
+        assertEquals(2, mappedCount.get());
+        assertEquals(Arrays.asList("1", null, "3"), view);
+        assertThrows(UnsupportedOperationException.class, () -> view.add("4"));
+
+        mappedCount.set(0);
+        final var memoizedView = Mappings.viewList(new LinkedList<>(List.of(1, 2)), mapper, true);
+        assertEquals("2", memoizedView.get(1));
+        assertEquals("2", memoizedView.get(1));
+        assertEquals(1, mappedCount.get());
+        assertEquals(List.of("1", "2"), memoizedView);
+        assertEquals(2, mappedCount.get());
+    }
+
+    /**
+     * Checks that the items of a memoized view read by multiple threads at once are the same objects for all of them.
+     */
+    @Test
+    void viewListMemoizedAcrossThreads() {
+        final int size = 100;
+        final var view = Mappings.viewList(IntStream.range(0, size).boxed().toList(), item -> new Object(), true);
+        final var reads = new Object[size * 16];
+        IntStream.range(0, reads.length).parallel().forEach(i -> reads[i] = view.get(i % size));
+        for (int i = 0; i < reads.length; i++)
+            assertSame(view.get(i % size), reads[i]);
+    }
+
+    @Test
+    void mapSet() {
+        assertNull(Mappings.mapSet(null, Object::toString));
+        assertEquals(Set.of(), Mappings.mapSet(Set.of(), Object::toString));
+        assertEquals(List.of("3", "1", "2"), List.copyOf(Mappings.mapSet(new LinkedHashSet<>(List.of(3, 1, 2)), Object::toString)));
+        assertThrows(UnsupportedOperationException.class, () -> Mappings.mapSet(Set.of(1), Object::toString).add("3"));
+    }
+
+    @Test
+    void mapMap() {
+        assertNull(Mappings.mapMap(null, Function.identity(), Object::toString));
+        assertEquals(Map.of(), Mappings.mapMap(Map.of(), Function.identity(), Object::toString));
+
+        final var source = new LinkedHashMap<String, Integer>();
+        source.put("b", 2);
+        source.put("a", null);
+        final var target = Mappings.mapMap(source, Function.identity(), Object::toString);
+        assertEquals(List.of("b", "a"), List.copyOf(target.keySet()));
+        assertEquals("2", target.get("b"));
+        assertNull(target.get("a"));
+        assertThrows(UnsupportedOperationException.class, () -> target.put("c", "3"));
+    }
+
+    @Test
+    void mapArray() {
+        assertNull(Mappings.mapArray(null, String[]::new, Object::toString));
+        assertArrayEquals(new String[]{"1", null}, Mappings.mapArray(new Integer[]{1, null}, String[]::new, Object::toString));
+    }
+
+    @Test
+    void mapOptional() {
+        assertNull(Mappings.mapOptional(null, Object::toString));
+        assertEquals(Optional.empty(), Mappings.mapOptional(Optional.empty(), Object::toString));
+        assertEquals(Optional.of("1"), Mappings.mapOptional(Optional.of(1), Object::toString));
+    }
+
+    @Test
+    void mapStream() {
+        assertNull(Mappings.mapStream(null, Object::toString));
+        final var mapped = Mappings.mapStream(Stream.of(1, null, 3), Object::toString);
+        assertEquals(Arrays.asList("1", null, "3"), mapped.toList());
+
+        final var sized = Mappings.mapStream(IntStream.range(0, 100).boxed(), Object::toString).spliterator();
+        assertEquals(100, sized.getExactSizeIfKnown());
+    }
+
+    @Test
+    void mapSpliterator() {
+        assertNull(Mappings.mapSpliterator(null, Object::toString));
+        final var source = IntStream.range(0, 1000).boxed().toList();
+        final var spliterator = Mappings.mapSpliterator(new TreeSet<>(source).spliterator(), Object::toString);
+        assertEquals(1000, spliterator.getExactSizeIfKnown());
+        assertFalse(spliterator.hasCharacteristics(Spliterator.SORTED));
+        assertFalse(spliterator.hasCharacteristics(Spliterator.DISTINCT));
+
+        final var listSpliterator = Mappings.mapSpliterator(source.spliterator(), Object::toString);
+        assertTrue(listSpliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+        final var prefix = listSpliterator.trySplit();
+        assertEquals(500, prefix.getExactSizeIfKnown());
+        assertEquals(500, listSpliterator.getExactSizeIfKnown());
+
+        final var expected = source.stream().map(Object::toString).toList();
+        assertEquals(expected, StreamSupport.stream(Mappings.mapSpliterator(source.spliterator(), Object::toString), true).toList());
+    }
+
+    @Test
+    void mappingCollector() {
+        final var source = IntStream.range(0, 10_000).boxed().toList();
+        final var expected = source.stream().map(Object::toString).toList();
+        assertEquals(expected, source.stream().collect(Mappings.mappingCollector(Object::toString, 0)));
+        assertEquals(expected, source.parallelStream().collect(Mappings.mappingCollector(Object::toString, 100)));
+        assertEquals(Arrays.asList("1", null), Stream.of(1, null).collect(Mappings.mappingCollector(Object::toString, 2)));
+        assertThrows(UnsupportedOperationException.class, () -> Stream.of(1).collect(Mappings.mappingCollector(Object::toString, 1)).add(""));
+    }
+
+    @Test
+    void hasId() {
+        assertFalse(Mappings.hasId(0L));
+        assertTrue(Mappings.hasId(1L));
+        assertFalse(Mappings.hasId(null));
+        assertFalse(Mappings.hasId(Long.valueOf(0)));
+        assertTrue(Mappings.hasId(Double.valueOf(0.5)));
+        assertFalse(Mappings.hasId(" "));
+        assertTrue(Mappings.hasId("A1"));
+    }
+
+    @Test
+    void newObject() {
+        assertNull(Mappings.newObject(0L, () -> new Country(0, "")));
+        assertEquals(new Country(1, ""), Mappings.newObject(1L, () -> new Country(1, "")));
+        assertNull(Mappings.newObject((Object) null, () -> new Country(0, "")));
+    }
+
+    @Test
+    void associationIds() {
+        assertEquals(0, Mappings.longId(null, Country::id));
+        assertEquals(2, Mappings.longId(new Country(2, "Brazil"), Country::id));
+        assertEquals(0, Mappings.intId(null, (Country country) -> country.name().length()));
+        assertEquals(6, Mappings.intId(new Country(2, "Brazil"), country -> country.name().length()));
+    }
+}
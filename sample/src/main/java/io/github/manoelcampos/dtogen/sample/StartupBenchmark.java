@@ -0,0 +1,172 @@
+package io.github.manoelcampos.dtogen.sample;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Measures how much an AppCDS archive including the classes listed by DTOGen
+ * (when compiling with {@code -Adtogen.classlist=true}) reduces the time to load the DTO records and model classes.
+ *
+ * <p>It creates two archives exactly the same way (from the JDK default class list plus this benchmark class),
+ * but just one of them includes the DTOGen class list. This way, the only difference between them are the DTOGen classes,
+ * instead of comparing an archive created by the benchmark with the one shipped with the JDK
+ * (which is created with different options and includes other data).
+ * Then it starts a JVM multiple times with each archive, loading all listed classes.
+ * The main result is the time to load those classes: for a few DTOs, it's just a small part of the JVM run time,
+ * whose variation between runs is usually larger than the time saved.</p>
+ *
+ * <p>CDS doesn't archive classes from directories, so the benchmark must run from the sample jar:
+ * {@code mvn package && java -cp target/dtogen-sample-2.1.7.jar io.github.manoelcampos.dtogen.sample.StartupBenchmark 20},
+ * where 20 is the number of JVMs started for each archive.</p>
+ * @author Manoel Campos
+ */
+public class StartupBenchmark {
+    private static final String CLASS_LIST_RESOURCE = "/META-INF/dtogen/classlist";
+    private static final String LOAD_ARG = "--load";
+
+    /**
+     * The number of JVMs started with each archive before measuring,
+     * so that the archive files are in the OS page cache for all measured runs.
+     */
+    private static final int WARMUP_RUNS = 2;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(LOAD_ARG)) {
+            loadClasses();
+            return;
+        }
+
+        final int runs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        final var classPath = System.getProperty("java.class.path");
+        if (Stream.of(classPath.split(java.io.File.pathSeparator)).anyMatch(entry -> Files.isDirectory(Path.of(entry)))) {
+            System.err.println("CDS doesn't archive classes from directories. Run the benchmark from the sample jar.");
+            System.exit(1);
+        }
+
+        final var workDir = Files.createTempDirectory("dtogen-cds");
+        final var baseArchive = dump(workDir, "base", List.of());
+        final var dtoArchive = dump(workDir, "dtos", dtogenClassList());
+
+        final var baseCds = new ArrayList<long[]>();
+        final var dtoCds = new ArrayList<long[]>();
+        for (int i = -WARMUP_RUNS; i < runs; i++) {
+            // Archives are interleaved, so that changes in the machine load affect both of them
+            final var baseTimes = run(List.of("-XX:SharedArchiveFile=" + baseArchive));
+            final var dtoTimes = run(List.of("-XX:SharedArchiveFile=" + dtoArchive));
+            if (i >= 0) {
+                baseCds.add(baseTimes);
+                dtoCds.add(dtoTimes);
+            }
+        }
+
+        System.out.printf("Classes listed by DTOGen: %d%n", dtogenClassList().size());
+        print("CDS archive without DTOGen classes", baseCds);
+        print("CDS archive with DTOGen classes", dtoCds);
+    }
+
+    /**
+     * Creates a CDS archive from the JDK default class list (if available), this benchmark class and some other classes,
+     * since an archive created from a class list includes just the listed classes.
+     * @param workDir the dir to create the archive into
+     * @param name the name of the archive
+     * @param extraClasses the binary names (using / as package separator) of the other classes to include
+     * @return the path of the archive file
+     */
+    private static String dump(final Path workDir, final String name, final List<String> extraClasses) throws IOException, InterruptedException {
+        final var lines = new ArrayList<String>();
+        final var jdkClassList = Path.of(System.getProperty("java.home"), "lib", "classlist");
+        if (Files.exists(jdkClassList))
+            lines.addAll(Files.readAllLines(jdkClassList));
+
+        lines.add(StartupBenchmark.class.getName().replace('.', '/'));
+        lines.addAll(extraClasses);
+
+        final var classListFile = workDir.resolve(name + ".classlist");
+        final var archive = workDir.resolve(name + ".jsa").toString();
+        Files.write(classListFile, lines);
+        java(List.of("-Xshare:dump", "-XX:SharedClassListFile=" + classListFile, "-XX:SharedArchiveFile=" + archive));
+        return archive;
+    }
+
+    /**
+     * Loads and initializes all classes listed by DTOGen, printing the elapsed time in nanoseconds
+     * (which doesn't include reading the list).
+     */
+    private static void loadClasses() throws ClassNotFoundException {
+        final var classNames = dtogenClassList();
+        final var loader = StartupBenchmark.class.getClassLoader();
+        final long start = System.nanoTime();
+        for (final String className : classNames)
+            Class.forName(className.replace('/', '.'), true, loader);
+
+        System.out.println(System.nanoTime() - start);
+    }
+
+    /**
+     * Starts a JVM loading the DTOGen listed classes.
+     * @param jvmOptions the options for the JVM
+     * @return an array with the time (in nanoseconds) the JVM process took and the time it took to load the classes
+     */
+    private static long[] run(final List<String> jvmOptions) throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final var output = java(jvmOptions, StartupBenchmark.class.getName(), LOAD_ARG);
+        final long processTime = System.nanoTime() - start;
+        return new long[]{processTime, Long.parseLong(output.strip())};
+    }
+
+    /**
+     * Runs the java command with the same class path as the running JVM.
+     * @param jvmOptions the options for the JVM
+     * @param args the main class (and its arguments) to run
+     * @return the standard output of the command
+     */
+    private static String java(final List<String> jvmOptions, final String... args) throws IOException, InterruptedException {
+        final var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-cp", System.getProperty("java.class.path")));
+        command.addAll(List.of(args));
+
+        final var process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        final var output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (process.waitFor() != 0)
+            throw new IllegalStateException("The JVM failed: " + String.join(" ", command) + System.lineSeparator() + output);
+
+        return output;
+    }
+
+    private static void print(final String configuration, final List<long[]> times) {
+        System.out.printf(
+                "%-35s DTOGen classes loaded in: %7.3f ms | JVM run: %7.2f ms (medians)%n",
+                configuration, median(times, 1) / 1_000_000.0, median(times, 0) / 1_000_000.0);
+    }
+
+    private static long median(final List<long[]> times, final int index) {
+        final var sorted = times.stream().mapToLong(time -> time[index]).sorted().toArray();
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * {@return the names of the classes listed by DTOGen}
+     */
+    private static List<String> dtogenClassList() {
+        final var resource = Objects.requireNonNull(
+                StartupBenchmark.class.getResourceAsStream(CLASS_LIST_RESOURCE),
+                CLASS_LIST_RESOURCE + " not found. Compile the sample with -Adtogen.classlist=true.");
+
+        try (var reader = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+            return reader.lines().filter(line -> !line.isBlank() && !line.startsWith("#")).toList();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}